@@ -0,0 +1,244 @@
+package edu.eci.arsw.calls.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import jakarta.websocket.Decoder;
+import jakarta.websocket.Encoder;
+import jakarta.websocket.Extension;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.http.server.ServerHttpRequest;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.server.standard.StandardWebSocketUpgradeStrategy;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Upgrade estándar (JSR-356) que aplica la política de permessage-deflate
+ * (RFC 7692) al negociar extensiones en {@code /ws/call}. Se puede desactivar
+ * y se puede pedir que el servidor o el cliente no conserven el contexto de
+ * compresión entre mensajes: menos memoria por conexión a cambio de peor ratio
+ * en SDP sucesivos.
+ *
+ * <p>Una vez negociada, el contenedor comprime todos los frames de datos; el
+ * coste real se estima con {@link edu.eci.arsw.calls.ws.DeflateSampler}.
+ */
+public class DeflateUpgradeStrategy extends StandardWebSocketUpgradeStrategy {
+    static final String NAME = "permessage-deflate";
+    static final String SERVER_NO_CONTEXT_TAKEOVER = "server_no_context_takeover";
+    static final String CLIENT_NO_CONTEXT_TAKEOVER = "client_no_context_takeover";
+
+    private final boolean enabled;
+    private final boolean serverContextTakeover;
+    private final boolean clientContextTakeover;
+
+    private final Counter accepted;
+    private final Counter refused;
+    private final Counter notOffered;
+
+    /**
+     * @param registry              Registro de métricas.
+     * @param enabled               false para no negociar nunca la compresión.
+     * @param serverContextTakeover false para pedir {@code server_no_context_takeover}.
+     * @param clientContextTakeover false para pedir {@code client_no_context_takeover}.
+     */
+    public DeflateUpgradeStrategy(MeterRegistry registry, boolean enabled, boolean serverContextTakeover,
+            boolean clientContextTakeover) {
+        this.enabled = enabled;
+        this.serverContextTakeover = serverContextTakeover;
+        this.clientContextTakeover = clientContextTakeover;
+        this.accepted = handshakes(registry, "accepted");
+        this.refused = handshakes(registry, "refused");
+        this.notOffered = handshakes(registry, "not_offered");
+    }
+
+    private static Counter handshakes(MeterRegistry registry, String result) {
+        return Counter.builder("ws.deflate.handshakes").tag("result", result).register(registry);
+    }
+
+    @Override
+    public List<WebSocketExtension> getSupportedExtensions(ServerHttpRequest request) {
+        List<WebSocketExtension> supported = super.getSupportedExtensions(request);
+        return enabled ? supported : supported.stream().filter(e -> !NAME.equals(e.getName())).toList();
+    }
+
+    @Override
+    protected void upgradeHttpToWebSocket(HttpServletRequest request, HttpServletResponse response,
+            ServerEndpointConfig endpointConfig, Map<String, String> pathParams) throws Exception {
+        super.upgradeHttpToWebSocket(request, response, new PolicyConfig(endpointConfig), pathParams);
+    }
+
+    /**
+     * Fase 1 de la negociación: filtra lo que el contenedor no soporta (como el
+     * configurador por defecto) y aplica la política a cada oferta de deflate.
+     * Los parámetros que ya pidió el cliente se respetan.
+     *
+     * @param installed Extensiones instaladas en el contenedor.
+     * @param requested Ofertas del cliente, en su orden de preferencia.
+     * @return Extensiones que el contenedor terminará de negociar.
+     */
+    List<Extension> negotiate(List<Extension> installed, List<Extension> requested) {
+        Set<String> names = new HashSet<>();
+        for (Extension e : installed) {
+            names.add(e.getName());
+        }
+        List<Extension> result = new ArrayList<>();
+        boolean offered = false;
+        for (Extension e : requested) {
+            if (!names.contains(e.getName())) {
+                continue;
+            }
+            if (NAME.equals(e.getName())) {
+                offered = true;
+                if (!enabled) {
+                    continue;
+                }
+                e = withPolicy(e);
+            }
+            result.add(e);
+        }
+        if (!offered) {
+            notOffered.increment();
+        } else if (enabled) {
+            accepted.increment();
+        } else {
+            refused.increment();
+        }
+        return result;
+    }
+
+    private Extension withPolicy(Extension offer) {
+        List<Extension.Parameter> params = new ArrayList<>(offer.getParameters());
+        if (!serverContextTakeover) {
+            addIfMissing(params, SERVER_NO_CONTEXT_TAKEOVER);
+        }
+        if (!clientContextTakeover) {
+            addIfMissing(params, CLIENT_NO_CONTEXT_TAKEOVER);
+        }
+        return new Ext(offer.getName(), List.copyOf(params));
+    }
+
+    private static void addIfMissing(List<Extension.Parameter> params, String name) {
+        for (Extension.Parameter p : params) {
+            if (name.equals(p.getName())) {
+                return;
+            }
+        }
+        params.add(new Param(name, null));
+    }
+
+    private record Ext(String name, List<Extension.Parameter> parameters) implements Extension {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public List<Extension.Parameter> getParameters() {
+            return parameters;
+        }
+    }
+
+    private record Param(String name, String value) implements Extension.Parameter {
+        @Override
+        public String getName() {
+            return name;
+        }
+
+        @Override
+        public String getValue() {
+            return value;
+        }
+    }
+
+    /** Configuración del endpoint de Spring con la negociación de extensiones propia. */
+    private final class PolicyConfig implements ServerEndpointConfig {
+        private final ServerEndpointConfig delegate;
+        private final Configurator configurator;
+
+        PolicyConfig(ServerEndpointConfig delegate) {
+            this.delegate = delegate;
+            this.configurator = new PolicyConfigurator(delegate.getConfigurator());
+        }
+
+        @Override
+        public Class<?> getEndpointClass() {
+            return delegate.getEndpointClass();
+        }
+
+        @Override
+        public String getPath() {
+            return delegate.getPath();
+        }
+
+        @Override
+        public List<String> getSubprotocols() {
+            return delegate.getSubprotocols();
+        }
+
+        @Override
+        public List<Extension> getExtensions() {
+            return delegate.getExtensions();
+        }
+
+        @Override
+        public Configurator getConfigurator() {
+            return configurator;
+        }
+
+        @Override
+        public List<Class<? extends Encoder>> getEncoders() {
+            return delegate.getEncoders();
+        }
+
+        @Override
+        public List<Class<? extends Decoder>> getDecoders() {
+            return delegate.getDecoders();
+        }
+
+        @Override
+        public Map<String, Object> getUserProperties() {
+            return delegate.getUserProperties();
+        }
+    }
+
+    private final class PolicyConfigurator extends ServerEndpointConfig.Configurator {
+        private final ServerEndpointConfig.Configurator delegate;
+
+        PolicyConfigurator(ServerEndpointConfig.Configurator delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+            return negotiate(installed, requested);
+        }
+
+        @Override
+        public String getNegotiatedSubprotocol(List<String> supported, List<String> requested) {
+            return delegate.getNegotiatedSubprotocol(supported, requested);
+        }
+
+        @Override
+        public boolean checkOrigin(String originHeaderValue) {
+            return delegate.checkOrigin(originHeaderValue);
+        }
+
+        @Override
+        public void modifyHandshake(ServerEndpointConfig sec, HandshakeRequest request, HandshakeResponse response) {
+            delegate.modifyHandshake(sec, request, response);
+        }
+
+        @Override
+        public <T> T getEndpointInstance(Class<T> clazz) throws InstantiationException {
+            return delegate.getEndpointInstance(clazz);
+        }
+    }
+}
@@ -1,12 +1,17 @@
 package edu.eci.arsw.calls.config;
 
+import io.lettuce.core.ClientOptions;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.listener.*;
 
+import java.time.Duration;
+
 /**
  * Configuración de Redis para la aplicación.
  */
@@ -18,9 +23,23 @@ public class RedisConfig {
     @Value("${redis.port:6379}")
     private int port;
 
+    @Value("${redis.command-timeout-ms:2000}")
+    private long commandTimeoutMs = 2000;
+
+    /**
+     * Conexión a Redis. Sin conexión los comandos fallan al momento en vez de
+     * encolarse, para que el puente pase a modo local y el sondeo de
+     * recuperación no se quede esperando.
+     */
     @Bean
     public LettuceConnectionFactory redisConnectionFactory() {
-        return new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port));
+        LettuceClientConfiguration client = LettuceClientConfiguration.builder()
+                .commandTimeout(Duration.ofMillis(commandTimeoutMs))
+                .clientOptions(ClientOptions.builder()
+                        .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                        .build())
+                .build();
+        return new LettuceConnectionFactory(new RedisStandaloneConfiguration(host, port), client);
     }
 
     @Bean
@@ -28,10 +47,17 @@ public class RedisConfig {
         return new StringRedisTemplate(cf);
     }
 
+    /**
+     * Contenedor de listeners. Los listeners del puente solo encolan el mensaje
+     * en el carril de su canal ({@code StripedDispatcher.submit}, que nunca
+     * bloquea), así que se invocan en el hilo que recibe de Redis en vez de
+     * crear un hilo por mensaje.
+     */
     @Bean
     public RedisMessageListenerContainer redisContainer(LettuceConnectionFactory cf) {
         RedisMessageListenerContainer c = new RedisMessageListenerContainer();
         c.setConnectionFactory(cf);
+        c.setTaskExecutor(new SyncTaskExecutor());
         return c;
     }
 }
@@ -1,11 +1,14 @@
 package edu.eci.arsw.calls.config;
 
 import edu.eci.arsw.calls.ws.CallWebSocketHandler;
+import edu.eci.arsw.calls.ws.SignalingCodecs;
 import edu.eci.arsw.calls.security.WsAuthHandshakeInterceptor;
+import io.micrometer.core.instrument.MeterRegistry;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.*;
 import org.springframework.web.socket.config.annotation.*;
 import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
 /**
  * Configuración de WebSocket para la aplicación.
@@ -16,6 +19,8 @@ public class WebSocketConfig implements WebSocketConfigurer {
 
     private final CallWebSocketHandler handler;
     private final WsAuthHandshakeInterceptor interceptor;
+    private final SignalingCodecs codecs;
+    private final MeterRegistry registry;
 
     @Value("${app.ws.max-message-size:65536}")
     private int maxMessageSize;
@@ -23,16 +28,46 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Value("${app.ws.idle-timeout-seconds:30}")
     private long idleTimeout;
 
-    public WebSocketConfig(CallWebSocketHandler handler, WsAuthHandshakeInterceptor interceptor) {
+    @Value("${app.ws.deflate.enabled:true}")
+    private boolean deflateEnabled;
+
+    @Value("${app.ws.deflate.server-context-takeover:true}")
+    private boolean serverContextTakeover;
+
+    @Value("${app.ws.deflate.client-context-takeover:true}")
+    private boolean clientContextTakeover;
+
+    public WebSocketConfig(CallWebSocketHandler handler, WsAuthHandshakeInterceptor interceptor,
+            SignalingCodecs codecs, MeterRegistry registry) {
         this.handler = handler;
         this.interceptor = interceptor;
+        this.codecs = codecs;
+        this.registry = registry;
     }
 
     @Override
     public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
         registry.addHandler(handler, "/ws/call")
                 .addInterceptors(interceptor)
-                .setAllowedOriginPatterns("*");
+                .setAllowedOriginPatterns("*")
+                .setHandshakeHandler(handshakeHandler());
+    }
+
+    /**
+     * Handshake que negocia el subprotocolo de señalización
+     * ({@code Sec-WebSocket-Protocol}), sin subprotocolo se usa JSON, y la
+     * compresión permessage-deflate según {@code app.ws.deflate.*}.
+     *
+     * @return Handshake handler con los subprotocolos soportados.
+     */
+    DefaultHandshakeHandler handshakeHandler() {
+        DefaultHandshakeHandler hh = new DefaultHandshakeHandler(upgradeStrategy());
+        hh.setSupportedProtocols(codecs.subprotocols().toArray(String[]::new));
+        return hh;
+    }
+
+    DeflateUpgradeStrategy upgradeStrategy() {
+        return new DeflateUpgradeStrategy(registry, deflateEnabled, serverContextTakeover, clientContextTakeover);
     }
 
     @Bean
@@ -0,0 +1,251 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.lettuce.core.AbstractRedisClient;
+import io.lettuce.core.RedisClient;
+import io.lettuce.core.api.StatefulRedisConnection;
+import io.lettuce.core.api.async.RedisAsyncCommands;
+import io.lettuce.core.codec.ByteArrayCodec;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Publicación a Redis sin bloquear al llamador: los PUBLISH se acumulan durante
+ * {@code app.pubsub.batch.window-us} o hasta {@code app.pubsub.batch.max-size}
+ * mensajes y se envían como un pipeline por una conexión Lettuce asíncrona
+ * propia. Un único hilo vacía la cola por orden de llegada sobre una sola
+ * conexión, así que el orden por canal se conserva.
+ *
+ * <p>Solo se usa con {@code app.pubsub.batch.enabled=true}.
+ */
+@Component
+public class BatchingPublisher {
+    private static final Logger log = LoggerFactory.getLogger(BatchingPublisher.class);
+
+    private static final int QUEUE_CAPACITY = 65_536;
+
+    /** Destino de los PUBLISH: se encolan en el pipeline y se envían en {@link #flush()}. */
+    interface Pipeline {
+        CompletionStage<Long> publish(byte[] channel, byte[] message);
+
+        void flush();
+
+        void close();
+    }
+
+    private record Pending(byte[] channel, byte[] message, long enqueuedAt) {
+    }
+
+    private final boolean enabled;
+    private final @Nullable Supplier<Pipeline> connector;
+    private final long windowNanos;
+    private final int maxSize;
+    private final BlockingQueue<Pending> queue = new LinkedBlockingQueue<>(QUEUE_CAPACITY);
+
+    private final DistributionSummary batchSize;
+    private final Timer latency;
+    private final Counter failed;
+
+    private volatile Consumer<Throwable> onFailure = ex -> {
+    };
+    /** Solo lo usa el hilo del lote (y el cierre). */
+    private volatile Pipeline pipeline;
+    private final AtomicBoolean started = new AtomicBoolean();
+    private volatile Thread flusher;
+
+    @Autowired
+    public BatchingPublisher(@Autowired(required = false) LettuceConnectionFactory connectionFactory,
+            MeterRegistry registry,
+            @Value("${app.pubsub.batch.enabled:false}") boolean enabled,
+            @Value("${app.pubsub.batch.window-us:1000}") long windowMicros,
+            @Value("${app.pubsub.batch.max-size:64}") int maxSize) {
+        this(enabled && connectionFactory != null ? () -> lettuce(connectionFactory) : null,
+                registry, windowMicros, maxSize);
+    }
+
+    BatchingPublisher(@Nullable Supplier<Pipeline> connector, MeterRegistry registry, long windowMicros,
+            int maxSize) {
+        this.enabled = connector != null;
+        this.connector = connector;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.maxSize = Math.max(1, maxSize);
+
+        this.batchSize = DistributionSummary.builder("pubsub.publish.batch.size")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.latency = Timer.builder("pubsub.publish.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.failed = Counter.builder("pubsub.publish.failed").register(registry);
+    }
+
+    private static Pipeline lettuce(LettuceConnectionFactory cf) {
+        AbstractRedisClient client = cf.getNativeClient();
+        if (!(client instanceof RedisClient redis)) {
+            throw new IllegalStateException("Batching publisher needs a standalone Redis client");
+        }
+        StatefulRedisConnection<byte[], byte[]> conn = redis.connect(ByteArrayCodec.INSTANCE);
+        conn.setAutoFlushCommands(false);
+        RedisAsyncCommands<byte[], byte[]> async = conn.async();
+        return new Pipeline() {
+            @Override
+            public CompletionStage<Long> publish(byte[] channel, byte[] message) {
+                return async.publish(channel, message);
+            }
+
+            @Override
+            public void flush() {
+                conn.flushCommands();
+            }
+
+            @Override
+            public void close() {
+                conn.close();
+            }
+        };
+    }
+
+    /**
+     * Indica si la publicación por lotes está activa.
+     *
+     * @return true con {@code app.pubsub.batch.enabled=true} y Redis configurado.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Acción ante un fallo de envío (los fallos llegan desde el hilo del lote).
+     *
+     * @param onFailure Acción.
+     */
+    public void onFailure(Consumer<Throwable> onFailure) {
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Encola un PUBLISH; no espera a Redis.
+     *
+     * @param channel Canal.
+     * @param message Mensaje.
+     * @throws IllegalStateException Si la cola está llena (Redis no da abasto).
+     */
+    public void publish(String channel, String message) {
+        publish(channel, message.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Encola un PUBLISH de un mensaje binario; no espera a Redis.
+     *
+     * @param channel Canal.
+     * @param message Mensaje.
+     * @throws IllegalStateException Si la cola está llena (Redis no da abasto).
+     */
+    public void publish(String channel, byte[] message) {
+        if (!started.get()) {
+            start();
+        }
+        if (!queue.offer(new Pending(channel.getBytes(StandardCharsets.UTF_8), message, System.nanoTime()))) {
+            throw new IllegalStateException("Redis publish queue full");
+        }
+    }
+
+    /** Arranca el hilo del lote con la primera publicación; sin lock en el camino de publish. */
+    private void start() {
+        if (!started.compareAndSet(false, true)) {
+            return;
+        }
+        CustomizableThreadFactory tf = new CustomizableThreadFactory("redis-publisher-");
+        tf.setDaemon(true);
+        flusher = tf.newThread(this::run);
+        flusher.start();
+    }
+
+    private void run() {
+        List<Pending> batch = new ArrayList<>(maxSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Pending first = queue.take();
+                batch.add(first);
+                long deadline = first.enqueuedAt() + windowNanos;
+                while (batch.size() < maxSize) {
+                    long remaining = deadline - System.nanoTime();
+                    Pending next = (remaining > 0) ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                flush(batch);
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void flush(List<Pending> batch) {
+        try {
+            if (pipeline == null) {
+                pipeline = connector.get();
+            }
+            for (Pending p : batch) {
+                pipeline.publish(p.channel(), p.message()).whenComplete((receivers, ex) -> {
+                    if (ex != null) {
+                        fail(ex);
+                    } else {
+                        latency.record(System.nanoTime() - p.enqueuedAt(), TimeUnit.NANOSECONDS);
+                    }
+                });
+            }
+            batchSize.record(batch.size());
+            pipeline.flush();
+        } catch (Exception e) {
+            fail(e);
+        }
+    }
+
+    private void fail(Throwable ex) {
+        failed.increment();
+        try {
+            onFailure.accept(ex);
+        } catch (Exception e) {
+            log.warn("Error al notificar fallo de publicación: {}", e.toString());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        // Tras el cierre ya no se arranca otro hilo
+        started.set(true);
+        Thread t = flusher;
+        if (t != null) {
+            t.interrupt();
+        }
+        Pipeline p = pipeline;
+        if (p != null) {
+            p.close();
+        }
+    }
+}
@@ -0,0 +1,187 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Suscripciones a canales con conteo de referencias: cada participante local
+ * registrado retiene el canal de su llamada y lo libera al salir. Al llegar a
+ * cero el canal se retira del {@link RedisPubSubBridge} tras
+ * {@code app.pubsub.unsubscribe-grace-ms}, para que una reconexión inmediata
+ * no pague un UNSUBSCRIBE/SUBSCRIBE.
+ *
+ * <p>El {@code compute} del mapa solo cambia el estado de la entrada; el
+ * SUBSCRIBE/UNSUBSCRIBE contra Redis se hace fuera, para no retener el
+ * bloqueo del bin mientras tanto. Quien crea la entrada se suscribe y el
+ * resto espera a {@code subscribed}; una entrada que se cierra queda marcada
+ * hasta terminar su UNSUBSCRIBE, y la que la sustituye espera a
+ * {@code unsubscribed} antes de volver a suscribirse.</p>
+ */
+@Component
+public class ChannelSubscriptions {
+
+    private static final class Entry {
+        volatile int refs;
+        ScheduledFuture<?> pending;
+        boolean closing;
+        /** Entrada anterior del canal, aún desuscribiéndose. */
+        Entry previous;
+        final CompletableFuture<Void> subscribed = new CompletableFuture<>();
+        final CompletableFuture<Void> unsubscribed = new CompletableFuture<>();
+    }
+
+    private final RedisPubSubBridge bridge;
+    private final long graceMs;
+    private final ScheduledExecutorService scheduler;
+    private final Map<String, Entry> channels = new ConcurrentHashMap<>();
+    private final Counter unsubscribed;
+
+    public ChannelSubscriptions(RedisPubSubBridge bridge,
+            MeterRegistry registry,
+            @Value("${app.pubsub.unsubscribe-grace-ms:15000}") long graceMs) {
+        this.bridge = bridge;
+        this.graceMs = graceMs;
+        CustomizableThreadFactory tf = new CustomizableThreadFactory("pubsub-unsub-");
+        tf.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(tf);
+
+        Gauge.builder("pubsub.channels.active", channels, Map::size).register(registry);
+        this.unsubscribed = Counter.builder("pubsub.channels.unsubscribed").register(registry);
+    }
+
+    /**
+     * Retiene el canal; la primera referencia lo suscribe y cualquier
+     * referencia cancela una desuscripción pendiente. Vuelve cuando el canal
+     * ya está suscrito.
+     *
+     * @param channel  Canal.
+     * @param consumer Crea el consumidor si hay que suscribirse.
+     */
+    public void retain(String channel, Supplier<Consumer<RelayFrame>> consumer) {
+        boolean[] created = new boolean[1];
+        Entry entry = channels.compute(channel, (k, e) -> {
+            if (e == null || e.closing) {
+                Entry fresh = new Entry();
+                fresh.previous = e;
+                created[0] = true;
+                e = fresh;
+            }
+            e.refs++;
+            if (e.pending != null) {
+                e.pending.cancel(false);
+                e.pending = null;
+            }
+            return e;
+        });
+        if (created[0]) {
+            subscribe(channel, entry, consumer);
+        } else {
+            entry.subscribed.join();
+        }
+    }
+
+    private void subscribe(String channel, Entry entry, Supplier<Consumer<RelayFrame>> consumer) {
+        try {
+            if (entry.previous != null) {
+                entry.previous.unsubscribed.join();
+                entry.previous = null;
+            }
+            bridge.subscribe(channel, consumer.get());
+            entry.subscribed.complete(null);
+        } catch (RuntimeException ex) {
+            channels.remove(channel, entry);
+            entry.subscribed.completeExceptionally(ex);
+            entry.unsubscribed.complete(null);
+            throw ex;
+        }
+    }
+
+    /**
+     * Libera una referencia; con la última se programa la desuscripción.
+     *
+     * @param channel Canal.
+     */
+    public void release(String channel) {
+        Entry[] closed = new Entry[1];
+        channels.computeIfPresent(channel, (k, e) -> {
+            if (e.closing || --e.refs > 0) {
+                return e;
+            }
+            if (graceMs <= 0) {
+                e.closing = true;
+                closed[0] = e;
+                return e;
+            }
+            e.pending = scheduler.schedule(() -> expire(k, e), graceMs, TimeUnit.MILLISECONDS);
+            return e;
+        });
+        if (closed[0] != null) {
+            unsubscribe(channel, closed[0]);
+        }
+    }
+
+    private void expire(String channel, Entry expected) {
+        Entry[] closed = new Entry[1];
+        channels.computeIfPresent(channel, (k, e) -> {
+            if (e != expected || e.refs > 0 || e.closing) {
+                return e;
+            }
+            e.closing = true;
+            closed[0] = e;
+            return e;
+        });
+        if (closed[0] != null) {
+            unsubscribe(channel, closed[0]);
+        }
+    }
+
+    private void unsubscribe(String channel, Entry entry) {
+        try {
+            bridge.unsubscribe(channel);
+            unsubscribed.increment();
+        } finally {
+            channels.remove(channel, entry);
+            entry.unsubscribed.complete(null);
+        }
+    }
+
+    /**
+     * Referencias vivas de un canal.
+     *
+     * @param channel Canal.
+     * @return Referencias, 0 si no está suscrito o está en gracia.
+     */
+    public int refs(String channel) {
+        Entry e = channels.get(channel);
+        return (e == null) ? 0 : e.refs;
+    }
+
+    /**
+     * Canales suscritos en este nodo, incluidos los que están en gracia.
+     *
+     * @return Número de canales.
+     */
+    public int active() {
+        return channels.size();
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
@@ -0,0 +1,31 @@
+package edu.eci.arsw.calls.pubsub;
+
+import de.huxhorn.sulky.ulid.ULID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Identidad de este nodo dentro del clúster de señalización.
+ */
+@Component
+public class NodeIdentity {
+    private static final Logger log = LoggerFactory.getLogger(NodeIdentity.class);
+
+    private final String id;
+
+    public NodeIdentity(@Value("${app.node-id:}") String configured) {
+        this.id = (configured == null || configured.isBlank()) ? new ULID().nextULID() : configured.trim();
+        log.info("Node id {}", id);
+    }
+
+    /**
+     * ID del nodo (configurado con {@code app.node-id} o generado al arrancar).
+     *
+     * @return ID del nodo.
+     */
+    public String id() {
+        return id;
+    }
+}
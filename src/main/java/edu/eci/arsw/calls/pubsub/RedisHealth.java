@@ -0,0 +1,171 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+/**
+ * Estado de la conexión con Redis. Tras un fallo se pasa a {@code DOWN} y se
+ * sondea Redis con PING en segundo plano, con espera exponencial
+ * ({@code app.pubsub.recovery.initial-ms} hasta
+ * {@code app.pubsub.recovery.max-ms}). Cuando responde se ejecutan las acciones
+ * de recuperación (p.ej. volver a suscribir los canales) y, si todas terminan
+ * bien, se vuelve a {@code UP}. Si Redis vuelve a fallar mientras se recupera,
+ * se vuelve a {@code DOWN} y se sigue sondeando.
+ *
+ * <p>Métricas: gauge {@code pubsub.redis.up} (1/0) y contador
+ * {@code pubsub.redis.transitions{to}}.
+ */
+@Component
+public class RedisHealth {
+    private static final Logger log = LoggerFactory.getLogger(RedisHealth.class);
+
+    /** Estado de Redis visto por este nodo. */
+    public enum State {
+        UP, DOWN
+    }
+
+    private final @Nullable BooleanSupplier probe;
+    private final long initialBackoffMs;
+    private final long maxBackoffMs;
+    private final AtomicReference<State> state = new AtomicReference<>(State.UP);
+    /** Fallos informados, también los que llegan ya en {@code DOWN}. */
+    private final AtomicLong failures = new AtomicLong();
+    private final List<Runnable> recoveryActions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService scheduler;
+
+    private final Counter wentDown;
+    private final Counter wentUp;
+
+    @Autowired
+    public RedisHealth(@Autowired(required = false) StringRedisTemplate template,
+            MeterRegistry registry,
+            @Value("${app.pubsub.recovery.initial-ms:500}") long initialBackoffMs,
+            @Value("${app.pubsub.recovery.max-ms:30000}") long maxBackoffMs) {
+        this(template == null ? null : () -> ping(template), registry, initialBackoffMs, maxBackoffMs);
+    }
+
+    RedisHealth(@Nullable BooleanSupplier probe, MeterRegistry registry, long initialBackoffMs, long maxBackoffMs) {
+        this.probe = probe;
+        this.initialBackoffMs = Math.max(1, initialBackoffMs);
+        this.maxBackoffMs = Math.max(this.initialBackoffMs, maxBackoffMs);
+
+        CustomizableThreadFactory tf = new CustomizableThreadFactory("redis-probe-");
+        tf.setDaemon(true);
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(tf);
+
+        Gauge.builder("pubsub.redis.up", state, s -> s.get() == State.UP ? 1 : 0)
+                .register(registry);
+        this.wentDown = Counter.builder("pubsub.redis.transitions").tag("to", "down").register(registry);
+        this.wentUp = Counter.builder("pubsub.redis.transitions").tag("to", "up").register(registry);
+    }
+
+    private static boolean ping(StringRedisTemplate template) {
+        return "PONG".equals(template.execute((RedisCallback<String>) RedisConnection::ping));
+    }
+
+    /**
+     * Indica si hay Redis que sondear.
+     *
+     * @return true si Redis está configurado.
+     */
+    public boolean enabled() {
+        return probe != null;
+    }
+
+    /**
+     * Estado actual.
+     *
+     * @return {@code UP} o {@code DOWN}.
+     */
+    public State state() {
+        return state.get();
+    }
+
+    /**
+     * Registra una acción a ejecutar cuando Redis vuelve, antes de pasar a
+     * {@code UP}. Si lanza una excepción se sigue sondeando.
+     *
+     * @param action Acción de recuperación.
+     */
+    public void onRecovered(Runnable action) {
+        recoveryActions.add(action);
+    }
+
+    /**
+     * Informa de un fallo de Redis; con el primero se empieza a sondear.
+     *
+     * @param cause Error observado.
+     */
+    public void down(Throwable cause) {
+        if (probe == null) {
+            return;
+        }
+        failures.incrementAndGet();
+        if (!state.compareAndSet(State.UP, State.DOWN)) {
+            return;
+        }
+        wentDown.increment();
+        log.warn("Redis caído ({}). Sondeando cada {} ms como mínimo.", cause.toString(), initialBackoffMs);
+        schedule(initialBackoffMs);
+    }
+
+    private void schedule(long delayMs) {
+        try {
+            scheduler.schedule(() -> attempt(delayMs), delayMs, TimeUnit.MILLISECONDS);
+        } catch (Exception e) {
+            log.debug("Sondeo de Redis no programado: {}", e.toString());
+        }
+    }
+
+    private void attempt(long delayMs) {
+        long next = Math.min(delayMs * 2, maxBackoffMs);
+        long seen = failures.get();
+        try {
+            if (!probe.getAsBoolean()) {
+                schedule(next);
+                return;
+            }
+            for (Runnable action : recoveryActions) {
+                action.run();
+            }
+        } catch (Exception e) {
+            log.debug("Redis sigue caído: {}", e.toString());
+            schedule(next);
+            return;
+        }
+        state.set(State.UP);
+        wentUp.increment();
+        if (failures.get() != seen) {
+            // Falló durante la recuperación: ese down() vio DOWN y no programó sondeo
+            down(new IllegalStateException("Redis failed during recovery"));
+            return;
+        }
+        log.info("Redis recuperado.");
+    }
+
+    @PreDestroy
+    void shutdown() {
+        scheduler.shutdownNow();
+    }
+}
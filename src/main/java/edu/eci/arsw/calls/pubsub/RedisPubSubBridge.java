@@ -3,47 +3,191 @@ package edu.eci.arsw.calls.pubsub;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.RedisCallback;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.ChannelTopic;
 import org.springframework.data.redis.listener.PatternTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.data.redis.listener.Topic;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Component;
 
 import java.nio.charset.StandardCharsets;
+import java.util.Locale;
 import java.util.Map;
-import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.function.Consumer;
+import java.util.function.Supplier;
 
 /**
- * Puente Pub/Sub entre Redis y suscripciones locales.
+ * Puente Pub/Sub entre Redis y suscripciones locales. Los mensajes viajan como
+ * {@link RelayFrame}: la cabecera de enrutamiento se lee sin parsear el cuerpo.
+ *
+ * <p>{@code app.pubsub.mode=channel} registra un listener por canal.
+ * {@code app.pubsub.mode=node} registra una sola suscripción por nodo
+ * ({@code app.pubsub.node-pattern}) y reparte a los consumidores locales con
+ * una búsqueda en memoria; los canales sin consumidores se descartan sin
+ * decodificar.
+ *
+ * <p>Con {@code app.pubsub.routing=directory} (ver {@link SessionDirectory}) no
+ * se difunde: la entrega local es directa y solo se escribe en el buzón
+ * ({@code node:<id>}) de los otros nodos que alojan el canal. Un mensaje
+ * dirigido a un participante cuyo nodo se conoce va solo al buzón de ese nodo
+ * ({@link #publishTo}).
+ *
+ * <p>Si Redis falla el puente sigue en modo local; {@link RedisHealth} lo
+ * sondea y, cuando vuelve, se reemiten las suscripciones y se vuelve a
+ * publicar en Redis.
  */
 @Component
 public class RedisPubSubBridge {
     private static final Logger log = LoggerFactory.getLogger(RedisPubSubBridge.class);
 
+    static final String INBOX_PREFIX = "node:";
+
+    /** Camino que siguió un mensaje dirigido a un participante. */
+    public enum Route {
+        /** El destinatario está en este nodo: solo entrega local. */
+        LOCAL,
+        /** Directo al buzón del nodo del destinatario. */
+        DIRECT,
+        /** Por el canal de la llamada, como cualquier otro mensaje. */
+        CHANNEL
+    }
+
+    /** Modo de suscripción a Redis. */
+    public enum Mode {
+        CHANNEL, NODE
+    }
+
     private final @Nullable StringRedisTemplate template;
     private final @Nullable RedisMessageListenerContainer container;
+    private final NodeIdentity node;
+    private final Mode mode;
+    private final String nodePattern;
+    private final AtomicBoolean nodeSubscribed = new AtomicBoolean();
+    private final @Nullable SessionDirectory directory;
+    private final AtomicBoolean inboxSubscribed = new AtomicBoolean();
+    private final @Nullable BatchingPublisher publisher;
+    private final @Nullable RedisStreamTransport streams;
+    private final @Nullable RedisHealth health;
+    private final @Nullable StripedDispatcher dispatcher;
+    /** Formato binario entre nodos; null o en modo texto se publica {@link RelayFrame#encode()}. */
+    private final @Nullable WireCodec codec;
+    /** Listeners únicos de los modos {@code node} y directorio, para reemitirlos. */
+    private volatile MessageListener nodeListener;
+    private volatile MessageListener inboxListener;
 
-    private final Map<String, CopyOnWriteArrayList<Consumer<String>>> localSubs = new ConcurrentHashMap<>();
+    private final Map<String, CopyOnWriteArrayList<Consumer<RelayFrame>>> localSubs = new ConcurrentHashMap<>();
     private final AtomicBoolean redisOk = new AtomicBoolean(true);
-    private final Set<String> redisSubscribed = ConcurrentHashMap.newKeySet();
+    /** Listener registrado en Redis por canal, para poder retirarlo. */
+    private final Map<String, MessageListener> redisListeners = new ConcurrentHashMap<>();
 
+    @Autowired
     public RedisPubSubBridge(@Autowired(required = false) StringRedisTemplate template,
-            @Autowired(required = false) RedisMessageListenerContainer container) {
+            @Autowired(required = false) RedisMessageListenerContainer container,
+            NodeIdentity node,
+            @Value("${app.pubsub.mode:channel}") String mode,
+            @Value("${app.pubsub.node-pattern:call:*}") String nodePattern,
+            @Autowired(required = false) SessionDirectory directory,
+            @Autowired(required = false) BatchingPublisher publisher,
+            @Autowired(required = false) RedisStreamTransport streams,
+            @Autowired(required = false) RedisHealth health,
+            @Autowired(required = false) StripedDispatcher dispatcher,
+            @Autowired(required = false) WireCodec codec) {
         this.template = template;
         this.container = container;
+        this.node = node;
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.nodePattern = nodePattern;
+        this.directory = (directory != null && directory.enabled()) ? directory : null;
+        this.publisher = (publisher != null && publisher.enabled()) ? publisher : null;
+        this.streams = (streams != null && streams.enabled()) ? streams : null;
+        this.health = (health != null && health.enabled()) ? health : null;
+        this.dispatcher = dispatcher;
+        this.codec = (codec != null && codec.binary()) ? codec : null;
+        if (this.publisher != null) {
+            this.publisher.onFailure(ex -> {
+                redisDown(ex);
+                log.warn("Publish Redis falló. Fallback local. {}", ex.toString());
+            });
+        }
+        if (this.streams != null) {
+            this.streams.listen((channel, id, wire) -> dispatchWaiting(channel,
+                    () -> typeOf(wire.getBytes(StandardCharsets.UTF_8)), () -> deliverStream(channel, id, wire)),
+                    this::redisDown);
+        }
         if (this.container != null) {
             this.container.setErrorHandler(ex -> {
-                redisOk.set(false);
+                redisDown(ex);
                 log.warn("Redis listener error: {}. Fallback local.", ex.toString());
             });
-        } else {
+        } else if (this.streams == null) {
             redisOk.set(false);
         }
+        if (this.health != null && redisOk.get()) {
+            this.health.onRecovered(this::recover);
+        }
+    }
+
+    /**
+     * Pasa a modo local; con {@link RedisHealth} se vuelve a Redis cuando
+     * responda.
+     *
+     * @param cause Error de Redis.
+     */
+    private void redisDown(Throwable cause) {
+        redisOk.set(false);
+        if (health != null) {
+            health.down(cause);
+        }
+    }
+
+    /**
+     * Vuelve a Redis tras una caída: reactiva la publicación y reemite las
+     * suscripciones de todos los canales con consumidores locales.
+     *
+     * @throws IllegalStateException Si alguna suscripción vuelve a fallar.
+     */
+    void recover() {
+        redisOk.set(true);
+        if (container != null && streams == null) {
+            MessageListener single = (directory != null) ? inboxListener : nodeListener;
+            if (single != null) {
+                removeListener(single, (directory != null)
+                        ? new ChannelTopic(INBOX_PREFIX + node.id())
+                        : new PatternTopic(nodePattern));
+            }
+            inboxListener = null;
+            nodeListener = null;
+            inboxSubscribed.set(false);
+            nodeSubscribed.set(false);
+            for (var e : redisListeners.entrySet()) {
+                if (redisListeners.remove(e.getKey(), e.getValue())) {
+                    removeListener(e.getValue(), new PatternTopic(e.getKey()));
+                }
+            }
+        }
+        for (String channel : localSubs.keySet()) {
+            subscribeRedis(channel);
+        }
+        if (!redisOk.get()) {
+            throw new IllegalStateException("Redis resubscription failed");
+        }
+        log.info("Suscripciones a Redis reemitidas: {} canales.", localSubs.size());
+    }
+
+    private void removeListener(MessageListener listener, Topic topic) {
+        try {
+            container.removeMessageListener(listener, topic);
+        } catch (Exception e) {
+            log.debug("No se pudo retirar el listener de '{}': {}", topic.getTopic(), e.toString());
+        }
     }
 
     /**
@@ -52,35 +196,307 @@ public class RedisPubSubBridge {
      * 
      * @param consumer El consumidor que manejará los mensajes.
      */
-    public void subscribe(String channel, Consumer<String> consumer) {
+    public void subscribe(String channel, Consumer<RelayFrame> consumer) {
         localSubs.computeIfAbsent(channel, k -> new CopyOnWriteArrayList<>()).add(consumer);
-        if (redisOk.get() && container != null && redisSubscribed.add(channel)) {
+        if (directory != null) {
+            directory.join(channel);
+        }
+        subscribeRedis(channel);
+    }
+
+    /**
+     * Suscripción en Redis del canal según el modo; no hace nada en modo local.
+     *
+     * @param channel El canal.
+     */
+    private void subscribeRedis(String channel) {
+        if (streams != null) {
+            if (redisOk.get()) {
+                follow(channel);
+            }
+            return;
+        }
+        if (!redisOk.get() || container == null) {
+            return;
+        }
+        if (directory != null) {
+            subscribeInbox();
+            return;
+        }
+        if (mode == Mode.NODE) {
+            subscribeNode();
+            return;
+        }
+        if (!redisListeners.containsKey(channel)) {
+            MessageListener listener = (Message m, byte[] pattern) -> dispatch(channel,
+                    () -> typeOf(m.getBody()), () -> deliver(channel, m.getBody()));
+            if (redisListeners.putIfAbsent(channel, listener) != null) {
+                return;
+            }
             try {
-                container.addMessageListener((Message m, byte[] pattern) -> {
-                    String payload = new String(m.getBody(), StandardCharsets.UTF_8);
-                    fanoutLocal(channel, payload);
-                }, new PatternTopic(channel));
+                container.addMessageListener(listener, new PatternTopic(channel));
             } catch (Exception e) {
-                redisOk.set(false);
+                redisListeners.remove(channel, listener);
+                redisDown(e);
                 log.warn("No se pudo suscribir en Redis. Fallback local. {}", e.toString());
             }
         }
     }
 
     /**
-     * Publica un mensaje en un canal específico.
+     * Sigue el stream del canal desde su último mensaje.
+     *
+     * @param channel Canal.
+     */
+    private void follow(String channel) {
+        try {
+            streams.follow(channel);
+        } catch (Exception e) {
+            redisDown(e);
+            log.warn("No se pudo seguir el stream en Redis. Fallback local. {}", e.toString());
+        }
+    }
+
+    /**
+     * Suscripción única del nodo; el canal de cada mensaje se reparte en
+     * memoria.
+     */
+    private void subscribeNode() {
+        if (!nodeSubscribed.compareAndSet(false, true)) {
+            return;
+        }
+        MessageListener listener = (Message m, byte[] pattern) -> {
+            String channel = new String(m.getChannel(), StandardCharsets.UTF_8);
+            if (localSubs.containsKey(channel)) {
+                dispatch(channel, () -> typeOf(m.getBody()), () -> deliver(channel, m.getBody()));
+            }
+        };
+        try {
+            container.addMessageListener(listener, new PatternTopic(nodePattern));
+            nodeListener = listener;
+        } catch (Exception e) {
+            nodeSubscribed.set(false);
+            redisDown(e);
+            log.warn("No se pudo suscribir en Redis. Fallback local. {}", e.toString());
+        }
+    }
+
+    /**
+     * Buzón del nodo para el enrutamiento por directorio.
+     */
+    private void subscribeInbox() {
+        if (!inboxSubscribed.compareAndSet(false, true)) {
+            return;
+        }
+        MessageListener listener = (Message m, byte[] pattern) -> {
+            try {
+                byte[] body = m.getBody();
+                RelayFrame.Routed routed = WireCodec.isBinary(body)
+                        ? WireCodec.decodeRouted(body)
+                        : RelayFrame.decodeRouted(new String(body, StandardCharsets.UTF_8));
+                directory.observed(routed.channel(), routed.frame().originNode());
+                dispatch(routed.channel(), routed.frame()::type,
+                        () -> fanoutLocal(routed.channel(), routed.frame()));
+            } catch (IllegalArgumentException e) {
+                log.warn("Mensaje descartado en el buzón: {}", e.getMessage());
+            }
+        };
+        try {
+            container.addMessageListener(listener, new ChannelTopic(INBOX_PREFIX + node.id()));
+            inboxListener = listener;
+        } catch (Exception e) {
+            inboxSubscribed.set(false);
+            redisDown(e);
+            log.warn("No se pudo suscribir en Redis. Fallback local. {}", e.toString());
+        }
+    }
+
+    /**
+     * Entrega en el carril del canal (en orden por canal, en paralelo entre
+     * canales) o, sin {@link StripedDispatcher}, en el hilo actual. Los
+     * listeners corren en el event loop de Lettuce, así que nunca esperan hueco
+     * en el carril.
+     *
+     * @param channel  Canal del mensaje.
+     * @param type     Tipo del mensaje, por si el carril está lleno.
+     * @param delivery Entrega.
+     */
+    private void dispatch(String channel, Supplier<String> type, Runnable delivery) {
+        if (dispatcher == null) {
+            delivery.run();
+        } else {
+            dispatcher.submit(channel, type, delivery);
+        }
+    }
+
+    /**
+     * Como {@link #dispatch}, desde el hilo propio del lector de streams: con el
+     * carril lleno espera hueco y frena el XREAD.
+     *
+     * @param channel  Canal del mensaje.
+     * @param type     Tipo del mensaje, por si el carril está lleno.
+     * @param delivery Entrega.
+     */
+    private void dispatchWaiting(String channel, Supplier<String> type, Runnable delivery) {
+        if (dispatcher == null) {
+            delivery.run();
+        } else {
+            dispatcher.execute(channel, type, delivery);
+        }
+    }
+
+    /**
+     * Tipo de un mensaje en formato de cable; solo se decodifica si un carril
+     * está lleno.
+     *
+     * @param body Mensaje en formato de cable.
+     * @return Tipo, o null si no se puede decodificar.
+     */
+    private static String typeOf(byte[] body) {
+        try {
+            return (WireCodec.isBinary(body)
+                    ? WireCodec.decode(body)
+                    : RelayFrame.decode(new String(body, StandardCharsets.UTF_8))).type();
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Entrega un mensaje recibido de Redis. Los publicados por este nodo ya se
+     * entregaron en {@link #publish}; su eco se descarta para que cada sesión
+     * local lo reciba una sola vez.
+     *
+     * @param channel Canal del mensaje.
+     * @param body    Mensaje en formato de cable.
+     */
+    private void deliver(String channel, byte[] body) {
+        try {
+            RelayFrame frame = WireCodec.isBinary(body)
+                    ? WireCodec.decode(body)
+                    : RelayFrame.decode(new String(body, StandardCharsets.UTF_8));
+            if (node.id().equals(frame.originNode())) {
+                return;
+            }
+            fanoutLocal(channel, frame);
+        } catch (IllegalArgumentException e) {
+            log.warn("Mensaje descartado en el canal '{}': {}", channel, e.getMessage());
+        }
+    }
+
+    /**
+     * Entrega un mensaje leído del stream con su id; el eco de este nodo se
+     * descarta como en {@link #deliver}.
+     *
+     * @param channel Canal del mensaje.
+     * @param id      Id en el stream.
+     * @param wire    Mensaje en formato de cable.
+     */
+    private void deliverStream(String channel, String id, String wire) {
+        try {
+            RelayFrame frame = RelayFrame.decode(wire);
+            if (node.id().equals(frame.originNode())) {
+                return;
+            }
+            fanoutLocal(channel, frame.withStreamId(id));
+        } catch (IllegalArgumentException e) {
+            log.warn("Mensaje descartado en el canal '{}': {}", channel, e.getMessage());
+        }
+    }
+
+    /**
+     * Mensajes del canal posteriores al último id que vio un cliente, para
+     * reanudar la señalización tras reconectar. Solo con el transporte por
+     * streams; con pub/sub no hay nada que reenviar.
+     *
+     * @param channel Canal.
+     * @param afterId Último id visto por el cliente.
+     * @param consumer Receptor de los mensajes, en orden.
+     * @return Número de mensajes reenviados.
+     */
+    public int replay(String channel, String afterId, Consumer<RelayFrame> consumer) {
+        if (streams == null || !redisOk.get()) {
+            return 0;
+        }
+        int n = 0;
+        try {
+            for (RedisStreamTransport.Entry e : streams.range(channel, afterId)) {
+                try {
+                    consumer.accept(RelayFrame.decode(e.wire()).withStreamId(e.id()));
+                    n++;
+                } catch (IllegalArgumentException ex) {
+                    log.warn("Mensaje descartado en el replay de '{}': {}", channel, ex.getMessage());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("Replay desde Redis falló en '{}': {}", channel, e.toString());
+        }
+        return n;
+    }
+
+    /**
+     * Retira los consumidores locales del canal y su listener de Redis (en modo
+     * {@code node} solo los consumidores locales).
+     *
+     * @param channel El canal del que desuscribirse.
+     */
+    public void unsubscribe(String channel) {
+        localSubs.remove(channel);
+        if (streams != null) {
+            streams.unfollow(channel);
+        }
+        if (directory != null) {
+            directory.leave(channel);
+        }
+        MessageListener listener = redisListeners.remove(channel);
+        if (listener != null && container != null) {
+            try {
+                container.removeMessageListener(listener, new PatternTopic(channel));
+            } catch (Exception e) {
+                log.warn("No se pudo desuscribir de Redis el canal '{}': {}", channel, e.toString());
+            }
+        }
+    }
+
+    /**
+     * Canales con consumidores locales.
+     *
+     * @return Número de canales.
+     */
+    public int localChannels() {
+        return localSubs.size();
+    }
+
+    /**
+     * Publica un mensaje en un canal específico. El puente sella el nodo de
+     * origen; la secuencia, si la hay, la asigna quien recibe el mensaje del
+     * cliente. Los suscriptores locales lo reciben aquí; el eco
+     * que devuelve Redis se descarta.
      * * @param channel El canal donde publicar el mensaje.
      * 
-     * @param payload El contenido del mensaje.
+     * @param frame El mensaje a publicar.
      */
-    public void publish(String channel, String payload) {
+    public void publish(String channel, RelayFrame frame) {
+        RelayFrame payload = frame.stamped(node.id());
+        if (streams != null) {
+            publishStream(channel, payload);
+            return;
+        }
+        if (directory != null) {
+            publishRouted(channel, payload);
+            return;
+        }
         boolean okRedis = false;
         if (redisOk.get() && template != null) {
             try {
-                template.convertAndSend(channel, payload);
+                if (codec != null) {
+                    send(channel, codec.encode(payload));
+                } else {
+                    send(channel, payload.encode());
+                }
                 okRedis = true;
             } catch (Exception e) {
-                redisOk.set(false);
+                redisDown(e);
                 log.warn("Publish Redis falló. Fallback local. {}", e.toString());
             }
         }
@@ -89,13 +505,146 @@ public class RedisPubSubBridge {
             log.debug("Publicación local (sin Redis) en {}", channel);
     }
 
+    /**
+     * Publica un mensaje dirigido a un participante por el camino más corto:
+     * si está en este nodo solo se entrega localmente; con enrutamiento por
+     * directorio y su nodo conocido, se escribe solo en el buzón de ese nodo.
+     * Con streams (el cliente puede pedir lo perdido al reconectar), sin nodo
+     * conocido o sin Redis se publica en el canal como {@link #publish}.
+     *
+     * @param channel Canal de la llamada.
+     * @param owner   Nodo del destinatario, o null si no se conoce.
+     * @param frame   Mensaje dirigido ({@link RelayFrame#target()}).
+     * @return Camino que siguió.
+     */
+    public Route publishTo(String channel, @Nullable String owner, RelayFrame frame) {
+        if (streams != null || owner == null) {
+            publish(channel, frame);
+            return Route.CHANNEL;
+        }
+        RelayFrame payload = frame.stamped(node.id());
+        if (owner.equals(node.id())) {
+            fanoutLocal(channel, payload);
+            return Route.LOCAL;
+        }
+        if (directory == null || !redisOk.get()) {
+            publish(channel, frame);
+            return Route.CHANNEL;
+        }
+        try {
+            if (codec != null) {
+                send(INBOX_PREFIX + owner, codec.encodeRouted(channel, payload));
+            } else {
+                send(INBOX_PREFIX + owner, payload.encodeFor(channel));
+            }
+        } catch (Exception e) {
+            redisDown(e);
+            log.warn("Publish Redis falló. Fallback local. {}", e.toString());
+        }
+        return Route.DIRECT;
+    }
+
+    /**
+     * ID del nodo con el que se sellan los mensajes publicados.
+     *
+     * @return ID del nodo.
+     */
+    public String nodeId() {
+        return node.id();
+    }
+
+    /**
+     * Añade el mensaje al stream del canal y lo entrega localmente con su id.
+     *
+     * @param channel El canal donde publicar.
+     * @param payload El mensaje sellado.
+     */
+    private void publishStream(String channel, RelayFrame payload) {
+        RelayFrame local = payload;
+        if (redisOk.get()) {
+            try {
+                local = payload.withStreamId(streams.append(channel, payload.encode()));
+            } catch (Exception e) {
+                redisDown(e);
+                log.warn("Publish Redis falló. Fallback local. {}", e.toString());
+            }
+        }
+        fanoutLocal(channel, local);
+    }
+
+    /**
+     * Entrega local directa y un mensaje al buzón de cada otro nodo del canal.
+     *
+     * @param channel El canal donde publicar.
+     * @param payload El mensaje sellado.
+     */
+    private void publishRouted(String channel, RelayFrame payload) {
+        fanoutLocal(channel, payload);
+        if (!redisOk.get()) {
+            return;
+        }
+        try {
+            String wire = null;
+            byte[] bytes = null;
+            for (String target : directory.nodes(channel)) {
+                if (target.equals(node.id())) {
+                    continue;
+                }
+                if (codec != null) {
+                    if (bytes == null) {
+                        bytes = codec.encodeRouted(channel, payload);
+                    }
+                    send(INBOX_PREFIX + target, bytes);
+                    continue;
+                }
+                if (wire == null) {
+                    wire = payload.encodeFor(channel);
+                }
+                send(INBOX_PREFIX + target, wire);
+            }
+        } catch (Exception e) {
+            redisDown(e);
+            log.warn("Publish Redis falló. Fallback local. {}", e.toString());
+        }
+    }
+
+    /**
+     * Envía a Redis por el publicador por lotes si está activo; si no, con un
+     * PUBLISH síncrono.
+     *
+     * @param channel Canal de Redis.
+     * @param message Mensaje codificado.
+     */
+    private void send(String channel, String message) {
+        if (publisher != null) {
+            publisher.publish(channel, message);
+        } else {
+            template.convertAndSend(channel, message);
+        }
+    }
+
+    /**
+     * Igual que {@link #send(String, String)} para el formato binario.
+     *
+     * @param channel Canal de Redis.
+     * @param message Mensaje codificado.
+     */
+    private void send(String channel, byte[] message) {
+        if (publisher != null) {
+            publisher.publish(channel, message);
+        } else {
+            byte[] ch = channel.getBytes(StandardCharsets.UTF_8);
+            template.execute((RedisCallback<Long>) c -> c.publish(ch, message));
+        }
+    }
+
     /**
      * Distribuye el mensaje a los suscriptores locales.
      * * @param channel El canal del mensaje.
      * 
-     * @param payload El contenido del mensaje.
+     * @param payload El mensaje.
      */
-    private void fanoutLocal(String channel, String payload) {
+    private void fanoutLocal(String channel, RelayFrame payload) {
         var list = localSubs.getOrDefault(channel, new CopyOnWriteArrayList<>());
         for (var c : list) {
             try {
@@ -0,0 +1,248 @@
+package edu.eci.arsw.calls.pubsub;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.RedisStreamCommands.XAddOptions;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.ReadOffset;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PreDestroy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+
+/**
+ * Transporte entre nodos sobre Redis Streams: cada llamada es un stream
+ * {@code stream:<canal>} acotado con {@code XADD MAXLEN ~}, y cada nodo lee con
+ * un único {@code XREAD BLOCK} todos los canales que tiene activos, desde el
+ * último id entregado. A diferencia de pub/sub los mensajes quedan en Redis, así
+ * que un cliente que reconecta puede pedir los posteriores al último id que vio.
+ *
+ * <p>Solo se usa con {@code app.pubsub.transport=streams}.
+ */
+@Component
+public class RedisStreamTransport {
+    private static final Logger log = LoggerFactory.getLogger(RedisStreamTransport.class);
+
+    static final String KEY_PREFIX = "stream:";
+    static final String FIELD = "f";
+    private static final int READ_COUNT = 256;
+
+    /** Receptor de los mensajes leídos del stream. */
+    @FunctionalInterface
+    public interface Listener {
+        void deliver(String channel, String id, String wire);
+    }
+
+    /**
+     * Mensaje guardado en el stream.
+     *
+     * @param id   Id del mensaje en el stream.
+     * @param wire Mensaje en formato de cable.
+     */
+    public record Entry(String id, String wire) {
+    }
+
+    private final @Nullable StringRedisTemplate template;
+    private final boolean enabled;
+    private final long maxLen;
+    private final long blockMs;
+    private final long ttlSeconds;
+
+    /** Último id leído por canal seguido en este nodo. */
+    private final Map<String, String> offsets = new ConcurrentHashMap<>();
+
+    private volatile Listener listener = (channel, id, wire) -> {
+    };
+    private volatile Consumer<Throwable> onFailure = ex -> {
+    };
+    private Thread reader;
+    private volatile boolean running = true;
+
+    @Autowired
+    public RedisStreamTransport(@Autowired(required = false) StringRedisTemplate template,
+            @Value("${app.pubsub.transport:pubsub}") String transport,
+            @Value("${app.pubsub.stream.maxlen:1000}") long maxLen,
+            @Value("${app.pubsub.stream.block-ms:200}") long blockMs,
+            @Value("${app.pubsub.stream.ttl-s:3600}") long ttlSeconds) {
+        this.template = template;
+        this.enabled = template != null && "streams".equals(transport.trim().toLowerCase(Locale.ROOT));
+        this.maxLen = maxLen;
+        this.blockMs = blockMs;
+        this.ttlSeconds = ttlSeconds;
+    }
+
+    /**
+     * Indica si el transporte por streams está activo.
+     *
+     * @return true con {@code app.pubsub.transport=streams} y Redis configurado.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Registra el receptor de los mensajes leídos y la acción ante un fallo de
+     * lectura.
+     *
+     * @param listener  Receptor.
+     * @param onFailure Acción ante un fallo de Redis.
+     */
+    public void listen(Listener listener, Consumer<Throwable> onFailure) {
+        this.listener = listener;
+        this.onFailure = onFailure;
+    }
+
+    /**
+     * Añade un mensaje al stream del canal y renueva su caducidad, en un solo
+     * viaje a Redis.
+     *
+     * @param channel Canal.
+     * @param wire    Mensaje en formato de cable.
+     * @return Id asignado por Redis.
+     */
+    public String append(String channel, String wire) {
+        byte[] key = (KEY_PREFIX + channel).getBytes(StandardCharsets.UTF_8);
+        Map<byte[], byte[]> body = Map.of(FIELD.getBytes(StandardCharsets.UTF_8),
+                wire.getBytes(StandardCharsets.UTF_8));
+        List<Object> results = template.executePipelined((RedisCallback<Object>) c -> {
+            c.streamCommands().xAdd(StreamRecords.rawBytes(body).withStreamKey(key),
+                    XAddOptions.maxlen(maxLen).approximateTrimming(true));
+            c.keyCommands().expire(key, ttlSeconds);
+            return null;
+        });
+        return ((RecordId) results.get(0)).getValue();
+    }
+
+    /**
+     * Empieza a leer el canal desde su último mensaje actual; el lector del nodo
+     * arranca con el primer canal.
+     *
+     * @param channel Canal.
+     */
+    public void follow(String channel) {
+        if (offsets.containsKey(channel)) {
+            return;
+        }
+        List<MapRecord<String, Object, Object>> last = template.opsForStream()
+                .reverseRange(KEY_PREFIX + channel, Range.unbounded(), Limit.limit().count(1));
+        String from = (last == null || last.isEmpty()) ? "0-0" : last.get(0).getId().getValue();
+        offsets.putIfAbsent(channel, from);
+        startIfNeeded();
+    }
+
+    /**
+     * Deja de leer el canal en este nodo; el stream sigue en Redis.
+     *
+     * @param channel Canal.
+     */
+    public void unfollow(String channel) {
+        offsets.remove(channel);
+    }
+
+    /**
+     * Mensajes del canal posteriores a un id, en orden.
+     *
+     * @param channel Canal.
+     * @param afterId Último id visto (excluido).
+     * @return Mensajes guardados posteriores a {@code afterId}.
+     */
+    public List<Entry> range(String channel, String afterId) {
+        List<MapRecord<String, Object, Object>> records = template.opsForStream()
+                .range(KEY_PREFIX + channel, Range.rightUnbounded(Range.Bound.inclusive(afterId)));
+        if (records == null) {
+            return List.of();
+        }
+        return records.stream()
+                .filter(r -> !r.getId().getValue().equals(afterId))
+                .map(r -> new Entry(r.getId().getValue(), String.valueOf(r.getValue().get(FIELD))))
+                .toList();
+    }
+
+    private synchronized void startIfNeeded() {
+        if (reader != null) {
+            return;
+        }
+        CustomizableThreadFactory tf = new CustomizableThreadFactory("redis-stream-reader-");
+        tf.setDaemon(true);
+        reader = tf.newThread(this::run);
+        reader.start();
+    }
+
+    private void run() {
+        while (running) {
+            if (offsets.isEmpty()) {
+                LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(blockMs));
+                continue;
+            }
+            try {
+                readOnce();
+            } catch (Exception e) {
+                if (!running) {
+                    return;
+                }
+                log.warn("Lectura de streams falló: {}", e.toString());
+                onFailure.accept(e);
+                LockSupport.parkNanos(TimeUnit.SECONDS.toNanos(1));
+            }
+        }
+    }
+
+    /**
+     * Un {@code XREAD BLOCK} sobre todos los canales seguidos.
+     */
+    @SuppressWarnings("unchecked")
+    void readOnce() {
+        StreamOffset<String>[] from = offsets.entrySet().stream()
+                .map(e -> StreamOffset.create(KEY_PREFIX + e.getKey(), ReadOffset.from(e.getValue())))
+                .toArray(StreamOffset[]::new);
+        if (from.length == 0) {
+            return;
+        }
+        List<MapRecord<String, Object, Object>> records = template.opsForStream().read(
+                StreamReadOptions.empty().block(Duration.ofMillis(blockMs)).count(READ_COUNT), from);
+        if (records == null) {
+            return;
+        }
+        for (MapRecord<String, Object, Object> r : records) {
+            String channel = r.getStream().substring(KEY_PREFIX.length());
+            String id = r.getId().getValue();
+            if (offsets.replace(channel, id) == null) {
+                continue;
+            }
+            try {
+                listener.deliver(channel, id, String.valueOf(r.getValue().get(FIELD)));
+            } catch (Exception e) {
+                log.warn("Entrega desde stream falló en '{}': {}", channel, e.toString());
+            }
+        }
+    }
+
+    @PreDestroy
+    synchronized void shutdown() {
+        running = false;
+        if (reader != null) {
+            reader.interrupt();
+        }
+    }
+}
@@ -0,0 +1,247 @@
+package edu.eci.arsw.calls.pubsub;
+
+/**
+ * Mensaje entre nodos: cabecera de enrutamiento + cuerpo opaco (el sobre JSON
+ * tal como lo verá el cliente). La cabecera se lee sin parsear JSON, así el
+ * fanout local es una copia del cuerpo.
+ *
+ * <p>Formato en el cable (v1):
+ * {@code R1<len>:<originNode><len>:<originUser><len>:<type><seq>;<body>}, donde
+ * {@code len = -1} representa null. Los mensajes con {@code traceId} van en v2
+ * ({@code R2}), con el traceId tras el tipo; los nodos que solo leen v1 no los
+ * entienden. Los dirigidos a un participante van en v3 ({@code R3}), con el
+ * traceId y el destinatario tras el tipo. Un texto sin el prefijo
+ * {@code R1}/{@code R2}/{@code R3} se trata como cuerpo sin cabecera (nodos
+ * anteriores). Hacia el buzón de un nodo se antepone el canal:
+ * {@code D1<len>:<channel>} + el formato anterior.
+ *
+ * @param originNode Nodo que publicó el mensaje.
+ * @param originUser Usuario autenticado que lo originó (no se le reenvía).
+ * @param type       Tipo de mensaje (OFFER, ICE_CANDIDATE...).
+ * @param seq        Secuencia por (llamada, emisor) asignada al entrar; 0 si el
+ *                   mensaje no se ordena.
+ * @param traceId    traceId del sobre; identifica reenvíos del cliente.
+ * @param target     Único participante al que se entrega ({@code to}); null
+ *                   para todos menos el emisor.
+ * @param body       Cuerpo a entregar a los clientes.
+ */
+public record RelayFrame(String originNode, String originUser, String type, long seq, String traceId,
+        String target, String body) {
+
+    private static final String MAGIC = "R1";
+    private static final String TRACED_MAGIC = "R2";
+    private static final String ADDRESSED_MAGIC = "R3";
+    private static final String ROUTED_MAGIC = "D1";
+
+    /**
+     * Mensaje recibido en el buzón de un nodo junto con su canal de destino.
+     *
+     * @param channel Canal al que se publicó.
+     * @param frame   Mensaje.
+     */
+    public record Routed(String channel, RelayFrame frame) {
+    }
+
+    /**
+     * Mensaje para todos los participantes.
+     *
+     * @param originNode Nodo que publicó el mensaje.
+     * @param originUser Usuario que lo originó.
+     * @param type       Tipo de mensaje.
+     * @param seq        Secuencia, 0 si no se ordena.
+     * @param traceId    traceId del sobre.
+     * @param body       Cuerpo a entregar.
+     */
+    public RelayFrame(String originNode, String originUser, String type, long seq, String traceId, String body) {
+        this(originNode, originUser, type, seq, traceId, null, body);
+    }
+
+    /**
+     * Mensaje sin traceId.
+     *
+     * @param originNode Nodo que publicó el mensaje.
+     * @param originUser Usuario que lo originó.
+     * @param type       Tipo de mensaje.
+     * @param seq        Secuencia, 0 si no se ordena.
+     * @param body       Cuerpo a entregar.
+     */
+    public RelayFrame(String originNode, String originUser, String type, long seq, String body) {
+        this(originNode, originUser, type, seq, null, null, body);
+    }
+
+    /**
+     * Crea un mensaje saliente; el puente completa el nodo.
+     *
+     * @param originUser Usuario que origina el mensaje.
+     * @param type       Tipo de mensaje.
+     * @param body       Cuerpo a entregar.
+     * @return Mensaje sin sellar.
+     */
+    public static RelayFrame of(String originUser, String type, String body) {
+        return new RelayFrame(null, originUser, type, 0L, body);
+    }
+
+    /**
+     * Copia sellada con el nodo de origen; conserva la secuencia.
+     *
+     * @param node Nodo de origen.
+     * @return Mensaje sellado.
+     */
+    public RelayFrame stamped(String node) {
+        return new RelayFrame(node, originUser, type, seq, traceId, target, body);
+    }
+
+    /**
+     * Copia con la secuencia del emisor y el traceId del sobre, para que el
+     * destino la entregue en orden y descarte duplicados.
+     *
+     * @param sequence Secuencia por (llamada, emisor).
+     * @param trace    traceId del sobre.
+     * @return Mensaje ordenable.
+     */
+    public RelayFrame sequenced(long sequence, String trace) {
+        return new RelayFrame(originNode, originUser, type, sequence, trace, target, body);
+    }
+
+    /**
+     * Copia que solo se entrega a un participante.
+     *
+     * @param to Participante destinatario.
+     * @return Mensaje dirigido.
+     */
+    public RelayFrame addressed(String to) {
+        return new RelayFrame(originNode, originUser, type, seq, traceId, to, body);
+    }
+
+    /**
+     * Copia cuyo cuerpo JSON lleva el id del stream ({@code streamId}); el
+     * cliente lo guarda para pedir replay al reconectar. El resto del cuerpo no
+     * se toca.
+     *
+     * @param id Id del mensaje en el stream.
+     * @return Mensaje con el id, o el mismo si el cuerpo no es un objeto JSON.
+     */
+    public RelayFrame withStreamId(String id) {
+        if (id == null || !body.startsWith("{")) {
+            return this;
+        }
+        String rest = body.substring(1);
+        String sep = rest.stripLeading().startsWith("}") ? "" : ",";
+        return new RelayFrame(originNode, originUser, type, seq, traceId, target,
+                "{\"streamId\":\"" + id + "\"" + sep + rest);
+    }
+
+    /**
+     * Indica si el mensaje trae cabecera (false para mensajes de nodos
+     * anteriores).
+     *
+     * @return true si hay cabecera.
+     */
+    public boolean hasHeader() {
+        return originNode != null;
+    }
+
+    /**
+     * Serializa el mensaje al formato de cable.
+     *
+     * @return Texto a publicar en Redis.
+     */
+    public String encode() {
+        String magic = (target != null) ? ADDRESSED_MAGIC : (traceId != null) ? TRACED_MAGIC : MAGIC;
+        StringBuilder sb = new StringBuilder(body.length() + 64).append(magic);
+        appendField(sb, originNode);
+        appendField(sb, originUser);
+        appendField(sb, type);
+        if (target != null) {
+            appendField(sb, traceId);
+            appendField(sb, target);
+        } else if (traceId != null) {
+            appendField(sb, traceId);
+        }
+        return sb.append(seq).append(';').append(body).toString();
+    }
+
+    /**
+     * Serializa el mensaje para el buzón de un nodo, indicando su canal.
+     *
+     * @param channel Canal al que se publica.
+     * @return Texto a publicar en el buzón.
+     */
+    public String encodeFor(String channel) {
+        StringBuilder sb = new StringBuilder(ROUTED_MAGIC);
+        appendField(sb, channel);
+        return sb.append(encode()).toString();
+    }
+
+    /**
+     * Lee un mensaje recibido en el buzón de un nodo.
+     *
+     * @param wire Texto recibido de Redis.
+     * @return Canal y mensaje.
+     * @throws IllegalArgumentException Si el texto no es un mensaje de buzón.
+     */
+    public static Routed decodeRouted(String wire) {
+        if (!wire.startsWith(ROUTED_MAGIC)) {
+            throw new IllegalArgumentException("Not a routed relay frame");
+        }
+        String channel;
+        int[] pos = { ROUTED_MAGIC.length() };
+        try {
+            channel = readField(wire, pos);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Corrupt routed relay frame", e);
+        }
+        if (channel == null) {
+            throw new IllegalArgumentException("Routed relay frame without channel");
+        }
+        return new Routed(channel, decode(wire.substring(pos[0])));
+    }
+
+    /**
+     * Lee un mensaje del cable; solo se recorre la cabecera.
+     *
+     * @param wire Texto recibido de Redis.
+     * @return Mensaje decodificado.
+     * @throws IllegalArgumentException Si la cabecera está corrupta.
+     */
+    public static RelayFrame decode(String wire) {
+        boolean addressed = wire.startsWith(ADDRESSED_MAGIC);
+        boolean traced = addressed || wire.startsWith(TRACED_MAGIC);
+        if (!traced && !wire.startsWith(MAGIC)) {
+            return new RelayFrame(null, null, null, 0L, wire);
+        }
+        try {
+            int[] pos = { MAGIC.length() };
+            String node = readField(wire, pos);
+            String user = readField(wire, pos);
+            String type = readField(wire, pos);
+            String trace = traced ? readField(wire, pos) : null;
+            String to = addressed ? readField(wire, pos) : null;
+            int semi = wire.indexOf(';', pos[0]);
+            long seq = Long.parseLong(wire, pos[0], semi, 10);
+            return new RelayFrame(node, user, type, seq, trace, to, wire.substring(semi + 1));
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Corrupt relay frame header", e);
+        }
+    }
+
+    private static void appendField(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("-1:");
+        } else {
+            sb.append(value.length()).append(':').append(value);
+        }
+    }
+
+    private static String readField(String wire, int[] pos) {
+        int colon = wire.indexOf(':', pos[0]);
+        int len = Integer.parseInt(wire, pos[0], colon, 10);
+        pos[0] = colon + 1;
+        if (len < 0) {
+            return null;
+        }
+        String value = wire.substring(pos[0], pos[0] + len);
+        pos[0] += len;
+        return value;
+    }
+}
@@ -0,0 +1,180 @@
+package edu.eci.arsw.calls.pubsub;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Directorio del clúster: qué nodos alojan participantes de cada canal. Cada
+ * canal es un ZSET {@code dir:<canal>} con los IDs de nodo puntuados por el
+ * vencimiento de su arriendo; cada nodo renueva los arriendos de sus canales
+ * locales y los nodos caídos desaparecen al vencer. Las consultas se cachean
+ * {@code app.pubsub.directory-cache-ms} y la caché aprende los nodos que nos
+ * escriben. Cada arriendo se escribe con un script Lua en un solo viaje a
+ * Redis.
+ *
+ * <p>Solo se usa con {@code app.pubsub.routing=directory}.
+ */
+@Component
+public class SessionDirectory {
+    private static final Logger log = LoggerFactory.getLogger(SessionDirectory.class);
+
+    static final String KEY_PREFIX = "dir:";
+
+    /**
+     * KEYS[1] = ZSET del canal; ARGV = nodo, ahora (ms), vencimiento (ms),
+     * TTL de la clave (ms). Anota el arriendo, purga los vencidos y renueva el
+     * TTL.
+     */
+    static final RedisScript<Long> LEASE = RedisScript.of("""
+            redis.call('ZADD', KEYS[1], ARGV[3], ARGV[1])
+            redis.call('ZREMRANGEBYSCORE', KEYS[1], 0, ARGV[2])
+            return redis.call('PEXPIRE', KEYS[1], ARGV[4])
+            """, Long.class);
+
+    private record Cached(Set<String> nodes, long expiresAt) {
+    }
+
+    private final @Nullable StringRedisTemplate template;
+    private final NodeIdentity node;
+    private final boolean enabled;
+    private final long leaseMs;
+    private final long cacheNanos;
+
+    /** Canales con participantes locales: los que este nodo renueva. */
+    private final Set<String> local = ConcurrentHashMap.newKeySet();
+    private final Map<String, Cached> cache = new ConcurrentHashMap<>();
+
+    @Autowired
+    public SessionDirectory(@Autowired(required = false) StringRedisTemplate template,
+            NodeIdentity node,
+            @Value("${app.pubsub.routing:broadcast}") String routing,
+            @Value("${app.pubsub.directory-lease-ms:15000}") long leaseMs,
+            @Value("${app.pubsub.directory-cache-ms:1000}") long cacheMs) {
+        this.template = template;
+        this.node = node;
+        this.enabled = template != null && "directory".equals(routing.trim().toLowerCase(Locale.ROOT));
+        this.leaseMs = leaseMs;
+        this.cacheNanos = TimeUnit.MILLISECONDS.toNanos(cacheMs);
+    }
+
+    /**
+     * Indica si el enrutamiento por directorio está activo.
+     *
+     * @return true con {@code app.pubsub.routing=directory} y Redis configurado.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Anota este nodo en el canal.
+     *
+     * @param channel Canal.
+     */
+    public void join(String channel) {
+        if (!enabled || !local.add(channel)) {
+            return;
+        }
+        try {
+            lease(channel);
+        } catch (Exception e) {
+            log.warn("No se pudo anotar el canal '{}' en el directorio: {}", channel, e.toString());
+        }
+    }
+
+    /**
+     * Retira este nodo del canal.
+     *
+     * @param channel Canal.
+     */
+    public void leave(String channel) {
+        if (!enabled || !local.remove(channel)) {
+            return;
+        }
+        cache.remove(channel);
+        try {
+            template.opsForZSet().remove(KEY_PREFIX + channel, node.id());
+        } catch (Exception e) {
+            log.warn("No se pudo retirar el canal '{}' del directorio: {}", channel, e.toString());
+        }
+    }
+
+    /**
+     * Nodos con participantes en el canal (puede incluir este nodo).
+     *
+     * @param channel Canal.
+     * @return IDs de nodo con arriendo vigente.
+     */
+    public Set<String> nodes(String channel) {
+        long now = System.nanoTime();
+        Cached c = cache.get(channel);
+        if (c != null && c.expiresAt() - now > 0) {
+            return c.nodes();
+        }
+        Set<String> live = template.opsForZSet().rangeByScore(KEY_PREFIX + channel,
+                System.currentTimeMillis(), Double.POSITIVE_INFINITY);
+        Set<String> nodes = (live == null) ? Set.of() : Set.copyOf(live);
+        cache.put(channel, new Cached(nodes, now + cacheNanos));
+        return nodes;
+    }
+
+    /**
+     * Registra que un nodo publicó en el canal, para no esperar a que venza la
+     * caché antes de escribirle.
+     *
+     * @param channel Canal.
+     * @param nodeId  Nodo de origen.
+     */
+    public void observed(String channel, String nodeId) {
+        if (nodeId == null) {
+            return;
+        }
+        cache.computeIfPresent(channel, (k, c) -> {
+            if (c.nodes().contains(nodeId)) {
+                return c;
+            }
+            Set<String> nodes = new HashSet<>(c.nodes());
+            nodes.add(nodeId);
+            return new Cached(Set.copyOf(nodes), c.expiresAt());
+        });
+    }
+
+    /**
+     * Renueva los arriendos de los canales locales.
+     */
+    @Scheduled(fixedDelayString = "${app.pubsub.directory-refresh-ms:5000}")
+    public void refresh() {
+        if (!enabled) {
+            return;
+        }
+        for (String channel : local) {
+            try {
+                lease(channel);
+            } catch (Exception e) {
+                log.warn("No se pudo renovar el directorio: {}", e.toString());
+                return;
+            }
+        }
+    }
+
+    private void lease(String channel) {
+        long now = System.currentTimeMillis();
+        template.execute(LEASE, List.of(KEY_PREFIX + channel), node.id(), Long.toString(now),
+                Long.toString(now + leaseMs), Long.toString(leaseMs * 2));
+    }
+}
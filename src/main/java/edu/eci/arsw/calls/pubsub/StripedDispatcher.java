@@ -0,0 +1,244 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Reparto de los mensajes recibidos de Redis en un número fijo de carriles de
+ * un solo hilo ({@code app.pubsub.dispatch.lanes}, por defecto uno por núcleo).
+ * Cada canal cae siempre en el mismo carril, así que los mensajes de una
+ * llamada se entregan en orden mientras llamadas distintas avanzan en paralelo.
+ * Las colas están acotadas ({@code app.pubsub.dispatch.queue-capacity}). Si un
+ * carril se llena, los tipos descartables
+ * ({@code app.pubsub.dispatch.droppable-types}, por defecto ICE_CANDIDATE) se
+ * descartan; el resto de la señalización espera hueco hasta
+ * {@code app.pubsub.dispatch.block-ms} y solo se descarta si el carril sigue
+ * lleno.
+ *
+ * <p>Solo espera quien puede bloquearse: el lector de streams usa
+ * {@link #execute}. Los listeners de pub/sub corren en el event loop de Lettuce
+ * y usan {@link #submit}, que nunca bloquea: si el carril está lleno deja el
+ * mensaje en una cola de lectura (del mismo tamaño) que un hilo
+ * {@code pubsub-reader} vacía con la espera de {@link #execute}. Con esa cola
+ * también llena el mensaje se descarta.
+ *
+ * <p>Métricas: {@code pubsub.dispatch.queue.depth{lane}},
+ * {@code pubsub.dispatch.intake.depth}, {@code pubsub.dispatch.latency} (de
+ * encolado a inicio), {@code pubsub.dispatch.backpressure} (esperas por un
+ * carril lleno) y {@code pubsub.dispatch.rejected}.
+ */
+@Component
+public class StripedDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(StripedDispatcher.class);
+
+    /** Como mucho un aviso de descarte cada tanto; el resto solo se cuenta. */
+    private static final long WARN_INTERVAL_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private record Task(Runnable work, long enqueuedAt) {
+    }
+
+    /** Mensaje de un listener que esperará hueco en el hilo lector. */
+    private record Pending(String key, Supplier<String> type, Runnable work) {
+    }
+
+    private final Lane[] lanes;
+    private final Set<String> droppableTypes;
+    private final long blockNanos;
+    private final Timer latency;
+    private final Counter backpressure;
+    private final Counter rejected;
+    private final AtomicLong lastWarn = new AtomicLong(System.nanoTime() - WARN_INTERVAL_NANOS);
+    private final BlockingQueue<Pending> intake;
+    /** Mensajes en la cola de lectura o pasando al carril; mientras haya, nadie se adelanta. */
+    private final AtomicLong backlog = new AtomicLong();
+    private final Thread reader;
+
+    @Autowired
+    public StripedDispatcher(MeterRegistry registry,
+            @Value("${app.pubsub.dispatch.lanes:0}") int lanes,
+            @Value("${app.pubsub.dispatch.queue-capacity:10000}") int queueCapacity,
+            @Value("${app.pubsub.dispatch.droppable-types:ICE_CANDIDATE}") Set<String> droppableTypes,
+            @Value("${app.pubsub.dispatch.block-ms:1000}") long blockMs) {
+        int n = (lanes > 0) ? lanes : Runtime.getRuntime().availableProcessors();
+        this.droppableTypes = Set.copyOf(droppableTypes);
+        this.blockNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, blockMs));
+        this.latency = Timer.builder("pubsub.dispatch.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+        this.backpressure = Counter.builder("pubsub.dispatch.backpressure")
+                .description("Mensajes que esperaron hueco en un carril lleno")
+                .register(registry);
+        this.rejected = Counter.builder("pubsub.dispatch.rejected").register(registry);
+
+        CustomizableThreadFactory tf = new CustomizableThreadFactory("pubsub-lane-");
+        tf.setDaemon(true);
+        this.lanes = new Lane[n];
+        for (int i = 0; i < n; i++) {
+            Lane lane = new Lane(Math.max(1, queueCapacity));
+            Gauge.builder("pubsub.dispatch.queue.depth", lane.queue, BlockingQueue::size)
+                    .tag("lane", Integer.toString(i))
+                    .register(registry);
+            lane.thread = tf.newThread(lane);
+            lane.thread.start();
+            this.lanes[i] = lane;
+        }
+        this.intake = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+        Gauge.builder("pubsub.dispatch.intake.depth", intake, BlockingQueue::size).register(registry);
+        CustomizableThreadFactory rf = new CustomizableThreadFactory("pubsub-reader-");
+        rf.setDaemon(true);
+        this.reader = rf.newThread(this::drainIntake);
+        this.reader.start();
+    }
+
+    /**
+     * Número de carriles.
+     *
+     * @return Carriles.
+     */
+    public int lanes() {
+        return lanes.length;
+    }
+
+    /**
+     * Carril de una clave.
+     *
+     * @param key Clave (el canal).
+     * @return Índice del carril.
+     */
+    int laneOf(String key) {
+        int h = key.hashCode();
+        return Math.floorMod(h ^ (h >>> 16), lanes.length);
+    }
+
+    /**
+     * Ejecuta la tarea en el carril de la clave, después de las anteriores con
+     * la misma clave. Solo bloquea si el carril está lleno y el mensaje no es
+     * descartable.
+     *
+     * @param key  Clave de orden (el canal).
+     * @param type Tipo del mensaje; solo se consulta si el carril está lleno.
+     * @param task Trabajo.
+     * @return false si la tarea se descartó.
+     */
+    public boolean execute(String key, Supplier<String> type, Runnable task) {
+        BlockingQueue<Task> queue = lanes[laneOf(key)].queue;
+        Task t = new Task(task, System.nanoTime());
+        if (queue.offer(t)) {
+            return true;
+        }
+        String kind = type.get();
+        if (kind == null || !droppableTypes.contains(kind)) {
+            backpressure.increment();
+            try {
+                if (queue.offer(t, blockNanos, TimeUnit.NANOSECONDS)) {
+                    return true;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        rejected.increment();
+        warnRejected(key, kind);
+        return false;
+    }
+
+    /**
+     * Como {@link #execute}, pero sin bloquear nunca al hilo que llama (el event
+     * loop de Lettuce). Si el carril está lleno, o quedan mensajes anteriores
+     * esperando, el mensaje va a la cola de lectura para conservar el orden.
+     *
+     * @param key  Clave de orden (el canal).
+     * @param type Tipo del mensaje; solo se consulta si hay que descartarlo.
+     * @param task Trabajo.
+     * @return false si la cola de lectura está llena y la tarea se descartó.
+     */
+    public boolean submit(String key, Supplier<String> type, Runnable task) {
+        if (backlog.get() == 0 && lanes[laneOf(key)].queue.offer(new Task(task, System.nanoTime()))) {
+            return true;
+        }
+        backlog.incrementAndGet();
+        if (intake.offer(new Pending(key, type, task))) {
+            return true;
+        }
+        backlog.decrementAndGet();
+        rejected.increment();
+        warnRejected(key, type.get());
+        return false;
+    }
+
+    /** Hilo lector: pasa a los carriles lo que los listeners no pudieron encolar. */
+    private void drainIntake() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                Pending p = intake.take();
+                try {
+                    execute(p.key(), p.type(), p.work());
+                } finally {
+                    backlog.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void warnRejected(String key, String type) {
+        long now = System.nanoTime();
+        long last = lastWarn.get();
+        if (now - last >= WARN_INTERVAL_NANOS && lastWarn.compareAndSet(last, now)) {
+            log.warn("Carril de despacho lleno; {} descartado en '{}' ({} descartes en total)",
+                    type, key, (long) rejected.count());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        reader.interrupt();
+        for (Lane lane : lanes) {
+            lane.thread.interrupt();
+        }
+    }
+
+    /** Carril de un solo hilo. */
+    private final class Lane implements Runnable {
+        final BlockingQueue<Task> queue;
+        Thread thread;
+
+        Lane(int capacity) {
+            this.queue = new ArrayBlockingQueue<>(capacity);
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!Thread.currentThread().isInterrupted()) {
+                    Task t = queue.take();
+                    latency.record(System.nanoTime() - t.enqueuedAt(), TimeUnit.NANOSECONDS);
+                    try {
+                        t.work().run();
+                    } catch (RuntimeException e) {
+                        log.error("Pubsub dispatch failed", e);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+}
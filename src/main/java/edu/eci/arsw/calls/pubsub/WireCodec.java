@@ -0,0 +1,279 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Formato binario de {@link RelayFrame} entre nodos (v1), activo con
+ * {@code app.pubsub.wire.format=binary}:
+ *
+ * <pre>
+ * 0xB1 | versión | flags | [canal] | originNode | originUser | type | [traceId] | [target] | seq | len | cuerpo
+ * </pre>
+ *
+ * Los textos van como varint {@code longitud + 1} (0 = null) y UTF-8; {@code seq}
+ * y {@code len} (longitud del cuerpo sin comprimir) como varint. Con el flag
+ * {@code DEFLATE} el cuerpo va comprimido (deflate crudo con un diccionario de
+ * SDP, {@code wire/sdp.dict}); solo se comprime a partir de
+ * {@code app.pubsub.wire.compress-threshold} bytes y si ocupa menos. Con
+ * {@code ROUTED} se antepone el canal (buzón de un nodo). Los mensajes con
+ * {@code traceId} (ordenados por emisor) van en la versión 2 y los dirigidos a
+ * un participante ({@code target}) en la 3, con traceId y target; el resto sigue
+ * en v1 y lo leen también los nodos anteriores.
+ *
+ * <p>0xB1 nunca empieza un texto UTF-8, así que un nodo distingue el formato de
+ * cada mensaje y lee los dos, lo que permite cambiar el formato nodo a nodo.
+ */
+@Component
+public class WireCodec {
+    static final byte MAGIC = (byte) 0xB1;
+    static final byte VERSION = 1;
+    static final byte TRACED_VERSION = 2;
+    static final byte ADDRESSED_VERSION = 3;
+    private static final int FLAG_DEFLATE = 1;
+    private static final int FLAG_ROUTED = 2;
+
+    private static final byte[] DICTIONARY = loadDictionary();
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal
+            .withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(() -> new Inflater(true));
+
+    private final boolean binary;
+    private final int compressThreshold;
+    private final DistributionSummary encodedBytes;
+
+    @Autowired
+    public WireCodec(MeterRegistry registry,
+            @Value("${app.pubsub.wire.format:text}") String format,
+            @Value("${app.pubsub.wire.compress-threshold:1024}") int compressThreshold) {
+        this.binary = "binary".equals(format.trim().toLowerCase(Locale.ROOT));
+        this.compressThreshold = compressThreshold;
+        this.encodedBytes = DistributionSummary.builder("pubsub.wire.bytes")
+                .baseUnit("bytes")
+                .register(registry);
+    }
+
+    private static byte[] loadDictionary() {
+        try (InputStream in = WireCodec.class.getResourceAsStream("/wire/sdp.dict")) {
+            if (in == null) {
+                throw new IllegalStateException("Missing /wire/sdp.dict");
+            }
+            return in.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Indica si este nodo publica en binario.
+     *
+     * @return true con {@code app.pubsub.wire.format=binary}.
+     */
+    public boolean binary() {
+        return binary;
+    }
+
+    /**
+     * Indica si un mensaje recibido está en formato binario.
+     *
+     * @param wire Bytes recibidos de Redis.
+     * @return true si empieza por 0xB1.
+     */
+    public static boolean isBinary(byte[] wire) {
+        return wire.length > 2 && wire[0] == MAGIC;
+    }
+
+    /**
+     * Codifica un mensaje.
+     *
+     * @param frame Mensaje sellado.
+     * @return Bytes a publicar.
+     */
+    public byte[] encode(RelayFrame frame) {
+        return encode(null, frame);
+    }
+
+    /**
+     * Codifica un mensaje para el buzón de un nodo, con su canal.
+     *
+     * @param channel Canal al que se publica.
+     * @param frame   Mensaje sellado.
+     * @return Bytes a publicar.
+     */
+    public byte[] encodeRouted(String channel, RelayFrame frame) {
+        return encode(channel, frame);
+    }
+
+    private byte[] encode(String channel, RelayFrame frame) {
+        byte[] body = frame.body().getBytes(StandardCharsets.UTF_8);
+        byte[] packed = (body.length >= compressThreshold) ? deflate(body) : null;
+        int flags = (packed != null ? FLAG_DEFLATE : 0) | (channel != null ? FLAG_ROUTED : 0);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream(
+                (packed != null ? packed.length : body.length) + 64);
+        out.write(MAGIC);
+        out.write(frame.target() != null ? ADDRESSED_VERSION
+                : frame.traceId() != null ? TRACED_VERSION : VERSION);
+        out.write(flags);
+        if (channel != null) {
+            writeString(out, channel);
+        }
+        writeString(out, frame.originNode());
+        writeString(out, frame.originUser());
+        writeString(out, frame.type());
+        if (frame.target() != null) {
+            writeString(out, frame.traceId());
+            writeString(out, frame.target());
+        } else if (frame.traceId() != null) {
+            writeString(out, frame.traceId());
+        }
+        writeVarLong(out, frame.seq());
+        writeVarLong(out, body.length);
+        out.writeBytes(packed != null ? packed : body);
+        byte[] wire = out.toByteArray();
+        encodedBytes.record(wire.length);
+        return wire;
+    }
+
+    /**
+     * Lee un mensaje binario.
+     *
+     * @param wire Bytes recibidos.
+     * @return Mensaje.
+     * @throws IllegalArgumentException Si no es un mensaje binario válido.
+     */
+    public static RelayFrame decode(byte[] wire) {
+        return read(wire, false).frame();
+    }
+
+    /**
+     * Lee un mensaje binario del buzón de un nodo.
+     *
+     * @param wire Bytes recibidos.
+     * @return Canal y mensaje.
+     * @throws IllegalArgumentException Si no es un mensaje de buzón válido.
+     */
+    public static RelayFrame.Routed decodeRouted(byte[] wire) {
+        return read(wire, true);
+    }
+
+    private static RelayFrame.Routed read(byte[] wire, boolean routed) {
+        if (!isBinary(wire)) {
+            throw new IllegalArgumentException("Not a binary relay frame");
+        }
+        boolean addressed = wire[1] == ADDRESSED_VERSION;
+        boolean traced = addressed || wire[1] == TRACED_VERSION;
+        if (wire[1] != VERSION && !traced) {
+            throw new IllegalArgumentException("Unsupported relay frame version " + wire[1]);
+        }
+        int flags = wire[2];
+        if (routed != ((flags & FLAG_ROUTED) != 0)) {
+            throw new IllegalArgumentException(routed ? "Routed relay frame without channel"
+                    : "Unexpected routed relay frame");
+        }
+        try {
+            int[] pos = { 3 };
+            String channel = routed ? readString(wire, pos) : null;
+            String node = readString(wire, pos);
+            String user = readString(wire, pos);
+            String type = readString(wire, pos);
+            String trace = traced ? readString(wire, pos) : null;
+            String target = addressed ? readString(wire, pos) : null;
+            long seq = readVarLong(wire, pos);
+            int len = (int) readVarLong(wire, pos);
+            byte[] body = ((flags & FLAG_DEFLATE) != 0)
+                    ? inflate(wire, pos[0], len)
+                    : Arrays.copyOfRange(wire, pos[0], pos[0] + len);
+            return new RelayFrame.Routed(channel,
+                    new RelayFrame(node, user, type, seq, trace, target, new String(body, StandardCharsets.UTF_8)));
+        } catch (RuntimeException | DataFormatException e) {
+            throw new IllegalArgumentException("Corrupt binary relay frame", e);
+        }
+    }
+
+    private static byte[] deflate(byte[] body) {
+        Deflater d = DEFLATER.get();
+        d.reset();
+        d.setDictionary(DICTIONARY);
+        d.setInput(body);
+        d.finish();
+        byte[] buf = new byte[body.length];
+        int n = 0;
+        while (!d.finished() && n < buf.length) {
+            n += d.deflate(buf, n, buf.length - n);
+        }
+        // Si no cabe en menos que el original no compensa
+        return d.finished() && n < body.length ? Arrays.copyOf(buf, n) : null;
+    }
+
+    private static byte[] inflate(byte[] wire, int offset, int len) throws DataFormatException {
+        Inflater inf = INFLATER.get();
+        inf.reset();
+        inf.setDictionary(DICTIONARY);
+        inf.setInput(wire, offset, wire.length - offset);
+        byte[] body = new byte[len];
+        int n = 0;
+        while (n < len) {
+            int r = inf.inflate(body, n, len - n);
+            if (r == 0 && (inf.finished() || inf.needsInput())) {
+                throw new DataFormatException("Truncated body");
+            }
+            n += r;
+        }
+        return body;
+    }
+
+    private static void writeString(ByteArrayOutputStream out, String value) {
+        if (value == null) {
+            out.write(0);
+            return;
+        }
+        byte[] b = value.getBytes(StandardCharsets.UTF_8);
+        writeVarLong(out, b.length + 1L);
+        out.writeBytes(b);
+    }
+
+    private static String readString(byte[] wire, int[] pos) {
+        int len = (int) readVarLong(wire, pos) - 1;
+        if (len < 0) {
+            return null;
+        }
+        String value = new String(wire, pos[0], len, StandardCharsets.UTF_8);
+        pos[0] += len;
+        return value;
+    }
+
+    private static void writeVarLong(ByteArrayOutputStream out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.write((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.write((int) value);
+    }
+
+    private static long readVarLong(byte[] wire, int[] pos) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = wire[pos[0]++];
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+}
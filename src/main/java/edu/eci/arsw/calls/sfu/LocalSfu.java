@@ -0,0 +1,285 @@
+package edu.eci.arsw.calls.sfu;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+
+/**
+ * SFU en memoria que sustituye a uno externo en desarrollo y pruebas de carga
+ * ({@code app.sfu.enabled}). No mueve medios: lleva el plan de reenvío de cada
+ * sala (quién publica, qué pistas baja cada participante) y responde con SDP
+ * sintético, así que la señalización es la misma que con un SFU real.
+ *
+ * <p>Cada participante tiene como mucho una oferta de bajada pendiente: si
+ * alguien publica o sale mientras tanto, el cambio se junta en la siguiente
+ * oferta, que sale al llegar la respuesta ({@code sfu.renegotiations.coalesced}).
+ */
+@Component
+public class LocalSfu implements SfuSignaling {
+    private static final Logger log = LoggerFactory.getLogger(LocalSfu.class);
+
+    private static final String SEND = "send";
+    private static final String RECV = "recv";
+
+    private final boolean enabled;
+    private final Map<String, Room> rooms = new ConcurrentHashMap<>();
+    private final AtomicLong sdpSessions = new AtomicLong();
+
+    private final Counter renegotiations;
+    private final Counter coalesced;
+
+    public LocalSfu(MeterRegistry registry, @Value("${app.sfu.enabled:false}") boolean enabled) {
+        this.enabled = enabled;
+        this.renegotiations = Counter.builder("sfu.renegotiations")
+                .description("Ofertas de bajada enviadas")
+                .register(registry);
+        this.coalesced = Counter.builder("sfu.renegotiations.coalesced")
+                .description("Cambios de publicadores juntados en una oferta pendiente")
+                .register(registry);
+    }
+
+    @Override
+    public boolean enabled() {
+        return enabled;
+    }
+
+    @Override
+    public void join(String callId, String userId, Listener listener) {
+        List<Signal> out = new ArrayList<>();
+        for (;;) {
+            Room room = rooms.computeIfAbsent(callId, id -> new Room());
+            synchronized (room) {
+                if (room.closed) {
+                    // Se vació entre la búsqueda y el lock; se retira y se crea otra
+                    rooms.remove(callId, room);
+                    continue;
+                }
+                Peer previous = room.peers.remove(userId);
+                if (previous != null && previous.publishing) {
+                    renegotiateAll(room, out);
+                }
+                Peer peer = new Peer(userId, listener, sdpSessions.incrementAndGet());
+                room.peers.put(userId, peer);
+                renegotiate(room, peer, out);
+            }
+            break;
+        }
+        emit(out);
+    }
+
+    @Override
+    public void offer(String callId, String userId, String sdp) {
+        List<Signal> out = new ArrayList<>();
+        withPeer(callId, userId, (room, peer) -> {
+            boolean first = !peer.publishing;
+            peer.publishing = true;
+            peer.upstreamVersion++;
+            out.add(new Signal(peer.listener, "ANSWER", Map.of("type", "answer", "transport", SEND,
+                    "sdp", sdp(peer.sdpSession, peer.upstreamVersion, List.of(userId), "recvonly"))));
+            if (first) {
+                out.add(candidateFor(peer, SEND));
+                renegotiateAll(room, out);
+            }
+        });
+        emit(out);
+    }
+
+    @Override
+    public void answer(String callId, String userId, String sdp) {
+        List<Signal> out = new ArrayList<>();
+        withPeer(callId, userId, (room, peer) -> {
+            if (peer.offered == null) {
+                return;
+            }
+            peer.streams = peer.offered;
+            peer.offered = null;
+            renegotiate(room, peer, out);
+        });
+        emit(out);
+    }
+
+    @Override
+    public void candidate(String callId, String userId, String transport, String candidate) {
+        // Sin agente ICE: no hay medios que conectar
+        log.trace("Candidato {} de {} en {}", transport, userId, callId);
+    }
+
+    @Override
+    public void leave(String callId, String userId) {
+        List<Signal> out = new ArrayList<>();
+        Room room = rooms.get(callId);
+        if (room == null) {
+            return;
+        }
+        synchronized (room) {
+            Peer peer = room.peers.remove(userId);
+            if (peer == null) {
+                return;
+            }
+            if (room.peers.isEmpty()) {
+                room.closed = true;
+                rooms.remove(callId, room);
+            } else if (peer.publishing) {
+                renegotiateAll(room, out);
+            }
+        }
+        emit(out);
+    }
+
+    /**
+     * Pistas que el participante baja según su última respuesta.
+     *
+     * @param callId ID de la sesión de llamada.
+     * @param userId ID del participante.
+     * @return Usuarios cuyas pistas recibe; vacío si no está en la sala.
+     */
+    public List<String> streams(String callId, String userId) {
+        Room room = rooms.get(callId);
+        if (room == null) {
+            return List.of();
+        }
+        synchronized (room) {
+            Peer peer = room.peers.get(userId);
+            return peer == null ? List.of() : peer.streams;
+        }
+    }
+
+    /**
+     * Participantes con transporte de subida en una sala.
+     *
+     * @param callId ID de la sesión de llamada.
+     * @return Número de publicadores.
+     */
+    public int publishers(String callId) {
+        Room room = rooms.get(callId);
+        if (room == null) {
+            return 0;
+        }
+        synchronized (room) {
+            return publishersExcept(room, null).size();
+        }
+    }
+
+    private void withPeer(String callId, String userId, BiConsumer<Room, Peer> op) {
+        Room room = rooms.get(callId);
+        if (room == null) {
+            return;
+        }
+        synchronized (room) {
+            Peer peer = room.peers.get(userId);
+            if (peer != null) {
+                op.accept(room, peer);
+            }
+        }
+    }
+
+    private void renegotiateAll(Room room, List<Signal> out) {
+        for (Peer other : room.peers.values()) {
+            renegotiate(room, other, out);
+        }
+    }
+
+    /**
+     * Ofrece al participante la bajada con los publicadores actuales si cambió.
+     * Con una oferta pendiente solo se anota; se ofrece al llegar su respuesta.
+     */
+    private void renegotiate(Room room, Peer peer, List<Signal> out) {
+        List<String> wanted = publishersExcept(room, peer.userId);
+        if (peer.offered != null) {
+            if (!wanted.equals(peer.offered)) {
+                coalesced.increment();
+            }
+            return;
+        }
+        if (wanted.equals(peer.streams)) {
+            return;
+        }
+        peer.offered = wanted;
+        peer.downstreamVersion++;
+        renegotiations.increment();
+        out.add(new Signal(peer.listener, "OFFER", Map.of("type", "offer", "transport", RECV,
+                "sdp", sdp(peer.sdpSession, peer.downstreamVersion, wanted, "sendonly"), "streams", wanted)));
+        if (peer.downstreamVersion == 1) {
+            out.add(candidateFor(peer, RECV));
+        }
+    }
+
+    private static List<String> publishersExcept(Room room, String userId) {
+        List<String> publishers = new ArrayList<>();
+        for (Peer p : room.peers.values()) {
+            if (p.publishing && !p.userId.equals(userId)) {
+                publishers.add(p.userId);
+            }
+        }
+        return List.copyOf(publishers);
+    }
+
+    private static Signal candidateFor(Peer peer, String transport) {
+        int port = SEND.equals(transport) ? 40000 : 40001;
+        return new Signal(peer.listener, "ICE_CANDIDATE", Map.of("transport", transport,
+                "candidate", "candidate:1 1 udp 2130706431 127.0.0.1 " + port + " typ host",
+                "sdpMid", "0", "sdpMLineIndex", 0));
+    }
+
+    private static String sdp(long session, int version, List<String> streams, String direction) {
+        StringBuilder sb = new StringBuilder(128 + 96 * streams.size())
+                .append("v=0\r\no=sfu ").append(session).append(' ').append(version)
+                .append(" IN IP4 127.0.0.1\r\ns=-\r\nt=0 0\r\n");
+        for (int i = 0; i < streams.size(); i++) {
+            sb.append("m=video 9 UDP/TLS/RTP/SAVPF 96\r\nc=IN IP4 0.0.0.0\r\na=mid:").append(i)
+                    .append("\r\na=msid:").append(streams.get(i)).append(" video\r\na=").append(direction)
+                    .append("\r\na=rtpmap:96 VP8/90000\r\n");
+        }
+        return sb.toString();
+    }
+
+    /** Entrega fuera del lock de la sala. */
+    private static void emit(List<Signal> out) {
+        for (Signal s : out) {
+            try {
+                s.listener.signal(s.type, s.payload);
+            } catch (Exception e) {
+                log.warn("No se pudo entregar {} del SFU: {}", s.type, e.toString());
+            }
+        }
+    }
+
+    private record Signal(Listener listener, String type, Map<String, Object> payload) {
+    }
+
+    /** Participantes de una llamada; se usa bajo su propio monitor. */
+    private static final class Room {
+        final Map<String, Peer> peers = new LinkedHashMap<>();
+        boolean closed;
+    }
+
+    private static final class Peer {
+        final String userId;
+        final Listener listener;
+        final long sdpSession;
+        boolean publishing;
+        int upstreamVersion;
+        int downstreamVersion;
+        /** Publicadores de la última bajada respondida. */
+        List<String> streams = List.of();
+        /** Publicadores de la oferta de bajada pendiente; null si no hay. */
+        List<String> offered;
+
+        Peer(String userId, Listener listener, long sdpSession) {
+            this.userId = userId;
+            this.listener = listener;
+            this.sdpSession = sdpSession;
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package edu.eci.arsw.calls.sfu;
+
+import java.util.Map;
+
+/**
+ * Señalización con un SFU (selective forwarding unit) para clases grandes. En
+ * lugar de la malla (cada participante negocia con cada otro, N²), cada
+ * participante negocia con el SFU un solo transporte de subida
+ * ({@code transport=send}) con sus pistas y un solo transporte de bajada
+ * ({@code transport=recv}) con las pistas de los demás, que el SFU renegocia
+ * cuando alguien empieza a publicar o sale.
+ *
+ * <p>El cliente habla con el SFU por el mismo WebSocket, dirigiendo sus
+ * mensajes a {@link #PEER} ({@code "to":"sfu"}):
+ * <ul>
+ * <li>OFFER con el SDP de subida; el SFU responde ANSWER;</li>
+ * <li>el SFU envía OFFER de bajada (con {@code streams}, los usuarios cuyas
+ * pistas incluye) y el cliente responde ANSWER;</li>
+ * <li>ICE_CANDIDATE en ambos sentidos, con el {@code transport} al que
+ * pertenecen.</li>
+ * </ul>
+ *
+ * Las llamadas son asíncronas: lo que el SFU tenga que decir a un
+ * participante llega por su {@link Listener}, en cualquier hilo.
+ */
+public interface SfuSignaling {
+
+    /** Destinatario ({@code to}) de los mensajes de los clientes para el SFU. */
+    String PEER = "sfu";
+
+    /**
+     * Mensajes del SFU para un participante.
+     */
+    @FunctionalInterface
+    interface Listener {
+        /**
+         * @param type    OFFER, ANSWER o ICE_CANDIDATE.
+         * @param payload Payload del mensaje para el cliente.
+         */
+        void signal(String type, Map<String, Object> payload);
+    }
+
+    /**
+     * Indica si las llamadas negocian con el SFU.
+     *
+     * @return true si el adaptador está activo.
+     */
+    boolean enabled();
+
+    /**
+     * Añade al participante a la sala del SFU. Si ya estaba (reconexión), sus
+     * transportes anteriores se cierran y vuelve a negociar.
+     *
+     * @param callId   ID de la sesión de llamada.
+     * @param userId   ID del participante.
+     * @param listener Destino de los mensajes del SFU para el participante.
+     */
+    void join(String callId, String userId, Listener listener);
+
+    /**
+     * Oferta del transporte de subida del participante.
+     *
+     * @param callId ID de la sesión de llamada.
+     * @param userId ID del participante.
+     * @param sdp    SDP de la oferta.
+     */
+    void offer(String callId, String userId, String sdp);
+
+    /**
+     * Respuesta del participante a la última oferta de bajada.
+     *
+     * @param callId ID de la sesión de llamada.
+     * @param userId ID del participante.
+     * @param sdp    SDP de la respuesta.
+     */
+    void answer(String callId, String userId, String sdp);
+
+    /**
+     * Candidato ICE del participante.
+     *
+     * @param callId    ID de la sesión de llamada.
+     * @param userId    ID del participante.
+     * @param transport {@code send} o {@code recv}.
+     * @param candidate Candidato ICE.
+     */
+    void candidate(String callId, String userId, String transport, String candidate);
+
+    /**
+     * Retira al participante: se cierran sus transportes y se quitan sus
+     * pistas de la bajada de los demás.
+     *
+     * @param callId ID de la sesión de llamada.
+     * @param userId ID del participante.
+     */
+    void leave(String callId, String userId);
+}
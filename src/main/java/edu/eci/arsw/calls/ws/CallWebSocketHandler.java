@@ -1,96 +1,193 @@
 package edu.eci.arsw.calls.ws;
 
-import com.fasterxml.jackson.databind.ObjectMapper;
 import de.huxhorn.sulky.ulid.ULID;
 import edu.eci.arsw.calls.domain.CallSession;
+import edu.eci.arsw.calls.pubsub.ChannelSubscriptions;
 import edu.eci.arsw.calls.pubsub.RedisPubSubBridge;
-import edu.eci.arsw.calls.service.EligibilityService;
+import edu.eci.arsw.calls.pubsub.RelayFrame;
 import edu.eci.arsw.calls.service.CallSessionService;
+import edu.eci.arsw.calls.sfu.SfuSignaling;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
 import org.springframework.web.socket.WebSocketSession;
-import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
 
 import java.io.IOException;
 import java.util.Map;
 import java.util.Objects;
-import java.util.Set;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
 
 /**
  * Manejador WebSocket para la comunicación en tiempo real de llamadas.
+ * Acepta frames de texto (JSON) y binarios (CBOR, subprotocolo negociado).
  */
 @Component
-public class CallWebSocketHandler extends TextWebSocketHandler {
+public class CallWebSocketHandler extends AbstractWebSocketHandler {
     private static final Logger log = LoggerFactory.getLogger(CallWebSocketHandler.class);
 
     private static final String CALL_CHANNEL_PREFIX = "call:";
 
-    private final ObjectMapper om = new ObjectMapper();
     private final ULID ulid = new ULID();
 
     private final SessionRegistry registry;
     private final CallSessionService callService;
-    private final EligibilityService eligibilityService;
+    private final JoinPipeline joinPipeline;
     private final RedisPubSubBridge bridge;
-
-    private final int rateLimit;
-
-    /** Límite de tasa por sesión */
-    private final Map<String, SimpleRateLimiter> limiters = new ConcurrentHashMap<>();
-    /** Evita suscribirse más de una vez al mismo canal */
-    private final Set<String> subscribedChannels = ConcurrentHashMap.newKeySet();
-
+    private final ChannelSubscriptions channels;
+    private final SignalingCodecs codecs;
+    private final OutboundFrames frames;
+    private final InboundDispatcher inbound;
+    private final ConnectionContexts contexts;
+    /** Orden por emisor en la entrega; null entrega según llega. */
+    private final OrderedDelivery ordering;
+    /** Capacidad y rol en todo el clúster; null decide solo con el registro local. */
+    private final ClusterPresence presence;
+    /** Nodo de cada par para los mensajes con {@code to}; null los difunde a toda la sala. */
+    private final PeerRoutes routes;
+    /** SFU para los mensajes con {@code "to":"sfu"}; null solo hay malla. */
+    private final SfuSignaling sfu;
+
+    @Autowired
     public CallWebSocketHandler(SessionRegistry registry,
             CallSessionService callService,
-            EligibilityService eligibilityService,
+            JoinPipeline joinPipeline,
             RedisPubSubBridge bridge,
-            @Value("${app.ws.rate-limit:20}") int rateLimit) {
+            ChannelSubscriptions channels,
+            SignalingCodecs codecs,
+            OutboundFrames frames,
+            InboundDispatcher inbound,
+            ConnectionContexts contexts,
+            @Autowired(required = false) OrderedDelivery ordering,
+            @Autowired(required = false) ClusterPresence presence,
+            @Autowired(required = false) PeerRoutes routes,
+            @Autowired(required = false) SfuSignaling sfu) {
         this.registry = registry;
         this.callService = callService;
-        this.eligibilityService = eligibilityService;
+        this.joinPipeline = joinPipeline;
         this.bridge = bridge;
-        this.rateLimit = rateLimit;
+        this.channels = channels;
+        this.codecs = codecs;
+        this.frames = frames;
+        this.inbound = inbound;
+        this.contexts = contexts;
+        this.ordering = ordering;
+        this.presence = (presence != null && presence.enabled()) ? presence : null;
+        this.routes = (routes != null && routes.enabled()) ? routes : null;
+        this.sfu = (sfu != null && sfu.enabled()) ? sfu : null;
+    }
+
+    /**
+     * Crea el contexto de la conexión a partir de los atributos del handshake.
+     *
+     * @param session Sesión WebSocket
+     */
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        contexts.open(session);
     }
 
     /**
-     * Límite de tasa por sesión
+     * Frame de texto (JSON).
      *
      * @param session Sesión WebSocket
      * @param message Mensaje de texto recibido
      */
     @Override
     protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        handleFrame(session, message, false);
+    }
+
+    /**
+     * Frame binario (CBOR).
+     *
+     * @param session Sesión WebSocket
+     * @param message Mensaje binario recibido
+     */
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        handleFrame(session, message, true);
+    }
+
+    /**
+     * Decodifica el frame y aplica el límite de tasa por tipo (en el hilo del
+     * contenedor) antes de despacharlo al {@link InboundDispatcher}. El sobre
+     * decodificado ya no comparte buffer con el contenedor.
+     *
+     * @param session Sesión WebSocket
+     * @param message Frame recibido
+     * @param binary  true si el frame es binario
+     */
+    private void handleFrame(WebSocketSession session, WebSocketMessage<?> message, boolean binary) {
+        ConnectionContext ctx;
+        LazyEnvelope env;
+        long wait;
         try {
-            limiters.computeIfAbsent(session.getId(), k -> new SimpleRateLimiter(rateLimit));
-            if (!limiters.get(session.getId()).tryAcquire()) {
-                session.close(CloseStatus.POLICY_VIOLATION);
+            ctx = contexts.open(session);
+            env = codecs.forInbound(binary).decode(message);
+            RateLimitPolicy rateLimit = contexts.rateLimit();
+            wait = rateLimit.check(ctx.limiter(), env.type);
+            if (wait == TokenBucketRateLimiter.REJECTED) {
+                if (rateLimit.mode() == RateLimitPolicy.Mode.CLOSE) {
+                    session.close(CloseStatus.POLICY_VIOLATION);
+                }
                 return;
             }
+        } catch (Exception ex) {
+            fail(session, ex);
+            return;
+        }
+        inbound.execute(session, () -> processFrame(session, ctx, env, wait));
+    }
 
-            handleInboundMessage(session, message);
-
+    /**
+     * Procesa el frame; corre en el hilo que decida el {@link InboundDispatcher}.
+     *
+     * @param session Sesión WebSocket
+     * @param ctx     Contexto de la conexión
+     * @param env     Sobre decodificado
+     * @param wait    Nanos que hay que retrasarlo por el límite de tasa
+     */
+    private void processFrame(WebSocketSession session, ConnectionContext ctx, LazyEnvelope env, long wait) {
+        if (wait > 0) {
+            LockSupport.parkNanos(wait);
+        }
+        try {
+            handleInboundMessage(session, ctx, env);
         } catch (Exception ex) {
-            log.error("WS handleTextMessage failed", ex);
+            fail(session, ex);
+        } finally {
+            MDC.clear();
+        }
+    }
+
+    /**
+     * Responde con ERROR y cierra la sesión tras un fallo inesperado.
+     *
+     * @param session Sesión WebSocket
+     * @param ex      Error ocurrido
+     */
+    private void fail(WebSocketSession session, Exception ex) {
+        log.error("WS handleFrame failed", ex);
+        WebSocketSession out = contexts.sender(session);
+        try {
+            sendError(session, "500: " + ex.getClass().getSimpleName() + ": "
+                    + (ex.getMessage() == null ? "no message" : ex.getMessage()));
+        } catch (Exception ignore) {
+            /* noop */ }
+        if (out.isOpen()) {
             try {
-                sendError(session, "500: " + ex.getClass().getSimpleName() + ": "
-                        + (ex.getMessage() == null ? "no message" : ex.getMessage()));
+                out.close(CloseStatus.SERVER_ERROR);
             } catch (Exception ignore) {
                 /* noop */ }
-            if (session.isOpen()) {
-                try {
-                    session.close(CloseStatus.SERVER_ERROR);
-                } catch (Exception ignore) {
-                    /* noop */ }
-            }
-        } finally {
-            MDC.clear();
         }
     }
 
@@ -98,63 +195,72 @@ public class CallWebSocketHandler extends TextWebSocketHandler {
      * Maneja el mensaje entrante basado en su tipo.
      *
      * @param session Sesión WebSocket
-     * @param message Mensaje de texto recibido
+     * @param ctx     Contexto de la conexión
+     * @param env     Sobre decodificado
      * @throws IOException Si ocurre un error de E/S
      */
-    private void handleInboundMessage(WebSocketSession session, TextMessage message) throws IOException {
-        String userId = String.valueOf(session.getAttributes().get("userId"));
-
-        MessageEnvelope env = om.readValue(message.getPayload(), MessageEnvelope.class);
+    private void handleInboundMessage(WebSocketSession session, ConnectionContext ctx, LazyEnvelope env)
+            throws IOException {
         if (env.traceId == null || env.traceId.isBlank()) {
-            env.traceId = ulid.nextULID();
+            env.setTraceId(ulid.nextULID());
         }
         MDC.put("traceId", env.traceId);
         MDC.put("sessionId", env.sessionId);
 
         switch (env.type) {
-            case "JOIN" -> onJoin(session, userId, env);
-            case "OFFER", "ANSWER", "ICE_CANDIDATE" -> forwardAndInspect(env);
-            case "RTC_CONNECTED" -> onRtcConnected(env);
+            case "JOIN" -> onJoin(session, ctx, env);
+            case "OFFER", "ANSWER", "ICE_CANDIDATE" -> forwardAndInspect(ctx, env);
+            case "RTC_CONNECTED" -> onRtcConnected(ctx, env);
             case "HEARTBEAT" -> {
                 /* keepalive */ }
-            case "LEAVE", "END" -> onEnd(env);
+            case "LEAVE", "END" -> onEnd(ctx, env);
             default -> sendError(session, "Unsupported type");
         }
     }
 
     /**
-     * Maneja la lógica de unión a una sesión de llamada.
+     * Maneja la lógica de unión a una sesión de llamada. Una conexión solo
+     * participa en una llamada: un JOIN a otra llamada se rechaza sin tocar la
+     * actual; repetir el JOIN de la misma es una reconexión.
      *
      * @param session Sesión WebSocket del usuario.
-     * @param userId  ID del usuario que se une.
+     * @param ctx     Contexto de la conexión que se une.
      * @param env     Mensaje de unión recibido.
      * @throws IOException Si ocurre un error de E/S.
      */
-    private void onJoin(WebSocketSession session, String userId, MessageEnvelope env) throws IOException {
+    private void onJoin(WebSocketSession session, ConnectionContext ctx, LazyEnvelope env) throws IOException {
+        String userId = ctx.userId();
         if (!validateUserAndSession(session, userId, env)) {
             return;
         }
 
-        final String reservationId = resolveReservationId(env);
-        if (!validateReservation(session, reservationId)) {
+        JoinPipeline.Admission admission = joinPipeline.admit(env.sessionId, env.reservationId, userId,
+                ctx.bearer());
+        if (!admission.isAdmitted()) {
+            reject(session, admission.error(), admission.closeStatus());
             return;
         }
 
-        if (!checkEligibility(session, userId, reservationId)) {
+        CallSession cs = admission.session();
+        String current = ctx.callSessionId();
+        if (current != null && !current.equals(cs.getSessionId())) {
+            sendError(session, "Already joined another call");
             return;
         }
-
-        CallSession cs = getOrCreateCallSession(env, reservationId);
-        int currentParticipants = countParticipants(cs);
-        if (!ensureCapacity(session, currentParticipants)) {
+        SessionRegistry.Seat seat = registerParticipant(ctx, userId, cs);
+        if (seat == SessionRegistry.Seat.FULL) {
+            reject(session, "Room full", CloseStatus.NOT_ACCEPTABLE);
             return;
         }
 
-        boolean initiator = (currentParticipants == 0);
-
-        registerParticipant(session, userId, cs);
-        subscribeChannelIfNeeded(cs);
-        sendJoinAck(session, userId, env, cs, initiator);
+        sendJoinAck(session, userId, env, cs, seat.initiator());
+        if (sfu != null) {
+            sfu.join(cs.getSessionId(), userId, sfuListener(ctx, cs.getSessionId(), userId));
+        }
+        if (env.resumeFrom != null && !env.resumeFrom.isBlank()) {
+            replayMissed(ctx, userId, cs.getSessionId(), env.resumeFrom);
+        }
+        joinPipeline.acked(admission);
         notifyPeerJoined(cs, userId);
     }
 
@@ -169,171 +275,128 @@ public class CallWebSocketHandler extends TextWebSocketHandler {
      */
     private boolean validateUserAndSession(WebSocketSession session,
             String userId,
-            MessageEnvelope env) throws IOException {
+            LazyEnvelope env) throws IOException {
         if (userId == null || userId.isBlank()) {
-            sendError(session, "Missing user identity");
-            session.close(CloseStatus.NOT_ACCEPTABLE);
+            reject(session, "Missing user identity", CloseStatus.NOT_ACCEPTABLE);
             return false;
         }
         if (env.sessionId == null || env.sessionId.isBlank()) {
-            sendError(session, "Missing sessionId");
-            session.close(CloseStatus.NOT_ACCEPTABLE);
+            reject(session, "Missing sessionId", CloseStatus.NOT_ACCEPTABLE);
             return false;
         }
         return true;
     }
 
     /**
-     * Resuelve el ID de reserva a partir del mensaje recibido.
+     * Admite al participante en la sala de la llamada con un solo paso atómico
+     * (capacidad y rol). Con presencia en el clúster, capacidad y rol salen de
+     * Redis y cuentan a los participantes de todos los nodos; el registro local
+     * solo decide si no hay Redis, y lo admitido así se anota en la presencia
+     * para publicarlo cuando vuelva. Cada participante local nuevo retiene el
+     * canal de la llamada; una reconexión conserva su hueco y no vuelve a
+     * retenerlo.
      *
-     * @param env Mensaje recibido.
-     * @return ID de la reserva resuelta.
+     * @param ctx    Contexto de la conexión.
+     * @param userId ID del usuario.
+     * @param cs     Sesión de llamada.
+     * @return Rol asignado, o {@link SessionRegistry.Seat#FULL} si la sala está
+     *         llena.
      */
-    private String resolveReservationId(MessageEnvelope env) {
-        if (env.reservationId != null && !env.reservationId.isBlank()) {
-            return env.reservationId;
+    private SessionRegistry.Seat registerParticipant(ConnectionContext ctx,
+            String userId,
+            CallSession cs) {
+        String sessionId = cs.getSessionId();
+        SessionRegistry.Seat cluster = (presence == null) ? null
+                : presence.join(sessionId, userId, registry.capacity());
+        if (cluster == SessionRegistry.Seat.FULL) {
+            return cluster;
         }
-        return callService.findBySessionId(env.sessionId)
-                .map(CallSession::getReservationId)
-                .orElse(null);
-    }
-
-    /**
-     * Valida el ID de reserva.
-     *
-     * @param session               Sesión WebSocket.
-     * @param resolvedReservationId ID de la reserva resuelta.
-     * @return true si la validación es exitosa, false en caso contrario.
-     * @throws IOException Si ocurre un error de E/S.
-     */
-    private boolean validateReservation(WebSocketSession session,
-            String resolvedReservationId) throws IOException {
-        if (resolvedReservationId == null || resolvedReservationId.isBlank()) {
-            sendError(session, "Missing reservationId and unknown sessionId");
-            session.close(CloseStatus.NOT_ACCEPTABLE);
-            return false;
+        SessionRegistry.Seat seat = registry.admit(sessionId, userId, ctx.sender());
+        if (seat == SessionRegistry.Seat.FULL) {
+            if (cluster != null && !cluster.rejoined()) {
+                presence.leave(sessionId, userId);
+            }
+            return seat;
         }
-        return true;
-    }
-
-    /**
-     * Verifica la elegibilidad del usuario para la reserva.
-     *
-     * @param session       Sesión WebSocket.
-     * @param userId        ID del usuario.
-     * @param reservationId ID de la reserva.
-     * @return true si el usuario es elegible, false en caso contrario.
-     * @throws IOException Si ocurre un error de E/S.
-     */
-    private boolean checkEligibility(WebSocketSession session,
-            String userId,
-            String reservationId) throws IOException {
-        String bearer = (String) session.getAttributes().get("token");
-        var elig = eligibilityService.checkReservation(reservationId, userId, bearer);
-        if (!elig.eligible()) {
-            sendError(session, "403: " + elig.reason());
-            session.close(CloseStatus.NOT_ACCEPTABLE);
-            return false;
+        ctx.joined(sessionId, cs.getReservationId());
+        if (!seat.rejoined()) {
+            retainChannel(sessionId);
         }
-        return true;
+        if (presence != null && cluster == null) {
+            presence.admitted(sessionId, userId);
+        }
+        return (cluster != null) ? cluster : seat;
     }
 
     /**
-     * Obtiene o crea una sesión de llamada basada en el ID de reserva.
+     * Retiene el canal de la sesión de llamada; se suscribe con la primera
+     * referencia. Lo recibido enseña a {@link PeerRoutes} el nodo de cada par;
+     * lo dirigido a un par que no está en este nodo se descarta por la cabecera
+     * y el resto pasa por {@link OrderedDelivery} para entregar en orden lo de
+     * cada emisor.
      *
-     * @param env                   Mensaje recibido.
-     * @param resolvedReservationId ID de la reserva resuelta.
-     * @return Sesión de llamada existente o nueva.
+     * @param sessionId ID de la sesión de llamada.
      */
-    private CallSession getOrCreateCallSession(MessageEnvelope env,
-            String resolvedReservationId) {
-        return callService.findBySessionId(env.sessionId)
-                .map(existing -> {
-                    if (!Objects.equals(existing.getReservationId(), resolvedReservationId)) {
-                        throw new IllegalStateException("Session mismatches reservation");
+    private void retainChannel(String sessionId) {
+        String channel = CALL_CHANNEL_PREFIX + sessionId;
+        try {
+            channels.retain(channel, () -> {
+                Consumer<RelayFrame> fanout = frame -> fanout(sessionId, frame);
+                Consumer<RelayFrame> ordered = ordering == null ? fanout
+                        : frame -> ordering.accept(channel, frame, fanout);
+                return frame -> {
+                    if (routes != null) {
+                        routes.observe(channel, frame);
                     }
-                    return existing;
-                })
-                .orElseGet(() -> callService.create(resolvedReservationId));
-    }
-
-    /**
-     * Cuenta el número de participantes en una sesión de llamada.
-     *
-     * @param cs Sesión de llamada.
-     * @return Número de participantes actuales.
-     */
-    private int countParticipants(CallSession cs) {
-        var participants = registry.get(cs.getSessionId());
-        return (participants == null) ? 0 : participants.size();
-    }
-
-    /**
-     * Asegura que la sesión no exceda la capacidad máxima de participantes.
-     *
-     * @param session      Sesión WebSocket.
-     * @param currentCount Número actual de participantes.
-     * @return true si hay capacidad, false en caso contrario.
-     * @throws IOException Si ocurre un error de E/S.
-     */
-    private boolean ensureCapacity(WebSocketSession session,
-            int currentCount) throws IOException {
-        if (currentCount >= 2) {
-            sendError(session, "Room full");
-            session.close(CloseStatus.NOT_ACCEPTABLE);
-            return false;
+                    if (frame.target() == null || registry.get(sessionId).containsKey(frame.target())) {
+                        ordered.accept(frame);
+                    }
+                };
+            });
+        } catch (Exception e) {
+            log.warn("No se pudo suscribir a Redis. Fallback local. {}", e.toString());
         }
-        return true;
     }
 
     /**
-     * Registra un participante en la sesión de llamada.
+     * Entrega un mensaje del canal a los participantes locales salvo a su
+     * emisor, o solo a su destinatario si va dirigido. El fanout usa la
+     * cabecera de enrutamiento; el cuerpo no se parsea y se codifica una sola
+     * vez para todos los destinatarios.
      *
-     * @param session Sesión WebSocket.
-     * @param userId  ID del usuario.
-     * @param cs      Sesión de llamada.
+     * @param sessionId ID de la sesión de llamada.
+     * @param frame     Mensaje recibido.
      */
-    private void registerParticipant(WebSocketSession session,
-            String userId,
-            CallSession cs) {
-        registry.register(cs.getSessionId(), userId, session);
-        session.getAttributes().put("callSessionId", cs.getSessionId());
-        session.getAttributes().put("callUserId", userId);
-        session.getAttributes().put("callReservationId", cs.getReservationId());
-    }
-
-    /**
-     * Se suscribe al canal de la sesión de llamada si no está ya suscrito.
-     *
-     * @param cs Sesión de llamada.
-     */
-    private void subscribeChannelIfNeeded(CallSession cs) {
-        String channel = CALL_CHANNEL_PREFIX + cs.getSessionId();
-        if (!subscribedChannels.add(channel)) {
-            return;
-        }
+    private void fanout(String sessionId, RelayFrame frame) {
         try {
-            bridge.subscribe(channel, payload -> {
-                try {
-                    var msg = om.readValue(payload, MessageEnvelope.class);
-                    var sessMap = registry.get(cs.getSessionId());
-                    if (sessMap == null || sessMap.isEmpty()) {
-                        return;
-                    }
+            var sessMap = registry.get(sessionId);
+            if (sessMap == null || sessMap.isEmpty()) {
+                return;
+            }
 
-                    for (var entry : sessMap.entrySet()) {
-                        String targetUserId = entry.getKey();
-                        var ws = entry.getValue();
-                        if (!Objects.equals(targetUserId, msg.from) && ws.isOpen()) {
-                            ws.sendMessage(new TextMessage(payload));
-                        }
-                    }
-                } catch (Exception e) {
-                    log.warn("PubSub fanout failed", e);
+            if (frame.target() != null) {
+                WebSocketSession ws = sessMap.get(frame.target());
+                if (ws != null && ws.isOpen() && !frame.target().equals(frame.originUser())) {
+                    frames.send(ws, frames.wrap(frame.type(), frame.body()));
                 }
-            });
+                return;
+            }
+
+            String payload = frame.body();
+            String originUser = frame.hasHeader()
+                    ? frame.originUser()
+                    : LazyEnvelope.parseJson(payload).from;
+            OutboundFrame out = frames.wrap(frame.type(), payload);
+            for (var entry : sessMap.entrySet()) {
+                String targetUserId = entry.getKey();
+                var ws = entry.getValue();
+                if (Objects.equals(targetUserId, originUser) || !ws.isOpen()) {
+                    continue;
+                }
+                frames.send(ws, out);
+            }
         } catch (Exception e) {
-            log.warn("No se pudo suscribir a Redis. Fallback local. {}", e.toString());
+            log.warn("PubSub fanout failed", e);
         }
     }
 
@@ -349,7 +412,7 @@ public class CallWebSocketHandler extends TextWebSocketHandler {
      */
     private void sendJoinAck(WebSocketSession session,
             String userId,
-            MessageEnvelope env,
+            LazyEnvelope env,
             CallSession cs,
             boolean initiator) throws IOException {
         MessageEnvelope ack = new MessageEnvelope();
@@ -360,8 +423,33 @@ public class CallWebSocketHandler extends TextWebSocketHandler {
         ack.to = userId;
         ack.ts = System.currentTimeMillis();
         ack.traceId = env.traceId;
-        ack.payload = Map.of("initiator", initiator);
-        session.sendMessage(new TextMessage(om.writeValueAsString(ack)));
+        ack.payload = (sfu == null) ? Map.of("initiator", initiator) : Map.of("initiator", initiator, "sfu", true);
+        frames.send(contexts.sender(session), frames.encode(ack));
+    }
+
+    /**
+     * Reenvía al cliente que reconecta los mensajes de sus pares posteriores al
+     * último {@code streamId} que vio. Puede solaparse con la entrega en vivo;
+     * el cliente descarta los ids que ya tiene.
+     *
+     * @param ctx        Contexto de la conexión.
+     * @param userId     ID del usuario.
+     * @param sessionId  ID de la sesión de llamada.
+     * @param resumeFrom Último id visto por el cliente.
+     */
+    private void replayMissed(ConnectionContext ctx, String userId, String sessionId, String resumeFrom) {
+        WebSocketSession out = ctx.sender();
+        bridge.replay(CALL_CHANNEL_PREFIX + sessionId, resumeFrom, frame -> {
+            if (Objects.equals(frame.originUser(), userId) || !out.isOpen()
+                    || (frame.target() != null && !frame.target().equals(userId))) {
+                return;
+            }
+            try {
+                frames.send(out, frames.wrap(frame.type(), frame.body()));
+            } catch (IOException e) {
+                log.warn("Replay send failed: {}", e.toString());
+            }
+        });
     }
 
     /**
@@ -378,48 +466,146 @@ public class CallWebSocketHandler extends TextWebSocketHandler {
         joined.reservationId = cs.getReservationId();
         joined.from = userId;
         joined.ts = System.currentTimeMillis();
-        bridge.publish(CALL_CHANNEL_PREFIX + cs.getSessionId(), om.writeValueAsString(joined));
+        bridge.publish(CALL_CHANNEL_PREFIX + cs.getSessionId(),
+                RelayFrame.of(userId, joined.type, frames.encode(joined).json()));
     }
 
     /**
-     * Reenvía el mensaje y realiza inspecciones adicionales.
+     * Reenvía el mensaje y realiza inspecciones adicionales. El payload se
+     * reenvía crudo; solo se inspecciona en ICE_CANDIDATE. Con {@code to} (y
+     * {@link PeerRoutes} activo) solo lo recibe ese participante; con
+     * {@code "to":"sfu"} va al {@link SfuSignaling}.
      *
+     * @param ctx Contexto de la conexión que envía.
      * @param env El mensaje a reenviar e inspeccionar.
      * @throws IOException Si ocurre un error de E/S.
      */
-    private void forwardAndInspect(MessageEnvelope env) throws IOException {
-        String payloadStr = om.writeValueAsString(env);
-        bridge.publish(CALL_CHANNEL_PREFIX + env.sessionId, payloadStr);
+    private void forwardAndInspect(ConnectionContext ctx, LazyEnvelope env) throws IOException {
+        if (sfu != null && SfuSignaling.PEER.equals(env.to)) {
+            toSfu(ctx, env);
+        } else if (routes != null && env.to != null && !env.to.isBlank() && !env.to.equals(ctx.userId())) {
+            relayTo(ctx, env, env.to);
+        } else {
+            relay(ctx, env);
+        }
 
         // Detecta uso de TURN
-        if ("ICE_CANDIDATE".equals(env.type) && env.payload instanceof Map<?, ?> map) {
-            Object cand = map.get("candidate");
-            if (cand != null && String.valueOf(cand).contains(" typ relay")) {
+        if ("ICE_CANDIDATE".equals(env.type)) {
+            String cand = env.payloadField("candidate");
+            if (cand != null && cand.contains(" typ relay")) {
                 callService.findBySessionId(env.sessionId).ifPresent(cs -> cs.setTurnUsed(true));
             }
         }
     }
 
+    /**
+     * Entrega al SFU un mensaje de un participante ya unido a la llamada; no
+     * llega a los demás participantes.
+     *
+     * @param ctx Contexto de la conexión que envía.
+     * @param env Sobre recibido.
+     * @throws IOException Si el payload no es válido.
+     */
+    private void toSfu(ConnectionContext ctx, LazyEnvelope env) throws IOException {
+        String sessionId = ctx.callSessionId();
+        if (sessionId == null) {
+            log.debug("{} para el SFU sin JOIN; se descarta", env.type);
+            return;
+        }
+        switch (env.type) {
+            case "OFFER" -> sfu.offer(sessionId, ctx.userId(), env.payloadField("sdp"));
+            case "ANSWER" -> sfu.answer(sessionId, ctx.userId(), env.payloadField("sdp"));
+            default -> sfu.candidate(sessionId, ctx.userId(), env.payloadField("transport"),
+                    env.payloadField("candidate"));
+        }
+    }
+
+    /**
+     * Destino de los mensajes del SFU para un participante: su conexión en este
+     * nodo, sin pasar por Redis.
+     *
+     * @param ctx       Contexto de la conexión del participante.
+     * @param sessionId ID de la sesión de llamada.
+     * @param userId    ID del participante.
+     * @return Listener para {@link SfuSignaling#join}.
+     */
+    private SfuSignaling.Listener sfuListener(ConnectionContext ctx, String sessionId, String userId) {
+        WebSocketSession out = ctx.sender();
+        return (type, payload) -> {
+            if (!out.isOpen()) {
+                return;
+            }
+            MessageEnvelope msg = new MessageEnvelope();
+            msg.type = type;
+            msg.sessionId = sessionId;
+            msg.from = SfuSignaling.PEER;
+            msg.to = userId;
+            msg.ts = System.currentTimeMillis();
+            msg.traceId = ulid.nextULID();
+            msg.payload = payload;
+            try {
+                frames.send(out, frames.encode(msg));
+            } catch (IOException e) {
+                log.warn("SFU send failed: {}", e.toString());
+            }
+        };
+    }
+
     /**
      * Maneja la lógica cuando se establece la conexión RTC.
      *
+     * @param ctx Contexto de la conexión que envía.
      * @param env El mensaje de conexión RTC.
-     * @throws IOException Si ocurre un error de E/S.
      */
-    private void onRtcConnected(MessageEnvelope env) throws IOException {
+    private void onRtcConnected(ConnectionContext ctx, LazyEnvelope env) {
         callService.findBySessionId(env.sessionId).ifPresent(callService::markConnected);
-        bridge.publish(CALL_CHANNEL_PREFIX + env.sessionId, om.writeValueAsString(env));
+        relay(ctx, env);
     }
 
     /**
      * Maneja la lógica de finalización de una sesión de llamada.
      *
+     * @param ctx Contexto de la conexión que envía.
      * @param env El mensaje de finalización recibido.
-     * @throws IOException Si ocurre un error de E/S.
      */
-    private void onEnd(MessageEnvelope env) throws IOException {
+    private void onEnd(ConnectionContext ctx, LazyEnvelope env) {
         callService.findBySessionId(env.sessionId).ifPresent(callService::end);
-        bridge.publish(CALL_CHANNEL_PREFIX + env.sessionId, om.writeValueAsString(env));
+        relay(ctx, env);
+    }
+
+    /**
+     * Publica en el canal de la llamada un mensaje del cliente, numerado por
+     * (llamada, emisor) si la entrega ordenada está activa.
+     *
+     * @param ctx Contexto de la conexión que envía.
+     * @param env Sobre recibido.
+     */
+    private void relay(ConnectionContext ctx, LazyEnvelope env) {
+        RelayFrame frame = RelayFrame.of(ctx.userId(), env.type, env.toJson());
+        if (ordering != null && ordering.enabled()) {
+            frame = frame.sequenced(ctx.nextSeq(), env.traceId);
+        }
+        bridge.publish(CALL_CHANNEL_PREFIX + env.sessionId, frame);
+    }
+
+    /**
+     * Publica un mensaje del cliente solo para un participante, numerado por
+     * (llamada, emisor, destinatario). Si el destinatario está en este nodo no
+     * sale de él; si no, va al nodo que aprendió {@link PeerRoutes} o, sin
+     * ruta, por el canal de la llamada.
+     *
+     * @param ctx Contexto de la conexión que envía.
+     * @param env Sobre recibido.
+     * @param to  Participante destinatario.
+     */
+    private void relayTo(ConnectionContext ctx, LazyEnvelope env, String to) {
+        String channel = CALL_CHANNEL_PREFIX + env.sessionId;
+        RelayFrame frame = RelayFrame.of(ctx.userId(), env.type, env.toJson()).addressed(to);
+        if (ordering != null && ordering.enabled()) {
+            frame = frame.sequenced(ctx.nextSeq(to), env.traceId);
+        }
+        String owner = registry.get(env.sessionId).containsKey(to) ? bridge.nodeId() : routes.owner(channel, to);
+        routes.routed(bridge.publishTo(channel, owner, frame));
     }
 
     /**
@@ -435,30 +621,82 @@ public class CallWebSocketHandler extends TextWebSocketHandler {
         err.payload = Map.of("message", msg);
         err.ts = System.currentTimeMillis();
         err.traceId = ulid.nextULID();
-        session.sendMessage(new TextMessage(om.writeValueAsString(err)));
+        frames.send(contexts.sender(session), frames.encode(err));
     }
 
     /**
-     * Maneja la lógica cuando se cierra una conexión WebSocket.
+     * Responde con ERROR y cierra la conexión. El cierre va por la cola de
+     * envío, detrás del ERROR, para que el cliente lo reciba.
+     *
+     * @param session Sesión WebSocket.
+     * @param msg     Mensaje de error.
+     * @param status  Estado de cierre.
+     * @throws IOException Si ocurre un error de E/S.
+     */
+    private void reject(WebSocketSession session, String msg, CloseStatus status) throws IOException {
+        sendError(session, msg);
+        contexts.sender(session).close(status);
+    }
+
+    /**
+     * Maneja la lógica cuando se cierra una conexión WebSocket. Se encola detrás
+     * de los frames pendientes de la conexión para no registrar un JOIN de una
+     * conexión ya cerrada.
      *
      * @param session La sesión WebSocket que se cerró.
      * @param status  El estado de cierre.
      */
     @Override
     public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        inbound.execute(session, () -> {
+            onClosed(session);
+            inbound.release(session);
+        });
+    }
+
+    /**
+     * Libera el contexto de la conexión y notifica PEER_LEFT si el usuario
+     * deja la sala; el cierre de una conexión sustituida por una reconexión no
+     * notifica nada.
+     *
+     * @param session La sesión WebSocket que se cerró.
+     */
+    private void onClosed(WebSocketSession session) {
+        ConnectionContext ctx = contexts.close(session);
+        if (ctx == null) {
+            return;
+        }
         try {
-            String sid = (String) session.getAttributes().get("callSessionId");
-            String uid = (String) session.getAttributes().get("callUserId");
+            String sid = ctx.callSessionId();
+            String uid = ctx.userId();
             if (sid != null && uid != null) {
-                registry.unregister(sid, uid);
-                MessageEnvelope left = new MessageEnvelope();
-                left.type = "PEER_LEFT";
-                left.sessionId = sid;
-                left.from = uid;
-                left.ts = System.currentTimeMillis();
-                bridge.publish(
-                        CALL_CHANNEL_PREFIX + sid,
-                        new ObjectMapper().writeValueAsString(left));
+                // null: otra conexión del usuario ya ocupa el hueco; sigue en la sala
+                String room = registry.unregister(ctx.sender());
+                if (room != null) {
+                    if (presence != null) {
+                        presence.leave(room, uid);
+                    }
+                    if (sfu != null) {
+                        sfu.leave(room, uid);
+                    }
+                    channels.release(CALL_CHANNEL_PREFIX + room);
+                    if (channels.refs(CALL_CHANNEL_PREFIX + room) == 0) {
+                        if (ordering != null) {
+                            ordering.forget(CALL_CHANNEL_PREFIX + room);
+                        }
+                        if (routes != null) {
+                            routes.forget(CALL_CHANNEL_PREFIX + room);
+                        }
+                    }
+                    MessageEnvelope left = new MessageEnvelope();
+                    left.type = "PEER_LEFT";
+                    left.sessionId = sid;
+                    left.from = uid;
+                    left.ts = System.currentTimeMillis();
+                    bridge.publish(
+                            CALL_CHANNEL_PREFIX + sid,
+                            RelayFrame.of(uid, left.type, frames.encode(left).json()));
+                }
             }
         } catch (Exception ignore) {
             /* noop */ }
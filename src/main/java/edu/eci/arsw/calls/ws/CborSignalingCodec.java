@@ -0,0 +1,80 @@
+package edu.eci.arsw.calls.ws;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+
+/**
+ * Codec binario CBOR (RFC 8949) en frames binarios. Mismos campos que el JSON,
+ * sin el coste de escapar/parsear texto del SDP.
+ */
+public class CborSignalingCodec implements SignalingCodec {
+
+    public static final String SUBPROTOCOL = "uplearn.signal.v1.cbor";
+
+    private static final JsonFactory JSON = new JsonFactory();
+
+    private final CBORMapper cbor = new CBORMapper();
+
+    @Override
+    public String subprotocol() {
+        return SUBPROTOCOL;
+    }
+
+    @Override
+    public LazyEnvelope decode(WebSocketMessage<?> message) throws IOException {
+        if (!(message instanceof BinaryMessage binary)) {
+            throw new IOException("CBOR requires binary frames");
+        }
+        try (JsonParser p = cbor.getFactory()
+                .createParser(new ByteBufferBackedInputStream(binary.getPayload().duplicate()))) {
+            return LazyEnvelope.parse(p);
+        }
+    }
+
+    @Override
+    public WebSocketMessage<?> encode(MessageEnvelope env) throws IOException {
+        return new BinaryMessage(cbor.writeValueAsBytes(env));
+    }
+
+    @Override
+    public WebSocketMessage<?> encodeJson(String json) throws IOException {
+        return new BinaryMessage(transcode(json));
+    }
+
+    /**
+     * Los bytes CBOR se guardan en el frame; cada envío recibe su propio
+     * {@link BinaryMessage} (el contenedor consume la posición del ByteBuffer)
+     * sobre el mismo array.
+     */
+    @Override
+    public WebSocketMessage<?> encode(OutboundFrame frame) throws IOException {
+        byte[] bytes = frame.binary;
+        if (bytes == null) {
+            bytes = transcode(frame.json());
+            frame.binary = bytes;
+        }
+        return new BinaryMessage(bytes);
+    }
+
+    private byte[] transcode(String json) throws IOException {
+        ByteArrayBuilder out = FrameBufferPool.acquire();
+        try {
+            try (JsonParser p = JSON.createParser(json);
+                    JsonGenerator g = cbor.getFactory().createGenerator(out)) {
+                p.nextToken();
+                g.copyCurrentStructure(p);
+            }
+            return out.toByteArray();
+        } finally {
+            FrameBufferPool.release(out);
+        }
+    }
+}
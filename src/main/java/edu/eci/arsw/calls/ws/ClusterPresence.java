@@ -0,0 +1,283 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.pubsub.NodeIdentity;
+import edu.eci.arsw.calls.pubsub.RedisHealth;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.lang.Nullable;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Presencia de los participantes de cada llamada en todo el clúster. Cada
+ * llamada es un hash {@code presence:<sessionId>} con entradas
+ * {@code usuario → <nodo>|<vencimiento ms>}. El JOIN se decide con un script Lua
+ * en un solo viaje a Redis: purga los arriendos vencidos, comprueba la
+ * capacidad y devuelve el rol igual que {@link SessionRegistry#admit}, pero
+ * contando a los participantes de todos los nodos. Cada nodo renueva los
+ * arriendos de sus participantes; los de un nodo caído vencen solos.
+ *
+ * <p>Si Redis no está configurado o está caído, {@link #join} devuelve null y
+ * el handler decide solo con el registro local; lo que admite así se anota con
+ * {@link #admitted}. Al volver Redis se publican de nuevo los arriendos de
+ * todos los participantes locales, también los que vencieron durante la caída.
+ */
+@Component
+public class ClusterPresence {
+    private static final Logger log = LoggerFactory.getLogger(ClusterPresence.class);
+
+    static final String KEY_PREFIX = "presence:";
+
+    /**
+     * KEYS[1] = hash de la llamada; ARGV = usuario, nodo, ahora (ms), vencimiento
+     * (ms), arriendo (ms), capacidad. Devuelve el nombre de un
+     * {@link SessionRegistry.Seat}.
+     */
+    static final RedisScript<String> JOIN = RedisScript.of("""
+            local now = tonumber(ARGV[3])
+            local others = 0
+            local present = false
+            local fields = redis.call('HGETALL', KEYS[1])
+            for i = 1, #fields, 2 do
+              local expires = tonumber(string.match(fields[i + 1], '|(%d+)$'))
+              if expires == nil or expires <= now then
+                redis.call('HDEL', KEYS[1], fields[i])
+              elseif fields[i] == ARGV[1] then
+                present = true
+              else
+                others = others + 1
+              end
+            end
+            if not present and others >= tonumber(ARGV[6]) then
+              return 'FULL'
+            end
+            redis.call('HSET', KEYS[1], ARGV[1], ARGV[2] .. '|' .. ARGV[4])
+            redis.call('PEXPIRE', KEYS[1], 2 * tonumber(ARGV[5]))
+            if present then
+              return others == 0 and 'REJOINED_INITIATOR' or 'REJOINED_RESPONDER'
+            end
+            return others == 0 and 'INITIATOR' or 'RESPONDER'
+            """, String.class);
+
+    /**
+     * KEYS[1] = hash de la llamada; ARGV = usuario, nodo. Solo borra la entrada
+     * si es de este nodo: si el usuario reconectó en otro, no se toca.
+     */
+    static final RedisScript<Long> LEAVE = RedisScript.of("""
+            local prefix = ARGV[2] .. '|'
+            local v = redis.call('HGET', KEYS[1], ARGV[1])
+            if v and string.sub(v, 1, #prefix) == prefix then
+              return redis.call('HDEL', KEYS[1], ARGV[1])
+            end
+            return 0
+            """, Long.class);
+
+    /**
+     * KEYS[1] = hash de la llamada; ARGV = nodo, nuevo vencimiento (ms),
+     * arriendo (ms), usuarios... Renueva las entradas de este nodo y vuelve a
+     * crear las que faltan (vencidas durante una caída o admitidas sin Redis);
+     * las de otro nodo no se tocan.
+     */
+    static final RedisScript<Long> RENEW = RedisScript.of("""
+            local prefix = ARGV[1] .. '|'
+            local renewed = 0
+            for i = 4, #ARGV do
+              local v = redis.call('HGET', KEYS[1], ARGV[i])
+              if not v or string.sub(v, 1, #prefix) == prefix then
+                redis.call('HSET', KEYS[1], ARGV[i], prefix .. ARGV[2])
+                renewed = renewed + 1
+              end
+            end
+            if renewed > 0 then
+              redis.call('PEXPIRE', KEYS[1], 2 * tonumber(ARGV[3]))
+            end
+            return renewed
+            """, Long.class);
+
+    private final @Nullable StringRedisTemplate template;
+    private final NodeIdentity node;
+    private final @Nullable RedisHealth health;
+    private final boolean enabled;
+    private final long leaseMs;
+
+    /** Participantes locales por llamada: los que este nodo renueva. */
+    private final Map<String, Set<String>> local = new ConcurrentHashMap<>();
+
+    private final Map<SessionRegistry.Seat, Counter> joins = new EnumMap<>(SessionRegistry.Seat.class);
+    private final Counter unavailable;
+
+    @Autowired
+    public ClusterPresence(@Autowired(required = false) StringRedisTemplate template,
+            NodeIdentity node,
+            @Autowired(required = false) RedisHealth health,
+            MeterRegistry registry,
+            @Value("${app.presence.enabled:true}") boolean enabled,
+            @Value("${app.presence.lease-ms:15000}") long leaseMs) {
+        this.template = template;
+        this.node = node;
+        this.health = health;
+        this.enabled = enabled && template != null;
+        this.leaseMs = leaseMs;
+        for (SessionRegistry.Seat seat : SessionRegistry.Seat.values()) {
+            joins.put(seat, Counter.builder("presence.joins").tag("seat", seat.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+        this.unavailable = Counter.builder("presence.unavailable")
+                .description("JOIN decididos solo con el registro local")
+                .register(registry);
+        if (this.enabled && health != null) {
+            health.onRecovered(this::renew);
+        }
+    }
+
+    /**
+     * Indica si la presencia del clúster está activa.
+     *
+     * @return true con {@code app.presence.enabled} y Redis configurado.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Admite al usuario en la llamada contando a los participantes de todo el
+     * clúster, en un solo viaje a Redis.
+     *
+     * @param sessionId ID de la sesión de llamada.
+     * @param userId    ID del usuario.
+     * @param capacity  Participantes por llamada.
+     * @return Rol asignado o {@link SessionRegistry.Seat#FULL}; null si no hay
+     *         presencia (desactivada o Redis caído).
+     */
+    public @Nullable SessionRegistry.Seat join(String sessionId, String userId, int capacity) {
+        if (!enabled) {
+            return null;
+        }
+        if (!available()) {
+            unavailable.increment();
+            return null;
+        }
+        try {
+            long now = System.currentTimeMillis();
+            String result = template.execute(JOIN, List.of(KEY_PREFIX + sessionId), userId, node.id(),
+                    Long.toString(now), Long.toString(now + leaseMs), Long.toString(leaseMs),
+                    Integer.toString(capacity));
+            SessionRegistry.Seat seat = SessionRegistry.Seat.valueOf(result);
+            if (seat != SessionRegistry.Seat.FULL) {
+                local.computeIfAbsent(sessionId, k -> ConcurrentHashMap.newKeySet()).add(userId);
+            }
+            joins.get(seat).increment();
+            return seat;
+        } catch (Exception e) {
+            failed("JOIN", e);
+            unavailable.increment();
+            return null;
+        }
+    }
+
+    /**
+     * Anota a un participante que el handler admitió solo con el registro local
+     * porque {@link #join} devolvió null, para publicar su arriendo en cuanto
+     * vuelva Redis.
+     *
+     * @param sessionId ID de la sesión de llamada.
+     * @param userId    ID del usuario.
+     */
+    public void admitted(String sessionId, String userId) {
+        if (enabled) {
+            local.computeIfAbsent(sessionId, k -> ConcurrentHashMap.newKeySet()).add(userId);
+        }
+    }
+
+    /**
+     * Retira al usuario de la llamada si su entrada sigue siendo de este nodo.
+     *
+     * @param sessionId ID de la sesión de llamada.
+     * @param userId    ID del usuario.
+     */
+    public void leave(String sessionId, String userId) {
+        if (!enabled) {
+            return;
+        }
+        local.computeIfPresent(sessionId, (k, users) -> {
+            users.remove(userId);
+            return users.isEmpty() ? null : users;
+        });
+        if (!available()) {
+            return;
+        }
+        try {
+            template.execute(LEAVE, List.of(KEY_PREFIX + sessionId), userId, node.id());
+        } catch (Exception e) {
+            failed("LEAVE", e);
+        }
+    }
+
+    /**
+     * Participantes locales con arriendo en una llamada.
+     *
+     * @param sessionId ID de la sesión de llamada.
+     * @return Número de participantes que renueva este nodo.
+     */
+    int local(String sessionId) {
+        Set<String> users = local.get(sessionId);
+        return users == null ? 0 : users.size();
+    }
+
+    /**
+     * Renueva los arriendos de los participantes locales, un script por llamada.
+     */
+    @Scheduled(fixedDelayString = "${app.presence.refresh-ms:5000}")
+    public void refresh() {
+        if (!available()) {
+            return;
+        }
+        try {
+            renew();
+        } catch (Exception ex) {
+            failed("RENEW", ex);
+        }
+    }
+
+    /**
+     * Publica los arriendos de todos los participantes locales. También es la
+     * acción de recuperación de {@link RedisHealth}: si falla, la recuperación
+     * se reintenta.
+     */
+    private void renew() {
+        String expires = Long.toString(System.currentTimeMillis() + leaseMs);
+        for (Map.Entry<String, Set<String>> e : local.entrySet()) {
+            List<Object> args = new ArrayList<>();
+            args.add(node.id());
+            args.add(expires);
+            args.add(Long.toString(leaseMs));
+            args.addAll(e.getValue());
+            template.execute(RENEW, List.of(KEY_PREFIX + e.getKey()), args.toArray());
+        }
+    }
+
+    private boolean available() {
+        return enabled && (health == null || health.state() == RedisHealth.State.UP);
+    }
+
+    private void failed(String op, Exception e) {
+        log.warn("Presencia {} sin Redis; se decide con el registro local: {}", op, e.toString());
+        if (health != null) {
+            health.down(e);
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package edu.eci.arsw.calls.ws;
+
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Estado de una conexión WebSocket: identidad (del handshake), limitador de
+ * tasa, sesión por la que escribir (con su cola si la hay) y llamada a la que
+ * se unió. Vive en los atributos de la sesión entre
+ * {@link ConnectionContexts#open} y {@link ConnectionContexts#close}.
+ */
+public final class ConnectionContext {
+    private final String userId;
+    private final String bearer;
+    private final TokenBucketRateLimiter limiter;
+    private final WebSocketSession sender;
+
+    private volatile String callSessionId;
+    private volatile String callReservationId;
+    /** Última secuencia asignada a un mensaje del cliente. */
+    private final AtomicLong sequence = new AtomicLong();
+    /** Última secuencia por destinatario de los mensajes dirigidos. */
+    private final Map<String, AtomicLong> addressed = new ConcurrentHashMap<>();
+
+    ConnectionContext(String userId, String bearer, TokenBucketRateLimiter limiter, WebSocketSession sender) {
+        this.userId = userId;
+        this.bearer = bearer;
+        this.limiter = limiter;
+        this.sender = sender;
+    }
+
+    /**
+     * ID del usuario autenticado en el handshake.
+     *
+     * @return ID del usuario, o null si no se autenticó.
+     */
+    public String userId() {
+        return userId;
+    }
+
+    /**
+     * Token con el que se autenticó el handshake.
+     *
+     * @return Token, o null.
+     */
+    public String bearer() {
+        return bearer;
+    }
+
+    /**
+     * Limitador de tasa de la conexión.
+     *
+     * @return Limitador.
+     */
+    public TokenBucketRateLimiter limiter() {
+        return limiter;
+    }
+
+    /**
+     * Sesión por la que se debe escribir a la conexión: su cola de envío, o la
+     * propia sesión si no hay colas.
+     *
+     * @return Sesión a usar para enviar.
+     */
+    public WebSocketSession sender() {
+        return sender;
+    }
+
+    /**
+     * Marca la llamada a la que se unió la conexión.
+     *
+     * @param sessionId     ID de la sesión de llamada.
+     * @param reservationId ID de la reserva.
+     */
+    public void joined(String sessionId, String reservationId) {
+        this.callReservationId = reservationId;
+        this.callSessionId = sessionId;
+    }
+
+    /**
+     * ID de la sesión de llamada a la que se unió.
+     *
+     * @return ID de la sesión, o null si no se ha unido.
+     */
+    public String callSessionId() {
+        return callSessionId;
+    }
+
+    /**
+     * ID de la reserva de la llamada a la que se unió.
+     *
+     * @return ID de la reserva, o null si no se ha unido.
+     */
+    public String callReservationId() {
+        return callReservationId;
+    }
+
+    /**
+     * Siguiente secuencia para un mensaje que el cliente envía a la llamada.
+     * Empieza en 1 con cada conexión.
+     *
+     * @return Secuencia.
+     */
+    public long nextSeq() {
+        return sequence.incrementAndGet();
+    }
+
+    /**
+     * Siguiente secuencia para un mensaje dirigido a un participante. Cada
+     * destinatario tiene su propia numeración: solo él ve esos mensajes y no
+     * debe esperar huecos que son de otro.
+     *
+     * @param target Participante destinatario.
+     * @return Secuencia.
+     */
+    public long nextSeq(String target) {
+        return addressed.computeIfAbsent(target, t -> new AtomicLong()).incrementAndGet();
+    }
+}
@@ -0,0 +1,122 @@
+package edu.eci.arsw.calls.ws;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Ciclo de vida de los {@link ConnectionContext}. El contexto se guarda en los
+ * atributos de la propia sesión, así que no hay mapas por conexión que puedan
+ * crecer si un cierre se pierde; {@code ws.connections.live} cuenta los
+ * contextos abiertos.
+ */
+@Component
+public class ConnectionContexts {
+    static final String ATTRIBUTE = ConnectionContext.class.getName();
+
+    private final RateLimitPolicy rateLimit;
+    private final @Nullable SendQueues queues;
+    private final AtomicLong live = new AtomicLong();
+
+    /**
+     * Contextos sin colas de envío: se escribe directamente sobre la sesión.
+     *
+     * @param rateLimit Política de límite de tasa.
+     */
+    public ConnectionContexts(RateLimitPolicy rateLimit) {
+        this(rateLimit, null, new SimpleMeterRegistry());
+    }
+
+    @Autowired
+    public ConnectionContexts(RateLimitPolicy rateLimit, @Nullable SendQueues queues, MeterRegistry registry) {
+        this.rateLimit = rateLimit;
+        this.queues = queues;
+        Gauge.builder("ws.connections.live", live, AtomicLong::get).register(registry);
+    }
+
+    /**
+     * Política de límite de tasa con la que se crean los limitadores.
+     *
+     * @return Política.
+     */
+    public RateLimitPolicy rateLimit() {
+        return rateLimit;
+    }
+
+    /**
+     * Crea el contexto de la conexión a partir de los atributos del handshake, o
+     * devuelve el existente.
+     *
+     * @param ws Sesión WebSocket.
+     * @return Contexto de la conexión.
+     */
+    public ConnectionContext open(WebSocketSession ws) {
+        ConnectionContext ctx = get(ws);
+        if (ctx != null) {
+            return ctx;
+        }
+        var attrs = ws.getAttributes();
+        ctx = new ConnectionContext(
+                (String) attrs.get("userId"),
+                (String) attrs.get("token"),
+                rateLimit.newLimiter(),
+                (queues == null) ? ws : queues.wrap(ws));
+        attrs.put(ATTRIBUTE, ctx);
+        live.incrementAndGet();
+        return ctx;
+    }
+
+    /**
+     * Contexto de la conexión.
+     *
+     * @param ws Sesión WebSocket.
+     * @return Contexto, o null si no está abierto.
+     */
+    public @Nullable ConnectionContext get(WebSocketSession ws) {
+        return (ConnectionContext) ws.getAttributes().get(ATTRIBUTE);
+    }
+
+    /**
+     * Sesión por la que se debe escribir a la conexión.
+     *
+     * @param ws Sesión WebSocket.
+     * @return Su cola si el contexto está abierto, o la propia sesión.
+     */
+    public WebSocketSession sender(WebSocketSession ws) {
+        ConnectionContext ctx = get(ws);
+        return (ctx != null) ? ctx.sender() : ws;
+    }
+
+    /**
+     * Libera el contexto de una conexión cerrada y descarta su cola de envío.
+     *
+     * @param ws Sesión WebSocket cerrada.
+     * @return Contexto liberado, o null si no estaba abierto.
+     */
+    public @Nullable ConnectionContext close(WebSocketSession ws) {
+        ConnectionContext ctx = (ConnectionContext) ws.getAttributes().remove(ATTRIBUTE);
+        if (ctx == null) {
+            return null;
+        }
+        live.decrementAndGet();
+        if (ctx.sender() instanceof QueuedSession q) {
+            q.discard();
+        }
+        return ctx;
+    }
+
+    /**
+     * Número de contextos abiertos.
+     *
+     * @return Conexiones vivas.
+     */
+    public long live() {
+        return live.get();
+    }
+}
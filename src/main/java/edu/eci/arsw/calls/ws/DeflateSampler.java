@@ -0,0 +1,137 @@
+package edu.eci.arsw.calls.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.Deflater;
+
+/**
+ * Estima el ratio y el coste de CPU de permessage-deflate en los frames
+ * salientes. El contenedor no expone lo que comprime, así que uno de cada
+ * {@code sample-every} frames hacia sesiones con deflate negociado se comprime
+ * aparte con los mismos parámetros (raw, nivel por defecto, SYNC_FLUSH).
+ *
+ * <p>La muestra no conserva contexto entre mensajes: coincide con lo que hace el
+ * contenedor con {@code server_no_context_takeover} y es una cota inferior del
+ * ratio si el contexto se conserva. Los frames por debajo de {@code min-size}
+ * (ICE, heartbeats) solo se cuentan.
+ */
+@Component
+public class DeflateSampler {
+    private static final String EXTENSION = "permessage-deflate";
+    /** Cola de SYNC_FLUSH (00 00 FF FF) que RFC 7692 quita de cada mensaje. */
+    private static final int SYNC_TAIL = 4;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal
+            .withInitial(() -> new Deflater(Deflater.DEFAULT_COMPRESSION, true));
+    private static final ThreadLocal<byte[]> OUT = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    private final int sampleEvery;
+    private final int minSize;
+    private final AtomicLong seen = new AtomicLong();
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    private final boolean cpuTime;
+
+    private final DistributionSummary ratio;
+    private final Timer cpu;
+    private final Counter small;
+    private final Counter large;
+
+    public DeflateSampler(MeterRegistry registry,
+            @Value("${app.ws.deflate.sample-every:64}") int sampleEvery,
+            @Value("${app.ws.deflate.min-size:256}") int minSize) {
+        this.sampleEvery = Math.max(1, sampleEvery);
+        this.minSize = minSize;
+        this.cpuTime = threads.isCurrentThreadCpuTimeSupported();
+        this.ratio = DistributionSummary.builder("ws.deflate.ratio")
+                .description("Tamaño comprimido / original de los frames muestreados")
+                .register(registry);
+        this.cpu = Timer.builder("ws.deflate.cpu")
+                .description("CPU de compresión por frame muestreado")
+                .register(registry);
+        this.small = Counter.builder("ws.deflate.sampled").tag("size", "small").register(registry);
+        this.large = Counter.builder("ws.deflate.sampled").tag("size", "large").register(registry);
+    }
+
+    /**
+     * Muestrea un frame que se va a escribir a la sesión.
+     *
+     * @param session Sesión destino.
+     * @param message Frame saliente.
+     */
+    public void sample(WebSocketSession session, WebSocketMessage<?> message) {
+        if (seen.getAndIncrement() % sampleEvery != 0 || !deflateNegotiated(session)) {
+            return;
+        }
+        byte[] data = bytes(message);
+        if (data == null) {
+            return;
+        }
+        if (data.length < minSize) {
+            small.increment();
+            return;
+        }
+        large.increment();
+        long start = cpuTime ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+        int compressed = compressedSize(data);
+        long elapsed = (cpuTime ? threads.getCurrentThreadCpuTime() : System.nanoTime()) - start;
+        cpu.record(elapsed, TimeUnit.NANOSECONDS);
+        ratio.record((double) compressed / data.length);
+    }
+
+    private static boolean deflateNegotiated(WebSocketSession session) {
+        for (WebSocketExtension e : session.getExtensions()) {
+            if (EXTENSION.equals(e.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static byte[] bytes(WebSocketMessage<?> message) {
+        if (message instanceof TextMessage text) {
+            return text.asBytes();
+        }
+        if (message instanceof BinaryMessage binary) {
+            ByteBuffer buf = binary.getPayload().duplicate();
+            byte[] data = new byte[buf.remaining()];
+            buf.get(data);
+            return data;
+        }
+        return null;
+    }
+
+    /**
+     * Tamaño del mensaje comprimido como lo escribiría permessage-deflate.
+     *
+     * @param data Mensaje sin comprimir.
+     * @return Bytes del payload comprimido.
+     */
+    static int compressedSize(byte[] data) {
+        Deflater deflater = DEFLATER.get();
+        byte[] out = OUT.get();
+        deflater.reset();
+        deflater.setInput(data);
+        int total = 0;
+        int n;
+        do {
+            n = deflater.deflate(out, 0, out.length, Deflater.SYNC_FLUSH);
+            total += n;
+        } while (n == out.length);
+        return Math.max(0, total - SYNC_TAIL);
+    }
+}
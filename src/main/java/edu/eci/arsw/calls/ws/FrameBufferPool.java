@@ -0,0 +1,60 @@
+package edu.eci.arsw.calls.ws;
+
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pool acotado de buffers de trabajo para codificar frames salientes. El buffer
+ * solo se usa mientras se codifica; al frame se le entrega una copia de tamaño
+ * exacto. No depende del hilo (sirve también con hilos virtuales).
+ */
+final class FrameBufferPool {
+    private static final int CAPACITY = 64;
+    private static final int INITIAL_SIZE = 2048;
+    /** Buffers que crecieron más que esto no se devuelven al pool. */
+    private static final int MAX_RETAINED = 64 * 1024;
+
+    private static final ArrayBlockingQueue<ByteArrayBuilder> POOL = new ArrayBlockingQueue<>(CAPACITY);
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+
+    private FrameBufferPool() {
+    }
+
+    /**
+     * Toma un buffer vacío del pool o crea uno nuevo.
+     *
+     * @return Buffer listo para escribir.
+     */
+    static ByteArrayBuilder acquire() {
+        ByteArrayBuilder b = POOL.poll();
+        if (b == null) {
+            MISSES.increment();
+            return new ByteArrayBuilder(INITIAL_SIZE);
+        }
+        HITS.increment();
+        return b;
+    }
+
+    /**
+     * Devuelve un buffer al pool.
+     *
+     * @param b Buffer a devolver.
+     */
+    static void release(ByteArrayBuilder b) {
+        b.reset();
+        if (b.getCurrentSegment().length <= MAX_RETAINED) {
+            POOL.offer(b);
+        }
+    }
+
+    static long hits() {
+        return HITS.sum();
+    }
+
+    static long misses() {
+        return MISSES.sum();
+    }
+}
@@ -0,0 +1,108 @@
+package edu.eci.arsw.calls.ws;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Ejecución del trabajo bloqueante de los frames entrantes (JOIN: HTTP a
+ * reservas, Mongo). Por defecto corre en el hilo del contenedor; con
+ * {@code app.ws.virtual-threads=true} corre en hilos virtuales, en serie por
+ * conexión para conservar el orden de los mensajes de cada cliente.
+ */
+@Component
+public class InboundDispatcher {
+    private static final Logger log = LoggerFactory.getLogger(InboundDispatcher.class);
+
+    private final ExecutorService executor;
+    private final Map<String, Lane> lanes = new ConcurrentHashMap<>();
+
+    public InboundDispatcher(@Value("${app.ws.virtual-threads:false}") boolean virtualThreads) {
+        this.executor = virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : null;
+        log.info("Inbound WS execution: {}", virtualThreads ? "virtual threads" : "container threads");
+    }
+
+    /**
+     * Indica si el trabajo sale del hilo del contenedor.
+     *
+     * @return true si se usan hilos virtuales.
+     */
+    public boolean isAsync() {
+        return executor != null;
+    }
+
+    /**
+     * Ejecuta la tarea para la conexión dada, después de las anteriores de la
+     * misma conexión.
+     *
+     * @param session Conexión de origen.
+     * @param task    Trabajo a ejecutar.
+     */
+    public void execute(WebSocketSession session, Runnable task) {
+        if (executor == null) {
+            task.run();
+            return;
+        }
+        lanes.computeIfAbsent(session.getId(), id -> new Lane()).submit(task);
+    }
+
+    /**
+     * Libera el carril de una conexión cerrada.
+     *
+     * @param session Conexión cerrada.
+     */
+    public void release(WebSocketSession session) {
+        if (executor != null && session.getId() != null) {
+            lanes.remove(session.getId());
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor != null) {
+            executor.shutdownNow();
+        }
+    }
+
+    /** Cola serial de una conexión; como mucho una tarea en curso a la vez. */
+    private final class Lane {
+        private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+        private final AtomicBoolean running = new AtomicBoolean();
+
+        void submit(Runnable task) {
+            tasks.add(task);
+            if (running.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            try {
+                Runnable t;
+                while ((t = tasks.poll()) != null) {
+                    try {
+                        t.run();
+                    } catch (RuntimeException e) {
+                        log.error("Inbound task failed", e);
+                    }
+                }
+            } finally {
+                running.set(false);
+            }
+            if (!tasks.isEmpty() && running.compareAndSet(false, true)) {
+                executor.execute(this::drain);
+            }
+        }
+    }
+}
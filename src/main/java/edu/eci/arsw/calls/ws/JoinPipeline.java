@@ -0,0 +1,208 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.domain.CallSession;
+import edu.eci.arsw.calls.service.CallSessionService;
+import edu.eci.arsw.calls.service.EligibilityService;
+import edu.eci.arsw.calls.service.EligibilityService.EligibilityResult;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Admisión de un JOIN como pipeline por etapas. La búsqueda de la sesión
+ * (Mongo) y la elegibilidad (HTTP a reservas) corren a la vez cuando el cliente
+ * envía el {@code reservationId}; la sesión solo se crea si el usuario es
+ * elegible. Cada etapa tiene timeout y timer propios.
+ */
+@Component
+public class JoinPipeline {
+
+    static final String LOOKUP = "lookup";
+    static final String ELIGIBILITY = "eligibility";
+    static final String CREATE = "create";
+
+    private final CallSessionService callService;
+    private final EligibilityService eligibilityService;
+    private final Executor executor;
+    private final Map<String, Long> timeoutsMs;
+
+    private final Map<String, Timer> stageTimers;
+    private final Map<String, Counter> stageTimeouts;
+    private final Timer ackTimer;
+
+    @Autowired
+    public JoinPipeline(CallSessionService callService,
+            EligibilityService eligibilityService,
+            MeterRegistry registry,
+            @Value("${app.join.lookup-timeout-ms:2000}") long lookupTimeoutMs,
+            @Value("${app.join.eligibility-timeout-ms:3000}") long eligibilityTimeoutMs,
+            @Value("${app.join.create-timeout-ms:2000}") long createTimeoutMs) {
+        this(callService, eligibilityService, registry, Executors.newVirtualThreadPerTaskExecutor(),
+                lookupTimeoutMs, eligibilityTimeoutMs, createTimeoutMs);
+    }
+
+    JoinPipeline(CallSessionService callService, EligibilityService eligibilityService, MeterRegistry registry,
+            Executor executor, long lookupTimeoutMs, long eligibilityTimeoutMs, long createTimeoutMs) {
+        this.callService = callService;
+        this.eligibilityService = eligibilityService;
+        this.executor = executor;
+        this.timeoutsMs = Map.of(LOOKUP, lookupTimeoutMs, ELIGIBILITY, eligibilityTimeoutMs, CREATE, createTimeoutMs);
+        this.stageTimers = Map.of(
+                LOOKUP, stageTimer(registry, LOOKUP),
+                ELIGIBILITY, stageTimer(registry, ELIGIBILITY),
+                CREATE, stageTimer(registry, CREATE));
+        this.stageTimeouts = Map.of(
+                LOOKUP, timeoutCounter(registry, LOOKUP),
+                ELIGIBILITY, timeoutCounter(registry, ELIGIBILITY),
+                CREATE, timeoutCounter(registry, CREATE));
+        this.ackTimer = Timer.builder("ws.join.ack")
+                .publishPercentiles(0.95, 0.99)
+                .register(registry);
+    }
+
+    private static Timer stageTimer(MeterRegistry registry, String stage) {
+        return Timer.builder("ws.join.stage")
+                .tag("stage", stage)
+                .publishPercentiles(0.95, 0.99)
+                .register(registry);
+    }
+
+    private static Counter timeoutCounter(MeterRegistry registry, String stage) {
+        return Counter.builder("ws.join.stage.timeout").tag("stage", stage).register(registry);
+    }
+
+    /**
+     * Ejecuta las etapas de admisión de un JOIN.
+     *
+     * @param sessionId     ID de sesión enviado por el cliente.
+     * @param reservationId ID de reserva enviado por el cliente (puede faltar).
+     * @param userId        ID del usuario autenticado.
+     * @param bearer        Token para el servicio de reservas.
+     * @return Sesión admitida o motivo del rechazo.
+     * @throws IllegalStateException Si la sesión existente es de otra reserva.
+     */
+    public Admission admit(String sessionId, @Nullable String reservationId, String userId,
+            @Nullable String bearer) {
+        long start = System.nanoTime();
+        CompletableFuture<Optional<CallSession>> lookup = stage(LOOKUP, () -> callService.findBySessionId(sessionId));
+
+        String resolved = reservationId;
+        CompletableFuture<EligibilityResult> eligibility;
+        try {
+            if (hasText(reservationId)) {
+                eligibility = stage(ELIGIBILITY,
+                        () -> eligibilityService.checkReservation(reservationId, userId, bearer));
+            } else {
+                resolved = await(lookup).map(CallSession::getReservationId).orElse(null);
+                if (!hasText(resolved)) {
+                    return Admission.rejected("Missing reservationId and unknown sessionId",
+                            CloseStatus.NOT_ACCEPTABLE, start);
+                }
+                String r = resolved;
+                eligibility = stage(ELIGIBILITY, () -> eligibilityService.checkReservation(r, userId, bearer));
+            }
+
+            EligibilityResult elig = await(eligibility);
+            if (!elig.eligible()) {
+                return Admission.rejected("403: " + elig.reason(), CloseStatus.NOT_ACCEPTABLE, start);
+            }
+
+            Optional<CallSession> existing = await(lookup);
+            if (existing.isPresent()) {
+                if (!resolved.equals(existing.get().getReservationId())) {
+                    throw new IllegalStateException("Session mismatches reservation");
+                }
+                return Admission.admitted(existing.get(), start);
+            }
+            String r = resolved;
+            return Admission.admitted(await(stage(CREATE, () -> callService.create(r))), start);
+        } catch (StageTimeoutException e) {
+            return Admission.rejected("504: " + e.stage + " timeout", CloseStatus.SERVICE_OVERLOAD, start);
+        }
+    }
+
+    /**
+     * Registra el tiempo hasta el JOIN_ACK.
+     *
+     * @param admission Admisión completada.
+     */
+    public void acked(Admission admission) {
+        ackTimer.record(System.nanoTime() - admission.startNanos(), TimeUnit.NANOSECONDS);
+    }
+
+    private <T> CompletableFuture<T> stage(String name, Supplier<T> work) {
+        Timer timer = stageTimers.get(name);
+        return CompletableFuture.supplyAsync(() -> timer.record(work), executor)
+                .orTimeout(timeoutsMs.get(name), TimeUnit.MILLISECONDS)
+                .exceptionally(ex -> {
+                    Throwable cause = (ex instanceof CompletionException) ? ex.getCause() : ex;
+                    if (cause instanceof TimeoutException) {
+                        stageTimeouts.get(name).increment();
+                        throw new StageTimeoutException(name);
+                    }
+                    throw (ex instanceof CompletionException ce) ? ce : new CompletionException(ex);
+                });
+    }
+
+    private static <T> T await(CompletableFuture<T> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException re) {
+                throw re;
+            }
+            throw e;
+        }
+    }
+
+    private static boolean hasText(String s) {
+        return s != null && !s.isBlank();
+    }
+
+    /** Una etapa superó su timeout. */
+    private static final class StageTimeoutException extends RuntimeException {
+        private final String stage;
+
+        StageTimeoutException(String stage) {
+            super(stage + " timeout", null, false, false);
+            this.stage = stage;
+        }
+    }
+
+    /**
+     * Resultado de la admisión.
+     *
+     * @param session     Sesión de llamada, null si se rechazó.
+     * @param error       Mensaje de error para el cliente, null si se admitió.
+     * @param closeStatus Estado con el que cerrar la conexión si se rechazó.
+     * @param startNanos  Inicio del JOIN (para el tiempo hasta el ACK).
+     */
+    public record Admission(CallSession session, String error, CloseStatus closeStatus, long startNanos) {
+        static Admission admitted(CallSession session, long startNanos) {
+            return new Admission(session, null, null, startNanos);
+        }
+
+        static Admission rejected(String error, CloseStatus closeStatus, long startNanos) {
+            return new Admission(null, error, closeStatus, startNanos);
+        }
+
+        public boolean isAdmitted() {
+            return session != null;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package edu.eci.arsw.calls.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Codec JSON en frames de texto. Es el formato por defecto para clientes que no
+ * negocian subprotocolo.
+ */
+public class JsonSignalingCodec implements SignalingCodec {
+
+    public static final String SUBPROTOCOL = "uplearn.signal.v1.json";
+
+    private final ObjectMapper om;
+
+    public JsonSignalingCodec(ObjectMapper om) {
+        this.om = om;
+    }
+
+    @Override
+    public String subprotocol() {
+        return SUBPROTOCOL;
+    }
+
+    @Override
+    public LazyEnvelope decode(WebSocketMessage<?> message) throws IOException {
+        if (message instanceof TextMessage text) {
+            return LazyEnvelope.parseJson(text.getPayload());
+        }
+        if (message instanceof BinaryMessage binary) {
+            ByteBuffer buf = binary.getPayload().duplicate();
+            return LazyEnvelope.parseJson(StandardCharsets.UTF_8.decode(buf).toString());
+        }
+        throw new IOException("Unsupported frame " + message.getClass().getSimpleName());
+    }
+
+    @Override
+    public WebSocketMessage<?> encode(MessageEnvelope env) throws IOException {
+        return new TextMessage(om.writeValueAsString(env));
+    }
+
+    @Override
+    public WebSocketMessage<?> encodeJson(String json) {
+        return new TextMessage(json);
+    }
+
+    @Override
+    public WebSocketMessage<?> encode(OutboundFrame frame) {
+        return frame.text();
+    }
+}
@@ -0,0 +1,215 @@
+package edu.eci.arsw.calls.ws;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+/**
+ * Sobre entrante con parseo perezoso. Solo se leen los campos de cabecera
+ * ({@code type}, {@code sessionId}, {@code from}, {@code to}, {@code traceId}...)
+ * y el {@code payload} (SDP/ICE) se conserva como JSON crudo, sin
+ * materializarlo en mapas. Si la cabecera no cambia se reenvía el texto
+ * original tal cual.
+ */
+public final class LazyEnvelope {
+    private static final JsonFactory JSON = new JsonFactory();
+
+    String type;
+    String sessionId;
+    String reservationId;
+    String from;
+    String to;
+    String traceId;
+    /** Último {@code streamId} que vio el cliente; en JOIN pide el replay. */
+    String resumeFrom;
+    long ts;
+
+    /** JSON original; null si el sobre no llegó como JSON (p.ej. CBOR). */
+    private String source;
+    /** Texto que contiene el payload crudo y sus límites [start, end). */
+    private String payloadSource;
+    private int payloadStart = -1;
+    private int payloadEnd = -1;
+    /** true si la cabecera cambió y hay que reescribirla al reenviar. */
+    private boolean dirty;
+
+    private LazyEnvelope() {
+    }
+
+    /**
+     * Parsea la cabecera de un sobre JSON sin deserializar el payload.
+     *
+     * @param json Texto JSON recibido.
+     * @return Sobre perezoso.
+     * @throws IOException Si el texto no es un objeto JSON válido.
+     */
+    public static LazyEnvelope parseJson(String json) throws IOException {
+        try (JsonParser p = JSON.createParser(json)) {
+            LazyEnvelope env = read(p, json);
+            env.source = json;
+            return env;
+        }
+    }
+
+    /**
+     * Parsea un sobre desde un parser de otro formato (p.ej. CBOR). El payload se
+     * transcodifica a JSON en streaming, sin pasar por mapas.
+     *
+     * @param p Parser posicionado antes del objeto raíz.
+     * @return Sobre perezoso.
+     * @throws IOException Si el contenido no es un objeto válido.
+     */
+    public static LazyEnvelope parse(JsonParser p) throws IOException {
+        LazyEnvelope env = read(p, null);
+        env.dirty = true;
+        return env;
+    }
+
+    private static LazyEnvelope read(JsonParser p, String json) throws IOException {
+        if (p.nextToken() != JsonToken.START_OBJECT) {
+            throw new IOException("Envelope must be an object");
+        }
+        LazyEnvelope env = new LazyEnvelope();
+        while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+                case "type" -> env.type = p.getValueAsString();
+                case "sessionId" -> env.sessionId = p.getValueAsString();
+                case "reservationId" -> env.reservationId = p.getValueAsString();
+                case "from" -> env.from = p.getValueAsString();
+                case "to" -> env.to = p.getValueAsString();
+                case "traceId" -> env.traceId = p.getValueAsString();
+                case "resumeFrom" -> env.resumeFrom = p.getValueAsString();
+                case "ts" -> env.ts = p.getValueAsLong();
+                case "payload" -> env.capturePayload(p, value, json);
+                default -> p.skipChildren();
+            }
+        }
+        return env;
+    }
+
+    private void capturePayload(JsonParser p, JsonToken value, String json) throws IOException {
+        if (json == null) {
+            StringWriter sw = new StringWriter();
+            try (JsonGenerator g = JSON.createGenerator(sw)) {
+                g.copyCurrentStructure(p);
+            }
+            payloadSource = sw.toString();
+            payloadStart = 0;
+            payloadEnd = payloadSource.length();
+            return;
+        }
+        payloadStart = (int) p.currentTokenLocation().getCharOffset();
+        if (value.isStructStart()) {
+            p.skipChildren();
+        } else {
+            p.finishToken();
+        }
+        payloadEnd = (int) p.currentLocation().getCharOffset();
+        payloadSource = json;
+    }
+
+    /**
+     * Asigna el traceId; obliga a reescribir la cabecera al reenviar.
+     *
+     * @param traceId Nuevo traceId.
+     */
+    public void setTraceId(String traceId) {
+        this.traceId = traceId;
+        this.dirty = true;
+    }
+
+    /**
+     * Indica si el sobre trae payload.
+     *
+     * @return true si hay payload.
+     */
+    public boolean hasPayload() {
+        return payloadStart >= 0;
+    }
+
+    /**
+     * Payload como JSON crudo.
+     *
+     * @return Texto JSON del payload, o null si no hay.
+     */
+    public String payloadJson() {
+        return hasPayload() ? payloadSource.substring(payloadStart, payloadEnd) : null;
+    }
+
+    /**
+     * Lee un campo de primer nivel del payload sin materializar el resto. Se usa
+     * solo cuando hace falta inspeccionar (p.ej. {@code candidate} en ICE).
+     *
+     * @param name Nombre del campo.
+     * @return Valor textual del campo, o null si no existe o el payload no es un
+     *         objeto.
+     * @throws IOException Si el payload no es JSON válido.
+     */
+    public String payloadField(String name) throws IOException {
+        if (!hasPayload()) {
+            return null;
+        }
+        try (JsonParser p = JSON.createParser(payloadJson())) {
+            if (p.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (p.nextToken() == JsonToken.FIELD_NAME) {
+                String field = p.currentName();
+                p.nextToken();
+                if (name.equals(field)) {
+                    return p.getValueAsString();
+                }
+                p.skipChildren();
+            }
+            return null;
+        }
+    }
+
+    /**
+     * Representación JSON para reenviar. Si la cabecera no cambió se devuelve el
+     * texto original; si no, se reescribe la cabecera y se copia el payload crudo.
+     *
+     * @return JSON del sobre.
+     */
+    public String toJson() {
+        if (!dirty && source != null) {
+            return source;
+        }
+        int payloadLen = hasPayload() ? payloadEnd - payloadStart : 0;
+        StringBuilder sb = new StringBuilder(payloadLen + 160);
+        sb.append('{');
+        appendField(sb, "type", type);
+        appendField(sb, "sessionId", sessionId);
+        appendField(sb, "reservationId", reservationId);
+        appendField(sb, "from", from);
+        appendField(sb, "to", to);
+        appendField(sb, "traceId", traceId);
+        if (sb.length() > 1) {
+            sb.append(',');
+        }
+        sb.append("\"ts\":").append(ts);
+        if (hasPayload()) {
+            sb.append(",\"payload\":").append(payloadSource, payloadStart, payloadEnd);
+        }
+        return sb.append('}').toString();
+    }
+
+    private static void appendField(StringBuilder sb, String name, String value) {
+        if (value == null) {
+            return;
+        }
+        if (sb.length() > 1) {
+            sb.append(',');
+        }
+        sb.append('"').append(name).append("\":\"");
+        JsonStringEncoder.getInstance().quoteAsString(value, sb);
+        sb.append('"');
+    }
+}
@@ -0,0 +1,247 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.pubsub.RelayFrame;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Entrega en orden los mensajes de cada emisor de una llamada. El handler
+ * numera lo que recibe de cada cliente ({@link RelayFrame#seq()}, por llamada y
+ * emisor, o por destinatario si va dirigido) y aquí, por canal, emisor y
+ * destinatario:
+ *
+ * <ul>
+ * <li>lo que llega adelantado se retiene hasta que llegue lo que falta, como
+ * mucho {@code window} mensajes o {@code gap-timeout-ms};</li>
+ * <li>pasado ese límite se da el hueco por perdido y se sigue
+ * ({@code ws.sequence.gaps} cuenta los mensajes saltados);</li>
+ * <li>se descartan los duplicados: la misma secuencia, o el mismo
+ * {@code traceId} (reenvíos del cliente y copias del transporte).</li>
+ * </ul>
+ *
+ * Un 1 por debajo de la esperada y con un traceId nuevo es un emisor que
+ * reconectó: cada conexión numera desde 1. Cualquier otra secuencia por debajo
+ * de la esperada es un rezagado cuyo hueco ya venció; se entrega sin tocar lo
+ * retenido. Los mensajes sin secuencia (PEER_JOINED, PEER_LEFT, nodos
+ * anteriores) se entregan sin más.
+ */
+@Component
+public class OrderedDelivery {
+    /** Marca de un hueco ocupado por un duplicado: avanza la secuencia sin entregar nada. */
+    private static final RelayFrame SKIP = RelayFrame.of(null, null, "");
+    /** traceIds recordados por emisor para detectar duplicados. */
+    private static final int TRACE_MEMORY = 256;
+
+    private final boolean enabled;
+    private final int window;
+    private final long gapTimeoutMs;
+    private final Map<String, Map<String, Stream>> channels = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService timer;
+
+    private final Counter reordered;
+    private final Counter gaps;
+    private final Counter duplicates;
+    private final Counter restarts;
+
+    public OrderedDelivery(MeterRegistry registry,
+            @Value("${app.ws.ordering.enabled:true}") boolean enabled,
+            @Value("${app.ws.ordering.window:32}") int window,
+            @Value("${app.ws.ordering.gap-timeout-ms:50}") long gapTimeoutMs) {
+        this.enabled = enabled;
+        this.window = Math.max(1, window);
+        this.gapTimeoutMs = gapTimeoutMs;
+        this.timer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "ws-reorder");
+            t.setDaemon(true);
+            return t;
+        });
+        this.reordered = Counter.builder("ws.sequence.reordered").register(registry);
+        this.gaps = Counter.builder("ws.sequence.gaps").register(registry);
+        this.duplicates = Counter.builder("ws.sequence.duplicates").register(registry);
+        this.restarts = Counter.builder("ws.sequence.restarts").register(registry);
+    }
+
+    /**
+     * Indica si el handler debe numerar los mensajes de los clientes.
+     *
+     * @return true con {@code app.ws.ordering.enabled}.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Recibe un mensaje del canal y entrega, en orden, lo que ya se pueda.
+     *
+     * @param channel Canal de la llamada.
+     * @param frame   Mensaje recibido.
+     * @param deliver Entrega a los clientes locales; también se llama desde el
+     *                hilo que vence los huecos.
+     */
+    public void accept(String channel, RelayFrame frame, Consumer<RelayFrame> deliver) {
+        if (!enabled || frame.seq() <= 0 || frame.originUser() == null) {
+            deliver.accept(frame);
+            return;
+        }
+        Stream stream = channels.computeIfAbsent(channel, c -> new ConcurrentHashMap<>())
+                .computeIfAbsent(streamKey(frame), u -> new Stream());
+        boolean arm;
+        synchronized (stream) {
+            stream.deliver = deliver;
+            stream.offer(frame);
+            arm = !stream.pending.isEmpty() && !stream.armed;
+            stream.armed |= arm;
+        }
+        if (arm) {
+            timer.schedule(() -> expire(stream), gapTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Olvida el estado de un canal cuando ya no hay participantes locales.
+     *
+     * @param channel Canal de la llamada.
+     */
+    public void forget(String channel) {
+        channels.remove(channel);
+    }
+
+    /**
+     * Emisores con estado en un canal.
+     *
+     * @param channel Canal de la llamada.
+     * @return Número de emisores.
+     */
+    int streams(String channel) {
+        Map<String, Stream> streams = channels.get(channel);
+        return streams == null ? 0 : streams.size();
+    }
+
+    private static String streamKey(RelayFrame frame) {
+        return frame.target() == null ? frame.originUser() : frame.originUser() + "->" + frame.target();
+    }
+
+    private void expire(Stream stream) {
+        boolean rearm;
+        synchronized (stream) {
+            stream.armed = false;
+            if (stream.pending.isEmpty()) {
+                return;
+            }
+            long waited = System.nanoTime() - stream.waitingSince;
+            if (waited >= TimeUnit.MILLISECONDS.toNanos(gapTimeoutMs)) {
+                while (!stream.pending.isEmpty()) {
+                    stream.skipGap();
+                }
+            }
+            rearm = !stream.pending.isEmpty();
+            stream.armed = rearm;
+        }
+        if (rearm) {
+            timer.schedule(() -> expire(stream), gapTimeoutMs, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    void shutdown() {
+        timer.shutdownNow();
+    }
+
+    /** Estado de un emisor en un canal; se usa bajo su propio monitor. */
+    private final class Stream {
+        /** Siguiente secuencia a entregar; 0 antes del primer mensaje. */
+        long expected;
+        final TreeMap<Long, RelayFrame> pending = new TreeMap<>();
+        /** nanoTime desde el que la cabeza de {@code pending} espera un hueco. */
+        long waitingSince;
+        boolean armed;
+        Consumer<RelayFrame> deliver;
+        final Map<String, Boolean> traces = new LinkedHashMap<>(64, 0.75f, false) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Boolean> eldest) {
+                return size() > TRACE_MEMORY;
+            }
+        };
+
+        void offer(RelayFrame frame) {
+            long seq = frame.seq();
+            boolean seen = frame.traceId() != null && traces.put(frame.traceId(), Boolean.TRUE) != null;
+            if (expected == 0) {
+                expected = seq;
+            }
+            if (seq < expected) {
+                if (seen || seq != 1) {
+                    // Copia de algo ya entregado, o un rezagado cuyo hueco ya venció
+                    if (seen) {
+                        duplicates.increment();
+                    } else {
+                        reordered.increment();
+                        deliver.accept(frame);
+                    }
+                    return;
+                }
+                restarts.increment();
+                while (!pending.isEmpty()) {
+                    skipGap();
+                }
+                expected = seq;
+            }
+            if (pending.containsKey(seq)) {
+                duplicates.increment();
+                return;
+            }
+            if (seen) {
+                duplicates.increment();
+            }
+            boolean wasEmpty = pending.isEmpty();
+            long before = expected;
+            pending.put(seq, seen ? SKIP : frame);
+            if (seq > expected) {
+                reordered.increment();
+            }
+            drain();
+            if (pending.size() > window) {
+                skipGap();
+            } else if (!pending.isEmpty() && (wasEmpty || expected != before)) {
+                waitingSince = System.nanoTime();
+            }
+        }
+
+        /** Salta el hueco que hay delante de la cabeza y entrega lo que le sigue. */
+        void skipGap() {
+            long first = pending.firstKey();
+            gaps.increment(first - expected);
+            expected = first;
+            drain();
+            waitingSince = System.nanoTime();
+        }
+
+        private void drain() {
+            List<RelayFrame> ready = new ArrayList<>();
+            while (!pending.isEmpty() && pending.firstKey() == expected) {
+                RelayFrame f = pending.pollFirstEntry().getValue();
+                expected++;
+                if (f != SKIP) {
+                    ready.add(f);
+                }
+            }
+            for (RelayFrame f : ready) {
+                deliver.accept(f);
+            }
+        }
+    }
+}
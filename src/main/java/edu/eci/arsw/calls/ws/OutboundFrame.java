@@ -0,0 +1,48 @@
+package edu.eci.arsw.calls.ws;
+
+import org.springframework.web.socket.TextMessage;
+
+/**
+ * Frame saliente inmutable que se codifica una vez y se escribe a N sesiones.
+ * La forma JSON se comparte como un único {@link TextMessage}; la forma binaria
+ * se genera la primera vez que la pide un destinatario CBOR y se reutiliza.
+ */
+public final class OutboundFrame {
+    private final String type;
+    private final TextMessage text;
+
+    /** Bytes del codec binario; null hasta que un destinatario lo necesite. */
+    volatile byte[] binary;
+
+    OutboundFrame(String type, TextMessage text) {
+        this.type = type;
+        this.text = text;
+    }
+
+    /**
+     * Tipo del mensaje (JOIN_ACK, OFFER...).
+     *
+     * @return Tipo del mensaje.
+     */
+    public String type() {
+        return type;
+    }
+
+    /**
+     * Sobre en JSON canónico.
+     *
+     * @return Texto JSON.
+     */
+    public String json() {
+        return text.getPayload();
+    }
+
+    /**
+     * Frame de texto compartido por todos los destinatarios JSON.
+     *
+     * @return Frame de texto.
+     */
+    TextMessage text() {
+        return text;
+    }
+}
@@ -0,0 +1,122 @@
+package edu.eci.arsw.calls.ws;
+
+import com.fasterxml.jackson.core.util.ByteArrayBuilder;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creación y envío de {@link OutboundFrame}. Cada frame se codifica una vez por
+ * formato sin importar cuántos destinatarios tenga; los buffers de trabajo salen
+ * de {@link FrameBufferPool}.
+ */
+@Component
+public class OutboundFrames {
+
+    private final SignalingCodecs codecs;
+    private final ObjectMapper om = new ObjectMapper();
+    private final MeterRegistry registry;
+    /** Estimación de permessage-deflate; null sin muestreo. */
+    private final DeflateSampler deflate;
+
+    private final Map<String, Counter> encoded = new ConcurrentHashMap<>();
+    private final Map<String, Counter> allocated = new ConcurrentHashMap<>();
+    private final Counter written;
+
+    public OutboundFrames(SignalingCodecs codecs, MeterRegistry registry) {
+        this(codecs, registry, null);
+    }
+
+    @Autowired
+    public OutboundFrames(SignalingCodecs codecs, MeterRegistry registry,
+            @Autowired(required = false) DeflateSampler deflate) {
+        this.codecs = codecs;
+        this.registry = registry;
+        this.deflate = deflate;
+        this.written = Counter.builder("ws.outbound.frames.written").register(registry);
+        FunctionCounter.builder("ws.outbound.buffer.pool", FrameBufferPool.class, c -> FrameBufferPool.hits())
+                .tag("result", "hit")
+                .register(registry);
+        FunctionCounter.builder("ws.outbound.buffer.pool", FrameBufferPool.class, c -> FrameBufferPool.misses())
+                .tag("result", "miss")
+                .register(registry);
+    }
+
+    /**
+     * Codifica un sobre generado por el servidor.
+     *
+     * @param env Sobre a codificar.
+     * @return Frame listo para enviar a uno o varios destinatarios.
+     * @throws IOException Si ocurre un error de serialización.
+     */
+    public OutboundFrame encode(MessageEnvelope env) throws IOException {
+        ByteArrayBuilder buf = FrameBufferPool.acquire();
+        try {
+            om.writeValue(buf, env);
+            byte[] utf8 = buf.toByteArray();
+            recordEncoded(JsonSignalingCodec.SUBPROTOCOL, utf8.length);
+            return new OutboundFrame(env.type, new TextMessage(utf8));
+        } finally {
+            FrameBufferPool.release(buf);
+        }
+    }
+
+    /**
+     * Envuelve un sobre que ya está en JSON (mensajes reenviados); no se vuelve a
+     * codificar.
+     *
+     * @param type Tipo del mensaje.
+     * @param json Sobre en JSON canónico.
+     * @return Frame listo para enviar.
+     */
+    public OutboundFrame wrap(String type, String json) {
+        return new OutboundFrame(type, new TextMessage(json));
+    }
+
+    /**
+     * Escribe el frame en la sesión con el codec que negoció. Si la sesión tiene
+     * cola de envío, solo se encola (con el tipo para la política de desborde).
+     *
+     * @param session Sesión destino.
+     * @param frame   Frame a escribir.
+     * @throws IOException Si falla el envío.
+     */
+    public void send(WebSocketSession session, OutboundFrame frame) throws IOException {
+        SignalingCodec codec = codecs.forSession(session);
+        boolean pending = frame.binary == null;
+        WebSocketMessage<?> message = codec.encode(frame);
+        byte[] binary = frame.binary;
+        if (pending && binary != null) {
+            recordEncoded(codec.subprotocol(), binary.length);
+        }
+        if (deflate != null) {
+            deflate.sample(session, message);
+        }
+        if (session instanceof QueuedSession queued) {
+            queued.enqueue(message, frame.type());
+        } else {
+            session.sendMessage(message);
+        }
+        written.increment();
+    }
+
+    private void recordEncoded(String format, int bytes) {
+        encoded.computeIfAbsent(format, f -> Counter.builder("ws.outbound.frames.encoded")
+                .tag("format", f)
+                .register(registry)).increment();
+        allocated.computeIfAbsent(format, f -> Counter.builder("ws.outbound.bytes.allocated")
+                .baseUnit("bytes")
+                .tag("format", f)
+                .register(registry)).increment(bytes);
+    }
+}
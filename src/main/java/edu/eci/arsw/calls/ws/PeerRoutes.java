@@ -0,0 +1,108 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.pubsub.RedisPubSubBridge;
+import edu.eci.arsw.calls.pubsub.RelayFrame;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Nodo de cada participante de las llamadas con participantes locales, para
+ * entregar OFFER, ANSWER e ICE_CANDIDATE con {@code to} solo al destinatario
+ * ({@code app.ws.unicast.enabled}). Se aprende de la cabecera de lo que llega
+ * por el canal (todo participante publica PEER_JOINED al unirse) y se olvida
+ * con su PEER_LEFT o al soltar el canal; no cuesta ningún viaje a Redis.
+ *
+ * <p>{@code ws.routing} cuenta los mensajes dirigidos por camino:
+ * {@code local}, {@code direct} (buzón del nodo) o {@code channel}.
+ */
+@Component
+public class PeerRoutes {
+    private final boolean enabled;
+    /** canal → usuario → nodo. */
+    private final Map<String, Map<String, String>> channels = new ConcurrentHashMap<>();
+    private final Map<RedisPubSubBridge.Route, Counter> routed = new EnumMap<>(RedisPubSubBridge.Route.class);
+
+    public PeerRoutes(MeterRegistry registry,
+            @Value("${app.ws.unicast.enabled:true}") boolean enabled) {
+        this.enabled = enabled;
+        for (RedisPubSubBridge.Route route : RedisPubSubBridge.Route.values()) {
+            routed.put(route, Counter.builder("ws.routing")
+                    .tag("mode", route.name().toLowerCase(Locale.ROOT))
+                    .register(registry));
+        }
+    }
+
+    /**
+     * Indica si los mensajes con {@code to} se entregan solo al destinatario.
+     *
+     * @return true con {@code app.ws.unicast.enabled}.
+     */
+    public boolean enabled() {
+        return enabled;
+    }
+
+    /**
+     * Aprende o retira el nodo del emisor de un mensaje del canal. Un PEER_LEFT
+     * solo retira la ruta si sigue apuntando al nodo que lo publicó: el usuario
+     * puede haber reconectado ya en otro.
+     *
+     * @param channel Canal de la llamada.
+     * @param frame   Mensaje recibido.
+     */
+    public void observe(String channel, RelayFrame frame) {
+        String user = frame.originUser();
+        String node = frame.originNode();
+        if (user == null || node == null) {
+            return;
+        }
+        if ("PEER_LEFT".equals(frame.type())) {
+            Map<String, String> users = channels.get(channel);
+            if (users != null) {
+                users.remove(user, node);
+            }
+            return;
+        }
+        Map<String, String> users = channels.computeIfAbsent(channel, c -> new ConcurrentHashMap<>());
+        if (!node.equals(users.get(user))) {
+            users.put(user, node);
+        }
+    }
+
+    /**
+     * Nodo conocido de un participante.
+     *
+     * @param channel Canal de la llamada.
+     * @param userId  ID del participante.
+     * @return ID del nodo, o null si no se conoce.
+     */
+    public @Nullable String owner(String channel, String userId) {
+        Map<String, String> users = channels.get(channel);
+        return users == null ? null : users.get(userId);
+    }
+
+    /**
+     * Cuenta un mensaje dirigido por el camino que siguió.
+     *
+     * @param route Camino.
+     */
+    public void routed(RedisPubSubBridge.Route route) {
+        routed.get(route).increment();
+    }
+
+    /**
+     * Olvida las rutas de un canal cuando ya no hay participantes locales.
+     *
+     * @param channel Canal de la llamada.
+     */
+    public void forget(String channel) {
+        channels.remove(channel);
+    }
+}
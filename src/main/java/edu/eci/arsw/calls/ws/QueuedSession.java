@@ -0,0 +1,238 @@
+package edu.eci.arsw.calls.ws;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Sesión con cola de envío asíncrona y acotada. Quien publica solo encola; el
+ * envío real lo hace un hilo de {@link SendQueues}, de modo que un cliente lento
+ * no bloquea al hilo del listener de Redis ni al resto de sesiones.
+ *
+ * <p>Al superar los límites: se descartan primero los mensajes descartables en
+ * cola (ICE obsoletos); si aun así no hay sitio, un mensaje descartable se pierde
+ * y uno de control cierra la sesión con {@link CloseStatus#SESSION_NOT_RELIABLE}.
+ */
+public class QueuedSession extends WebSocketSessionDecorator {
+    private static final Logger log = LoggerFactory.getLogger(QueuedSession.class);
+
+    private final SendQueues owner;
+
+    /** Protegida por su propio monitor; el envío se hace fuera del lock. */
+    private final ArrayDeque<Pending> queue = new ArrayDeque<>();
+    private long bufferedBytes;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+    /** Inicio del envío en curso (nanoTime), 0 si no hay envío. */
+    private volatile long sendStartNanos;
+    private volatile boolean closing;
+    private volatile boolean closed;
+
+    /** Mensaje pendiente; con {@code closeStatus} es la marca de cierre tras vaciar la cola. */
+    private record Pending(WebSocketMessage<?> message, String type, int size, long enqueuedNanos,
+            CloseStatus closeStatus) {
+    }
+
+    QueuedSession(WebSocketSession delegate, SendQueues owner) {
+        super(delegate);
+        this.owner = owner;
+    }
+
+    /**
+     * Encola un mensaje sin tipo; se trata como mensaje de control.
+     *
+     * @param message Mensaje a enviar.
+     */
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) {
+        enqueue(message, null);
+    }
+
+    /**
+     * Encola un mensaje aplicando la política de desborde de su tipo.
+     *
+     * @param message Mensaje a enviar.
+     * @param type    Tipo del sobre (OFFER, ICE_CANDIDATE...), null si se
+     *                desconoce.
+     */
+    public void enqueue(WebSocketMessage<?> message, String type) {
+        if (closing || closed) {
+            owner.dropped(type);
+            return;
+        }
+        long started = sendStartNanos;
+        if (started != 0 && System.nanoTime() - started > owner.sendTimeLimitNanos()) {
+            overflow("send time limit exceeded");
+            return;
+        }
+        int size = message.getPayloadLength();
+        boolean fits;
+        synchronized (queue) {
+            if (bufferedBytes + size > owner.bufferSizeLimit()) {
+                evictDroppable();
+            }
+            fits = bufferedBytes + size <= owner.bufferSizeLimit();
+            if (fits) {
+                queue.addLast(new Pending(message, type, size, System.nanoTime(), null));
+                bufferedBytes += size;
+                owner.queued(1, size);
+            }
+        }
+        if (!fits) {
+            if (owner.droppable(type)) {
+                owner.dropped(type);
+            } else {
+                overflow("send buffer limit exceeded");
+            }
+            return;
+        }
+        schedule();
+    }
+
+    /** Descarta de la cola los mensajes descartables (ICE obsoletos). */
+    private void evictDroppable() {
+        for (Iterator<Pending> it = queue.iterator(); it.hasNext();) {
+            Pending p = it.next();
+            if (owner.droppable(p.type())) {
+                it.remove();
+                bufferedBytes -= p.size();
+                owner.queued(-1, -p.size());
+                owner.dropped(p.type());
+            }
+        }
+    }
+
+    private Pending poll() {
+        synchronized (queue) {
+            Pending p = queue.pollFirst();
+            if (p != null) {
+                bufferedBytes -= p.size();
+                owner.queued(-1, -p.size());
+            }
+            return p;
+        }
+    }
+
+    private boolean hasPending() {
+        synchronized (queue) {
+            return !queue.isEmpty();
+        }
+    }
+
+    private void schedule() {
+        if (!draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            owner.executor().execute(this::drain);
+        } catch (RejectedExecutionException e) {
+            draining.set(false);
+            overflow("send executor rejected");
+        }
+    }
+
+    private void drain() {
+        try {
+            Pending p;
+            while (!closed && (p = poll()) != null) {
+                if (p.closeStatus() != null) {
+                    discard();
+                    closeDelegate(p.closeStatus());
+                    return;
+                }
+                sendStartNanos = System.nanoTime();
+                try {
+                    getDelegate().sendMessage(p.message());
+                } catch (IOException | RuntimeException e) {
+                    log.debug("Envío fallido a la sesión {}: {}", getId(), e.toString());
+                    discard();
+                    return;
+                } finally {
+                    sendStartNanos = 0;
+                }
+                owner.sent(System.nanoTime() - p.enqueuedNanos());
+            }
+        } finally {
+            draining.set(false);
+        }
+        if (!closed && hasPending()) {
+            schedule();
+        }
+    }
+
+    /**
+     * Vacía la cola y deja de aceptar mensajes (la sesión se cerró o se dio de
+     * baja).
+     */
+    public void discard() {
+        closed = true;
+        synchronized (queue) {
+            for (Pending p : queue) {
+                owner.queued(-1, -p.size());
+            }
+            queue.clear();
+            bufferedBytes = 0;
+        }
+    }
+
+    private void overflow(String reason) {
+        if (closed) {
+            return;
+        }
+        discard();
+        owner.overflowClosed();
+        log.warn("Cerrando sesión {}: {}", getId(), reason);
+        closeDelegate(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    private void closeDelegate(CloseStatus status) {
+        try {
+            getDelegate().close(status);
+        } catch (IOException | RuntimeException e) {
+            log.debug("Error al cerrar la sesión {}: {}", getId(), e.toString());
+        }
+    }
+
+    @Override
+    public void close() {
+        close(CloseStatus.NORMAL);
+    }
+
+    /**
+     * Cierra la sesión después de enviar lo que ya está en cola (p.ej. un ERROR
+     * seguido de cierre).
+     *
+     * @param status Estado de cierre.
+     */
+    @Override
+    public void close(CloseStatus status) {
+        if (closing || closed) {
+            return;
+        }
+        closing = true;
+        synchronized (queue) {
+            queue.addLast(new Pending(null, null, 0, System.nanoTime(), status));
+        }
+        schedule();
+    }
+
+    /**
+     * Mensajes pendientes de envío.
+     *
+     * @return Profundidad de la cola.
+     */
+    public int depth() {
+        synchronized (queue) {
+            return queue.size();
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package edu.eci.arsw.calls.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Configuración del límite de tasa por conexión y reacción al excederlo.
+ *
+ * <p>{@code app.ws.rate-limit-types} usa el formato {@code TIPO:coste:ráfaga}
+ * separado por comas, p.ej. {@code ICE_CANDIDATE:1:60,OFFER:2:10}.
+ * {@code app.ws.rate-limit-mode}: {@code close} (cierra con POLICY_VIOLATION),
+ * {@code drop} (descarta el mensaje) o {@code delay} (lo retrasa hasta
+ * {@code app.ws.rate-limit-max-delay-ms} y, si no alcanza, lo descarta). El
+ * retraso ocupa el hilo que procesa la conexión: conviene usarlo con hilos
+ * virtuales.
+ */
+@Component
+public class RateLimitPolicy {
+
+    /** Reacción al exceder el límite. */
+    public enum Mode {
+        CLOSE, DROP, DELAY
+    }
+
+    private final int ratePerSecond;
+    private final Map<String, TokenBucketRateLimiter.TypeLimit> types;
+    private final Mode mode;
+    private final long maxDelayNanos;
+
+    private final MeterRegistry registry;
+    private final Map<String, Counter> throttled = new ConcurrentHashMap<>();
+
+    @Autowired
+    public RateLimitPolicy(MeterRegistry registry,
+            @Value("${app.ws.rate-limit:20}") int ratePerSecond,
+            @Value("${app.ws.rate-limit-types:}") String types,
+            @Value("${app.ws.rate-limit-mode:close}") String mode,
+            @Value("${app.ws.rate-limit-max-delay-ms:250}") long maxDelayMs) {
+        this.registry = registry;
+        this.ratePerSecond = ratePerSecond;
+        this.types = parseTypes(types);
+        this.mode = Mode.valueOf(mode.trim().toUpperCase(Locale.ROOT));
+        this.maxDelayNanos = TimeUnit.MILLISECONDS.toNanos(maxDelayMs);
+    }
+
+    /**
+     * Política sin límites por tipo que cierra la conexión al excederse.
+     *
+     * @param ratePerSecond Mensajes por segundo.
+     * @return Política.
+     */
+    public static RateLimitPolicy of(int ratePerSecond) {
+        return new RateLimitPolicy(new SimpleMeterRegistry(), ratePerSecond, "", "close", 0);
+    }
+
+    static Map<String, TokenBucketRateLimiter.TypeLimit> parseTypes(String spec) {
+        Map<String, TokenBucketRateLimiter.TypeLimit> m = new HashMap<>();
+        if (spec == null || spec.isBlank()) {
+            return m;
+        }
+        for (String entry : spec.split(",")) {
+            String[] parts = entry.trim().split(":");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Invalid rate-limit type '" + entry + "', expected TYPE:cost:burst");
+            }
+            m.put(parts[0].trim(), new TokenBucketRateLimiter.TypeLimit(
+                    Integer.parseInt(parts[1].trim()), Integer.parseInt(parts[2].trim())));
+        }
+        return m;
+    }
+
+    /**
+     * Crea el limitador de una nueva conexión.
+     *
+     * @return Limitador.
+     */
+    public TokenBucketRateLimiter newLimiter() {
+        return new TokenBucketRateLimiter(ratePerSecond, ratePerSecond, types);
+    }
+
+    /**
+     * Reacción configurada al exceder el límite.
+     *
+     * @return Modo.
+     */
+    public Mode mode() {
+        return mode;
+    }
+
+    /**
+     * Aplica el límite a un mensaje.
+     *
+     * @param limiter Limitador de la conexión.
+     * @param type    Tipo del mensaje.
+     * @return 0 para procesar ya, nanos de retraso, o
+     *         {@link TokenBucketRateLimiter#REJECTED}.
+     */
+    public long check(TokenBucketRateLimiter limiter, String type) {
+        long wait = limiter.acquire(type, mode == Mode.DELAY ? maxDelayNanos : 0);
+        if (wait != 0) {
+            String action = wait < 0 ? (mode == Mode.CLOSE ? "close" : "drop") : "delay";
+            throttled.computeIfAbsent(action, a -> Counter.builder("ws.ratelimit.throttled")
+                    .tag("action", a)
+                    .register(registry)).increment();
+        }
+        return wait;
+    }
+}
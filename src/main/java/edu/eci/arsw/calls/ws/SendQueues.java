@@ -0,0 +1,131 @@
+package edu.eci.arsw.calls.ws;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Colas de envío por conexión: límites, política de desborde por tipo de
+ * mensaje, hilos de envío y métricas del nodo. Con
+ * {@code app.ws.virtual-threads=true} cada vaciado de cola usa un hilo virtual
+ * en lugar del pool {@code ws-send-}.
+ */
+@Component
+public class SendQueues {
+
+    private final Executor executor;
+    private final long sendTimeLimitNanos;
+    private final int bufferSizeLimit;
+    private final Set<String> droppableTypes;
+
+    private final MeterRegistry registry;
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong bytes = new AtomicLong();
+    private final Map<String, Counter> drops = new ConcurrentHashMap<>();
+    private final Counter overflowClosed;
+    private final Timer latency;
+
+    @Autowired
+    public SendQueues(MeterRegistry registry,
+            @Value("${app.ws.send-threads:16}") int threads,
+            @Value("${app.ws.send-time-limit-ms:5000}") long sendTimeLimitMs,
+            @Value("${app.ws.send-buffer-size-limit:524288}") int bufferSizeLimit,
+            @Value("${app.ws.send-droppable-types:ICE_CANDIDATE,HEARTBEAT}") Set<String> droppableTypes,
+            @Value("${app.ws.virtual-threads:false}") boolean virtualThreads) {
+        this(registry, virtualThreads ? Executors.newVirtualThreadPerTaskExecutor() : newExecutor(threads),
+                sendTimeLimitMs, bufferSizeLimit, droppableTypes);
+    }
+
+    SendQueues(MeterRegistry registry, Executor executor, long sendTimeLimitMs, int bufferSizeLimit,
+            Set<String> droppableTypes) {
+        this.registry = registry;
+        this.executor = executor;
+        this.sendTimeLimitNanos = TimeUnit.MILLISECONDS.toNanos(sendTimeLimitMs);
+        this.bufferSizeLimit = bufferSizeLimit;
+        this.droppableTypes = Set.copyOf(droppableTypes);
+
+        Gauge.builder("ws.send.queue.depth", depth, AtomicLong::get).register(registry);
+        Gauge.builder("ws.send.queue.bytes", bytes, AtomicLong::get).baseUnit("bytes").register(registry);
+        this.overflowClosed = Counter.builder("ws.send.overflow.closed").register(registry);
+        this.latency = Timer.builder("ws.send.latency")
+                .publishPercentiles(0.5, 0.99)
+                .register(registry);
+    }
+
+    private static ExecutorService newExecutor(int threads) {
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), new CustomizableThreadFactory("ws-send-"));
+        pool.allowCoreThreadTimeOut(true);
+        return pool;
+    }
+
+    /**
+     * Envuelve una sesión en su cola de envío.
+     *
+     * @param session Sesión WebSocket.
+     * @return Sesión con cola.
+     */
+    public QueuedSession wrap(WebSocketSession session) {
+        return new QueuedSession(session, this);
+    }
+
+    @PreDestroy
+    void shutdown() {
+        if (executor instanceof ExecutorService es) {
+            es.shutdownNow();
+        }
+    }
+
+    Executor executor() {
+        return executor;
+    }
+
+    long sendTimeLimitNanos() {
+        return sendTimeLimitNanos;
+    }
+
+    int bufferSizeLimit() {
+        return bufferSizeLimit;
+    }
+
+    boolean droppable(String type) {
+        return type != null && droppableTypes.contains(type);
+    }
+
+    void queued(int messages, long size) {
+        depth.addAndGet(messages);
+        bytes.addAndGet(size);
+    }
+
+    void sent(long latencyNanos) {
+        latency.record(latencyNanos, TimeUnit.NANOSECONDS);
+    }
+
+    void dropped(String type) {
+        drops.computeIfAbsent(type == null ? "unknown" : type, t -> Counter.builder("ws.send.dropped")
+                .tag("type", t)
+                .register(registry)).increment();
+    }
+
+    void overflowClosed() {
+        overflowClosed.increment();
+    }
+}
@@ -1,59 +1,416 @@
 package edu.eci.arsw.calls.ws;
 
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.lang.Nullable;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.stereotype.Component;
 
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
 import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Registro de sesiones WebSocket.
+ * Registro de sesiones WebSocket. Se registra la sesión por la que hay que
+ * escribir ({@link ConnectionContext#sender()}), con su cola si la hay.
+ *
+ * <p>Cada llamada es una {@link Room}: un array inmutable de participantes que
+ * se sustituye con un solo CAS, sin un mapa por llamada. La sala se elimina al
+ * salir el último participante. Un índice inverso conexión → sala permite
+ * desregistrar al cerrar una conexión sin conocer la llamada.
+ *
+ * <p>La capacidad de cada sala es {@code app.ws.room.capacity}: 2 para una
+ * llamada uno a uno, 9 para una tutoría en malla (un tutor y ocho
+ * estudiantes).
  */
 @Component
 public class SessionRegistry {
-    private final Map<String, Map<String, WebSocketSession>> sessions = new ConcurrentHashMap<>();
+    /** Participantes por sala sin configuración: una llamada uno a uno. */
+    static final int DEFAULT_SLOTS = 2;
+
+    /** Contiene solo {@link Room}; se tipa como mapa para {@link #all()}. */
+    private final Map<String, Map<String, WebSocketSession>> rooms = new ConcurrentHashMap<>();
+    private final Map<WebSocketSession, Room> byConnection = new ConcurrentHashMap<>();
+    private final int slots;
+
+    public SessionRegistry() {
+        this(DEFAULT_SLOTS);
+    }
+
+    /**
+     * @param slots Participantes por sala ({@code app.ws.room.capacity}).
+     */
+    @Autowired
+    public SessionRegistry(@Value("${app.ws.room.capacity:2}") int slots) {
+        if (slots < 1) {
+            throw new IllegalArgumentException("Room capacity must be >= 1");
+        }
+        this.slots = slots;
+    }
+
+    /**
+     * Registra una sesión WebSocket para un usuario en una sesión de llamada. Si
+     * la conexión estaba en otra sala, sale de ella.
+     *
+     * @param sessionId ID de la sesión de llamada.
+     * @param userId    ID del usuario.
+     * @param ws        Sesión WebSocket del usuario.
+     * @return true si el usuario no estaba registrado (nuevo participante local).
+     * @throws IllegalStateException Si la sala no tiene huecos libres.
+     */
+    public boolean register(String sessionId, String userId, WebSocketSession ws) {
+        Seat seat = admit(sessionId, userId, ws);
+        if (seat == Seat.FULL) {
+            throw new IllegalStateException("Room full");
+        }
+        return !seat.rejoined();
+    }
 
     /**
-     * Registra una sesión WebSocket para un usuario en una sesión de llamada.
-     * 
+     * Admite a un usuario en la sala de una llamada en un solo paso atómico: la
+     * decisión de capacidad y el rol salen del mismo CAS que ocupa el hueco, así
+     * que dos JOIN simultáneos no pueden entrar en el último hueco ni ser ambos
+     * iniciadores. Un usuario que ya está en la sala (reconexión) cambia su
+     * conexión sin ocupar otro hueco. Si la conexión estaba en otra sala, sale
+     * de ella.
+     *
      * @param sessionId ID de la sesión de llamada.
      * @param userId    ID del usuario.
      * @param ws        Sesión WebSocket del usuario.
+     * @return Rol asignado, o {@link Seat#FULL} si no hay hueco.
      */
-    public void register(String sessionId, String userId, WebSocketSession ws) {
-        sessions.computeIfAbsent(sessionId, k -> new ConcurrentHashMap<>()).put(userId, ws);
+    public Seat admit(String sessionId, String userId, WebSocketSession ws) {
+        Objects.requireNonNull(userId, "userId");
+        for (;;) {
+            Room room = (Room) rooms.computeIfAbsent(sessionId, id -> new Room(id));
+            Seat seat = room.claim(userId, ws);
+            if (seat == null) {
+                // Se vació entre la búsqueda y el claim; se retira y se crea otra
+                rooms.remove(sessionId, room);
+                continue;
+            }
+            if (seat != Seat.FULL) {
+                Room previous = byConnection.put(ws, room);
+                if (previous != null && previous != room) {
+                    previous.vacate(null, ws);
+                }
+            }
+            return seat;
+        }
     }
 
     /**
      * Elimina el registro de una sesión WebSocket para un usuario en una sesión de
-     * llamada.
-     * 
+     * llamada. Al salir el último participante se elimina la sesión de llamada.
+     *
      * @param sessionId ID de la sesión de llamada.
      * @param userId    ID del usuario.
+     * @return true si el usuario estaba registrado.
      */
-    public void unregister(String sessionId, String userId) {
-        Map<String, WebSocketSession> map = sessions.get(sessionId);
-        if (map != null)
-            map.remove(userId);
+    public boolean unregister(String sessionId, String userId) {
+        return unregister(sessionId, userId, null);
+    }
+
+    /**
+     * Elimina el registro solo si el usuario sigue registrado con esa sesión
+     * WebSocket: el cierre de una conexión vieja no debe desregistrar la que la
+     * reemplazó al reconectar.
+     *
+     * @param sessionId ID de la sesión de llamada.
+     * @param userId    ID del usuario.
+     * @param ws        Sesión registrada, o null para eliminar cualquiera.
+     * @return true si se eliminó el registro.
+     */
+    public boolean unregister(String sessionId, String userId, @Nullable WebSocketSession ws) {
+        Map<String, WebSocketSession> room = rooms.get(sessionId);
+        return room != null && ((Room) room).vacate(userId, ws);
+    }
+
+    /**
+     * Desregistra una conexión de la sala en la que esté, vía el índice inverso.
+     *
+     * @param ws Sesión registrada.
+     * @return ID de la sesión de llamada de la que salió, o null si no estaba.
+     */
+    public @Nullable String unregister(WebSocketSession ws) {
+        Room room = byConnection.get(ws);
+        if (room == null || !room.vacate(null, ws)) {
+            byConnection.remove(ws, room);
+            return null;
+        }
+        return room.id;
     }
 
     /**
      * Obtiene las sesiones WebSocket registradas para una sesión de llamada.
-     * 
+     *
      * @param sessionId ID de la sesión de llamada.
-     * @return Mapa de IDs de usuario a sus sesiones WebSocket.
+     * @return Vista de IDs de usuario a sus sesiones WebSocket.
      */
     public Map<String, WebSocketSession> get(String sessionId) {
-        return sessions.getOrDefault(sessionId, Map.of());
+        return rooms.getOrDefault(sessionId, Map.of());
     }
 
     /**
      * Obtiene todas las sesiones WebSocket registradas.
-     * 
+     *
      * @return Mapa de IDs de sesión de llamada a mapas de IDs de usuario y sus
      *         sesiones WebSocket.
      */
     public Map<String, Map<String, WebSocketSession>> all() {
-        return sessions;
+        return rooms;
+    }
+
+    /**
+     * Participantes por sala.
+     *
+     * @return Huecos de cada sala.
+     */
+    public int capacity() {
+        return slots;
+    }
+
+    /**
+     * Conexiones en el índice inverso.
+     *
+     * @return Número de conexiones indexadas.
+     */
+    int connections() {
+        return byConnection.size();
+    }
+
+    /** Resultado de {@link #admit}. */
+    public enum Seat {
+        /** Nuevo participante en una sala vacía: inicia la negociación. */
+        INITIATOR(true, false),
+        /** Nuevo participante con otros ya en la sala. */
+        RESPONDER(false, false),
+        /** Reconexión de un usuario que está solo en la sala. */
+        REJOINED_INITIATOR(true, true),
+        /** Reconexión de un usuario con otros en la sala. */
+        REJOINED_RESPONDER(false, true),
+        /** Sin huecos libres. */
+        FULL(false, false);
+
+        private final boolean initiator;
+        private final boolean rejoined;
+
+        Seat(boolean initiator, boolean rejoined) {
+            this.initiator = initiator;
+            this.rejoined = rejoined;
+        }
+
+        /**
+         * @return true si el usuario debe iniciar la negociación.
+         */
+        public boolean initiator() {
+            return initiator;
+        }
+
+        /**
+         * @return true si el usuario ya tenía hueco y solo cambió de conexión.
+         */
+        public boolean rejoined() {
+            return rejoined;
+        }
+    }
+
+    /**
+     * Sala de una llamada. Los participantes ({@code usuario → conexión}) están
+     * en un array inmutable de como mucho {@code slots} huecos; cada cambio crea
+     * el array nuevo y lo publica con un CAS sobre {@code seats}. Así capacidad,
+     * rol y reconexión se deciden sobre la misma foto en un paso atómico. Al salir
+     * el último la sala pasa a {@link #CLOSED} y deja el registro. Como mapa es
+     * una vista: quitar entradas libera los huecos.
+     */
+    final class Room extends AbstractMap<String, WebSocketSession> {
+        private static final VarHandle SEATS;
+        private static final Entry<?, ?>[] EMPTY = new Entry<?, ?>[0];
+        /** Sala vacía que ya dejó el registro; no admite a nadie más. */
+        private static final Entry<?, ?>[] CLOSED = new Entry<?, ?>[0];
+
+        static {
+            try {
+                SEATS = MethodHandles.lookup().findVarHandle(Room.class, "seats", Entry[].class);
+            } catch (ReflectiveOperationException e) {
+                throw new ExceptionInInitializerError(e);
+            }
+        }
+
+        final String id;
+        private volatile Entry<?, ?>[] seats = EMPTY;
+
+        Room(String id) {
+            this.id = id;
+        }
+
+        @SuppressWarnings("unchecked")
+        private static Entry<String, WebSocketSession> seat(Entry<?, ?>[] seats, int i) {
+            return (Entry<String, WebSocketSession>) seats[i];
+        }
+
+        private static int indexOf(Entry<?, ?>[] seats, Object userId) {
+            for (int i = 0; i < seats.length; i++) {
+                if (seats[i].getKey().equals(userId)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Ocupa un hueco o cambia la conexión del usuario si ya tiene uno.
+         *
+         * @return Rol asignado, {@link Seat#FULL}, o null si la sala se cerró.
+         */
+        Seat claim(String userId, WebSocketSession ws) {
+            Entry<String, WebSocketSession> entry = new SimpleImmutableEntry<>(userId, ws);
+            for (;;) {
+                Entry<?, ?>[] current = seats;
+                if (current == CLOSED) {
+                    return null;
+                }
+                Entry<?, ?>[] next;
+                Seat seat;
+                int i = indexOf(current, userId);
+                if (i >= 0) {
+                    next = current.clone();
+                    next[i] = entry;
+                    seat = current.length == 1 ? Seat.REJOINED_INITIATOR : Seat.REJOINED_RESPONDER;
+                } else if (current.length >= slots) {
+                    return Seat.FULL;
+                } else {
+                    next = Arrays.copyOf(current, current.length + 1);
+                    next[current.length] = entry;
+                    seat = current.length == 0 ? Seat.INITIATOR : Seat.RESPONDER;
+                }
+                if (SEATS.compareAndSet(this, current, next)) {
+                    return seat;
+                }
+            }
+        }
+
+        /**
+         * Libera el hueco de un usuario o de una conexión.
+         *
+         * @param userId Usuario, o null para buscar solo por conexión.
+         * @param ws     Conexión registrada, o null para cualquiera del usuario.
+         * @return true si se liberó un hueco.
+         */
+        boolean vacate(@Nullable String userId, @Nullable WebSocketSession ws) {
+            for (;;) {
+                Entry<?, ?>[] current = seats;
+                int i = 0;
+                while (i < current.length && !((userId == null || current[i].getKey().equals(userId))
+                        && (ws == null || current[i].getValue() == ws))) {
+                    i++;
+                }
+                if (i == current.length) {
+                    return false;
+                }
+                Entry<?, ?>[] next;
+                if (current.length == 1) {
+                    next = CLOSED;
+                } else {
+                    next = new Entry<?, ?>[current.length - 1];
+                    System.arraycopy(current, 0, next, 0, i);
+                    System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                }
+                if (SEATS.compareAndSet(this, current, next)) {
+                    byConnection.remove(current[i].getValue(), this);
+                    if (next == CLOSED) {
+                        rooms.remove(id, this);
+                    }
+                    return true;
+                }
+            }
+        }
+
+        @Override
+        public int size() {
+            return seats.length;
+        }
+
+        @Override
+        public WebSocketSession get(Object userId) {
+            Entry<?, ?>[] current = seats;
+            int i = indexOf(current, userId);
+            return i < 0 ? null : seat(current, i).getValue();
+        }
+
+        @Override
+        public boolean containsKey(Object userId) {
+            return indexOf(seats, userId) >= 0;
+        }
+
+        @Override
+        public WebSocketSession remove(Object userId) {
+            WebSocketSession ws = get(userId);
+            return (ws != null && userId instanceof String u && vacate(u, ws)) ? ws : null;
+        }
+
+        @Override
+        public void clear() {
+            for (Entry<?, ?> e : seats) {
+                vacate(null, (WebSocketSession) e.getValue());
+            }
+        }
+
+        @Override
+        public Set<Entry<String, WebSocketSession>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, WebSocketSession>> iterator() {
+                    return new Seats(seats);
+                }
+
+                @Override
+                public int size() {
+                    return Room.this.size();
+                }
+            };
+        }
+
+        /** Recorre la foto de los participantes al crear el iterador. */
+        private final class Seats implements Iterator<Entry<String, WebSocketSession>> {
+            private final Entry<?, ?>[] snapshot;
+            private int next;
+            private Entry<String, WebSocketSession> last;
+
+            Seats(Entry<?, ?>[] snapshot) {
+                this.snapshot = snapshot;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return next < snapshot.length;
+            }
+
+            @Override
+            public Entry<String, WebSocketSession> next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                last = seat(snapshot, next++);
+                return last;
+            }
+
+            @Override
+            public void remove() {
+                if (last == null) {
+                    throw new IllegalStateException();
+                }
+                vacate(last.getKey(), last.getValue());
+                last = null;
+            }
+        }
     }
 }
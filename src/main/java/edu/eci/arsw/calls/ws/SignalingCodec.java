@@ -0,0 +1,57 @@
+package edu.eci.arsw.calls.ws;
+
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+
+/**
+ * Codificación de sobres de señalización para un subprotocolo WebSocket.
+ * El formato canónico entre nodos es JSON; cada codec traduce desde/hacia él.
+ */
+public interface SignalingCodec {
+
+    /**
+     * Nombre del subprotocolo anunciado en {@code Sec-WebSocket-Protocol}.
+     *
+     * @return Nombre del subprotocolo.
+     */
+    String subprotocol();
+
+    /**
+     * Decodifica la cabecera de un frame entrante; el payload queda crudo.
+     *
+     * @param message Frame recibido.
+     * @return Sobre perezoso.
+     * @throws IOException Si el frame no es válido para este codec.
+     */
+    LazyEnvelope decode(WebSocketMessage<?> message) throws IOException;
+
+    /**
+     * Codifica un sobre generado por el servidor en el frame que entiende el
+     * cliente.
+     *
+     * @param env Sobre a codificar.
+     * @return Frame listo para enviar.
+     * @throws IOException Si ocurre un error de serialización.
+     */
+    WebSocketMessage<?> encode(MessageEnvelope env) throws IOException;
+
+    /**
+     * Codifica un sobre ya serializado en JSON canónico (mensajes reenviados).
+     *
+     * @param json Sobre en JSON.
+     * @return Frame listo para enviar.
+     * @throws IOException Si ocurre un error de transcodificación.
+     */
+    WebSocketMessage<?> encodeJson(String json) throws IOException;
+
+    /**
+     * Frame para un {@link OutboundFrame} compartido. La codificación propia del
+     * codec se hace una sola vez por frame y se reutiliza entre destinatarios.
+     *
+     * @param frame Frame saliente.
+     * @return Frame listo para enviar a una sesión.
+     * @throws IOException Si ocurre un error de transcodificación.
+     */
+    WebSocketMessage<?> encode(OutboundFrame frame) throws IOException;
+}
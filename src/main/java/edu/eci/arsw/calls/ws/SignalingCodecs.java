@@ -0,0 +1,76 @@
+package edu.eci.arsw.calls.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+
+/**
+ * Codecs de señalización disponibles y su selección por conexión según el
+ * subprotocolo negociado en el handshake.
+ */
+@Component
+public class SignalingCodecs {
+
+    private final JsonSignalingCodec json;
+    private final CborSignalingCodec cbor;
+
+    public SignalingCodecs() {
+        this.json = new JsonSignalingCodec(new ObjectMapper());
+        this.cbor = new CborSignalingCodec();
+    }
+
+    /**
+     * Subprotocolos soportados, en orden de preferencia del servidor.
+     *
+     * @return Nombres de subprotocolo.
+     */
+    public List<String> subprotocols() {
+        return List.of(cbor.subprotocol(), json.subprotocol());
+    }
+
+    /**
+     * Codec JSON (por defecto para clientes antiguos).
+     *
+     * @return Codec JSON.
+     */
+    public SignalingCodec json() {
+        return json;
+    }
+
+    /**
+     * Codec con el que se debe escribir a la sesión dada.
+     *
+     * @param session Sesión WebSocket.
+     * @return Codec negociado, o JSON si no se negoció subprotocolo.
+     */
+    public SignalingCodec forSession(WebSocketSession session) {
+        String accepted = session.getAcceptedProtocol();
+        if (cbor.subprotocol().equals(accepted)) {
+            return cbor;
+        }
+        return json;
+    }
+
+    /**
+     * Indica si la sesión usa el codec JSON.
+     *
+     * @param session Sesión WebSocket.
+     * @return true si los frames hacia la sesión son JSON de texto.
+     */
+    public boolean isJson(WebSocketSession session) {
+        return forSession(session) == json;
+    }
+
+    /**
+     * Codec para decodificar un frame según su tipo: texto es JSON y binario es
+     * CBOR.
+     *
+     * @param binary true si el frame es binario.
+     * @return Codec a usar.
+     */
+    public SignalingCodec forInbound(boolean binary) {
+        return binary ? cbor : json;
+    }
+}
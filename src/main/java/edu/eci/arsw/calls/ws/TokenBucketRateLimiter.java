@@ -0,0 +1,138 @@
+package edu.eci.arsw.calls.ws;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Limitador token bucket sin locks (GCRA): cada cubo guarda solo su "tiempo
+ * teórico de llegada" en un {@link AtomicLong} y se actualiza con CAS sobre
+ * {@link System#nanoTime()}. No hay ventanas fijas, así que no se permiten
+ * ráfagas dobles en el borde de un segundo.
+ *
+ * <p>Cada tipo de mensaje configurado tiene su propio cubo con su coste y su
+ * ráfaga; el resto comparte un cubo por defecto. Con tipos configurados, cada
+ * mensaje se cobra además en un cubo de la conexión que repone la misma tasa y
+ * admite la suma de las ráfagas: las ráfagas de cada tipo no se pisan, pero en
+ * régimen la conexión no pasa de la tasa configurada por muchos tipos que use.
+ */
+public final class TokenBucketRateLimiter {
+
+    /** Rechazo: no hay tokens y la espera superaría el máximo permitido. */
+    public static final long REJECTED = -1L;
+
+    private final Bucket fallback;
+    private final Map<String, Bucket> byType;
+    /** Cubo de toda la conexión; null sin tipos configurados (basta el de por defecto). */
+    private final Bucket connection;
+
+    /**
+     * Crea el limitador de una conexión.
+     *
+     * @param ratePerSecond Tokens repuestos por segundo en cada cubo y en el de
+     *                      la conexión.
+     * @param defaultBurst  Capacidad del cubo por defecto.
+     * @param types         Coste y ráfaga por tipo de mensaje.
+     */
+    public TokenBucketRateLimiter(int ratePerSecond, int defaultBurst, Map<String, TypeLimit> types) {
+        long interval = ratePerSecond <= 0 ? 0 : 1_000_000_000L / ratePerSecond;
+        boolean closed = ratePerSecond <= 0;
+        long now = System.nanoTime();
+        this.fallback = new Bucket(interval, 1, defaultBurst, closed, now);
+        Map<String, Bucket> m = new HashMap<>();
+        long burst = defaultBurst;
+        for (Map.Entry<String, TypeLimit> e : types.entrySet()) {
+            TypeLimit limit = e.getValue();
+            m.put(e.getKey(), new Bucket(interval, limit.cost(), limit.burst(), closed, now));
+            burst += Math.max(limit.burst(), limit.cost());
+        }
+        this.byType = Map.copyOf(m);
+        this.connection = types.isEmpty() ? null : new Bucket(interval, 1, burst, closed, now);
+    }
+
+    /**
+     * Intenta consumir los tokens del mensaje sin esperar.
+     *
+     * @param type Tipo del mensaje (puede ser null).
+     * @return true si se permite.
+     */
+    public boolean tryAcquire(String type) {
+        return acquire(type, 0) == 0;
+    }
+
+    /**
+     * Consume los tokens del mensaje si están disponibles ahora o dentro de
+     * {@code maxWaitNanos}.
+     *
+     * @param type         Tipo del mensaje (puede ser null).
+     * @param maxWaitNanos Espera máxima aceptable.
+     * @return 0 si se permite ya, nanos a esperar antes de procesarlo, o
+     *         {@link #REJECTED}.
+     */
+    public long acquire(String type, long maxWaitNanos) {
+        Bucket b = (type == null) ? fallback : byType.getOrDefault(type, fallback);
+        long now = System.nanoTime();
+        long wait = b.acquire(now, maxWaitNanos, b.increment);
+        if (wait == REJECTED || connection == null) {
+            return wait;
+        }
+        long shared = connection.acquire(now, maxWaitNanos, b.increment);
+        if (shared == REJECTED) {
+            b.refund();
+            return REJECTED;
+        }
+        return Math.max(wait, shared);
+    }
+
+    /**
+     * Coste y ráfaga de un tipo de mensaje.
+     *
+     * @param cost  Tokens que consume cada mensaje.
+     * @param burst Tokens disponibles en ráfaga.
+     */
+    public record TypeLimit(int cost, int burst) {
+    }
+
+    private static final class Bucket {
+        private final long increment;
+        private final long tolerance;
+        private final boolean closed;
+        /** Tiempo teórico de llegada del siguiente mensaje (nanoTime). */
+        private final AtomicLong tat;
+
+        Bucket(long intervalNanos, int cost, long burst, boolean closed, long now) {
+            this.increment = intervalNanos * cost;
+            this.tolerance = intervalNanos * Math.max(burst, (long) cost);
+            this.closed = closed;
+            this.tat = new AtomicLong(now);
+        }
+
+        /**
+         * @param charge Nanos de tasa que consume el mensaje (su coste).
+         */
+        long acquire(long now, long maxWaitNanos, long charge) {
+            if (closed) {
+                return REJECTED;
+            }
+            if (charge == 0) {
+                return 0;
+            }
+            for (;;) {
+                long current = tat.get();
+                long next = Math.max(current, now) + charge;
+                long wait = next - now - tolerance;
+                if (wait > maxWaitNanos) {
+                    return REJECTED;
+                }
+                if (tat.compareAndSet(current, next)) {
+                    return Math.max(0, wait);
+                }
+            }
+        }
+
+        /** Devuelve el coste de un mensaje que otro cubo rechazó. */
+        void refund() {
+            tat.addAndGet(-increment);
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package edu.eci.arsw.calls.config;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.websocket.Extension;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de DeflateUpgradeStrategy.
+ */
+class DeflateUpgradeStrategyTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    private static Extension ext(String name, String... params) {
+        List<Extension.Parameter> ps = Arrays.stream(params)
+                .map(p -> (Extension.Parameter) new Extension.Parameter() {
+                    @Override
+                    public String getName() {
+                        return p;
+                    }
+
+                    @Override
+                    public String getValue() {
+                        return null;
+                    }
+                })
+                .toList();
+        return new Extension() {
+            @Override
+            public String getName() {
+                return name;
+            }
+
+            @Override
+            public List<Parameter> getParameters() {
+                return ps;
+            }
+        };
+    }
+
+    private static List<String> params(Extension e) {
+        return e.getParameters().stream().map(Extension.Parameter::getName).toList();
+    }
+
+    private double handshakes(String result) {
+        return meters.get("ws.deflate.handshakes").tag("result", result).counter().count();
+    }
+
+    private static final List<Extension> INSTALLED = List.of(ext("permessage-deflate"));
+
+    @Test
+    void negotiate_deberiaAceptarLaOfertaSinCambiosConContexto_casoFeliz1() {
+        DeflateUpgradeStrategy s = new DeflateUpgradeStrategy(meters, true, true, true);
+
+        List<Extension> out = s.negotiate(INSTALLED, List.of(ext("permessage-deflate", "client_max_window_bits")));
+
+        assertEquals(1, out.size());
+        assertEquals(List.of("client_max_window_bits"), params(out.get(0)));
+        assertEquals(1.0, handshakes("accepted"));
+    }
+
+    @Test
+    void negotiate_deberiaPedirNoConservarContexto_casoFeliz2() {
+        DeflateUpgradeStrategy s = new DeflateUpgradeStrategy(meters, true, false, false);
+
+        List<Extension> out = s.negotiate(INSTALLED,
+                List.of(ext("permessage-deflate", "client_max_window_bits"), ext("permessage-deflate")));
+
+        assertEquals(2, out.size());
+        assertEquals(List.of("client_max_window_bits", "server_no_context_takeover", "client_no_context_takeover"),
+                params(out.get(0)));
+        assertEquals(List.of("server_no_context_takeover", "client_no_context_takeover"), params(out.get(1)));
+    }
+
+    @Test
+    void negotiate_noDeberiaDuplicarParametrosQueYaPidioElCliente_casoFeliz3() {
+        DeflateUpgradeStrategy s = new DeflateUpgradeStrategy(meters, true, false, true);
+
+        List<Extension> out = s.negotiate(INSTALLED, List.of(ext("permessage-deflate", "server_no_context_takeover")));
+
+        assertEquals(List.of("server_no_context_takeover"), params(out.get(0)));
+    }
+
+    @Test
+    void negotiate_deberiaRechazarDeflateSiEstaDesactivado_casoFeliz4() {
+        DeflateUpgradeStrategy s = new DeflateUpgradeStrategy(meters, false, true, true);
+
+        List<Extension> out = s.negotiate(INSTALLED, List.of(ext("permessage-deflate")));
+
+        assertTrue(out.isEmpty());
+        assertEquals(1.0, handshakes("refused"));
+    }
+
+    @Test
+    void negotiate_deberiaDescartarExtensionesNoInstaladas_casoFeliz5() {
+        DeflateUpgradeStrategy s = new DeflateUpgradeStrategy(meters, true, true, true);
+
+        List<Extension> out = s.negotiate(INSTALLED, List.of(ext("x-webkit-deflate-frame")));
+
+        assertTrue(out.isEmpty());
+        assertEquals(1.0, handshakes("not_offered"));
+    }
+}
@@ -2,6 +2,7 @@ package edu.eci.arsw.calls.config;
 
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.springframework.core.task.SyncTaskExecutor;
 import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
 import org.springframework.data.redis.core.StringRedisTemplate;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
@@ -52,6 +53,13 @@ class RedisConfigTest {
         assertSame(cf, container.getConnectionFactory());
     }
 
+    @Test
+    void redisContainer_noDeberiaCrearUnHiloPorMensaje() {
+        RedisMessageListenerContainer container = config.redisContainer(mock(LettuceConnectionFactory.class));
+
+        assertInstanceOf(SyncTaskExecutor.class, ReflectionTestUtils.getField(container, "taskExecutor"));
+    }
+
     @Test
     void config_deberiaNoSerNuloDespuesDeSetUp() {
         // Verifica que el setUp inicializó la configuración
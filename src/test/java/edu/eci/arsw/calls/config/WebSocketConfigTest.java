@@ -2,14 +2,20 @@ package edu.eci.arsw.calls.config;
 
 import edu.eci.arsw.calls.security.WsAuthHandshakeInterceptor;
 import edu.eci.arsw.calls.ws.CallWebSocketHandler;
+import edu.eci.arsw.calls.ws.SignalingCodecs;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistration;
 import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
 import org.springframework.web.socket.server.standard.ServletServerContainerFactoryBean;
+import org.springframework.web.socket.server.support.DefaultHandshakeHandler;
 
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 /**
@@ -26,10 +32,13 @@ class WebSocketConfigTest {
         handler = mock(CallWebSocketHandler.class);
         interceptor = mock(WsAuthHandshakeInterceptor.class);
 
-        config = new WebSocketConfig(handler, interceptor);
+        config = new WebSocketConfig(handler, interceptor, new SignalingCodecs(), new SimpleMeterRegistry());
 
         ReflectionTestUtils.setField(config, "maxMessageSize", 1024);
         ReflectionTestUtils.setField(config, "idleTimeout", 60L);
+        ReflectionTestUtils.setField(config, "deflateEnabled", true);
+        ReflectionTestUtils.setField(config, "serverContextTakeover", false);
+        ReflectionTestUtils.setField(config, "clientContextTakeover", true);
     }
 
     @Test
@@ -40,12 +49,23 @@ class WebSocketConfigTest {
         when(registry.addHandler(handler, "/ws/call")).thenReturn(registration);
         when(registration.addInterceptors(interceptor)).thenReturn(registration);
         when(registration.setAllowedOriginPatterns("*")).thenReturn(registration);
+        when(registration.setHandshakeHandler(any())).thenReturn(registration);
 
         config.registerWebSocketHandlers(registry);
 
         verify(registry).addHandler(handler, "/ws/call");
         verify(registration).addInterceptors(interceptor);
         verify(registration).setAllowedOriginPatterns("*");
+        verify(registration).setHandshakeHandler(any(DefaultHandshakeHandler.class));
+    }
+
+    @Test
+    void handshakeHandler_deberiaAnunciarSubprotocolosDeSenalizacion() {
+        DefaultHandshakeHandler hh = config.handshakeHandler();
+
+        assertArrayEquals(
+                new String[] { "uplearn.signal.v1.cbor", "uplearn.signal.v1.json" },
+                hh.getSupportedProtocols());
     }
 
     @Test
@@ -56,4 +76,11 @@ class WebSocketConfigTest {
         assertEquals(1024, bean.getMaxBinaryMessageBufferSize());
         assertEquals(60_000L, bean.getMaxSessionIdleTimeout());
     }
+
+    @Test
+    void handshakeHandler_deberiaUsarLaPoliticaDeDeflate() {
+        DefaultHandshakeHandler hh = config.handshakeHandler();
+
+        assertInstanceOf(DeflateUpgradeStrategy.class, hh.getRequestUpgradeStrategy());
+    }
 }
@@ -0,0 +1,180 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de BatchingPublisher con un pipeline en memoria.
+ */
+class BatchingPublisherTest {
+
+    /** Pipeline falso: guarda los PUBLISH pendientes y los lotes enviados. */
+    static class FakePipeline implements BatchingPublisher.Pipeline {
+        final List<String> pending = new ArrayList<>();
+        final List<List<String>> flushed = new CopyOnWriteArrayList<>();
+        volatile RuntimeException failWith;
+
+        @Override
+        public CompletionStage<Long> publish(byte[] channel, byte[] message) {
+            pending.add(new String(channel, StandardCharsets.UTF_8) + "|"
+                    + new String(message, StandardCharsets.UTF_8));
+            return failWith == null
+                    ? CompletableFuture.completedFuture(1L)
+                    : CompletableFuture.failedFuture(failWith);
+        }
+
+        @Override
+        public void flush() {
+            flushed.add(List.copyOf(pending));
+            pending.clear();
+        }
+
+        @Override
+        public void close() {
+        }
+
+        List<String> all() {
+            return flushed.stream().flatMap(List::stream).toList();
+        }
+    }
+
+    private BatchingPublisher publisher;
+
+    @AfterEach
+    void tearDown() {
+        if (publisher != null) {
+            publisher.shutdown();
+        }
+    }
+
+    private static void awaitSize(FakePipeline pipeline, int n) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (pipeline.all().size() < n && System.nanoTime() < deadline) {
+            Thread.sleep(2);
+        }
+    }
+
+    @Test
+    void publish_deberiaAgruparHastaElTamanoMaximo_casoFeliz1() throws Exception {
+        FakePipeline pipeline = new FakePipeline();
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        // Ventana larga: solo el tamaño máximo dispara el envío
+        publisher = new BatchingPublisher(() -> pipeline, registry, 5_000_000, 4);
+
+        for (int i = 0; i < 8; i++) {
+            publisher.publish("call:S1", "m" + i);
+        }
+        awaitSize(pipeline, 8);
+
+        assertEquals(2, pipeline.flushed.size());
+        assertEquals(4, pipeline.flushed.get(0).size());
+        assertEquals(2, registry.get("pubsub.publish.batch.size").summary().count());
+        assertEquals(8, registry.get("pubsub.publish.latency").timer().count());
+    }
+
+    @Test
+    void publish_deberiaEnviarAlVencerLaVentana_casoFeliz2() throws Exception {
+        FakePipeline pipeline = new FakePipeline();
+        publisher = new BatchingPublisher(() -> pipeline, new SimpleMeterRegistry(), 1000, 64);
+
+        publisher.publish("call:S1", "solo");
+        awaitSize(pipeline, 1);
+
+        assertEquals(List.of(List.of("call:S1|solo")), pipeline.flushed);
+    }
+
+    @Test
+    void publish_deberiaConservarElOrdenPorCanal_casoFeliz3() throws Exception {
+        FakePipeline pipeline = new FakePipeline();
+        publisher = new BatchingPublisher(() -> pipeline, new SimpleMeterRegistry(), 200, 3);
+
+        List<String> esperado = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            String ch = "call:S" + (i % 2);
+            publisher.publish(ch, "m" + i);
+            esperado.add(ch + "|m" + i);
+        }
+        awaitSize(pipeline, 50);
+
+        assertEquals(esperado, pipeline.all());
+    }
+
+    @Test
+    void publish_deberiaArrancarUnSoloHiloConVariosPublicadores_casoFeliz5() throws Exception {
+        FakePipeline pipeline = new FakePipeline();
+        AtomicInteger conexiones = new AtomicInteger();
+        publisher = new BatchingPublisher(() -> {
+            conexiones.incrementAndGet();
+            return pipeline;
+        }, new SimpleMeterRegistry(), 200, 64);
+        int threads = 8;
+        int perThread = 100;
+        CountDownLatch go = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            for (int t = 0; t < threads; t++) {
+                String ch = "call:S" + t;
+                pool.execute(() -> {
+                    try {
+                        go.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                    for (int i = 0; i < perThread; i++) {
+                        publisher.publish(ch, "m" + i);
+                    }
+                });
+            }
+            go.countDown();
+            awaitSize(pipeline, threads * perThread);
+        } finally {
+            pool.shutdown();
+        }
+
+        assertEquals(threads * perThread, pipeline.all().size());
+        assertEquals(1, conexiones.get());
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoRedisFalla_seNotificaElError() throws Exception {
+        FakePipeline pipeline = new FakePipeline();
+        pipeline.failWith = new IllegalStateException("down");
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        publisher = new BatchingPublisher(() -> pipeline, registry, 100, 64);
+        AtomicReference<Throwable> error = new AtomicReference<>();
+        CountDownLatch latch = new CountDownLatch(1);
+        publisher.onFailure(ex -> {
+            error.set(ex);
+            latch.countDown();
+        });
+
+        publisher.publish("call:S1", "x");
+
+        assertTrue(latch.await(5, TimeUnit.SECONDS));
+        assertEquals("down", error.get().getMessage());
+        assertEquals(1.0, registry.get("pubsub.publish.failed").counter().count());
+    }
+
+    @Test
+    void enabled_deberiaSerFalso_sinRedis_casoFeliz4() {
+        BatchingPublisher off = new BatchingPublisher(null, new SimpleMeterRegistry(), true, 1000, 64);
+
+        assertFalse(off.enabled());
+    }
+}
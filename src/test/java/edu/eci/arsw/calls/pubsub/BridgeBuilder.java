@@ -0,0 +1,83 @@
+package edu.eci.arsw.calls.pubsub;
+
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Construye un {@link RedisPubSubBridge} para las pruebas con los valores por
+ * defecto de la configuración ({@code app.pubsub.mode=channel}, patrón
+ * {@code call:*}) y sin colaboradores opcionales; cada prueba añade solo los
+ * que usa. Sin {@link #redis} el puente queda en modo local.
+ */
+public final class BridgeBuilder {
+    private final NodeIdentity node;
+    private StringRedisTemplate template;
+    private RedisMessageListenerContainer container;
+    private String mode = "channel";
+    private String nodePattern = "call:*";
+    private SessionDirectory directory;
+    private BatchingPublisher publisher;
+    private RedisStreamTransport streams;
+    private RedisHealth health;
+    private StripedDispatcher dispatcher;
+    private WireCodec codec;
+
+    private BridgeBuilder(String nodeId) {
+        this.node = new NodeIdentity(nodeId);
+    }
+
+    /**
+     * @param nodeId ID del nodo.
+     * @return Constructor de un puente local.
+     */
+    public static BridgeBuilder node(String nodeId) {
+        return new BridgeBuilder(nodeId);
+    }
+
+    public BridgeBuilder redis(StringRedisTemplate template, RedisMessageListenerContainer container) {
+        this.template = template;
+        this.container = container;
+        return this;
+    }
+
+    public BridgeBuilder mode(String mode, String nodePattern) {
+        this.mode = mode;
+        this.nodePattern = nodePattern;
+        return this;
+    }
+
+    public BridgeBuilder directory(SessionDirectory directory) {
+        this.directory = directory;
+        return this;
+    }
+
+    public BridgeBuilder publisher(BatchingPublisher publisher) {
+        this.publisher = publisher;
+        return this;
+    }
+
+    public BridgeBuilder streams(RedisStreamTransport streams) {
+        this.streams = streams;
+        return this;
+    }
+
+    public BridgeBuilder health(RedisHealth health) {
+        this.health = health;
+        return this;
+    }
+
+    public BridgeBuilder dispatcher(StripedDispatcher dispatcher) {
+        this.dispatcher = dispatcher;
+        return this;
+    }
+
+    public BridgeBuilder codec(WireCodec codec) {
+        this.codec = codec;
+        return this;
+    }
+
+    public RedisPubSubBridge build() {
+        return new RedisPubSubBridge(template, container, node, mode, nodePattern, directory, publisher, streams,
+                health, dispatcher, codec);
+    }
+}
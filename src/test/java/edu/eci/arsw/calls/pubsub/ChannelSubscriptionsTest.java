@@ -0,0 +1,185 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ChannelSubscriptionsTest {
+
+    private static final Consumer<RelayFrame> NOOP = f -> {
+    };
+
+    // -------------------------------------------------------------------------
+    // retain(String channel, Supplier consumer)
+    // -------------------------------------------------------------------------
+
+    @Test
+    void retain_deberiaSuscribirSoloConLaPrimeraReferencia_casoFeliz1() {
+        RedisPubSubBridge bridge = mock(RedisPubSubBridge.class);
+        ChannelSubscriptions channels = new ChannelSubscriptions(bridge, new SimpleMeterRegistry(), 0);
+
+        channels.retain("call:S1", () -> NOOP);
+        channels.retain("call:S1", () -> NOOP);
+
+        verify(bridge, times(1)).subscribe(eq("call:S1"), any());
+        assertEquals(2, channels.refs("call:S1"));
+        assertEquals(1, channels.active());
+    }
+
+    @Test
+    void retain_noDeberiaBloquearOtroCanal_mientrasSeSuscribe_casoFeliz2() throws Exception {
+        RedisPubSubBridge bridge = mock(RedisPubSubBridge.class);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        String slow = "call:S1";
+        String other = sameBin(slow);
+        doAnswer(inv -> {
+            entered.countDown();
+            proceed.await();
+            return null;
+        }).when(bridge).subscribe(eq(slow), any());
+        ChannelSubscriptions channels = new ChannelSubscriptions(bridge, new SimpleMeterRegistry(), 0);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> first = pool.submit(() -> channels.retain(slow, () -> NOOP));
+            assertTrue(entered.await(2, TimeUnit.SECONDS));
+            Future<?> second = pool.submit(() -> channels.retain(slow, () -> NOOP));
+
+            channels.retain(other, () -> NOOP);
+            assertThrows(TimeoutException.class, () -> second.get(100, TimeUnit.MILLISECONDS));
+
+            proceed.countDown();
+            first.get(2, TimeUnit.SECONDS);
+            second.get(2, TimeUnit.SECONDS);
+            verify(bridge, times(1)).subscribe(eq(slow), any());
+            assertEquals(2, channels.refs(slow));
+        } finally {
+            proceed.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // release(String channel)
+    // -------------------------------------------------------------------------
+
+    @Test
+    void release_deberiaDesuscribirConLaUltimaReferencia_casoFeliz1() {
+        RedisPubSubBridge bridge = mock(RedisPubSubBridge.class);
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        ChannelSubscriptions channels = new ChannelSubscriptions(bridge, meters, 0);
+        channels.retain("call:S1", () -> NOOP);
+        channels.retain("call:S1", () -> NOOP);
+
+        channels.release("call:S1");
+        verify(bridge, never()).unsubscribe(anyString());
+
+        channels.release("call:S1");
+        verify(bridge).unsubscribe("call:S1");
+        assertEquals(0, channels.active());
+        assertEquals(0, meters.get("pubsub.channels.active").gauge().value());
+        assertEquals(1, meters.get("pubsub.channels.unsubscribed").counter().count());
+    }
+
+    @Test
+    void release_deberiaEsperarLaGracia_casoFeliz2() {
+        RedisPubSubBridge bridge = mock(RedisPubSubBridge.class);
+        ChannelSubscriptions channels = new ChannelSubscriptions(bridge, new SimpleMeterRegistry(), 50);
+        channels.retain("call:S1", () -> NOOP);
+
+        channels.release("call:S1");
+
+        assertEquals(1, channels.active());
+        await().atMost(Duration.ofSeconds(2)).untilAsserted(() -> verify(bridge).unsubscribe("call:S1"));
+        assertEquals(0, channels.active());
+        channels.shutdown();
+    }
+
+    @Test
+    void release_noDeberiaDesuscribir_cuandoSeReconectaDuranteLaGracia() throws Exception {
+        RedisPubSubBridge bridge = mock(RedisPubSubBridge.class);
+        ChannelSubscriptions channels = new ChannelSubscriptions(bridge, new SimpleMeterRegistry(), 50);
+        channels.retain("call:S1", () -> NOOP);
+
+        channels.release("call:S1");
+        channels.retain("call:S1", () -> NOOP);
+        Thread.sleep(200);
+
+        verify(bridge, never()).unsubscribe(anyString());
+        verify(bridge, times(1)).subscribe(eq("call:S1"), any());
+        assertEquals(1, channels.refs("call:S1"));
+        channels.shutdown();
+    }
+
+    @Test
+    void retain_deberiaResuscribirTrasElUnsubscribe_cuandoSeReconectaMientrasSeCierra() throws Exception {
+        RedisPubSubBridge bridge = mock(RedisPubSubBridge.class);
+        CountDownLatch entered = new CountDownLatch(1);
+        CountDownLatch proceed = new CountDownLatch(1);
+        doAnswer(inv -> {
+            entered.countDown();
+            proceed.await();
+            return null;
+        }).when(bridge).unsubscribe("call:S1");
+        ChannelSubscriptions channels = new ChannelSubscriptions(bridge, new SimpleMeterRegistry(), 0);
+        channels.retain("call:S1", () -> NOOP);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> closing = pool.submit(() -> channels.release("call:S1"));
+            assertTrue(entered.await(2, TimeUnit.SECONDS));
+            Future<?> rejoin = pool.submit(() -> channels.retain("call:S1", () -> NOOP));
+            assertThrows(TimeoutException.class, () -> rejoin.get(100, TimeUnit.MILLISECONDS));
+
+            proceed.countDown();
+            closing.get(2, TimeUnit.SECONDS);
+            rejoin.get(2, TimeUnit.SECONDS);
+            InOrder order = inOrder(bridge);
+            order.verify(bridge).subscribe(eq("call:S1"), any());
+            order.verify(bridge).unsubscribe("call:S1");
+            order.verify(bridge).subscribe(eq("call:S1"), any());
+            assertEquals(1, channels.refs("call:S1"));
+            assertEquals(1, channels.active());
+        } finally {
+            proceed.countDown();
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void release_noDeberiaPasar_cuandoElCanalNoEstaRetenido() {
+        RedisPubSubBridge bridge = mock(RedisPubSubBridge.class);
+        ChannelSubscriptions channels = new ChannelSubscriptions(bridge, new SimpleMeterRegistry(), 0);
+
+        assertDoesNotThrow(() -> channels.release("call:X"));
+        verifyNoInteractions(bridge);
+    }
+
+    /** Otro canal que cae en el mismo bin de un {@code ConcurrentHashMap} de 16 posiciones. */
+    private static String sameBin(String channel) {
+        int bin = spread(channel.hashCode()) & 15;
+        for (int i = 0; ; i++) {
+            String candidate = "call:B" + i;
+            if (!candidate.equals(channel) && (spread(candidate.hashCode()) & 15) == bin) {
+                return candidate;
+            }
+        }
+    }
+
+    private static int spread(int h) {
+        return (h ^ (h >>> 16)) & 0x7fffffff;
+    }
+}
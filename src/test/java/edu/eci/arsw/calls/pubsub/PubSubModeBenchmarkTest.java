@@ -0,0 +1,109 @@
+package edu.eci.arsw.calls.pubsub;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Latencia publicación → entrega a través de Redis según el número de llamadas
+ * activas en el nodo receptor, con un listener por canal ({@code channel}) y
+ * con una sola suscripción por nodo ({@code node}). Necesita Redis en
+ * {@code REDIS_HOST}/{@code REDIS_PORT} (por defecto localhost:6379); sin Redis
+ * se omite. Se ejecuta con {@code mvn -Pperf test}.
+ */
+@Tag("benchmark")
+class PubSubModeBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(PubSubModeBenchmarkTest.class);
+
+    private static final int[] ACTIVE_CALLS = { 10, 100, 1_000, 5_000 };
+    private static final int MESSAGES = 2_000;
+
+    @Test
+    void compararLatenciaPorCanalVsPorNodo() throws Exception {
+        LettuceConnectionFactory cf = RealRedis.connect();
+        try {
+            assumeTrue(RealRedis.reachable(cf), "Redis no disponible");
+            StringRedisTemplate template = new StringRedisTemplate(cf);
+
+            for (int calls : ACTIVE_CALLS) {
+                Result channel = run(cf, template, "channel", calls);
+                Result node = run(cf, template, "node", calls);
+                log.info("{} llamadas | channel: p50 {} us, p99 {} us | node: p50 {} us, p99 {} us",
+                        calls, channel.p50Us(), channel.p99Us(), node.p50Us(), node.p99Us());
+            }
+        } finally {
+            cf.destroy();
+        }
+    }
+
+    private static Result run(LettuceConnectionFactory cf, StringRedisTemplate template, String mode, int calls)
+            throws Exception {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(cf);
+        container.afterPropertiesSet();
+        container.start();
+        try {
+            RedisPubSubBridge receiver = BridgeBuilder.node("rx").redis(null, container).mode(mode, "bench:*").build();
+            AtomicLongArray received = new AtomicLongArray(MESSAGES);
+            CountDownLatch delivered = new CountDownLatch(MESSAGES);
+            CountDownLatch ready = new CountDownLatch(1);
+            for (int c = 0; c < calls; c++) {
+                receiver.subscribe("bench:" + c, f -> {
+                    if (f.type().equals("PROBE")) {
+                        ready.countDown();
+                        return;
+                    }
+                    int k = Integer.parseInt(f.body());
+                    if (received.compareAndSet(k, 0, System.nanoTime())) {
+                        delivered.countDown();
+                    }
+                });
+            }
+
+            // Las suscripciones son asíncronas: se espera a que llegue un PROBE al último canal
+            String probe = RelayFrame.of("tx", "PROBE", "").stamped("tx").sequenced(0, null).encode();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (!ready.await(50, TimeUnit.MILLISECONDS)) {
+                assertTrue(System.nanoTime() < deadline, "Suscripciones no activas");
+                template.convertAndSend("bench:" + (calls - 1), probe);
+            }
+
+            long[] sent = new long[MESSAGES];
+            for (int k = 0; k < MESSAGES; k++) {
+                String channel = "bench:" + ThreadLocalRandom.current().nextInt(calls);
+                String wire = RelayFrame.of("tx", "OFFER", Integer.toString(k)).stamped("tx").sequenced(k, null)
+                        .encode();
+                sent[k] = System.nanoTime();
+                template.convertAndSend(channel, wire);
+                LockSupport.parkNanos(200_000);
+            }
+            assertTrue(delivered.await(60, TimeUnit.SECONDS), "Mensajes sin entregar");
+
+            long[] lat = new long[MESSAGES];
+            for (int k = 0; k < MESSAGES; k++) {
+                lat[k] = received.get(k) - sent[k];
+            }
+            Arrays.sort(lat);
+            return new Result(lat[MESSAGES / 2] / 1_000, lat[(int) (MESSAGES * 0.99)] / 1_000);
+        } finally {
+            container.destroy();
+        }
+    }
+
+    private record Result(long p50Us, long p99Us) {
+    }
+}
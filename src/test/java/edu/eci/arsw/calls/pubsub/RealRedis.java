@@ -0,0 +1,39 @@
+package edu.eci.arsw.calls.pubsub;
+
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+
+/**
+ * Conexión al Redis real de las pruebas que lo necesitan, en
+ * {@code REDIS_HOST}/{@code REDIS_PORT} (por defecto localhost:6379). Sin
+ * Redis, la prueba se salta con {@code assumeTrue(RealRedis.reachable(cf))}.
+ */
+public final class RealRedis {
+
+    private RealRedis() {
+    }
+
+    /**
+     * @return Factoría inicializada; quien la crea la destruye.
+     */
+    public static LettuceConnectionFactory connect() {
+        LettuceConnectionFactory cf = new LettuceConnectionFactory(new RedisStandaloneConfiguration(
+                System.getenv().getOrDefault("REDIS_HOST", "localhost"),
+                Integer.parseInt(System.getenv().getOrDefault("REDIS_PORT", "6379"))));
+        cf.afterPropertiesSet();
+        return cf;
+    }
+
+    /**
+     * @param cf Factoría de {@link #connect()}.
+     * @return true si Redis responde al PING.
+     */
+    public static boolean reachable(LettuceConnectionFactory cf) {
+        try (RedisConnection c = cf.getConnection()) {
+            return "PONG".equals(c.ping());
+        } catch (Exception e) {
+            return false;
+        }
+    }
+}
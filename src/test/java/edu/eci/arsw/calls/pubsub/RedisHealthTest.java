@@ -0,0 +1,131 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.lettuce.core.ClientOptions;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.RedisStandaloneConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceClientConfiguration;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de RedisHealth: sondeo con espera exponencial y vuelta a UP.
+ */
+class RedisHealthTest {
+
+    private static void awaitState(RedisHealth health, RedisHealth.State expected) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(15);
+        while (health.state() != expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, health.state());
+    }
+
+    @Test
+    void down_deberiaRecuperarseCuandoRedisVuelve_casoFeliz1() throws Exception {
+        try (RedisStandIn redis = new RedisStandIn().start()) {
+            LettuceConnectionFactory cf = new LettuceConnectionFactory(
+                    new RedisStandaloneConfiguration("127.0.0.1", redis.port()),
+                    LettuceClientConfiguration.builder()
+                            .commandTimeout(Duration.ofMillis(500))
+                            .clientOptions(ClientOptions.builder()
+                                    .disconnectedBehavior(ClientOptions.DisconnectedBehavior.REJECT_COMMANDS)
+                                    .build())
+                            .build());
+            cf.afterPropertiesSet();
+            SimpleMeterRegistry registry = new SimpleMeterRegistry();
+            RedisHealth health = new RedisHealth(new StringRedisTemplate(cf), registry, 20, 200);
+            AtomicInteger recoveries = new AtomicInteger();
+            health.onRecovered(recoveries::incrementAndGet);
+            try {
+                assertEquals("PONG", cf.getConnection().ping());
+
+                redis.stop();
+                health.down(new IllegalStateException("conexión perdida"));
+                Thread.sleep(300);
+
+                assertEquals(RedisHealth.State.DOWN, health.state());
+                assertEquals(0, recoveries.get());
+                assertEquals(0.0, registry.get("pubsub.redis.up").gauge().value());
+
+                redis.start();
+                awaitState(health, RedisHealth.State.UP);
+
+                assertEquals(1, recoveries.get());
+                assertEquals(1.0, registry.get("pubsub.redis.up").gauge().value());
+                assertEquals(1.0, registry.get("pubsub.redis.transitions").tag("to", "down").counter().count());
+                assertEquals(1.0, registry.get("pubsub.redis.transitions").tag("to", "up").counter().count());
+            } finally {
+                health.shutdown();
+                cf.destroy();
+            }
+        }
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoLaRecuperacionFalla_sigueSondeando() throws Exception {
+        AtomicBoolean resubscribeOk = new AtomicBoolean(false);
+        AtomicInteger attempts = new AtomicInteger();
+        RedisHealth health = new RedisHealth(() -> true, new SimpleMeterRegistry(), 5, 20);
+        health.onRecovered(() -> {
+            attempts.incrementAndGet();
+            if (!resubscribeOk.get()) {
+                throw new IllegalStateException("sigue fallando");
+            }
+        });
+        try {
+            health.down(new IllegalStateException("x"));
+            Thread.sleep(150);
+            assertEquals(RedisHealth.State.DOWN, health.state());
+            assertTrue(attempts.get() >= 2);
+
+            resubscribeOk.set(true);
+            awaitState(health, RedisHealth.State.UP);
+        } finally {
+            health.shutdown();
+        }
+    }
+
+    @Test
+    void down_deberiaSeguirSondeando_cuandoRedisFallaDuranteLaRecuperacion_casoFeliz3() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        RedisHealth health = new RedisHealth(() -> true, new SimpleMeterRegistry(), 5, 20);
+        health.onRecovered(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                // Redis se cae justo después de reemitir las suscripciones
+                health.down(new IllegalStateException("caída durante la recuperación"));
+            }
+        });
+        try {
+            health.down(new IllegalStateException("x"));
+
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (attempts.get() < 2 && System.nanoTime() < deadline) {
+                Thread.sleep(10);
+            }
+            assertEquals(2, attempts.get());
+            awaitState(health, RedisHealth.State.UP);
+        } finally {
+            health.shutdown();
+        }
+    }
+
+    @Test
+    void down_noDeberiaHacerNada_sinRedis_casoFeliz2() {
+        RedisHealth health = new RedisHealth((java.util.function.BooleanSupplier) null,
+                new SimpleMeterRegistry(), 5, 20);
+
+        health.down(new IllegalStateException("x"));
+
+        assertFalse(health.enabled());
+        assertEquals(RedisHealth.State.UP, health.state());
+        health.shutdown();
+    }
+}
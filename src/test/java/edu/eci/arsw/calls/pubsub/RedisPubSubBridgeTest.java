@@ -1,16 +1,21 @@
 package edu.eci.arsw.calls.pubsub;
 
 import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.connection.DefaultMessage;
 import org.springframework.data.redis.connection.MessageListener;
 import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.PatternTopic;
 import org.springframework.data.redis.listener.RedisMessageListenerContainer;
 import org.springframework.data.redis.listener.Topic;
 
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Set;
 import java.util.function.Consumer;
 
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.*;
 
 /**
@@ -20,23 +25,23 @@ class RedisPubSubBridgeTest {
 
     @Test
     void publishYSubscribe_deberianFuncionarEnModoLocal_sinRedis_casoFeliz1() {
-        RedisPubSubBridge bridge = new RedisPubSubBridge(null, null);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").build();
 
         List<String> recibidos = new ArrayList<>();
-        Consumer<String> consumer = recibidos::add;
+        Consumer<RelayFrame> consumer = f -> recibidos.add(f.body());
 
         bridge.subscribe("ch1", consumer);
-        bridge.publish("ch1", "hola");
+        bridge.publish("ch1", RelayFrame.of("U1", "OFFER", "hola"));
 
         assertEquals(List.of("hola"), recibidos);
     }
 
     @Test
     void publish_noDeberiaFallar_sinSuscriptores_casoFeliz2() {
-        RedisPubSubBridge bridge = new RedisPubSubBridge(null, null);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").build();
 
         // No hay suscriptores, simplemente no debe lanzar excepción
-        assertDoesNotThrow(() -> bridge.publish("ch2", "mensaje"));
+        assertDoesNotThrow(() -> bridge.publish("ch2", RelayFrame.of("U1", "OFFER", "mensaje")));
     }
 
     @Test
@@ -44,7 +49,7 @@ class RedisPubSubBridgeTest {
         StringRedisTemplate template = mock(StringRedisTemplate.class);
         RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
 
-        RedisPubSubBridge bridge = new RedisPubSubBridge(template, container);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).build();
 
         // Suscripción, verificamos que se registre el listener en el container
         bridge.subscribe("ch-redis", payload -> {});
@@ -54,9 +59,9 @@ class RedisPubSubBridgeTest {
                 any(Topic.class)
         );
 
-        bridge.publish("ch-redis", "hola");
+        bridge.publish("ch-redis", RelayFrame.of("U1", "OFFER", "hola").sequenced(1, null));
 
-        verify(template).convertAndSend("ch-redis", "hola");
+        verify(template).convertAndSend("ch-redis", "R12:n12:U15:OFFER1;hola");
     }
 
     @Test
@@ -64,17 +69,499 @@ class RedisPubSubBridgeTest {
         StringRedisTemplate template = mock(StringRedisTemplate.class);
         RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
 
-        RedisPubSubBridge bridge = new RedisPubSubBridge(template, container);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).build();
 
         List<String> recibidos = new ArrayList<>();
-        bridge.subscribe("ch-fail", recibidos::add);
+        bridge.subscribe("ch-fail", f -> recibidos.add(f.body()));
 
         doThrow(new RuntimeException("redis down"))
-                .when(template).convertAndSend("ch-fail", "msg");
+                .when(template).convertAndSend(eq("ch-fail"), anyString());
 
         // Debe seguir entregando localmente aunque Redis falle
-        bridge.publish("ch-fail", "msg");
+        bridge.publish("ch-fail", RelayFrame.of("U1", "OFFER", "msg"));
 
         assertEquals(List.of("msg"), recibidos);
     }
+
+    @Test
+    void subscribe_deberiaEntregarCabeceraYCuerpoDesdeRedis_casoFeliz4() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).build();
+
+        List<RelayFrame> recibidos = new ArrayList<>();
+        bridge.subscribe("ch-in", recibidos::add);
+
+        var captor = org.mockito.ArgumentCaptor.forClass(MessageListener.class);
+        verify(container).addMessageListener(captor.capture(), any(Topic.class));
+
+        String wire = new RelayFrame("n2", "U2", "ICE_CANDIDATE", 9L, "{\"type\":\"ICE_CANDIDATE\"}").encode();
+        captor.getValue().onMessage(new DefaultMessage("ch-in".getBytes(StandardCharsets.UTF_8),
+                wire.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(1, recibidos.size());
+        RelayFrame f = recibidos.get(0);
+        assertEquals("n2", f.originNode());
+        assertEquals("U2", f.originUser());
+        assertEquals(9L, f.seq());
+        assertEquals("{\"type\":\"ICE_CANDIDATE\"}", f.body());
+    }
+
+    @Test
+    void subscribe_noDeberiaEntregar_cuandoLaCabeceraEstaCorrupta() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).build();
+
+        List<RelayFrame> recibidos = new ArrayList<>();
+        bridge.subscribe("ch-bad", recibidos::add);
+
+        var captor = org.mockito.ArgumentCaptor.forClass(MessageListener.class);
+        verify(container).addMessageListener(captor.capture(), any(Topic.class));
+
+        captor.getValue().onMessage(new DefaultMessage("ch-bad".getBytes(StandardCharsets.UTF_8),
+                "R1x:roto".getBytes(StandardCharsets.UTF_8)), null);
+
+        assertTrue(recibidos.isEmpty());
+    }
+
+    @Test
+    void unsubscribe_deberiaRetirarListenerYConsumidores_casoFeliz1() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).build();
+
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("ch-out", f -> recibidos.add(f.body()));
+        var captor = org.mockito.ArgumentCaptor.forClass(MessageListener.class);
+        verify(container).addMessageListener(captor.capture(), any(Topic.class));
+
+        bridge.unsubscribe("ch-out");
+        bridge.publish("ch-out", RelayFrame.of("U1", "OFFER", "tarde"));
+
+        verify(container).removeMessageListener(eq(captor.getValue()), any(Topic.class));
+        assertTrue(recibidos.isEmpty());
+        assertEquals(0, bridge.localChannels());
+    }
+
+    @Test
+    void subscribe_deberiaVolverASuscribirEnRedis_trasUnsubscribe_casoFeliz5() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).build();
+
+        bridge.subscribe("ch-re", f -> {
+        });
+        bridge.unsubscribe("ch-re");
+        bridge.subscribe("ch-re", f -> {
+        });
+
+        verify(container, times(2)).addMessageListener(any(MessageListener.class), any(Topic.class));
+        assertEquals(1, bridge.localChannels());
+    }
+
+    @Test
+    void subscribe_deberiaUsarUnaSolaSuscripcion_enModoNodo_casoFeliz6() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).mode("node", "call:*").build();
+
+        List<String> a = new ArrayList<>();
+        List<String> b = new ArrayList<>();
+        bridge.subscribe("call:A", f -> a.add(f.body()));
+        bridge.subscribe("call:B", f -> b.add(f.body()));
+
+        var listener = org.mockito.ArgumentCaptor.forClass(MessageListener.class);
+        var topic = org.mockito.ArgumentCaptor.forClass(Topic.class);
+        verify(container, times(1)).addMessageListener(listener.capture(), topic.capture());
+        assertEquals("call:*", topic.getValue().getTopic());
+
+        String wire = new RelayFrame("n2", "U2", "OFFER", 1L, "para-A").encode();
+        listener.getValue().onMessage(new DefaultMessage("call:A".getBytes(StandardCharsets.UTF_8),
+                wire.getBytes(StandardCharsets.UTF_8)), "call:*".getBytes(StandardCharsets.UTF_8));
+        listener.getValue().onMessage(new DefaultMessage("call:Z".getBytes(StandardCharsets.UTF_8),
+                wire.getBytes(StandardCharsets.UTF_8)), "call:*".getBytes(StandardCharsets.UTF_8));
+
+        assertEquals(List.of("para-A"), a);
+        assertTrue(b.isEmpty());
+    }
+
+    @Test
+    void unsubscribe_deberiaConservarLaSuscripcionDelNodo_enModoNodo() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).mode("node", "call:*").build();
+
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("call:A", f -> recibidos.add(f.body()));
+        var listener = org.mockito.ArgumentCaptor.forClass(MessageListener.class);
+        verify(container).addMessageListener(listener.capture(), any(Topic.class));
+
+        bridge.unsubscribe("call:A");
+        listener.getValue().onMessage(new DefaultMessage("call:A".getBytes(StandardCharsets.UTF_8),
+                RelayFrame.of("U2", "OFFER", "tarde").stamped("n2").sequenced(1L, null).encode()
+                        .getBytes(StandardCharsets.UTF_8)), null);
+
+        verify(container, never()).removeMessageListener(any(MessageListener.class), any(Topic.class));
+        assertTrue(recibidos.isEmpty());
+    }
+
+    // -------------------------------------------------------------------------
+    // Enrutamiento por directorio
+    // -------------------------------------------------------------------------
+
+    private static SessionDirectory directoryWith(Set<String> nodes) {
+        SessionDirectory dir = mock(SessionDirectory.class);
+        when(dir.enabled()).thenReturn(true);
+        when(dir.nodes(anyString())).thenReturn(nodes);
+        return dir;
+    }
+
+    @Test
+    void publish_noDeberiaUsarRedis_cuandoTodosLosParesSonLocales_casoFeliz7() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        SessionDirectory dir = directoryWith(Set.of("n1"));
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).directory(dir).build();
+
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("call:S1", f -> recibidos.add(f.body()));
+        bridge.publish("call:S1", RelayFrame.of("U1", "OFFER", "hola"));
+
+        verify(dir).join("call:S1");
+        verify(template, never()).convertAndSend(anyString(), anyString());
+        assertEquals(List.of("hola"), recibidos);
+    }
+
+    @Test
+    void publish_deberiaEscribirSoloEnElBuzonDeLosOtrosNodos_casoFeliz8() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container)
+                .directory(directoryWith(Set.of("n1", "n2"))).build();
+
+        bridge.publish("call:S1", RelayFrame.of("U1", "OFFER", "hola").sequenced(1, null));
+
+        verify(template).convertAndSend("node:n2", "D17:call:S1R12:n12:U15:OFFER1;hola");
+        verify(template, times(1)).convertAndSend(anyString(), anyString());
+    }
+
+    @Test
+    void publishTo_deberiaEscribirSoloEnElBuzonDelNodoDelDestinatario_casoFeliz20() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container)
+                .directory(directoryWith(Set.of("n1", "n2", "n3"))).build();
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("call:S1", f -> recibidos.add(f.body()));
+        RelayFrame frame = RelayFrame.of("U1", "OFFER", "hola").addressed("U3");
+
+        assertEquals(RedisPubSubBridge.Route.DIRECT, bridge.publishTo("call:S1", "n3", frame));
+
+        verify(template).convertAndSend("node:n3", frame.stamped("n1").encodeFor("call:S1"));
+        verify(template, times(1)).convertAndSend(anyString(), anyString());
+        assertTrue(recibidos.isEmpty());
+    }
+
+    @Test
+    void publishTo_deberiaEntregarSoloLocal_cuandoElDestinatarioEsDeEsteNodo_casoFeliz21() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container)
+                .directory(directoryWith(Set.of("n1", "n2"))).build();
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("call:S1", f -> recibidos.add(f.target() + "|" + f.body()));
+
+        assertEquals(RedisPubSubBridge.Route.LOCAL,
+                bridge.publishTo("call:S1", "n1", RelayFrame.of("U1", "OFFER", "hola").addressed("U2")));
+
+        verify(template, never()).convertAndSend(anyString(), anyString());
+        assertEquals(List.of("U2|hola"), recibidos);
+    }
+
+    @Test
+    void publishTo_deberiaPublicarEnElCanal_sinNodoConocido_casoFeliz22() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).build();
+        RelayFrame frame = RelayFrame.of("U1", "ICE_CANDIDATE", "{}").addressed("U2");
+
+        assertEquals(RedisPubSubBridge.Route.CHANNEL, bridge.publishTo("call:S1", null, frame));
+        assertEquals(RedisPubSubBridge.Route.CHANNEL, bridge.publishTo("call:S1", "n2", frame));
+
+        verify(template, times(2)).convertAndSend("call:S1", frame.stamped("n1").encode());
+    }
+
+    @Test
+    void subscribe_deberiaEntregarDesdeElBuzonDelNodo_casoFeliz9() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        SessionDirectory dir = directoryWith(Set.of("n1"));
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).directory(dir).build();
+
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("call:S1", f -> recibidos.add(f.body()));
+        bridge.subscribe("call:S2", f -> recibidos.add("S2"));
+
+        var listener = org.mockito.ArgumentCaptor.forClass(MessageListener.class);
+        var topic = org.mockito.ArgumentCaptor.forClass(Topic.class);
+        verify(container, times(1)).addMessageListener(listener.capture(), topic.capture());
+        assertEquals("node:n1", topic.getValue().getTopic());
+
+        String wire = RelayFrame.of("U2", "ANSWER", "sdp").stamped("n2").sequenced(5L, null).encodeFor("call:S1");
+        listener.getValue().onMessage(new DefaultMessage("node:n1".getBytes(StandardCharsets.UTF_8),
+                wire.getBytes(StandardCharsets.UTF_8)), null);
+
+        assertEquals(List.of("sdp"), recibidos);
+        verify(dir).observed("call:S1", "n2");
+    }
+
+    // -------------------------------------------------------------------------
+    // Entrega exactamente una vez
+    // -------------------------------------------------------------------------
+
+    @Test
+    void publish_deberiaEntregarUnaVez_conRedisActivo_casoFeliz10() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).build();
+
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("ch-once", f -> recibidos.add(f.body()));
+        var listener = org.mockito.ArgumentCaptor.forClass(MessageListener.class);
+        verify(container).addMessageListener(listener.capture(), any(Topic.class));
+        // Redis devuelve cada publicación a los suscriptores, incluido este nodo
+        doAnswer(inv -> {
+            listener.getValue().onMessage(new DefaultMessage(
+                    inv.<String>getArgument(0).getBytes(StandardCharsets.UTF_8),
+                    inv.<String>getArgument(1).getBytes(StandardCharsets.UTF_8)), null);
+            return null;
+        }).when(template).convertAndSend(anyString(), anyString());
+
+        bridge.publish("ch-once", RelayFrame.of("U1", "OFFER", "o1"));
+        bridge.publish("ch-once", RelayFrame.of("U1", "ICE_CANDIDATE", "i1"));
+
+        assertEquals(List.of("o1", "i1"), recibidos);
+    }
+
+    @Test
+    void publish_deberiaEntregarUnaVez_sinRedis_casoFeliz11() {
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").build();
+
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("ch-once", f -> recibidos.add(f.body()));
+        bridge.publish("ch-once", RelayFrame.of("U1", "OFFER", "o1"));
+        bridge.publish("ch-once", RelayFrame.of("U1", "ICE_CANDIDATE", "i1"));
+
+        assertEquals(List.of("o1", "i1"), recibidos);
+    }
+
+    @Test
+    void publish_deberiaUsarElPublicadorPorLotes_cuandoEstaActivo_casoFeliz12() throws Exception {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        BatchingPublisherTest.FakePipeline pipeline = new BatchingPublisherTest.FakePipeline();
+        BatchingPublisher publisher = new BatchingPublisher(() -> pipeline,
+                new io.micrometer.core.instrument.simple.SimpleMeterRegistry(), 100, 64);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).publisher(publisher).build();
+        try {
+            List<String> recibidos = new ArrayList<>();
+            bridge.subscribe("ch-batch", f -> recibidos.add(f.body()));
+
+            bridge.publish("ch-batch", RelayFrame.of("U1", "ICE_CANDIDATE", "i1"));
+
+            // La entrega local no espera a Redis
+            assertEquals(List.of("i1"), recibidos);
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (pipeline.all().isEmpty() && System.nanoTime() < deadline) {
+                Thread.sleep(2);
+            }
+            assertEquals(1, pipeline.all().size());
+            assertTrue(pipeline.all().get(0).startsWith("ch-batch|"));
+            verify(template, never()).convertAndSend(anyString(), anyString());
+        } finally {
+            publisher.shutdown();
+        }
+    }
+
+    // -------------------------------------------------------------------------
+    // Transporte por streams
+    // -------------------------------------------------------------------------
+
+    private static RedisStreamTransport streams() {
+        RedisStreamTransport streams = mock(RedisStreamTransport.class);
+        when(streams.enabled()).thenReturn(true);
+        return streams;
+    }
+
+    @Test
+    void publish_deberiaEscribirEnElStreamYEntregarConId_casoFeliz13() {
+        RedisStreamTransport streams = streams();
+        when(streams.append(eq("ch-s"), anyString())).thenReturn("4-0");
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(mock(StringRedisTemplate.class), null)
+                .streams(streams).build();
+
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("ch-s", f -> recibidos.add(f.body()));
+        bridge.publish("ch-s", RelayFrame.of("U1", "OFFER", "{\"type\":\"OFFER\"}"));
+
+        verify(streams).follow("ch-s");
+        assertEquals(List.of("{\"streamId\":\"4-0\",\"type\":\"OFFER\"}"), recibidos);
+    }
+
+    @Test
+    void streams_deberianEntregarSoloMensajesDeOtrosNodos_casoFeliz14() {
+        RedisStreamTransport streams = streams();
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(mock(StringRedisTemplate.class), null)
+                .streams(streams).build();
+        var listener = org.mockito.ArgumentCaptor.forClass(RedisStreamTransport.Listener.class);
+        verify(streams).listen(listener.capture(), any());
+
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("ch-s", f -> recibidos.add(f.body()));
+        listener.getValue().deliver("ch-s", "5-0",
+                RelayFrame.of("U1", "OFFER", "{}").stamped("n1").sequenced(1, null).encode());
+        listener.getValue().deliver("ch-s", "6-0",
+                RelayFrame.of("U2", "ANSWER", "{}").stamped("n2").sequenced(1, null).encode());
+
+        assertEquals(List.of("{\"streamId\":\"6-0\"}"), recibidos);
+    }
+
+    @Test
+    void replay_deberiaDevolverLosMensajesPosteriores_casoFeliz15() {
+        RedisStreamTransport streams = streams();
+        when(streams.range("ch-s", "1-0")).thenReturn(List.of(
+                new RedisStreamTransport.Entry("2-0",
+                        RelayFrame.of("U2", "OFFER", "{}").stamped("n2").sequenced(1, null).encode()),
+                new RedisStreamTransport.Entry("3-0",
+                        RelayFrame.of("U2", "ICE_CANDIDATE", "{}").stamped("n2").sequenced(2, null).encode())));
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(mock(StringRedisTemplate.class), null)
+                .streams(streams).build();
+
+        List<String> tipos = new ArrayList<>();
+        int n = bridge.replay("ch-s", "1-0", f -> tipos.add(f.type() + "@" + f.body()));
+
+        assertEquals(2, n);
+        assertEquals(List.of("OFFER@{\"streamId\":\"2-0\"}", "ICE_CANDIDATE@{\"streamId\":\"3-0\"}"), tipos);
+    }
+
+    @Test
+    void replay_noDeberiaDevolverNada_conPubSub() {
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").build();
+
+        assertEquals(0, bridge.replay("ch-s", "1-0", f -> fail("sin streams no hay replay")));
+    }
+
+    // -------------------------------------------------------------------------
+    // Recuperación tras una caída de Redis
+    // -------------------------------------------------------------------------
+
+    @Test
+    void recuperacion_deberiaVolverARedisYReemitirLasSuscripciones_casoFeliz16() throws Exception {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        java.util.concurrent.atomic.AtomicBoolean redisArriba = new java.util.concurrent.atomic.AtomicBoolean();
+        RedisHealth health = new RedisHealth(redisArriba::get,
+                new io.micrometer.core.instrument.simple.SimpleMeterRegistry(), 5, 20);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).health(health).build();
+        try {
+            bridge.subscribe("ch-a", f -> {});
+            doThrow(new IllegalStateException("redis caído"))
+                    .when(template).convertAndSend(anyString(), anyString());
+            bridge.publish("ch-a", RelayFrame.of("U1", "OFFER", "o1"));
+            assertEquals(RedisHealth.State.DOWN, health.state());
+
+            // En modo local: ni publica ni suscribe en Redis
+            bridge.subscribe("ch-b", f -> {});
+            bridge.publish("ch-a", RelayFrame.of("U1", "OFFER", "o2"));
+            verify(template, times(1)).convertAndSend(anyString(), anyString());
+            verify(container, times(1)).addMessageListener(any(MessageListener.class), any(Topic.class));
+
+            doReturn(1L).when(template).convertAndSend(anyString(), anyString());
+            redisArriba.set(true);
+            long deadline = System.nanoTime() + 5_000_000_000L;
+            while (health.state() != RedisHealth.State.UP && System.nanoTime() < deadline) {
+                Thread.sleep(5);
+            }
+            assertEquals(RedisHealth.State.UP, health.state());
+
+            verify(container).removeMessageListener(any(MessageListener.class), eq(new PatternTopic("ch-a")));
+            verify(container, times(2)).addMessageListener(any(MessageListener.class), eq(new PatternTopic("ch-a")));
+            verify(container).addMessageListener(any(MessageListener.class), eq(new PatternTopic("ch-b")));
+            bridge.publish("ch-a", RelayFrame.of("U1", "OFFER", "o3"));
+            verify(template, times(2)).convertAndSend(eq("ch-a"), anyString());
+        } finally {
+            health.shutdown();
+        }
+    }
+
+    @Test
+    void recuperacion_deberiaReemitirLaSuscripcionDelNodo_casoFeliz17() {
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(mock(StringRedisTemplate.class), container)
+                .mode("node", "call:*").build();
+        bridge.subscribe("call:S1", f -> {});
+        bridge.subscribe("call:S2", f -> {});
+
+        bridge.recover();
+
+        verify(container).removeMessageListener(any(MessageListener.class), eq(new PatternTopic("call:*")));
+        verify(container, times(2)).addMessageListener(any(MessageListener.class), eq(new PatternTopic("call:*")));
+    }
+
+    @Test
+    void subscribe_deberiaEntregarEnElCarrilDelCanal_casoFeliz18() throws Exception {
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        StripedDispatcher dispatcher = new StripedDispatcher(
+                new io.micrometer.core.instrument.simple.SimpleMeterRegistry(), 2, 100, Set.of("ICE_CANDIDATE"), 1_000);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(mock(StringRedisTemplate.class), container)
+                .dispatcher(dispatcher).build();
+        try {
+            List<String> hilos = new java.util.concurrent.CopyOnWriteArrayList<>();
+            java.util.concurrent.CountDownLatch entregados = new java.util.concurrent.CountDownLatch(2);
+            bridge.subscribe("ch-lane", f -> {
+                hilos.add(Thread.currentThread().getName() + "|" + f.body());
+                entregados.countDown();
+            });
+            var listener = org.mockito.ArgumentCaptor.forClass(MessageListener.class);
+            verify(container).addMessageListener(listener.capture(), any(Topic.class));
+
+            for (String body : List.of("a", "b")) {
+                String wire = RelayFrame.of("U2", "OFFER", body).stamped("n2").sequenced(1, null).encode();
+                listener.getValue().onMessage(new DefaultMessage("ch-lane".getBytes(StandardCharsets.UTF_8),
+                        wire.getBytes(StandardCharsets.UTF_8)), null);
+            }
+
+            assertTrue(entregados.await(5, java.util.concurrent.TimeUnit.SECONDS));
+            assertEquals(2, hilos.size());
+            assertTrue(hilos.get(0).startsWith("pubsub-lane-") && hilos.get(0).endsWith("|a"));
+            assertTrue(hilos.get(1).endsWith("|b"));
+        } finally {
+            dispatcher.shutdown();
+        }
+    }
+
+    @Test
+    void publishYSubscribe_deberianUsarElFormatoBinario_casoFeliz19() {
+        StringRedisTemplate template = mock(StringRedisTemplate.class);
+        RedisMessageListenerContainer container = mock(RedisMessageListenerContainer.class);
+        WireCodec codec = new WireCodec(new io.micrometer.core.instrument.simple.SimpleMeterRegistry(), "binary", 16);
+        RedisPubSubBridge bridge = BridgeBuilder.node("n1").redis(template, container).codec(codec).build();
+
+        List<String> recibidos = new ArrayList<>();
+        bridge.subscribe("ch-bin", f -> recibidos.add(f.type() + "|" + f.body()));
+        var listener = org.mockito.ArgumentCaptor.forClass(MessageListener.class);
+        verify(container).addMessageListener(listener.capture(), any(Topic.class));
+
+        bridge.publish("ch-bin", RelayFrame.of("U1", "OFFER", "{\"sdp\":\"v=0\"}"));
+        verify(template).execute(any(org.springframework.data.redis.core.RedisCallback.class));
+        verify(template, never()).convertAndSend(anyString(), anyString());
+
+        // Mensaje binario de otro nodo
+        byte[] remoto = codec.encode(
+                RelayFrame.of("U2", "ANSWER", "{\"sdp\":\"v=0 answer\"}").stamped("n2").sequenced(1, null));
+        listener.getValue().onMessage(new DefaultMessage("ch-bin".getBytes(StandardCharsets.UTF_8), remoto), null);
+
+        assertEquals(List.of("OFFER|{\"sdp\":\"v=0\"}", "ANSWER|{\"sdp\":\"v=0 answer\"}"), recibidos);
+    }
 }
@@ -0,0 +1,140 @@
+package edu.eci.arsw.calls.pubsub;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Servidor local que habla lo justo del protocolo de Redis (RESP) para las
+ * pruebas: PING responde PONG, HELLO se rechaza (el cliente vuelve a RESP2) y
+ * cualquier otro comando responde OK. Se puede parar y volver a arrancar en el
+ * mismo puerto para simular una caída de Redis.
+ */
+class RedisStandIn implements AutoCloseable {
+    private final List<Socket> clients = new CopyOnWriteArrayList<>();
+    private volatile ServerSocket server;
+    private int port;
+
+    /**
+     * Arranca en un puerto libre (o en el mismo tras {@link #stop()}).
+     *
+     * @return Este servidor.
+     * @throws IOException Si no se puede abrir el puerto.
+     */
+    synchronized RedisStandIn start() throws IOException {
+        ServerSocket s = new ServerSocket();
+        s.setReuseAddress(true);
+        s.bind(new InetSocketAddress("127.0.0.1", port));
+        port = s.getLocalPort();
+        server = s;
+        Thread acceptor = new Thread(() -> accept(s), "redis-stand-in");
+        acceptor.setDaemon(true);
+        acceptor.start();
+        return this;
+    }
+
+    int port() {
+        return port;
+    }
+
+    /**
+     * Cierra el puerto y corta las conexiones abiertas.
+     */
+    synchronized void stop() {
+        try {
+            if (server != null) {
+                server.close();
+            }
+        } catch (IOException ignore) {
+            /* noop */ }
+        for (Socket c : clients) {
+            try {
+                c.close();
+            } catch (IOException ignore) {
+                /* noop */ }
+        }
+        clients.clear();
+    }
+
+    @Override
+    public void close() {
+        stop();
+    }
+
+    private void accept(ServerSocket s) {
+        while (!s.isClosed()) {
+            try {
+                Socket c = s.accept();
+                clients.add(c);
+                Thread t = new Thread(() -> serve(c), "redis-stand-in-client");
+                t.setDaemon(true);
+                t.start();
+            } catch (IOException e) {
+                return;
+            }
+        }
+    }
+
+    private void serve(Socket c) {
+        try (c; InputStream in = new BufferedInputStream(c.getInputStream());
+                OutputStream out = c.getOutputStream()) {
+            while (true) {
+                String command = readCommand(in);
+                if (command == null) {
+                    return;
+                }
+                String reply = switch (command) {
+                    case "PING" -> "+PONG\r\n";
+                    case "HELLO" -> "-ERR unknown command 'HELLO'\r\n";
+                    default -> "+OK\r\n";
+                };
+                out.write(reply.getBytes(StandardCharsets.US_ASCII));
+                out.flush();
+            }
+        } catch (IOException ignore) {
+            /* conexión cerrada */ }
+    }
+
+    /** Lee un comando RESP ({@code *n} + {@code $len} por argumento) y devuelve su nombre. */
+    private static String readCommand(InputStream in) throws IOException {
+        String header = readLine(in);
+        if (header == null) {
+            return null;
+        }
+        if (!header.startsWith("*")) {
+            return header.trim().toUpperCase(Locale.ROOT);
+        }
+        int args = Integer.parseInt(header.substring(1));
+        String name = null;
+        for (int i = 0; i < args; i++) {
+            int len = Integer.parseInt(readLine(in).substring(1));
+            byte[] arg = in.readNBytes(len + 2);
+            if (i == 0) {
+                name = new String(arg, 0, len, StandardCharsets.UTF_8).toUpperCase(Locale.ROOT);
+            }
+        }
+        return name;
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        int b;
+        while ((b = in.read()) != -1) {
+            if (b == '\r') {
+                in.read();
+                return line.toString(StandardCharsets.UTF_8);
+            }
+            line.write(b);
+        }
+        return null;
+    }
+}
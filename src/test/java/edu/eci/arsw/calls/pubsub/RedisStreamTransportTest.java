@@ -0,0 +1,134 @@
+package edu.eci.arsw.calls.pubsub;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.domain.Range;
+import org.springframework.data.redis.connection.Limit;
+import org.springframework.data.redis.connection.stream.MapRecord;
+import org.springframework.data.redis.connection.stream.RecordId;
+import org.springframework.data.redis.connection.stream.StreamOffset;
+import org.springframework.data.redis.connection.stream.StreamReadOptions;
+import org.springframework.data.redis.connection.stream.StreamRecords;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StreamOperations;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Pruebas de RedisStreamTransport con Redis simulado.
+ */
+class RedisStreamTransportTest {
+
+    private StringRedisTemplate template;
+    private StreamOperations<String, Object, Object> ops;
+    private RedisStreamTransport transport;
+
+    @SuppressWarnings("unchecked")
+    private RedisStreamTransport build() {
+        template = mock(StringRedisTemplate.class);
+        ops = mock(StreamOperations.class);
+        when(template.opsForStream()).thenReturn(ops);
+        transport = new RedisStreamTransport(template, "streams", 100, 10, 60);
+        return transport;
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (transport != null) {
+            transport.shutdown();
+        }
+    }
+
+    private static MapRecord<String, Object, Object> record(String channel, String id, String wire) {
+        return StreamRecords.<String, Object, Object>mapBacked(
+                Map.<Object, Object>of(RedisStreamTransport.FIELD, wire))
+                .withStreamKey(RedisStreamTransport.KEY_PREFIX + channel)
+                .withId(RecordId.of(id));
+    }
+
+    @Test
+    void enabled_deberiaDependerDelTransporteConfigurado_casoFeliz1() {
+        StringRedisTemplate t = mock(StringRedisTemplate.class);
+
+        assertTrue(new RedisStreamTransport(t, "STREAMS", 100, 10, 60).enabled());
+        assertFalse(new RedisStreamTransport(t, "pubsub", 100, 10, 60).enabled());
+        assertFalse(new RedisStreamTransport(null, "streams", 100, 10, 60).enabled());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void append_deberiaDevolverElIdAsignado_casoFeliz2() {
+        build();
+        when(template.executePipelined(any(RedisCallback.class))).thenReturn(List.of(RecordId.of("5-0"), true));
+
+        assertEquals("5-0", transport.append("call:S1", "R1..."));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void range_deberiaExcluirElUltimoIdVisto_casoFeliz3() {
+        build();
+        when(ops.range(eq("stream:call:S1"), any(Range.class))).thenReturn(List.of(
+                record("call:S1", "1-0", "a"), record("call:S1", "2-0", "b"), record("call:S1", "3-0", "c")));
+
+        List<RedisStreamTransport.Entry> entries = transport.range("call:S1", "1-0");
+
+        assertEquals(List.of(new RedisStreamTransport.Entry("2-0", "b"), new RedisStreamTransport.Entry("3-0", "c")),
+                entries);
+    }
+
+    @Test
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    void readOnce_deberiaEntregarYAvanzarDesdeElUltimoMensaje_casoFeliz4() {
+        build();
+        when(ops.reverseRange(eq("stream:call:S1"), any(Range.class), any(Limit.class)))
+                .thenReturn(List.of(record("call:S1", "7-0", "viejo")));
+        when(ops.read(any(StreamReadOptions.class), any(StreamOffset[].class)))
+                .thenReturn(List.of(record("call:S1", "8-0", "nuevo")))
+                .thenReturn(List.of());
+        // Sin hilo lector: las lecturas se hacen a mano
+        transport.shutdown();
+        List<String> recibidos = new ArrayList<>();
+        transport.listen((channel, id, wire) -> recibidos.add(channel + "|" + id + "|" + wire), ex -> {
+        });
+
+        transport.follow("call:S1");
+        transport.readOnce();
+        transport.readOnce();
+
+        assertEquals(List.of("call:S1|8-0|nuevo"), recibidos);
+        ArgumentCaptor<StreamOffset> offsets = ArgumentCaptor.forClass(StreamOffset.class);
+        verify(ops, times(2)).read(any(StreamReadOptions.class), offsets.capture());
+        assertEquals("7-0", offsets.getAllValues().get(0).getOffset().getOffset());
+        assertEquals("8-0", offsets.getAllValues().get(1).getOffset().getOffset());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void noDeberiaPasar_cuandoElCanalYaNoSeSigue_seDescartaElMensaje() {
+        build();
+        when(ops.reverseRange(anyString(), any(Range.class), any(Limit.class))).thenReturn(List.of());
+        List<String> recibidos = new ArrayList<>();
+        // Sin hilo lector: las lecturas se hacen a mano
+        transport.shutdown();
+        transport.listen((channel, id, wire) -> recibidos.add(wire), ex -> {
+        });
+        transport.follow("call:S1");
+        when(ops.read(any(StreamReadOptions.class), any(StreamOffset[].class))).thenAnswer(inv -> {
+            transport.unfollow("call:S1");
+            return List.of(record("call:S1", "1-0", "tarde"));
+        });
+
+        transport.readOnce();
+
+        assertTrue(recibidos.isEmpty());
+    }
+}
@@ -0,0 +1,108 @@
+package edu.eci.arsw.calls.pubsub;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del formato de cable de RelayFrame.
+ */
+class RelayFrameTest {
+
+    @Test
+    void encodeYDecode_deberianConservarCabeceraYCuerpo_casoFeliz1() {
+        String body = "{\"type\":\"OFFER\",\"payload\":{\"sdp\":\"a=x:1;2\"}}";
+        RelayFrame frame = RelayFrame.of("U1", "OFFER", body).stamped("node-A").sequenced(42L, null);
+
+        RelayFrame back = RelayFrame.decode(frame.encode());
+
+        assertEquals(frame, back);
+        assertTrue(back.hasHeader());
+    }
+
+    @Test
+    void decode_deberiaAceptarCamposNulos_casoFeliz2() {
+        RelayFrame frame = new RelayFrame("n1", null, null, 7L, "{}");
+
+        RelayFrame back = RelayFrame.decode(frame.encode());
+
+        assertNull(back.originUser());
+        assertNull(back.type());
+        assertEquals(7L, back.seq());
+        assertEquals("{}", back.body());
+    }
+
+    @Test
+    void decode_deberiaTratarTextoSinPrefijoComoLegado_casoFeliz3() {
+        RelayFrame back = RelayFrame.decode("{\"type\":\"OFFER\"}");
+
+        assertFalse(back.hasHeader());
+        assertEquals("{\"type\":\"OFFER\"}", back.body());
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoLaCabeceraEstaCorrupta() {
+        assertThrows(IllegalArgumentException.class, () -> RelayFrame.decode("R1x:roto"));
+        assertThrows(IllegalArgumentException.class, () -> RelayFrame.decode("R12:n1"));
+    }
+
+    @Test
+    void encodeForYDecodeRouted_deberianConservarCanalYMensaje_casoFeliz4() {
+        RelayFrame frame = RelayFrame.of("U1", "ICE_CANDIDATE", "{\"a\":\"b:c\"}").stamped("node-A")
+                .sequenced(3L, null);
+
+        RelayFrame.Routed back = RelayFrame.decodeRouted(frame.encodeFor("call:S1"));
+
+        assertEquals("call:S1", back.channel());
+        assertEquals(frame, back.frame());
+    }
+
+    @Test
+    void decodeRouted_noDeberiaPasar_cuandoNoEsMensajeDeBuzon() {
+        assertThrows(IllegalArgumentException.class,
+                () -> RelayFrame.decodeRouted(RelayFrame.of("U1", "OFFER", "x").encode()));
+        assertThrows(IllegalArgumentException.class, () -> RelayFrame.decodeRouted("D1-1:R1"));
+        assertThrows(IllegalArgumentException.class, () -> RelayFrame.decodeRouted("D1x:roto"));
+    }
+
+    @Test
+    void withStreamId_deberiaAnteponerElIdAlCuerpo_casoFeliz5() {
+        RelayFrame f = RelayFrame.of("U1", "OFFER", "{\"type\":\"OFFER\"}");
+
+        assertEquals("{\"streamId\":\"9-1\",\"type\":\"OFFER\"}", f.withStreamId("9-1").body());
+        assertEquals("{\"streamId\":\"9-1\"}", RelayFrame.of("U1", "X", "{}").withStreamId("9-1").body());
+        assertEquals("texto", RelayFrame.of("U1", "X", "texto").withStreamId("9-1").body());
+    }
+
+    @Test
+    void encodeYDecode_deberianConservarSecuenciaYTraceId_casoFeliz6() {
+        RelayFrame frame = RelayFrame.of("U1", "OFFER", "{\"type\":\"OFFER\"}").sequenced(4L, "01TRACE")
+                .stamped("node-A");
+
+        String wire = frame.encode();
+        RelayFrame back = RelayFrame.decode(wire);
+
+        assertTrue(wire.startsWith("R2"));
+        assertEquals(frame, back);
+        assertEquals(4L, back.seq());
+        assertEquals("01TRACE", back.traceId());
+        assertEquals(frame, RelayFrame.decodeRouted(frame.encodeFor("call:S1")).frame());
+    }
+
+    @Test
+    void encodeYDecode_deberianConservarElDestinatario_casoFeliz7() {
+        RelayFrame frame = RelayFrame.of("U1", "ANSWER", "{\"type\":\"ANSWER\"}").addressed("U7")
+                .sequenced(2L, "01TRACE").stamped("node-A");
+        RelayFrame untraced = RelayFrame.of("U1", "OFFER", "{}").addressed("U3").stamped("node-A").sequenced(1L, null);
+
+        String wire = frame.encode();
+
+        assertTrue(wire.startsWith("R3"));
+        assertEquals(frame, RelayFrame.decode(wire));
+        assertEquals("U7", RelayFrame.decode(wire).target());
+        assertEquals(untraced, RelayFrame.decode(untraced.encode()));
+        assertNull(RelayFrame.decode(untraced.encode()).traceId());
+        assertEquals(frame, RelayFrame.decodeRouted(frame.encodeFor("call:S1")).frame());
+        assertEquals("U7", frame.withStreamId("9-1").target());
+    }
+}
@@ -0,0 +1,112 @@
+package edu.eci.arsw.calls.pubsub;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.ZSetOperations;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class SessionDirectoryTest {
+
+    private StringRedisTemplate template;
+    private ZSetOperations<String, String> zset;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        template = mock(StringRedisTemplate.class);
+        zset = mock(ZSetOperations.class);
+        when(template.opsForZSet()).thenReturn(zset);
+    }
+
+    private SessionDirectory directory(long cacheMs) {
+        return new SessionDirectory(template, new NodeIdentity("n1"), "directory", 15_000, cacheMs);
+    }
+
+    // -------------------------------------------------------------------------
+    // join / leave
+    // -------------------------------------------------------------------------
+
+    @Test
+    void join_deberiaAnotarElNodoConArriendoEnUnSoloScript_casoFeliz1() {
+        SessionDirectory dir = directory(1_000);
+        long before = System.currentTimeMillis();
+
+        dir.join("call:S1");
+        dir.join("call:S1");
+
+        verify(template, times(1)).execute(eq(SessionDirectory.LEASE), eq(List.of("dir:call:S1")), eq("n1"),
+                anyString(), argThat(expires -> Long.parseLong((String) expires) >= before + 15_000), eq("30000"));
+        verifyNoInteractions(zset);
+    }
+
+    @Test
+    void leave_deberiaRetirarElNodo_casoFeliz1() {
+        SessionDirectory dir = directory(1_000);
+        dir.join("call:S1");
+
+        dir.leave("call:S1");
+        dir.leave("call:S1");
+
+        verify(zset, times(1)).remove("dir:call:S1", "n1");
+    }
+
+    @Test
+    void refresh_deberiaRenovarSoloCanalesLocales_casoFeliz1() {
+        SessionDirectory dir = directory(1_000);
+        dir.join("call:S1");
+        dir.join("call:S2");
+        dir.leave("call:S2");
+        clearInvocations(template);
+
+        dir.refresh();
+
+        verify(template).execute(eq(SessionDirectory.LEASE), eq(List.of("dir:call:S1")), any(Object[].class));
+        verify(template, never()).execute(eq(SessionDirectory.LEASE), eq(List.of("dir:call:S2")),
+                any(Object[].class));
+    }
+
+    // -------------------------------------------------------------------------
+    // nodes / observed
+    // -------------------------------------------------------------------------
+
+    @Test
+    void nodes_deberiaCachearLaConsulta_casoFeliz1() {
+        SessionDirectory dir = directory(60_000);
+        when(zset.rangeByScore(eq("dir:call:S1"), anyDouble(), eq(Double.POSITIVE_INFINITY)))
+                .thenReturn(Set.of("n1", "n2"));
+
+        assertEquals(Set.of("n1", "n2"), dir.nodes("call:S1"));
+        assertEquals(Set.of("n1", "n2"), dir.nodes("call:S1"));
+
+        verify(zset, times(1)).rangeByScore(anyString(), anyDouble(), anyDouble());
+    }
+
+    @Test
+    void observed_deberiaAgregarNodoALaCache_casoFeliz2() {
+        SessionDirectory dir = directory(60_000);
+        when(zset.rangeByScore(anyString(), anyDouble(), anyDouble())).thenReturn(Set.of("n1"));
+        dir.nodes("call:S1");
+
+        dir.observed("call:S1", "n3");
+
+        assertEquals(Set.of("n1", "n3"), dir.nodes("call:S1"));
+    }
+
+    @Test
+    void enabled_noDeberiaActivarse_conEnrutamientoBroadcast() {
+        SessionDirectory dir = new SessionDirectory(template, new NodeIdentity("n1"), "broadcast", 15_000, 1_000);
+
+        dir.join("call:S1");
+        dir.refresh();
+
+        assertFalse(dir.enabled());
+        verifyNoInteractions(zset);
+    }
+}
@@ -0,0 +1,230 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas de StripedDispatcher.
+ */
+class StripedDispatcherTest {
+
+    private static final Supplier<String> OFFER = () -> "OFFER";
+    private static final Supplier<String> ICE = () -> "ICE_CANDIDATE";
+
+    private StripedDispatcher dispatcher;
+
+    @AfterEach
+    void tearDown() {
+        if (dispatcher != null) {
+            dispatcher.shutdown();
+        }
+    }
+
+    /** Dos canales que caen en carriles distintos. */
+    private static String[] channelsOnDifferentLanes(StripedDispatcher d) {
+        String first = "call:S0";
+        for (int i = 1; ; i++) {
+            String other = "call:S" + i;
+            if (d.laneOf(other) != d.laneOf(first)) {
+                return new String[] { first, other };
+            }
+        }
+    }
+
+    @Test
+    void execute_deberiaConservarElOrdenPorCanal_casoFeliz1() throws Exception {
+        dispatcher = new StripedDispatcher(new SimpleMeterRegistry(), 4, 100_000, Set.of("ICE_CANDIDATE"), 1_000);
+        int channels = 16;
+        int perChannel = 2_000;
+        Map<String, List<Integer>> recibidos = new ConcurrentHashMap<>();
+        CountDownLatch done = new CountDownLatch(channels * perChannel);
+
+        // Un productor por canal, todos a la vez
+        ExecutorService producers = Executors.newFixedThreadPool(channels);
+        for (int c = 0; c < channels; c++) {
+            String ch = "call:S" + c;
+            List<Integer> lista = Collections.synchronizedList(new ArrayList<>());
+            recibidos.put(ch, lista);
+            producers.execute(() -> {
+                for (int k = 0; k < perChannel; k++) {
+                    int n = k;
+                    dispatcher.execute(ch, OFFER, () -> {
+                        lista.add(n);
+                        done.countDown();
+                    });
+                }
+            });
+        }
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        producers.shutdown();
+
+        for (List<Integer> lista : recibidos.values()) {
+            for (int k = 0; k < perChannel; k++) {
+                assertEquals(k, lista.get(k));
+            }
+        }
+    }
+
+    @Test
+    void execute_deberiaAvanzarOtrosCanalesSiUnoSeBloquea_casoFeliz2() throws Exception {
+        dispatcher = new StripedDispatcher(new SimpleMeterRegistry(), 2, 100, Set.of("ICE_CANDIDATE"), 1_000);
+        String[] ch = channelsOnDifferentLanes(dispatcher);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch otro = new CountDownLatch(1);
+
+        dispatcher.execute(ch[0], OFFER, () -> {
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatcher.execute(ch[1], OFFER, otro::countDown);
+
+        assertTrue(otro.await(5, TimeUnit.SECONDS));
+        liberar.countDown();
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoElCarrilEstaLleno_seDescartaYSeCuenta() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        dispatcher = new StripedDispatcher(registry, 1, 2, Set.of("ICE_CANDIDATE"), 1_000);
+        CountDownLatch liberar = blockLane("call:S1");
+
+        assertTrue(dispatcher.execute("call:S1", ICE, () -> {}));
+        assertTrue(dispatcher.execute("call:S1", ICE, () -> {}));
+        assertFalse(dispatcher.execute("call:S1", ICE, () -> {}));
+
+        assertEquals(2.0, registry.get("pubsub.dispatch.queue.depth").tag("lane", "0").gauge().value());
+        assertEquals(1.0, registry.get("pubsub.dispatch.rejected").counter().count());
+        assertEquals(0.0, registry.get("pubsub.dispatch.backpressure").counter().count());
+        liberar.countDown();
+    }
+
+    @Test
+    void execute_deberiaEsperarHuecoParaLaSenalizacion_casoFeliz4() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        dispatcher = new StripedDispatcher(registry, 1, 2, Set.of("ICE_CANDIDATE"), 5_000);
+        CountDownLatch liberar = blockLane("call:S1");
+        assertTrue(dispatcher.execute("call:S1", ICE, () -> {}));
+        assertTrue(dispatcher.execute("call:S1", ICE, () -> {}));
+
+        CountDownLatch entregado = new CountDownLatch(1);
+        ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor();
+        try {
+            timer.schedule(liberar::countDown, 100, TimeUnit.MILLISECONDS);
+            assertTrue(dispatcher.execute("call:S1", OFFER, entregado::countDown));
+        } finally {
+            timer.shutdownNow();
+        }
+
+        assertTrue(entregado.await(5, TimeUnit.SECONDS));
+        assertEquals(1.0, registry.get("pubsub.dispatch.backpressure").counter().count());
+        assertEquals(0.0, registry.get("pubsub.dispatch.rejected").counter().count());
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoLaSenalizacionNoEncuentraHueco_seDescartaTrasEsperar() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        dispatcher = new StripedDispatcher(registry, 1, 1, Set.of("ICE_CANDIDATE"), 50);
+        CountDownLatch liberar = blockLane("call:S1");
+        assertTrue(dispatcher.execute("call:S1", OFFER, () -> {}));
+
+        long start = System.nanoTime();
+        assertFalse(dispatcher.execute("call:S1", OFFER, () -> {}));
+
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertEquals(1.0, registry.get("pubsub.dispatch.backpressure").counter().count());
+        assertEquals(1.0, registry.get("pubsub.dispatch.rejected").counter().count());
+        liberar.countDown();
+    }
+
+    @Test
+    void submit_noDeberiaBloquearConElCarrilLleno_yConservaElOrden_casoFeliz5() throws Exception {
+        dispatcher = new StripedDispatcher(new SimpleMeterRegistry(), 1, 1, Set.of("ICE_CANDIDATE"), 5_000);
+        CountDownLatch liberar = blockLane("call:S1");
+        List<String> recibidos = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(3);
+        assertTrue(dispatcher.execute("call:S1", OFFER, () -> {
+            recibidos.add("a");
+            done.countDown();
+        }));
+
+        // Carril lleno: submit vuelve al momento y lo deja al hilo lector
+        long start = System.nanoTime();
+        for (String m : List.of("b", "c")) {
+            assertTrue(dispatcher.submit("call:S1", OFFER, () -> {
+                recibidos.add(m);
+                done.countDown();
+            }));
+        }
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+
+        liberar.countDown();
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(List.of("a", "b", "c"), recibidos);
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoLaColaDeLecturaEstaLlena_seDescartaSinBloquear() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        dispatcher = new StripedDispatcher(registry, 1, 1, Set.of("ICE_CANDIDATE"), 5_000);
+        CountDownLatch liberar = blockLane("call:S1");
+        assertTrue(dispatcher.execute("call:S1", OFFER, () -> {}));
+        // El hilo lector toma este y se queda esperando hueco en el carril
+        assertTrue(dispatcher.submit("call:S1", OFFER, () -> {}));
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (registry.get("pubsub.dispatch.intake.depth").gauge().value() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+
+        assertTrue(dispatcher.submit("call:S1", OFFER, () -> {}));
+        long start = System.nanoTime();
+        assertFalse(dispatcher.submit("call:S1", OFFER, () -> {}));
+
+        assertTrue(System.nanoTime() - start < TimeUnit.MILLISECONDS.toNanos(500));
+        assertEquals(1.0, registry.get("pubsub.dispatch.rejected").counter().count());
+        liberar.countDown();
+    }
+
+    @Test
+    void lanes_deberiaUsarUnCarrilPorNucleoPorDefecto_casoFeliz3() {
+        dispatcher = new StripedDispatcher(new SimpleMeterRegistry(), 0, 10, Set.of("ICE_CANDIDATE"), 1_000);
+
+        assertEquals(Runtime.getRuntime().availableProcessors(), dispatcher.lanes());
+    }
+
+    /**
+     * Ocupa el único hilo del carril de la clave hasta que se libere.
+     */
+    private CountDownLatch blockLane(String key) throws InterruptedException {
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        dispatcher.execute(key, OFFER, () -> {
+            enCurso.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(enCurso.await(5, TimeUnit.SECONDS));
+        return liberar;
+    }
+}
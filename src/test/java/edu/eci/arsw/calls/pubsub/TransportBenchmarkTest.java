@@ -0,0 +1,119 @@
+package edu.eci.arsw.calls.pubsub;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+import java.util.Arrays;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Pub/sub frente a Redis Streams entre dos nodos: latencia publicación →
+ * entrega (p50/p99, mensajes espaciados) y rendimiento (ráfaga sin pausa hasta
+ * la última entrega). Necesita Redis en {@code REDIS_HOST}/{@code REDIS_PORT}
+ * (por defecto localhost:6379); sin Redis se omite. Se ejecuta con
+ * {@code mvn -Pperf test}.
+ */
+@Tag("benchmark")
+class TransportBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(TransportBenchmarkTest.class);
+
+    private static final int MESSAGES = 5_000;
+    private static final String CHANNEL = "bench:transport";
+
+    @Test
+    void compararPubSubVsStreams() throws Exception {
+        LettuceConnectionFactory cf = RealRedis.connect();
+        try {
+            assumeTrue(RealRedis.reachable(cf), "Redis no disponible");
+            StringRedisTemplate template = new StringRedisTemplate(cf);
+            template.afterPropertiesSet();
+
+            for (String transport : new String[] { "pubsub", "streams" }) {
+                Result r = run(cf, template, transport);
+                log.info("{}: p50 {} us, p99 {} us, ráfaga {} msg/s", transport, r.p50Us(), r.p99Us(),
+                        r.throughput());
+            }
+        } finally {
+            cf.destroy();
+        }
+    }
+
+    private static Result run(LettuceConnectionFactory cf, StringRedisTemplate template, String transport)
+            throws Exception {
+        template.delete(RedisStreamTransport.KEY_PREFIX + CHANNEL);
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(cf);
+        container.afterPropertiesSet();
+        container.start();
+        RedisStreamTransport txStreams = new RedisStreamTransport(template, transport, 100_000, 100, 600);
+        RedisStreamTransport rxStreams = new RedisStreamTransport(template, transport, 100_000, 100, 600);
+        try {
+            RedisPubSubBridge tx = BridgeBuilder.node("tx").redis(template, container).streams(txStreams).build();
+            RedisPubSubBridge rx = BridgeBuilder.node("rx").redis(null, container).streams(rxStreams).build();
+
+            AtomicLongArray received = new AtomicLongArray(2 * MESSAGES);
+            CountDownLatch paced = new CountDownLatch(MESSAGES);
+            CountDownLatch burst = new CountDownLatch(MESSAGES);
+            CountDownLatch ready = new CountDownLatch(1);
+            rx.subscribe(CHANNEL, f -> {
+                if (f.type().equals("PROBE")) {
+                    ready.countDown();
+                    return;
+                }
+                int k = Integer.parseInt(f.body());
+                if (received.compareAndSet(k, 0, System.nanoTime())) {
+                    (k < MESSAGES ? paced : burst).countDown();
+                }
+            });
+
+            // La suscripción pub/sub es asíncrona: se espera a que llegue un PROBE
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+            while (!ready.await(50, TimeUnit.MILLISECONDS)) {
+                assertTrue(System.nanoTime() < deadline, "Suscripción no activa");
+                tx.publish(CHANNEL, RelayFrame.of("tx", "PROBE", ""));
+            }
+
+            long[] sent = new long[MESSAGES];
+            for (int k = 0; k < MESSAGES; k++) {
+                sent[k] = System.nanoTime();
+                tx.publish(CHANNEL, RelayFrame.of("tx", "OFFER", Integer.toString(k)));
+                LockSupport.parkNanos(200_000);
+            }
+            assertTrue(paced.await(60, TimeUnit.SECONDS), "Mensajes sin entregar");
+
+            long start = System.nanoTime();
+            for (int k = MESSAGES; k < 2 * MESSAGES; k++) {
+                tx.publish(CHANNEL, RelayFrame.of("tx", "OFFER", Integer.toString(k)));
+            }
+            assertTrue(burst.await(60, TimeUnit.SECONDS), "Ráfaga sin entregar");
+            long elapsed = System.nanoTime() - start;
+
+            long[] lat = new long[MESSAGES];
+            for (int k = 0; k < MESSAGES; k++) {
+                lat[k] = received.get(k) - sent[k];
+            }
+            Arrays.sort(lat);
+            return new Result(lat[MESSAGES / 2] / 1_000, lat[(int) (MESSAGES * 0.99)] / 1_000,
+                    MESSAGES * 1_000_000_000L / elapsed);
+        } finally {
+            txStreams.shutdown();
+            rxStreams.shutdown();
+            container.destroy();
+            template.delete(RedisStreamTransport.KEY_PREFIX + CHANNEL);
+        }
+    }
+
+    private record Result(long p50Us, long p99Us, long throughput) {
+    }
+}
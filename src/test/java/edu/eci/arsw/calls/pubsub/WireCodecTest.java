@@ -0,0 +1,119 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pruebas del formato binario entre nodos.
+ */
+class WireCodecTest {
+
+    private final WireCodec codec = new WireCodec(new SimpleMeterRegistry(), "binary", 1024);
+
+    static String offerJson() throws IOException {
+        try (InputStream in = WireCodecTest.class.getResourceAsStream("/sdp/offer-chrome.sdp")) {
+            String sdp = new String(in.readAllBytes(), StandardCharsets.UTF_8)
+                    .replace("\r", "").replace("\n", "\\r\\n");
+            return "{\"type\":\"OFFER\",\"sessionId\":\"01JB4Y7W6Q0V2K8T3M5N9P1R4S\",\"from\":\"U1\","
+                    + "\"ts\":1700000000000,\"payload\":{\"type\":\"offer\",\"sdp\":\"" + sdp + "\"}}";
+        }
+    }
+
+    @Test
+    void encodeYDecode_deberianConservarElMensaje_casoFeliz1() {
+        RelayFrame f = RelayFrame.of("U1", "ICE_CANDIDATE", "{\"type\":\"ICE_CANDIDATE\",\"ñ\":\"é\"}")
+                .stamped("n1").sequenced(300, null);
+
+        byte[] wire = codec.encode(f);
+
+        assertTrue(WireCodec.isBinary(wire));
+        assertEquals(f, WireCodec.decode(wire));
+    }
+
+    @Test
+    void encodeYDecode_deberianConservarElTraceIdEnLaVersion2_casoFeliz6() {
+        RelayFrame f = RelayFrame.of("U1", "ICE_CANDIDATE", "{}").stamped("n1").sequenced(7, "01TRACE");
+
+        byte[] wire = codec.encode(f);
+
+        assertEquals(WireCodec.TRACED_VERSION, wire[1]);
+        assertEquals(f, WireCodec.decode(wire));
+        assertEquals(WireCodec.VERSION, codec.encode(RelayFrame.of("U1", "X", "{}").stamped("n1"))[1]);
+    }
+
+    @Test
+    void encodeYDecode_deberianConservarElDestinatarioEnLaVersion3_casoFeliz7() {
+        RelayFrame f = RelayFrame.of("U1", "OFFER", "{}").addressed("U4").stamped("n1").sequenced(3, "01TRACE");
+        RelayFrame untraced = RelayFrame.of("U1", "OFFER", "{}").addressed("U4").stamped("n1").sequenced(1, null);
+
+        byte[] wire = codec.encode(f);
+
+        assertEquals(WireCodec.ADDRESSED_VERSION, wire[1]);
+        assertEquals(f, WireCodec.decode(wire));
+        assertEquals(untraced, WireCodec.decode(codec.encode(untraced)));
+        assertEquals(f, WireCodec.decodeRouted(codec.encodeRouted("call:S1", f)).frame());
+    }
+
+    @Test
+    void encode_deberiaComprimirSdpPorEncimaDelUmbral_casoFeliz2() throws IOException {
+        String body = offerJson();
+        RelayFrame f = RelayFrame.of("U1", "OFFER", body).stamped("n1").sequenced(1, null);
+
+        byte[] wire = codec.encode(f);
+
+        assertTrue(wire.length < body.length() / 2, "comprimido: " + wire.length + " de " + body.length());
+        assertEquals(f, WireCodec.decode(wire));
+    }
+
+    @Test
+    void encode_noDeberiaComprimirPorDebajoDelUmbral_casoFeliz3() {
+        String body = "{\"type\":\"ICE_CANDIDATE\"}";
+
+        byte[] wire = codec.encode(RelayFrame.of("U1", "ICE_CANDIDATE", body).stamped("n1").sequenced(1, null));
+
+        String tail = new String(wire, wire.length - body.length(), body.length(), StandardCharsets.UTF_8);
+        assertEquals(body, tail);
+    }
+
+    @Test
+    void encodeRoutedYDecodeRouted_deberianConservarElCanal_casoFeliz4() {
+        RelayFrame f = new RelayFrame("n1", null, null, 7, "{}");
+
+        RelayFrame.Routed routed = WireCodec.decodeRouted(codec.encodeRouted("call:S1", f));
+
+        assertEquals("call:S1", routed.channel());
+        assertEquals(f, routed.frame());
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoElMensajeEstaTruncado() throws IOException {
+        byte[] wire = codec.encode(RelayFrame.of("U1", "OFFER", offerJson()).stamped("n1").sequenced(1, null));
+
+        assertThrows(IllegalArgumentException.class,
+                () -> WireCodec.decode(Arrays.copyOf(wire, wire.length / 2)));
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoLaVersionEsDesconocida() {
+        byte[] wire = codec.encode(RelayFrame.of("U1", "OFFER", "{}").stamped("n1").sequenced(1, null));
+        wire[1] = 9;
+
+        assertThrows(IllegalArgumentException.class, () -> WireCodec.decode(wire));
+    }
+
+    @Test
+    void isBinary_deberiaSerFalsoParaElFormatoDeTexto_casoFeliz5() {
+        byte[] text = RelayFrame.of("U1", "OFFER", "{}").stamped("n1").sequenced(1, null).encode()
+                .getBytes(StandardCharsets.UTF_8);
+
+        assertFalse(WireCodec.isBinary(text));
+        assertFalse(new WireCodec(new SimpleMeterRegistry(), "text", 1024).binary());
+    }
+}
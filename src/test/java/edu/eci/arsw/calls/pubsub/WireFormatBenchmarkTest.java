@@ -0,0 +1,93 @@
+package edu.eci.arsw.calls.pubsub;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Formato entre nodos sobre el corpus de SDP capturado ({@code /sdp}): bytes
+ * que viajan por Redis y CPU por mensaje (encode + decode, tiempo de CPU del
+ * hilo) para texto, binario sin comprimir y binario con deflate + diccionario.
+ * Se ejecuta con {@code mvn -Pperf test}.
+ */
+@Tag("benchmark")
+class WireFormatBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(WireFormatBenchmarkTest.class);
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private static String envelope(String type, String sdpFile) throws IOException {
+        try (InputStream in = WireFormatBenchmarkTest.class.getResourceAsStream("/sdp/" + sdpFile)) {
+            assertNotNull(in, "Falta /sdp/" + sdpFile);
+            String sdp = new String(in.readAllBytes(), StandardCharsets.UTF_8)
+                    .replace("\r", "").replace("\n", "\\r\\n");
+            return "{\"type\":\"" + type + "\",\"sessionId\":\"01JB4Y7W6Q0V2K8T3M5N9P1R4S\","
+                    + "\"from\":\"6f3c1b2e-8f9a-4d0b-9c3e-2a7d5e1f4b60\",\"traceId\":\"01JB4Y7W6QAXZ3C4V5B6N7M8K9\","
+                    + "\"ts\":1700000000000,\"payload\":{\"type\":\"" + type.toLowerCase() + "\",\"sdp\":\"" + sdp
+                    + "\"}}";
+        }
+    }
+
+    @Test
+    void compararFormatosSobreCorpusSdp() throws IOException {
+        Map<String, RelayFrame> corpus = new LinkedHashMap<>();
+        corpus.put("OFFER chrome", RelayFrame.of("U1", "OFFER", envelope("OFFER", "offer-chrome.sdp"))
+                .stamped("node-a").sequenced(1, null));
+        corpus.put("ANSWER firefox", RelayFrame.of("U2", "ANSWER", envelope("ANSWER", "answer-firefox.sdp"))
+                .stamped("node-b").sequenced(2, null));
+        corpus.put("ICE_CANDIDATE", RelayFrame.of("U1", "ICE_CANDIDATE",
+                "{\"type\":\"ICE_CANDIDATE\",\"sessionId\":\"01JB4Y7W6Q0V2K8T3M5N9P1R4S\",\"payload\":{\"candidate\":"
+                        + "\"candidate:842163049 1 udp 1677729535 190.24.56.7 61234 typ srflx raddr 0.0.0.0 rport 0"
+                        + " generation 0 ufrag Xq7P network-cost 999\",\"sdpMid\":\"0\",\"sdpMLineIndex\":0}}")
+                .stamped("node-a").sequenced(3, null));
+
+        WireCodec plain = new WireCodec(new SimpleMeterRegistry(), "binary", Integer.MAX_VALUE);
+        WireCodec deflate = new WireCodec(new SimpleMeterRegistry(), "binary", 1024);
+
+        for (var e : corpus.entrySet()) {
+            RelayFrame f = e.getValue();
+            Result text = run(f, fr -> fr.encode().getBytes(StandardCharsets.UTF_8),
+                    b -> RelayFrame.decode(new String(b, StandardCharsets.UTF_8)));
+            Result bin = run(f, plain::encode, WireCodec::decode);
+            Result packed = run(f, deflate::encode, WireCodec::decode);
+            log.info("{} | texto: {} B, {} ns CPU | binario: {} B, {} ns CPU | binario+deflate: {} B, {} ns CPU",
+                    e.getKey(), text.bytes(), text.cpuNs(), bin.bytes(), bin.cpuNs(), packed.bytes(), packed.cpuNs());
+            assertTrue(packed.bytes() <= text.bytes());
+        }
+    }
+
+    private static Result run(RelayFrame frame, Function<RelayFrame, byte[]> encode,
+            Function<byte[], RelayFrame> decode) {
+        ThreadMXBean mx = ManagementFactory.getThreadMXBean();
+        byte[] wire = null;
+        for (int i = 0; i < WARMUP; i++) {
+            wire = encode.apply(frame);
+            decode.apply(wire);
+        }
+        assertEquals(frame, decode.apply(wire));
+        long start = mx.getCurrentThreadCpuTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            wire = encode.apply(frame);
+            decode.apply(wire);
+        }
+        long cpu = mx.getCurrentThreadCpuTime() - start;
+        return new Result(wire.length, cpu / ITERATIONS);
+    }
+
+    private record Result(int bytes, long cpuNs) {
+    }
+}
@@ -0,0 +1,153 @@
+package edu.eci.arsw.calls.sfu;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LocalSfuTest {
+
+    private SimpleMeterRegistry meters;
+    private LocalSfu sfu;
+
+    @BeforeEach
+    void setUp() {
+        meters = new SimpleMeterRegistry();
+        sfu = new LocalSfu(meters, true);
+    }
+
+    /** Mensajes del SFU para un participante. */
+    private record Inbox(List<String> types, List<Map<String, Object>> payloads) implements SfuSignaling.Listener {
+        Inbox() {
+            this(new ArrayList<>(), new ArrayList<>());
+        }
+
+        @Override
+        public void signal(String type, Map<String, Object> payload) {
+            types.add(type);
+            payloads.add(payload);
+        }
+
+        Map<String, Object> last(String type) {
+            for (int i = types.size() - 1; i >= 0; i--) {
+                if (types.get(i).equals(type)) {
+                    return payloads.get(i);
+                }
+            }
+            return null;
+        }
+    }
+
+    @Test
+    void offer_deberiaResponderLaSubidaYOfrecerSuPistaALosDemas_casoFeliz1() {
+        Inbox tutor = new Inbox();
+        Inbox student = new Inbox();
+        sfu.join("C1", "T", tutor);
+        sfu.join("C1", "S1", student);
+
+        sfu.offer("C1", "T", "v=0");
+
+        assertEquals(List.of("ANSWER", "ICE_CANDIDATE"), tutor.types());
+        assertEquals("send", tutor.last("ANSWER").get("transport"));
+        assertEquals(List.of("OFFER", "ICE_CANDIDATE"), student.types());
+        assertEquals(List.of("T"), student.last("OFFER").get("streams"));
+        assertEquals("recv", student.last("OFFER").get("transport"));
+        assertEquals(1, sfu.publishers("C1"));
+    }
+
+    @Test
+    void answer_deberiaFijarLaBajada_casoFeliz2() {
+        Inbox student = new Inbox();
+        sfu.join("C1", "T", new Inbox());
+        sfu.join("C1", "S1", student);
+        sfu.offer("C1", "T", "v=0");
+
+        sfu.answer("C1", "S1", "v=0");
+
+        assertEquals(List.of("T"), sfu.streams("C1", "S1"));
+        assertEquals(List.of(), sfu.streams("C1", "T"));
+    }
+
+    @Test
+    void join_deberiaOfrecerDeUnaVezLasPistasYaPublicadas_casoFeliz3() {
+        for (String u : List.of("T", "S1", "S2")) {
+            sfu.join("C1", u, new Inbox());
+            sfu.offer("C1", u, "v=0");
+        }
+        Inbox late = new Inbox();
+
+        sfu.join("C1", "S3", late);
+
+        assertEquals(List.of("OFFER", "ICE_CANDIDATE"), late.types());
+        assertEquals(List.of("T", "S1", "S2"), late.last("OFFER").get("streams"));
+    }
+
+    @Test
+    void renegociacion_deberiaJuntarCambiosMientrasHayUnaOfertaPendiente_casoFeliz4() {
+        Inbox tutor = new Inbox();
+        sfu.join("C1", "T", tutor);
+        for (String u : List.of("S1", "S2", "S3")) {
+            sfu.join("C1", u, new Inbox());
+            sfu.offer("C1", u, "v=0");
+        }
+        // Tres publicadores, pero el tutor solo tiene una oferta pendiente
+        assertEquals(1, tutor.types().stream().filter("OFFER"::equals).count());
+        assertEquals(List.of("S1"), tutor.last("OFFER").get("streams"));
+
+        sfu.answer("C1", "T", "v=0");
+
+        assertEquals(2, tutor.types().stream().filter("OFFER"::equals).count());
+        assertEquals(List.of("S1", "S2", "S3"), tutor.last("OFFER").get("streams"));
+        // T juntó dos cambios; S1 y S2, con su propia oferta pendiente, uno cada uno
+        assertEquals(4.0, meters.counter("sfu.renegotiations.coalesced").count());
+    }
+
+    @Test
+    void leave_deberiaQuitarSuPistaDeLaBajadaDeLosDemas_casoFeliz5() {
+        Inbox student = new Inbox();
+        sfu.join("C1", "T", new Inbox());
+        sfu.join("C1", "S1", student);
+        sfu.offer("C1", "T", "v=0");
+        sfu.answer("C1", "S1", "v=0");
+
+        sfu.leave("C1", "T");
+
+        assertEquals(List.of(), student.last("OFFER").get("streams"));
+        sfu.leave("C1", "S1");
+        assertEquals(0, sfu.publishers("C1"));
+    }
+
+    @Test
+    void join_deberiaReiniciarLosTransportes_cuandoElParticipanteReconecta_casoFeliz6() {
+        Inbox student = new Inbox();
+        sfu.join("C1", "T", new Inbox());
+        sfu.join("C1", "S1", student);
+        sfu.offer("C1", "T", "v=0");
+        sfu.answer("C1", "S1", "v=0");
+
+        Inbox reconnected = new Inbox();
+        sfu.join("C1", "T", reconnected);
+
+        // Hasta que vuelva a publicar su pista no está en la bajada de S1
+        assertEquals(List.of(), student.last("OFFER").get("streams"));
+        assertTrue(reconnected.types().isEmpty());
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoElParticipanteNoEstaEnLaSala() {
+        Inbox tutor = new Inbox();
+        sfu.join("C1", "T", tutor);
+
+        sfu.offer("C1", "X", "v=0");
+        sfu.answer("C2", "T", "v=0");
+        sfu.leave("C2", "T");
+
+        assertTrue(tutor.types().isEmpty());
+        assertEquals(List.of(), sfu.streams("C1", "X"));
+    }
+}
@@ -1,19 +1,29 @@
 package edu.eci.arsw.calls.ws;
 
 import edu.eci.arsw.calls.domain.CallSession;
+import edu.eci.arsw.calls.pubsub.BridgeBuilder;
 import edu.eci.arsw.calls.pubsub.RedisPubSubBridge;
+import edu.eci.arsw.calls.pubsub.RelayFrame;
 import edu.eci.arsw.calls.service.CallSessionService;
 import edu.eci.arsw.calls.service.EligibilityService;
 import edu.eci.arsw.calls.service.EligibilityService.EligibilityResult;
+import edu.eci.arsw.calls.sfu.LocalSfu;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.mockito.InOrder;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.web.socket.BinaryMessage;
 import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.time.Instant;
+import java.util.ArrayDeque;
 import java.util.Map;
 import java.util.Optional;
+import java.util.Queue;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 import java.io.IOException;
 
@@ -34,6 +44,11 @@ class CallWebSocketHandlerTest {
     private CallSessionService callService;
     private EligibilityService eligibilityService;
     private RedisPubSubBridge bridge;
+    private SignalingCodecs codecs;
+    private OutboundFrames frames;
+    private InboundDispatcher inbound;
+    private JoinPipeline joinPipeline;
+    private ConnectionContexts contexts;
 
     private CallWebSocketHandler handler;
 
@@ -43,8 +58,21 @@ class CallWebSocketHandlerTest {
         callService = mock(CallSessionService.class);
         eligibilityService = mock(EligibilityService.class);
         bridge = mock(RedisPubSubBridge.class);
+        codecs = new SignalingCodecs();
+        frames = new OutboundFrames(codecs, new SimpleMeterRegistry());
+        inbound = new InboundDispatcher(false);
+        joinPipeline = new JoinPipeline(callService, eligibilityService, new SimpleMeterRegistry(), Runnable::run,
+                2_000, 3_000, 2_000);
 
-        handler = new CallWebSocketHandler(registry, callService, eligibilityService, bridge, 10);
+        contexts = new ConnectionContexts(RateLimitPolicy.of(10));
+
+        handler = builder(bridge).build();
+    }
+
+    /** Handler con las piezas compartidas de la prueba sobre el puente dado. */
+    private HandlerBuilder builder(RedisPubSubBridge b) {
+        return HandlerBuilder.of(registry, callService, joinPipeline, b)
+                .codecs(codecs).frames(frames).inbound(inbound).contexts(contexts);
     }
 
     private WebSocketSession buildSession(String id, String userId, String token) {
@@ -102,7 +130,7 @@ class CallWebSocketHandlerTest {
                     && payload.contains("\"initiator\":true");
         }));
 
-        verify(bridge).publish(startsWith("call:CS-1"), anyString());
+        verify(bridge).publish(startsWith("call:CS-1"), any(RelayFrame.class));
     }
 
     // ---------------------------------------------------------------------
@@ -132,6 +160,29 @@ class CallWebSocketHandlerTest {
         verifyNoInteractions(callService, eligibilityService, bridge);
     }
 
+    @Test
+    void handleTextMessageShouldSendErrorBeforeClosingThroughSendQueue() throws Exception {
+        Queue<Runnable> sends = new ArrayDeque<>();
+        SendQueues queues = new SendQueues(new SimpleMeterRegistry(), sends::add, 5_000, 512 * 1024,
+                Set.of("ICE_CANDIDATE"));
+        handler = HandlerBuilder.of(registry, callService, joinPipeline, bridge).sendQueues(queues).build();
+        WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
+
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"JOIN"}
+                """));
+
+        // Nada sale hasta que corre el hilo de envío, tampoco el cierre
+        verify(session, never()).close(any(CloseStatus.class));
+        while (!sends.isEmpty()) {
+            sends.poll().run();
+        }
+        InOrder inOrder = inOrder(session);
+        inOrder.verify(session).sendMessage(argThat(message -> message instanceof TextMessage text
+                && text.getPayload().contains("Missing sessionId")));
+        inOrder.verify(session).close(CloseStatus.NOT_ACCEPTABLE);
+    }
+
     @Test
     void handleTextMessageShouldRejectJoinWhenReservationMissingAndUnknownSession() throws Exception {
         WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
@@ -222,6 +273,140 @@ class CallWebSocketHandlerTest {
         assertEquals(2, participants.size()); // sigue sin entrar el tercero
     }
 
+    @Test
+    void handleTextMessageShouldReadmitRejoiningUserWithoutTakingAnotherSlot() throws Exception {
+        WebSocketSession session = buildSession("WS4", "U1", TEST_BEARER);
+
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), eq("U1"), anyString()))
+                .thenReturn(EligibilityResult.ok());
+
+        CallSession cs = CallSession.create("CS-ROOM", TEST_RESERVATION_ID, Instant.now());
+        when(callService.findBySessionId("SID-ROOM")).thenReturn(Optional.of(cs));
+
+        registry.register("CS-ROOM", "U1", mock(WebSocketSession.class));
+        registry.register("CS-ROOM", "U2", mock(WebSocketSession.class));
+
+        String json = """
+                {"type":"JOIN","sessionId":"SID-ROOM","reservationId":"RES-1","from":"U1"}
+                """;
+
+        handler.handleTextMessage(session, new TextMessage(json));
+
+        verify(session).sendMessage(argThat(message -> message instanceof TextMessage text
+                && text.getPayload().contains("\"JOIN_ACK\"")
+                && text.getPayload().contains("\"initiator\":false")));
+        verify(session, never()).close(any(CloseStatus.class));
+
+        Map<String, WebSocketSession> participants = registry.get("CS-ROOM");
+        assertEquals(2, participants.size());
+        assertSame(session, participants.get("U1"));
+    }
+
+    @Test
+    void handleTextMessageShouldRejectJoinToAnotherCallOnJoinedConnection() throws Exception {
+        WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
+        handler.afterConnectionEstablished(session);
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), eq("U1"), anyString()))
+                .thenReturn(EligibilityResult.ok());
+        when(callService.findBySessionId("SID-1"))
+                .thenReturn(Optional.of(CallSession.create("CS-1", TEST_RESERVATION_ID, Instant.now())));
+        when(callService.findBySessionId("SID-2"))
+                .thenReturn(Optional.of(CallSession.create("CS-2", TEST_RESERVATION_ID, Instant.now())));
+
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1","from":"U1"}
+                """));
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-2","reservationId":"RES-1","from":"U1"}
+                """));
+
+        verify(session).sendMessage(argThat(message -> message instanceof TextMessage text
+                && text.getPayload().contains("Already joined another call")));
+        verify(session, never()).close(any(CloseStatus.class));
+        assertSame(session, registry.get("CS-1").get("U1"));
+        assertTrue(registry.get("CS-2").isEmpty());
+        assertEquals("CS-1", contexts.get(session).callSessionId());
+        verify(bridge, never()).subscribe(eq("call:CS-2"), any());
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        assertTrue(registry.all().isEmpty());
+        verify(bridge).unsubscribe("call:CS-1");
+    }
+
+    @Test
+    void handleTextMessageShouldRejectJoinWhenClusterRoomIsFull() throws Exception {
+        ClusterPresence presence = mock(ClusterPresence.class);
+        when(presence.enabled()).thenReturn(true);
+        when(presence.join("CS-ROOM", "U3", 2)).thenReturn(SessionRegistry.Seat.FULL);
+        handler = builder(bridge).presence(presence).build();
+        WebSocketSession session = buildSession("WS3", "U3", TEST_BEARER);
+
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), eq("U3"), anyString()))
+                .thenReturn(EligibilityResult.ok());
+        CallSession cs = CallSession.create("CS-ROOM", TEST_RESERVATION_ID, Instant.now());
+        when(callService.findBySessionId("SID-ROOM")).thenReturn(Optional.of(cs));
+
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-ROOM","reservationId":"RES-1","from":"U3"}
+                """));
+
+        verify(session).sendMessage(argThat(message -> message instanceof TextMessage text
+                && text.getPayload().contains("Room full")));
+        verify(session).close(CloseStatus.NOT_ACCEPTABLE);
+        assertTrue(registry.all().isEmpty()); // los otros dos están en otros nodos
+    }
+
+    @Test
+    void handleTextMessageShouldTakeRoleFromClusterPresenceAndLeaveOnClose() throws Exception {
+        ClusterPresence presence = mock(ClusterPresence.class);
+        when(presence.enabled()).thenReturn(true);
+        when(presence.join("CS-1", "U2", 2)).thenReturn(SessionRegistry.Seat.RESPONDER);
+        handler = builder(bridge).presence(presence).build();
+        WebSocketSession session = buildSession("WS2", "U2", TEST_BEARER);
+        handler.afterConnectionEstablished(session);
+
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), eq("U2"), anyString()))
+                .thenReturn(EligibilityResult.ok());
+        CallSession cs = CallSession.create("CS-1", TEST_RESERVATION_ID, Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.of(cs));
+
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1","from":"U2"}
+                """));
+
+        // Solo en este nodo sería iniciador; el otro participante está en otro nodo
+        verify(session).sendMessage(argThat(message -> message instanceof TextMessage text
+                && text.getPayload().contains("\"JOIN_ACK\"")
+                && text.getPayload().contains("\"initiator\":false")));
+
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        verify(presence).leave("CS-1", "U2");
+    }
+
+    @Test
+    void handleTextMessageShouldRecordLocalAdmissionWhenClusterPresenceIsUnavailable() throws Exception {
+        ClusterPresence presence = mock(ClusterPresence.class);
+        when(presence.enabled()).thenReturn(true);
+        when(presence.join("CS-1", "U1", 2)).thenReturn(null);
+        handler = builder(bridge).presence(presence).build();
+        WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
+
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), eq("U1"), anyString()))
+                .thenReturn(EligibilityResult.ok());
+        CallSession cs = CallSession.create("CS-1", TEST_RESERVATION_ID, Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.of(cs));
+
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1","from":"U1"}
+                """));
+
+        // Sin Redis decide el registro local; la presencia lo publicará al volver
+        verify(presence).admitted("CS-1", "U1");
+        assertSame(session, registry.get("CS-1").get("U1"));
+    }
+
     @Test
     void handleTextMessageShouldReturn500WhenSessionReservationMismatch() throws Exception {
         WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
@@ -259,7 +444,7 @@ class CallWebSocketHandlerTest {
 
     @Test
     void handleTextMessageShouldCloseWhenRateLimitExceeded() throws Exception {
-        handler = new CallWebSocketHandler(registry, callService, eligibilityService, bridge, 1);
+        handler = builder(bridge).contexts(new ConnectionContexts(RateLimitPolicy.of(1))).build();
 
         WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
 
@@ -275,6 +460,24 @@ class CallWebSocketHandlerTest {
         verifyNoInteractions(callService, eligibilityService);
     }
 
+    @Test
+    void handleTextMessageShouldDropInsteadOfClosingWhenRateLimitModeIsDrop() throws Exception {
+        RateLimitPolicy drop = new RateLimitPolicy(new SimpleMeterRegistry(), 1, "", "drop", 0);
+        handler = builder(bridge).contexts(new ConnectionContexts(drop)).build();
+
+        WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
+
+        String heartbeatJson = """
+                {"type":"HEARTBEAT","sessionId":"SID-1"}
+                """;
+
+        handler.handleTextMessage(session, new TextMessage(heartbeatJson));
+        handler.handleTextMessage(session, new TextMessage(heartbeatJson));
+
+        verify(session, never()).close(any(CloseStatus.class));
+        verify(session, never()).sendMessage(any());
+    }
+
     @Test
     void handleTextMessageShouldSendErrorWhenJsonIsInvalid() {
         WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
@@ -358,7 +561,7 @@ class CallWebSocketHandlerTest {
 
         handler.handleTextMessage(session, new TextMessage(json));
 
-        verify(bridge).publish(eq("call:SID-1"), anyString());
+        verify(bridge).publish(eq("call:SID-1"), any(RelayFrame.class));
         verifyNoInteractions(callService);
     }
 
@@ -381,7 +584,7 @@ class CallWebSocketHandlerTest {
 
         handler.handleTextMessage(session, new TextMessage(json));
 
-        verify(bridge).publish(eq("call:SID-1"), anyString());
+        verify(bridge).publish(eq("call:SID-1"), any(RelayFrame.class));
         verify(callService).findBySessionId("SID-1"); 
     }
 
@@ -399,7 +602,7 @@ class CallWebSocketHandlerTest {
         handler.handleTextMessage(session, new TextMessage(json));
 
         verify(callService).markConnected(cs);
-        verify(bridge).publish(eq("call:SID-1"), anyString());
+        verify(bridge).publish(eq("call:SID-1"), any(RelayFrame.class));
     }
 
     @Test
@@ -416,7 +619,7 @@ class CallWebSocketHandlerTest {
         handler.handleTextMessage(session, new TextMessage(json));
 
         verify(callService).end(cs);
-        verify(bridge).publish(eq("call:SID-1"), anyString());
+        verify(bridge).publish(eq("call:SID-1"), any(RelayFrame.class));
     }
 
     // ---------------------------------------------------------------------
@@ -425,8 +628,8 @@ class CallWebSocketHandlerTest {
 
     @Test
     void joinShouldFanoutPeerJoinedToOtherParticipants() throws Exception {
-        RedisPubSubBridge realBridge = new RedisPubSubBridge(null, null);
-        handler = new CallWebSocketHandler(registry, callService, eligibilityService, realBridge, 10);
+        RedisPubSubBridge realBridge = BridgeBuilder.node("n1").build();
+        handler = builder(realBridge).contexts(new ConnectionContexts(RateLimitPolicy.of(10))).build();
 
         when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), anyString(), anyString()))
                 .thenReturn(EligibilityResult.ok());
@@ -455,26 +658,308 @@ class CallWebSocketHandlerTest {
         }));
     }
 
+    @Test
+    void fanoutShouldSkipAuthenticatedSenderEvenWithoutFrom() throws Exception {
+        RedisPubSubBridge realBridge = BridgeBuilder.node("n1").build();
+        handler = builder(realBridge).contexts(new ConnectionContexts(RateLimitPolicy.of(10))).build();
+
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), anyString(), anyString()))
+                .thenReturn(EligibilityResult.ok());
+        CallSession cs = CallSession.create("CS-1", TEST_RESERVATION_ID, Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.empty());
+        when(callService.create(TEST_RESERVATION_ID)).thenReturn(cs);
+
+        WebSocketSession ws1 = buildSession("WS1", "U1", TEST_BEARER);
+        handler.handleTextMessage(ws1, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1","from":"U1"}
+                """));
+        WebSocketSession ws2 = buildSession("WS2", "U2", TEST_BEARER);
+        handler.handleTextMessage(ws2, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1","from":"U2"}
+                """));
+
+        // Sin "from": el origen lo da la cabecera de enrutamiento
+        handler.handleTextMessage(ws2, new TextMessage("""
+                {"type":"OFFER","sessionId":"CS-1","payload":{"sdp":"v=0"}}
+                """));
+
+        verify(ws1).sendMessage(argThat(m -> m instanceof TextMessage t && t.getPayload().contains("\"OFFER\"")));
+        verify(ws2, never()).sendMessage(argThat(m -> m instanceof TextMessage t
+                && t.getPayload().contains("\"OFFER\"")));
+    }
+
+    @Test
+    void relayedMessagesShouldCarryPerSenderSequenceAndTraceId() {
+        handler = builder(bridge).ordering(new OrderedDelivery(new SimpleMeterRegistry(), true, 32, 50)).build();
+        WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
+
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"OFFER","sessionId":"SID-1","traceId":"T-1","payload":{"sdp":"x"}}
+                """));
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"ICE_CANDIDATE","sessionId":"SID-1","traceId":"T-2","payload":{"candidate":"c"}}
+                """));
+
+        var captor = org.mockito.ArgumentCaptor.forClass(RelayFrame.class);
+        verify(bridge, times(2)).publish(eq("call:SID-1"), captor.capture());
+        assertEquals(1L, captor.getAllValues().get(0).seq());
+        assertEquals("T-1", captor.getAllValues().get(0).traceId());
+        assertEquals(2L, captor.getAllValues().get(1).seq());
+        assertEquals("T-2", captor.getAllValues().get(1).traceId());
+    }
+
+    @Test
+    void offerWithToShouldReachOnlyThatPeerInMeshRoom() throws Exception {
+        registry = new SessionRegistry(3);
+        SimpleMeterRegistry meters = new SimpleMeterRegistry();
+        RedisPubSubBridge realBridge = BridgeBuilder.node("n1").build();
+        handler = builder(realBridge).routes(new PeerRoutes(meters, true)).build();
+
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), anyString(), anyString()))
+                .thenReturn(EligibilityResult.ok());
+        CallSession cs = CallSession.create("CS-1", TEST_RESERVATION_ID, Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.empty());
+        when(callService.create(TEST_RESERVATION_ID)).thenReturn(cs);
+
+        WebSocketSession[] ws = new WebSocketSession[3];
+        for (int i = 0; i < 3; i++) {
+            ws[i] = buildSession("WS" + (i + 1), "U" + (i + 1), TEST_BEARER);
+            handler.handleTextMessage(ws[i], new TextMessage("""
+                    {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1"}
+                    """));
+        }
+
+        handler.handleTextMessage(ws[0], new TextMessage("""
+                {"type":"OFFER","sessionId":"CS-1","to":"U3","payload":{"sdp":"v=0"}}
+                """));
+
+        verify(ws[2]).sendMessage(argThat(m -> m instanceof TextMessage t && t.getPayload().contains("\"OFFER\"")));
+        verify(ws[1], never()).sendMessage(argThat(m -> m instanceof TextMessage t
+                && t.getPayload().contains("\"OFFER\"")));
+        assertEquals(1.0, meters.counter("ws.routing", "mode", "local").count());
+    }
+
+    @Test
+    void offerWithToShouldGoToPeerNodeWithPerTargetSequence() {
+        PeerRoutes routes = new PeerRoutes(new SimpleMeterRegistry(), true);
+        routes.observe("call:SID-1", RelayFrame.of("U9", "PEER_JOINED", "{}").stamped("n2"));
+        when(bridge.nodeId()).thenReturn("n1");
+        when(bridge.publishTo(anyString(), any(), any(RelayFrame.class)))
+                .thenReturn(RedisPubSubBridge.Route.DIRECT);
+        handler = builder(bridge).ordering(new OrderedDelivery(new SimpleMeterRegistry(), true, 32, 50))
+                .routes(routes).build();
+        WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
+
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"OFFER","sessionId":"SID-1","to":"U9","payload":{"sdp":"x"}}
+                """));
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"ICE_CANDIDATE","sessionId":"SID-1","to":"U8","payload":{"candidate":"c"}}
+                """));
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"ICE_CANDIDATE","sessionId":"SID-1","to":"U9","payload":{"candidate":"c"}}
+                """));
+
+        var captor = org.mockito.ArgumentCaptor.forClass(RelayFrame.class);
+        verify(bridge, times(2)).publishTo(eq("call:SID-1"), eq("n2"), captor.capture());
+        verify(bridge).publishTo(eq("call:SID-1"), isNull(), captor.capture());
+        verify(bridge, never()).publish(anyString(), any(RelayFrame.class));
+        var sent = captor.getAllValues();
+        assertEquals("U9", sent.get(0).target());
+        assertEquals(1L, sent.get(0).seq());
+        assertEquals(2L, sent.get(1).seq()); // segundo mensaje a U9
+        assertEquals("U8", sent.get(2).target());
+        assertEquals(1L, sent.get(2).seq()); // U8 tiene su propia numeración
+    }
+
+    @Test
+    void offerWithToShouldBeBroadcastWhenUnicastDisabled() {
+        handler = builder(bridge).routes(new PeerRoutes(new SimpleMeterRegistry(), false)).build();
+        WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
+
+        handler.handleTextMessage(session, new TextMessage("""
+                {"type":"OFFER","sessionId":"SID-1","to":"U2","payload":{"sdp":"x"}}
+                """));
+
+        verify(bridge).publish(eq("call:SID-1"), argThat(f -> f.target() == null));
+        verify(bridge, never()).publishTo(anyString(), any(), any(RelayFrame.class));
+    }
+
+    @Test
+    void sfuSignalingShouldNegotiateWithSfuInsteadOfRelayingToPeers() throws Exception {
+        LocalSfu sfu = new LocalSfu(new SimpleMeterRegistry(), true);
+        RedisPubSubBridge realBridge = BridgeBuilder.node("n1").build();
+        handler = builder(realBridge).sfu(sfu).build();
+
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), anyString(), anyString()))
+                .thenReturn(EligibilityResult.ok());
+        CallSession cs = CallSession.create("CS-1", TEST_RESERVATION_ID, Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.empty());
+        when(callService.create(TEST_RESERVATION_ID)).thenReturn(cs);
+
+        WebSocketSession tutor = buildSession("WS1", "U1", TEST_BEARER);
+        handler.handleTextMessage(tutor, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1"}
+                """));
+        verify(tutor).sendMessage(argThat(m -> m instanceof TextMessage t
+                && t.getPayload().contains("\"JOIN_ACK\"") && t.getPayload().contains("\"sfu\":true")));
+
+        handler.handleTextMessage(tutor, new TextMessage("""
+                {"type":"OFFER","sessionId":"CS-1","to":"sfu","payload":{"type":"offer","sdp":"v=0"}}
+                """));
+        verify(tutor).sendMessage(argThat(m -> m instanceof TextMessage t
+                && t.getPayload().contains("\"ANSWER\"") && t.getPayload().contains("\"from\":\"sfu\"")));
+
+        WebSocketSession student = buildSession("WS2", "U2", TEST_BEARER);
+        handler.handleTextMessage(student, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1"}
+                """));
+
+        // La bajada del estudiante ya trae la pista del tutor; su OFFER de subida no le llegó
+        verify(student).sendMessage(argThat(m -> m instanceof TextMessage t
+                && t.getPayload().contains("\"OFFER\"") && t.getPayload().contains("\"streams\":[\"U1\"]")));
+        verify(student, never()).sendMessage(argThat(m -> m instanceof TextMessage t
+                && t.getPayload().contains("\"sdp\":\"v=0\"")));
+
+        handler.afterConnectionClosed(tutor, CloseStatus.NORMAL);
+
+        assertEquals(0, sfu.publishers("CS-1"));
+    }
+
+    @Test
+    void joinWithResumeFromShouldReplayOnlyPeerMessages() throws Exception {
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), anyString(), anyString()))
+                .thenReturn(EligibilityResult.ok());
+        CallSession cs = CallSession.create("CS-1", TEST_RESERVATION_ID, Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.empty());
+        when(callService.create(TEST_RESERVATION_ID)).thenReturn(cs);
+        doAnswer(inv -> {
+            java.util.function.Consumer<RelayFrame> consumer = inv.getArgument(2);
+            consumer.accept(RelayFrame.of("U2", "OFFER", "{\"streamId\":\"2-0\",\"type\":\"OFFER\"}"));
+            consumer.accept(RelayFrame.of("U1", "ANSWER", "{\"streamId\":\"3-0\",\"type\":\"ANSWER\"}"));
+            return 2;
+        }).when(bridge).replay(eq("call:CS-1"), eq("1-0"), any());
+
+        WebSocketSession ws1 = buildSession("WS1", "U1", TEST_BEARER);
+        handler.handleTextMessage(ws1, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1","from":"U1","resumeFrom":"1-0"}
+                """));
+
+        verify(ws1).sendMessage(argThat(m -> m instanceof TextMessage t && t.getPayload().contains("\"2-0\"")));
+        verify(ws1, never()).sendMessage(argThat(m -> m instanceof TextMessage t
+                && t.getPayload().contains("\"ANSWER\"")));
+    }
+
+    // ---------------------------------------------------------------------
+    // Subprotocolo binario (CBOR)
+    // ---------------------------------------------------------------------
+
+    @Test
+    void handleBinaryMessageShouldJoinAndAckInCbor() throws Exception {
+        WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
+        when(session.getAcceptedProtocol()).thenReturn(CborSignalingCodec.SUBPROTOCOL);
+
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), eq("U1"), anyString()))
+                .thenReturn(EligibilityResult.ok());
+        CallSession cs = CallSession.create("CS-1", TEST_RESERVATION_ID, Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.empty());
+        when(callService.create(TEST_RESERVATION_ID)).thenReturn(cs);
+
+        CBORMapper cbor = new CBORMapper();
+        byte[] join = cbor.writeValueAsBytes(Map.of(
+                "type", "JOIN", "sessionId", "SID-1", "reservationId", TEST_RESERVATION_ID, "from", "U1"));
+
+        handler.handleBinaryMessage(session, new BinaryMessage(join));
+
+        assertTrue(registry.get("CS-1").containsKey("U1"));
+        verify(session).sendMessage(argThat(message -> {
+            if (!(message instanceof BinaryMessage bin)) {
+                return false;
+            }
+            try {
+                Map<?, ?> ack = cbor.readValue(bin.getPayload().array(), Map.class);
+                return "JOIN_ACK".equals(ack.get("type"))
+                        && Boolean.TRUE.equals(((Map<?, ?>) ack.get("payload")).get("initiator"));
+            } catch (IOException e) {
+                return false;
+            }
+        }));
+    }
+
+    @Test
+    void fanoutShouldTranscodeJsonOfferForCborPeer() throws Exception {
+        RedisPubSubBridge realBridge = BridgeBuilder.node("n1").build();
+        handler = builder(realBridge).contexts(new ConnectionContexts(RateLimitPolicy.of(10))).build();
+
+        when(eligibilityService.checkReservation(eq(TEST_RESERVATION_ID), anyString(), anyString()))
+                .thenReturn(EligibilityResult.ok());
+        CallSession cs = CallSession.create("CS-1", TEST_RESERVATION_ID, Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.empty());
+        when(callService.create(TEST_RESERVATION_ID)).thenReturn(cs);
+
+        WebSocketSession cborPeer = buildSession("WS1", "U1", TEST_BEARER);
+        when(cborPeer.getAcceptedProtocol()).thenReturn(CborSignalingCodec.SUBPROTOCOL);
+        handler.handleTextMessage(cborPeer, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1","from":"U1"}
+                """));
+
+        WebSocketSession jsonPeer = buildSession("WS2", "U2", TEST_BEARER);
+        handler.handleTextMessage(jsonPeer, new TextMessage("""
+                {"type":"JOIN","sessionId":"SID-1","reservationId":"RES-1","from":"U2"}
+                """));
+        handler.handleTextMessage(jsonPeer, new TextMessage("""
+                {"type":"OFFER","sessionId":"CS-1","from":"U2","payload":{"sdp":"v=0"}}
+                """));
+
+        CBORMapper cbor = new CBORMapper();
+        verify(cborPeer, atLeastOnce()).sendMessage(argThat(message -> {
+            if (!(message instanceof BinaryMessage bin)) {
+                return false;
+            }
+            try {
+                Map<?, ?> offer = cbor.readValue(bin.getPayload().array(), Map.class);
+                return "OFFER".equals(offer.get("type"))
+                        && "v=0".equals(((Map<?, ?>) offer.get("payload")).get("sdp"));
+            } catch (IOException e) {
+                return false;
+            }
+        }));
+    }
+
     // ---------------------------------------------------------------------
     // afterConnectionClosed
     // ---------------------------------------------------------------------
 
     @Test
     void afterConnectionClosedShouldUnregisterAndPublishPeerLeft() {
-        WebSocketSession session = mock(WebSocketSession.class);
-        Map<String, Object> attrs = new ConcurrentHashMap<>();
-        attrs.put("callSessionId", "CS-1");
-        attrs.put("callUserId", "U1");
-        when(session.getAttributes()).thenReturn(attrs);
+        WebSocketSession session = buildSession("WS1", "U1", TEST_BEARER);
+        handler.afterConnectionEstablished(session);
+        contexts.get(session).joined("CS-1", "RES-1");
 
-        registry.register("CS-1", "U1", mock(WebSocketSession.class));
+        registry.register("CS-1", "U1", session);
 
         handler.afterConnectionClosed(session, CloseStatus.NORMAL);
 
         assertTrue(registry.get("CS-1").isEmpty());
+        assertNull(contexts.get(session));
+        assertEquals(0, contexts.live());
+
+        verify(bridge).publish(eq("call:CS-1"), argThat(frame ->
+                frame.body().contains("\"PEER_LEFT\"") && "U1".equals(frame.originUser())));
+    }
+
+    @Test
+    void afterConnectionClosedShouldNotPublishPeerLeftForReplacedConnection() {
+        WebSocketSession stale = buildSession("WS1", "U1", TEST_BEARER);
+        handler.afterConnectionEstablished(stale);
+        contexts.get(stale).joined("CS-1", "RES-1");
+        WebSocketSession current = buildSession("WS2", "U1", TEST_BEARER);
+        registry.register("CS-1", "U1", current);
+
+        handler.afterConnectionClosed(stale, CloseStatus.NORMAL);
 
-        verify(bridge).publish(eq("call:CS-1"), argThat(payload ->
-                payload.contains("\"PEER_LEFT\"") && payload.contains("\"U1\"")));
+        assertSame(current, registry.get("CS-1").get("U1"));
+        verify(bridge, never()).publish(anyString(), any(RelayFrame.class));
     }
 
     @Test
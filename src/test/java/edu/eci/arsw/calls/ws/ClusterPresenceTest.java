@@ -0,0 +1,235 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.pubsub.NodeIdentity;
+import edu.eci.arsw.calls.pubsub.RealRedis;
+import edu.eci.arsw.calls.pubsub.RedisHealth;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.lettuce.LettuceConnectionFactory;
+import org.springframework.data.redis.core.StringRedisTemplate;
+
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class ClusterPresenceTest {
+
+    private StringRedisTemplate template;
+    private RedisHealth health;
+    private SimpleMeterRegistry meters;
+
+    @BeforeEach
+    void setUp() {
+        template = mock(StringRedisTemplate.class);
+        health = mock(RedisHealth.class);
+        when(health.state()).thenReturn(RedisHealth.State.UP);
+        meters = new SimpleMeterRegistry();
+    }
+
+    private ClusterPresence presence(StringRedisTemplate template, String node) {
+        return new ClusterPresence(template, new NodeIdentity(node), health, meters, true, 15_000);
+    }
+
+    // -------------------------------------------------------------------------
+    // join
+    // -------------------------------------------------------------------------
+
+    @Test
+    void join_deberiaDecidirConUnSoloScript_casoFeliz1() {
+        when(template.execute(eq(ClusterPresence.JOIN), eq(List.of("presence:S1")), any(Object[].class)))
+                .thenReturn("RESPONDER");
+        ClusterPresence presence = presence(template, "n1");
+
+        assertEquals(SessionRegistry.Seat.RESPONDER, presence.join("S1", "U2", 2));
+
+        verify(template, times(1)).execute(eq(ClusterPresence.JOIN), eq(List.of("presence:S1")),
+                eq("U2"), eq("n1"), anyString(), anyString(), eq("15000"), eq("2"));
+        assertEquals(1, presence.local("S1"));
+        assertEquals(1.0, meters.counter("presence.joins", "seat", "responder").count());
+    }
+
+    @Test
+    void join_deberiaNoAnotarLocalCuandoLaSalaEstaLlena_casoFeliz2() {
+        when(template.execute(eq(ClusterPresence.JOIN), anyList(), any(Object[].class))).thenReturn("FULL");
+        ClusterPresence presence = presence(template, "n1");
+
+        assertEquals(SessionRegistry.Seat.FULL, presence.join("S1", "U3", 2));
+
+        assertEquals(0, presence.local("S1"));
+    }
+
+    @Test
+    void join_noDeberiaPasar_cuandoRedisFalla() {
+        RedisConnectionFailureException down = new RedisConnectionFailureException("down");
+        when(template.execute(eq(ClusterPresence.JOIN), anyList(), any(Object[].class))).thenThrow(down);
+        ClusterPresence presence = presence(template, "n1");
+
+        assertNull(presence.join("S1", "U1", 2));
+
+        verify(health).down(down);
+        assertEquals(1.0, meters.counter("presence.unavailable").count());
+    }
+
+    @Test
+    void join_noDeberiaPasar_cuandoRedisEstaCaido() {
+        when(health.state()).thenReturn(RedisHealth.State.DOWN);
+        ClusterPresence presence = presence(template, "n1");
+
+        assertNull(presence.join("S1", "U1", 2));
+
+        verifyNoInteractions(template);
+    }
+
+    @Test
+    void join_noDeberiaPasar_cuandoNoHayRedis() {
+        ClusterPresence presence = presence(null, "n1");
+
+        assertFalse(presence.enabled());
+        assertNull(presence.join("S1", "U1", 2));
+    }
+
+    // -------------------------------------------------------------------------
+    // leave / refresh
+    // -------------------------------------------------------------------------
+
+    @Test
+    void leave_deberiaBorrarSoloLaEntradaDeEsteNodo_casoFeliz1() {
+        when(template.execute(eq(ClusterPresence.JOIN), anyList(), any(Object[].class))).thenReturn("INITIATOR");
+        ClusterPresence presence = presence(template, "n1");
+        presence.join("S1", "U1", 2);
+
+        presence.leave("S1", "U1");
+
+        verify(template).execute(ClusterPresence.LEAVE, List.of("presence:S1"), "U1", "n1");
+        assertEquals(0, presence.local("S1"));
+    }
+
+    @Test
+    void refresh_deberiaRenovarLosParticipantesLocales_casoFeliz1() {
+        when(template.execute(eq(ClusterPresence.JOIN), anyList(), any(Object[].class))).thenReturn("INITIATOR");
+        ClusterPresence presence = presence(template, "n1");
+        presence.join("S1", "U1", 2);
+
+        presence.refresh();
+
+        verify(template).execute(eq(ClusterPresence.RENEW), eq(List.of("presence:S1")),
+                eq("n1"), anyString(), eq("15000"), eq("U1"));
+    }
+
+    @Test
+    void admitted_deberiaPublicarseAlVolverRedis_casoFeliz1() {
+        when(health.state()).thenReturn(RedisHealth.State.DOWN);
+        ClusterPresence presence = presence(template, "n1");
+        ArgumentCaptor<Runnable> recovery = ArgumentCaptor.forClass(Runnable.class);
+        verify(health).onRecovered(recovery.capture());
+
+        assertNull(presence.join("S1", "U1", 2));
+        presence.admitted("S1", "U1");
+        presence.refresh();
+        verifyNoInteractions(template);
+
+        recovery.getValue().run();
+
+        assertEquals(1, presence.local("S1"));
+        verify(template).execute(eq(ClusterPresence.RENEW), eq(List.of("presence:S1")),
+                eq("n1"), anyString(), eq("15000"), eq("U1"));
+    }
+
+    // -------------------------------------------------------------------------
+    // Scripts contra Redis real (se omite si no hay Redis)
+    // -------------------------------------------------------------------------
+
+    @Test
+    void scripts_deberianDecidirEnTodoElClusterConRedisReal() {
+        LettuceConnectionFactory cf = RealRedis.connect();
+        try {
+            assumeTrue(RealRedis.reachable(cf), "Redis no disponible");
+            StringRedisTemplate redis = new StringRedisTemplate(cf);
+            String call = "test-" + UUID.randomUUID();
+            ClusterPresence a = presence(redis, "node-a");
+            ClusterPresence b = presence(redis, "node-b");
+            try {
+                assertEquals(SessionRegistry.Seat.INITIATOR, a.join(call, "U1", 2));
+                assertEquals(SessionRegistry.Seat.RESPONDER, b.join(call, "U2", 2));
+                assertEquals(SessionRegistry.Seat.FULL, a.join(call, "U3", 2));
+                // U1 reconecta en el otro nodo: no ocupa otro hueco
+                assertEquals(SessionRegistry.Seat.REJOINED_RESPONDER, b.join(call, "U1", 2));
+
+                // El nodo viejo ya no es dueño de U1: su LEAVE no lo borra
+                a.leave(call, "U1");
+                assertEquals("node-b", redis.<String, String>opsForHash()
+                        .get(ClusterPresence.KEY_PREFIX + call, "U1").split("\\|")[0]);
+
+                b.leave(call, "U2");
+                assertEquals(SessionRegistry.Seat.RESPONDER, a.join(call, "U3", 2));
+            } finally {
+                redis.delete(ClusterPresence.KEY_PREFIX + call);
+            }
+        } finally {
+            cf.destroy();
+        }
+    }
+
+    @Test
+    void scripts_deberianPurgarArriendosVencidosConRedisReal() throws Exception {
+        LettuceConnectionFactory cf = RealRedis.connect();
+        try {
+            assumeTrue(RealRedis.reachable(cf), "Redis no disponible");
+            StringRedisTemplate redis = new StringRedisTemplate(cf);
+            String call = "test-" + UUID.randomUUID();
+            ClusterPresence crashed = new ClusterPresence(redis, new NodeIdentity("node-a"), health, meters,
+                    true, 50);
+            ClusterPresence alive = presence(redis, "node-b");
+            try {
+                crashed.join(call, "U1", 2);
+                crashed.join(call, "U2", 2);
+                Thread.sleep(100);
+
+                assertEquals(SessionRegistry.Seat.INITIATOR, alive.join(call, "U3", 2));
+            } finally {
+                redis.delete(ClusterPresence.KEY_PREFIX + call);
+            }
+        } finally {
+            cf.destroy();
+        }
+    }
+
+    @Test
+    void scripts_deberianRecrearArriendosPerdidosConRedisReal() {
+        LettuceConnectionFactory cf = RealRedis.connect();
+        try {
+            assumeTrue(RealRedis.reachable(cf), "Redis no disponible");
+            StringRedisTemplate redis = new StringRedisTemplate(cf);
+            String call = "test-" + UUID.randomUUID();
+            ClusterPresence a = presence(redis, "node-a");
+            ClusterPresence b = presence(redis, "node-b");
+            try {
+                assertEquals(SessionRegistry.Seat.INITIATOR, a.join(call, "U1", 2));
+                // Caída más larga que el arriendo: la entrada de U1 se pierde
+                redis.delete(ClusterPresence.KEY_PREFIX + call);
+                assertEquals(SessionRegistry.Seat.INITIATOR, b.join(call, "U2", 2));
+                // Una entrada de otro nodo no se pisa
+                a.admitted(call, "U2");
+
+                a.refresh();
+
+                assertEquals("node-a", redis.<String, String>opsForHash()
+                        .get(ClusterPresence.KEY_PREFIX + call, "U1").split("\\|")[0]);
+                assertEquals("node-b", redis.<String, String>opsForHash()
+                        .get(ClusterPresence.KEY_PREFIX + call, "U2").split("\\|")[0]);
+                assertEquals(SessionRegistry.Seat.FULL, b.join(call, "U3", 2));
+            } finally {
+                redis.delete(ClusterPresence.KEY_PREFIX + call);
+            }
+        } finally {
+            cf.destroy();
+        }
+    }
+}
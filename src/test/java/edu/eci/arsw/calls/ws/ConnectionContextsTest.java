@@ -0,0 +1,133 @@
+package edu.eci.arsw.calls.ws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class ConnectionContextsTest {
+
+    private static WebSocketSession session(String userId, String token) {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        Map<String, Object> attrs = new ConcurrentHashMap<>();
+        if (userId != null) {
+            attrs.put("userId", userId);
+        }
+        if (token != null) {
+            attrs.put("token", token);
+        }
+        when(ws.getId()).thenReturn("WS1");
+        when(ws.getAttributes()).thenReturn(attrs);
+        return ws;
+    }
+
+    private static SendQueues queues() {
+        return new SendQueues(new SimpleMeterRegistry(), Runnable::run, 5_000, 1_000, Set.of("ICE_CANDIDATE"));
+    }
+
+    // -------------------------------------------------------------------------
+    // open(WebSocketSession ws)
+    // -------------------------------------------------------------------------
+
+    @Test
+    void open_deberiaTomarIdentidadDelHandshake_casoFeliz1() {
+        ConnectionContexts contexts = new ConnectionContexts(RateLimitPolicy.of(10));
+        WebSocketSession ws = session("U1", "Bearer XYZ");
+
+        ConnectionContext ctx = contexts.open(ws);
+
+        assertEquals("U1", ctx.userId());
+        assertEquals("Bearer XYZ", ctx.bearer());
+        assertNotNull(ctx.limiter());
+        assertSame(ws, ctx.sender());
+        assertNull(ctx.callSessionId());
+        assertEquals(1, contexts.live());
+    }
+
+    @Test
+    void open_deberiaDevolverElMismoContexto_casoFeliz2() {
+        ConnectionContexts contexts = new ConnectionContexts(RateLimitPolicy.of(10));
+        WebSocketSession ws = session("U1", null);
+
+        ConnectionContext first = contexts.open(ws);
+
+        assertSame(first, contexts.open(ws));
+        assertSame(first, contexts.get(ws));
+        assertEquals(1, contexts.live());
+    }
+
+    @Test
+    void open_deberiaEnvolverSesionEnSuColaDeEnvio_casoFeliz3() {
+        ConnectionContexts contexts = new ConnectionContexts(RateLimitPolicy.of(10), queues(),
+                new SimpleMeterRegistry());
+        WebSocketSession ws = session("U1", null);
+
+        ConnectionContext ctx = contexts.open(ws);
+
+        assertInstanceOf(QueuedSession.class, ctx.sender());
+        assertSame(ws, ((QueuedSession) ctx.sender()).getDelegate());
+        assertSame(ctx.sender(), contexts.sender(ws));
+    }
+
+    @Test
+    void open_noDeberiaTenerIdentidad_cuandoFaltaEnElHandshake() {
+        ConnectionContexts contexts = new ConnectionContexts(RateLimitPolicy.of(10));
+
+        ConnectionContext ctx = contexts.open(session(null, null));
+
+        assertNull(ctx.userId());
+        assertNull(ctx.bearer());
+    }
+
+    // -------------------------------------------------------------------------
+    // close(WebSocketSession ws)
+    // -------------------------------------------------------------------------
+
+    @Test
+    void close_deberiaLiberarContextoYCola_casoFeliz1() throws Exception {
+        ConnectionContexts contexts = new ConnectionContexts(RateLimitPolicy.of(10), queues(),
+                new SimpleMeterRegistry());
+        WebSocketSession ws = session("U1", null);
+        ConnectionContext ctx = contexts.open(ws);
+        ctx.joined("S1", "R1");
+
+        ConnectionContext closed = contexts.close(ws);
+        ctx.sender().sendMessage(new TextMessage("tarde"));
+
+        assertSame(ctx, closed);
+        assertEquals("S1", closed.callSessionId());
+        assertNull(contexts.get(ws));
+        assertSame(ws, contexts.sender(ws));
+        assertEquals(0, contexts.live());
+        verify(ws, never()).sendMessage(any());
+    }
+
+    @Test
+    void close_noDeberiaPasar_cuandoNoHayContexto() {
+        ConnectionContexts contexts = new ConnectionContexts(RateLimitPolicy.of(10));
+        WebSocketSession ws = session("U1", null);
+
+        assertNull(contexts.close(ws));
+        assertEquals(0, contexts.live());
+    }
+
+    @Test
+    void close_noDeberiaDescontarDosVeces_cuandoSeCierraDeNuevo() {
+        ConnectionContexts contexts = new ConnectionContexts(RateLimitPolicy.of(10));
+        WebSocketSession ws = session("U1", null);
+        contexts.open(ws);
+
+        contexts.close(ws);
+        contexts.close(ws);
+
+        assertEquals(0, contexts.live());
+    }
+}
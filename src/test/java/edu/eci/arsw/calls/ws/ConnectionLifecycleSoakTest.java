@@ -0,0 +1,210 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.domain.CallSession;
+import edu.eci.arsw.calls.pubsub.BridgeBuilder;
+import edu.eci.arsw.calls.pubsub.ChannelSubscriptions;
+import edu.eci.arsw.calls.pubsub.RedisPubSubBridge;
+import edu.eci.arsw.calls.service.CallSessionService;
+import edu.eci.arsw.calls.service.EligibilityService;
+import edu.eci.arsw.calls.service.EligibilityService.EligibilityResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.security.Principal;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Soak del ciclo de vida de conexión: abre 1M conexiones, cada una hace JOIN a
+ * una de {@value #ROOMS} salas, envía un HEARTBEAT y se cierra. El heap tras GC
+ * debe quedar plano y no deben quedar contextos vivos ni canales suscritos. Se ejecuta con
+ * {@code mvn -Pperf test}.
+ */
+@Tag("benchmark")
+class ConnectionLifecycleSoakTest {
+    private static final Logger log = LoggerFactory.getLogger(ConnectionLifecycleSoakTest.class);
+
+    private static final int CONNECTIONS = 1_000_000;
+    private static final int WARMUP = 100_000;
+    private static final int ROOMS = 1_000;
+    private static final long MAX_GROWTH_BYTES = 16L * 1024 * 1024;
+
+    private static final TextMessage HEARTBEAT = new TextMessage("{\"type\":\"HEARTBEAT\"}");
+
+    @Test
+    void abrirYCerrar1MConexiones_deberiaMantenerHeapPlano() throws Exception {
+        Map<String, CallSession> store = new ConcurrentHashMap<>();
+        CallSessionService callService = mock(CallSessionService.class, withSettings().stubOnly());
+        EligibilityService eligibility = mock(EligibilityService.class, withSettings().stubOnly());
+        when(eligibility.checkReservation(anyString(), anyString(), any())).thenReturn(EligibilityResult.ok());
+        when(callService.findBySessionId(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(store.get(inv.<String>getArgument(0))));
+        when(callService.create(anyString())).thenAnswer(inv -> {
+            String reservationId = inv.getArgument(0);
+            CallSession cs = CallSession.create("CS-" + reservationId, reservationId, Instant.now());
+            store.put(cs.getSessionId(), cs);
+            return cs;
+        });
+
+        SignalingCodecs codecs = new SignalingCodecs();
+        SessionRegistry registry = new SessionRegistry();
+        SendQueues queues = new SendQueues(new SimpleMeterRegistry(), Runnable::run, 5_000, 524_288,
+                Set.of("ICE_CANDIDATE", "HEARTBEAT"));
+        ConnectionContexts contexts = new ConnectionContexts(RateLimitPolicy.of(Integer.MAX_VALUE), queues,
+                new SimpleMeterRegistry());
+        RedisPubSubBridge bridge = BridgeBuilder.node("soak").build();
+        ChannelSubscriptions channels = new ChannelSubscriptions(bridge, new SimpleMeterRegistry(), 0);
+        CallWebSocketHandler handler = HandlerBuilder.of(registry, callService,
+                new JoinPipeline(callService, eligibility, new SimpleMeterRegistry(), Runnable::run,
+                        2_000, 3_000, 2_000),
+                bridge).channels(channels).codecs(codecs).contexts(contexts).build();
+
+        cycle(handler, 0, WARMUP);
+        long baseline = usedHeapAfterGc();
+        for (int from = WARMUP; from < CONNECTIONS; from += 200_000) {
+            cycle(handler, from, Math.min(from + 200_000, CONNECTIONS));
+            log.info("{} conexiones: heap {} KB", Math.min(from + 200_000, CONNECTIONS), usedHeapAfterGc() / 1024);
+        }
+        long growth = usedHeapAfterGc() - baseline;
+
+        log.info("Soak {} conexiones: crecimiento de heap {} KB, contextos vivos {}",
+                CONNECTIONS, growth / 1024, contexts.live());
+        assertEquals(0, contexts.live());
+        assertTrue(registry.all().isEmpty(), "Quedaron llamadas registradas");
+        assertEquals(0, channels.active(), "Quedaron canales suscritos");
+        assertEquals(0, bridge.localChannels());
+        assertTrue(growth < MAX_GROWTH_BYTES, "El heap creció " + growth / 1024 + " KB");
+    }
+
+    private static void cycle(CallWebSocketHandler handler, int from, int to) {
+        for (int i = from; i < to; i++) {
+            String room = "R" + (i % ROOMS);
+            WebSocketSession ws = new SoakSession("WS-" + i, "U" + i);
+            handler.afterConnectionEstablished(ws);
+            handler.handleTextMessage(ws, new TextMessage("{\"type\":\"JOIN\",\"sessionId\":\"CS-" + room
+                    + "\",\"reservationId\":\"" + room + "\"}"));
+            handler.handleTextMessage(ws, HEARTBEAT);
+            handler.afterConnectionClosed(ws, CloseStatus.NORMAL);
+        }
+    }
+
+    private static long usedHeapAfterGc() throws InterruptedException {
+        Runtime rt = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+            Thread.sleep(100);
+        }
+        return rt.totalMemory() - rt.freeMemory();
+    }
+
+    /** Sesión mínima: un mock por conexión distorsionaría la medida de heap. */
+    private static final class SoakSession implements WebSocketSession {
+        private final String id;
+        private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+        SoakSession(String id, String userId) {
+            this.id = id;
+            attributes.put("userId", userId);
+            attributes.put("token", "Bearer soak");
+        }
+
+        @Override
+        public String getId() {
+            return id;
+        }
+
+        @Override
+        public URI getUri() {
+            return null;
+        }
+
+        @Override
+        public HttpHeaders getHandshakeHeaders() {
+            return HttpHeaders.EMPTY;
+        }
+
+        @Override
+        public Map<String, Object> getAttributes() {
+            return attributes;
+        }
+
+        @Override
+        public Principal getPrincipal() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getLocalAddress() {
+            return null;
+        }
+
+        @Override
+        public InetSocketAddress getRemoteAddress() {
+            return null;
+        }
+
+        @Override
+        public String getAcceptedProtocol() {
+            return null;
+        }
+
+        @Override
+        public void setTextMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getTextMessageSizeLimit() {
+            return 0;
+        }
+
+        @Override
+        public void setBinaryMessageSizeLimit(int messageSizeLimit) {
+        }
+
+        @Override
+        public int getBinaryMessageSizeLimit() {
+            return 0;
+        }
+
+        @Override
+        public List<WebSocketExtension> getExtensions() {
+            return List.of();
+        }
+
+        @Override
+        public void sendMessage(WebSocketMessage<?> message) {
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+
+        @Override
+        public void close(CloseStatus status) {
+        }
+    }
+}
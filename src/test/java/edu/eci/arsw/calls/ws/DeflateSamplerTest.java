@@ -0,0 +1,85 @@
+package edu.eci.arsw.calls.ws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class DeflateSamplerTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+
+    private static WebSocketSession session(boolean deflate) {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        when(ws.getExtensions()).thenReturn(deflate
+                ? List.of(new WebSocketExtension("permessage-deflate"))
+                : List.of());
+        return ws;
+    }
+
+    private static TextMessage sdp() {
+        return new TextMessage("{\"type\":\"OFFER\",\"payload\":{\"sdp\":\""
+                + "a=rtcp-fb:111 transport-cc\\r\\n".repeat(40) + "\"}}");
+    }
+
+    private double sampled(String size) {
+        return meters.get("ws.deflate.sampled").tag("size", size).counter().count();
+    }
+
+    @Test
+    void sample_deberiaMedirRatioYCpuDeFramesGrandes_casoFeliz1() {
+        DeflateSampler sampler = new DeflateSampler(meters, 1, 256);
+
+        sampler.sample(session(true), sdp());
+
+        assertEquals(1.0, sampled("large"));
+        double ratio = meters.get("ws.deflate.ratio").summary().mean();
+        assertTrue(ratio > 0 && ratio < 0.2, "ratio=" + ratio);
+        assertEquals(1, meters.get("ws.deflate.cpu").timer().count());
+    }
+
+    @Test
+    void sample_deberiaSoloContarFramesPequenos_casoFeliz2() {
+        DeflateSampler sampler = new DeflateSampler(meters, 1, 256);
+
+        sampler.sample(session(true), new TextMessage("{\"type\":\"HEARTBEAT\"}"));
+
+        assertEquals(1.0, sampled("small"));
+        assertEquals(0, meters.get("ws.deflate.cpu").timer().count());
+    }
+
+    @Test
+    void sample_deberiaMuestrearUnoDeCadaN_casoFeliz3() {
+        DeflateSampler sampler = new DeflateSampler(meters, 4, 256);
+        WebSocketSession ws = session(true);
+
+        for (int i = 0; i < 8; i++) {
+            sampler.sample(ws, sdp());
+        }
+
+        assertEquals(2.0, sampled("large"));
+    }
+
+    @Test
+    void noDeberiaMuestrear_cuandoLaSesionNoNegocioDeflate() {
+        DeflateSampler sampler = new DeflateSampler(meters, 1, 256);
+
+        sampler.sample(session(false), sdp());
+
+        assertEquals(0.0, sampled("large") + sampled("small"));
+    }
+
+    @Test
+    void compressedSize_deberiaSerMenorQueElOriginal_casoFeliz4() {
+        byte[] data = sdp().getPayload().getBytes(StandardCharsets.UTF_8);
+
+        assertTrue(DeflateSampler.compressedSize(data) < data.length);
+    }
+}
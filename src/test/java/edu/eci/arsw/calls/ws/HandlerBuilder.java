@@ -0,0 +1,109 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.pubsub.ChannelSubscriptions;
+import edu.eci.arsw.calls.pubsub.RedisPubSubBridge;
+import edu.eci.arsw.calls.service.CallSessionService;
+import edu.eci.arsw.calls.sfu.SfuSignaling;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+/**
+ * Construye un {@link CallWebSocketHandler} para las pruebas sin los
+ * colaboradores opcionales (orden, presencia, rutas y SFU); cada prueba añade
+ * solo los que usa. Por defecto: canales sin gracia sobre el puente, códecs y
+ * frames nuevos, entrada en el hilo que llama y 10 msg/s por conexión.
+ */
+final class HandlerBuilder {
+    private final SessionRegistry registry;
+    private final CallSessionService callService;
+    private final JoinPipeline joinPipeline;
+    private final RedisPubSubBridge bridge;
+    private ChannelSubscriptions channels;
+    private SignalingCodecs codecs;
+    private OutboundFrames frames;
+    private InboundDispatcher inbound;
+    private ConnectionContexts contexts;
+    private SendQueues sendQueues;
+    private OrderedDelivery ordering;
+    private ClusterPresence presence;
+    private PeerRoutes routes;
+    private SfuSignaling sfu;
+
+    private HandlerBuilder(SessionRegistry registry, CallSessionService callService, JoinPipeline joinPipeline,
+            RedisPubSubBridge bridge) {
+        this.registry = registry;
+        this.callService = callService;
+        this.joinPipeline = joinPipeline;
+        this.bridge = bridge;
+    }
+
+    static HandlerBuilder of(SessionRegistry registry, CallSessionService callService, JoinPipeline joinPipeline,
+            RedisPubSubBridge bridge) {
+        return new HandlerBuilder(registry, callService, joinPipeline, bridge);
+    }
+
+    HandlerBuilder channels(ChannelSubscriptions channels) {
+        this.channels = channels;
+        return this;
+    }
+
+    HandlerBuilder codecs(SignalingCodecs codecs) {
+        this.codecs = codecs;
+        return this;
+    }
+
+    HandlerBuilder frames(OutboundFrames frames) {
+        this.frames = frames;
+        return this;
+    }
+
+    HandlerBuilder inbound(InboundDispatcher inbound) {
+        this.inbound = inbound;
+        return this;
+    }
+
+    HandlerBuilder contexts(ConnectionContexts contexts) {
+        this.contexts = contexts;
+        return this;
+    }
+
+    /**
+     * Colas de envío para los contextos por defecto, como en producción; sin
+     * ellas se escribe directamente sobre la sesión.
+     */
+    HandlerBuilder sendQueues(SendQueues sendQueues) {
+        this.sendQueues = sendQueues;
+        return this;
+    }
+
+    HandlerBuilder ordering(OrderedDelivery ordering) {
+        this.ordering = ordering;
+        return this;
+    }
+
+    HandlerBuilder presence(ClusterPresence presence) {
+        this.presence = presence;
+        return this;
+    }
+
+    HandlerBuilder routes(PeerRoutes routes) {
+        this.routes = routes;
+        return this;
+    }
+
+    HandlerBuilder sfu(SfuSignaling sfu) {
+        this.sfu = sfu;
+        return this;
+    }
+
+    CallWebSocketHandler build() {
+        SignalingCodecs c = (codecs != null) ? codecs : new SignalingCodecs();
+        return new CallWebSocketHandler(registry, callService, joinPipeline, bridge,
+                (channels != null) ? channels : new ChannelSubscriptions(bridge, new SimpleMeterRegistry(), 0),
+                c,
+                (frames != null) ? frames : new OutboundFrames(c, new SimpleMeterRegistry()),
+                (inbound != null) ? inbound : new InboundDispatcher(false),
+                (contexts != null) ? contexts
+                        : new ConnectionContexts(RateLimitPolicy.of(10), sendQueues, new SimpleMeterRegistry()),
+                ordering, presence, routes, sfu);
+    }
+}
@@ -0,0 +1,86 @@
+package edu.eci.arsw.calls.ws;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class InboundDispatcherTest {
+
+    private static WebSocketSession session(String id) {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        when(ws.getId()).thenReturn(id);
+        return ws;
+    }
+
+    @Test
+    void execute_deberiaCorrerEnElHiloActualSinHilosVirtuales_casoFeliz1() {
+        InboundDispatcher dispatcher = new InboundDispatcher(false);
+        Thread caller = Thread.currentThread();
+        List<Thread> seen = new ArrayList<>();
+
+        dispatcher.execute(session("WS1"), () -> seen.add(Thread.currentThread()));
+
+        assertFalse(dispatcher.isAsync());
+        assertEquals(List.of(caller), seen);
+    }
+
+    @Test
+    void execute_deberiaConservarElOrdenPorConexionEnHilosVirtuales_casoFeliz2() throws Exception {
+        InboundDispatcher dispatcher = new InboundDispatcher(true);
+        WebSocketSession ws = session("WS1");
+        List<Integer> order = Collections.synchronizedList(new ArrayList<>());
+        List<Boolean> virtual = Collections.synchronizedList(new ArrayList<>());
+        CountDownLatch done = new CountDownLatch(200);
+
+        for (int i = 0; i < 200; i++) {
+            int n = i;
+            dispatcher.execute(ws, () -> {
+                virtual.add(Thread.currentThread().isVirtual());
+                if (n % 50 == 0) {
+                    try {
+                        Thread.sleep(5);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+                order.add(n);
+                done.countDown();
+            });
+        }
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        for (int i = 0; i < 200; i++) {
+            assertEquals(i, order.get(i));
+        }
+        assertFalse(virtual.contains(false));
+        dispatcher.shutdown();
+    }
+
+    @Test
+    void execute_noDeberiaBloquearOtrasConexiones_casoFeliz3() throws Exception {
+        InboundDispatcher dispatcher = new InboundDispatcher(true);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch other = new CountDownLatch(1);
+
+        dispatcher.execute(session("WS1"), () -> {
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        dispatcher.execute(session("WS2"), other::countDown);
+
+        assertTrue(other.await(5, TimeUnit.SECONDS));
+        release.countDown();
+        dispatcher.shutdown();
+    }
+}
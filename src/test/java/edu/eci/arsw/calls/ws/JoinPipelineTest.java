@@ -0,0 +1,130 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.domain.CallSession;
+import edu.eci.arsw.calls.service.CallSessionService;
+import edu.eci.arsw.calls.service.EligibilityService;
+import edu.eci.arsw.calls.service.EligibilityService.EligibilityResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+
+import java.time.Instant;
+import java.util.Optional;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+class JoinPipelineTest {
+
+    private final CallSessionService callService = mock(CallSessionService.class);
+    private final EligibilityService eligibilityService = mock(EligibilityService.class);
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    private JoinPipeline pipeline(long eligibilityTimeoutMs) {
+        return new JoinPipeline(callService, eligibilityService, meters, executor, 2_000, eligibilityTimeoutMs, 2_000);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void admit_deberiaBuscarSesionYElegibilidadALaVez_casoFeliz1() {
+        CyclicBarrier both = new CyclicBarrier(2);
+        CallSession cs = CallSession.create("CS-1", "RES-1", Instant.now());
+        when(callService.findBySessionId("SID-1")).thenAnswer(inv -> {
+            both.await(2, TimeUnit.SECONDS);
+            return Optional.of(cs);
+        });
+        when(eligibilityService.checkReservation("RES-1", "U1", "Bearer X")).thenAnswer(inv -> {
+            both.await(2, TimeUnit.SECONDS);
+            return EligibilityResult.ok();
+        });
+
+        JoinPipeline.Admission admission = pipeline(3_000).admit("SID-1", "RES-1", "U1", "Bearer X");
+
+        assertTrue(admission.isAdmitted());
+        assertSame(cs, admission.session());
+        verify(callService, never()).create(anyString());
+        assertEquals(1, meters.get("ws.join.stage").tag("stage", "lookup").timer().count());
+        assertEquals(1, meters.get("ws.join.stage").tag("stage", "eligibility").timer().count());
+    }
+
+    @Test
+    void admit_deberiaBuscarLaSesionUnaSolaVez_casoFeliz2() {
+        CallSession cs = CallSession.create("CS-1", "RES-1", Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.of(cs));
+        when(eligibilityService.checkReservation("RES-1", "U1", null)).thenReturn(EligibilityResult.ok());
+
+        JoinPipeline.Admission admission = pipeline(3_000).admit("SID-1", null, "U1", null);
+
+        assertSame(cs, admission.session());
+        verify(callService, times(1)).findBySessionId("SID-1");
+    }
+
+    @Test
+    void admit_deberiaCrearLaSesionSiNoExiste_casoFeliz3() {
+        CallSession cs = CallSession.create("CS-NEW", "RES-1", Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.empty());
+        when(eligibilityService.checkReservation("RES-1", "U1", null)).thenReturn(EligibilityResult.ok());
+        when(callService.create("RES-1")).thenReturn(cs);
+
+        JoinPipeline pipeline = pipeline(3_000);
+        JoinPipeline.Admission admission = pipeline.admit("SID-1", "RES-1", "U1", null);
+        pipeline.acked(admission);
+
+        assertSame(cs, admission.session());
+        assertEquals(1, meters.get("ws.join.stage").tag("stage", "create").timer().count());
+        assertEquals(1, meters.get("ws.join.ack").timer().count());
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoNoEsElegible() {
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.empty());
+        when(eligibilityService.checkReservation("RES-1", "U1", null))
+                .thenReturn(EligibilityResult.notEligible("nope"));
+
+        JoinPipeline.Admission admission = pipeline(3_000).admit("SID-1", "RES-1", "U1", null);
+
+        assertFalse(admission.isAdmitted());
+        assertEquals("403: nope", admission.error());
+        assertEquals(CloseStatus.NOT_ACCEPTABLE, admission.closeStatus());
+        verify(callService, never()).create(anyString());
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoLaElegibilidadSuperaSuTimeout() {
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.empty());
+        when(eligibilityService.checkReservation("RES-1", "U1", null)).thenAnswer(inv -> {
+            Thread.sleep(1_000);
+            return EligibilityResult.ok();
+        });
+
+        JoinPipeline.Admission admission = pipeline(50).admit("SID-1", "RES-1", "U1", null);
+
+        assertFalse(admission.isAdmitted());
+        assertEquals("504: eligibility timeout", admission.error());
+        assertEquals(CloseStatus.SERVICE_OVERLOAD, admission.closeStatus());
+        assertEquals(1, meters.get("ws.join.stage.timeout").tag("stage", "eligibility").counter().count());
+        verify(callService, never()).create(anyString());
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoLaSesionEsDeOtraReserva() {
+        CallSession cs = CallSession.create("CS-1", "OTHER", Instant.now());
+        when(callService.findBySessionId("SID-1")).thenReturn(Optional.of(cs));
+        when(eligibilityService.checkReservation("RES-1", "U1", null)).thenReturn(EligibilityResult.ok());
+
+        JoinPipeline pipeline = pipeline(3_000);
+
+        assertThrows(IllegalStateException.class, () -> pipeline.admit("SID-1", "RES-1", "U1", null));
+    }
+}
@@ -0,0 +1,208 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.domain.CallSession;
+import edu.eci.arsw.calls.pubsub.BridgeBuilder;
+import edu.eci.arsw.calls.pubsub.RedisPubSubBridge;
+import edu.eci.arsw.calls.service.CallSessionService;
+import edu.eci.arsw.calls.service.EligibilityService;
+import edu.eci.arsw.calls.service.EligibilityService.EligibilityResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Prueba de carga: tormenta de JOINs (HTTP de elegibilidad y Mongo simulados
+ * con latencia) mientras llamadas ya establecidas siguen reenviando OFFERs. Un
+ * pool fijo hace de hilos del contenedor. Compara p99 de JOIN y de relay con el
+ * trabajo en el hilo del contenedor y con hilos virtuales. Se ejecuta con
+ * {@code mvn -Pperf test}.
+ */
+@Tag("benchmark")
+class JoinStormLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(JoinStormLoadTest.class);
+
+    private static final int CONTAINER_THREADS = 8;
+    private static final int ROOMS = 20;
+    private static final int JOINS = 400;
+    private static final int RELAYS = 1_000;
+    private static final long ELIGIBILITY_MS = 40;
+    private static final long MONGO_MS = 3;
+
+    @Test
+    void compararJoinStormHiloContenedorVsHilosVirtuales() throws Exception {
+        Result container = run(false);
+        Result virtual = run(true);
+
+        log.info("JOIN storm ({} JOINs, {} relays, {} hilos de contenedor)", JOINS, RELAYS, CONTAINER_THREADS);
+        log.info("  contenedor: JOIN p99 {} ms | relay p50 {} ms, p99 {} ms",
+                container.joinP99Ms(), container.relayP50Ms(), container.relayP99Ms());
+        log.info("  virtuales : JOIN p99 {} ms | relay p50 {} ms, p99 {} ms",
+                virtual.joinP99Ms(), virtual.relayP50Ms(), virtual.relayP99Ms());
+        assertTrue(virtual.relayP99Ms() <= container.relayP99Ms());
+    }
+
+    private static Result run(boolean virtualThreads) throws Exception {
+        Map<String, CallSession> store = new ConcurrentHashMap<>();
+        CallSessionService callService = mock(CallSessionService.class, withSettings().stubOnly());
+        EligibilityService eligibility = mock(EligibilityService.class, withSettings().stubOnly());
+        when(eligibility.checkReservation(anyString(), anyString(), any())).thenAnswer(inv -> {
+            Thread.sleep(ELIGIBILITY_MS);
+            return EligibilityResult.ok();
+        });
+        when(callService.findBySessionId(anyString())).thenAnswer(inv -> {
+            Thread.sleep(MONGO_MS);
+            return Optional.ofNullable(store.get(inv.<String>getArgument(0)));
+        });
+        when(callService.create(anyString())).thenAnswer(inv -> {
+            Thread.sleep(MONGO_MS);
+            String reservationId = inv.getArgument(0);
+            CallSession cs = CallSession.create("CS-" + reservationId, reservationId, Instant.now());
+            store.put(cs.getSessionId(), cs);
+            return cs;
+        });
+
+        SignalingCodecs codecs = new SignalingCodecs();
+        InboundDispatcher inbound = new InboundDispatcher(virtualThreads);
+        RedisPubSubBridge bridge = BridgeBuilder.node("load").build();
+        CallWebSocketHandler handler = HandlerBuilder.of(new SessionRegistry(), callService,
+                new JoinPipeline(callService, eligibility, new SimpleMeterRegistry(), 2_000, 3_000, 2_000), bridge)
+                .codecs(codecs).inbound(inbound)
+                .contexts(new ConnectionContexts(RateLimitPolicy.of(Integer.MAX_VALUE))).build();
+        ExecutorService containerPool = Executors.newFixedThreadPool(CONTAINER_THREADS);
+
+        try {
+            // Llamadas establecidas: A envía, B recibe
+            AtomicLongArray relayRecv = new AtomicLongArray(RELAYS);
+            CountDownLatch relayed = new CountDownLatch(RELAYS);
+            WebSocketSession[] senders = new WebSocketSession[ROOMS];
+            CountDownLatch setup = new CountDownLatch(ROOMS * 2);
+            for (int r = 0; r < ROOMS; r++) {
+                String room = "ROOM-" + r;
+                senders[r] = session("A-" + r, "A" + r, text -> {
+                    if (text.contains("JOIN_ACK")) {
+                        setup.countDown();
+                    }
+                });
+                WebSocketSession receiver = session("B-" + r, "B" + r, text -> {
+                    if (text.contains("JOIN_ACK")) {
+                        setup.countDown();
+                        return;
+                    }
+                    int k = traceIndex(text);
+                    if (k >= 0 && relayRecv.compareAndSet(k, 0, System.nanoTime())) {
+                        relayed.countDown();
+                    }
+                });
+                handler.handleTextMessage(senders[r], join(room));
+                handler.handleTextMessage(receiver, join(room));
+            }
+            assertTrue(setup.await(30, TimeUnit.SECONDS));
+
+            // Tormenta de JOINs en salas nuevas
+            long[] joinSent = new long[JOINS];
+            AtomicLongArray joinAck = new AtomicLongArray(JOINS);
+            CountDownLatch acked = new CountDownLatch(JOINS);
+            for (int i = 0; i < JOINS; i++) {
+                int n = i;
+                WebSocketSession ws = session("S-" + i, "S" + i, text -> {
+                    if (text.contains("JOIN_ACK") && joinAck.compareAndSet(n, 0, System.nanoTime())) {
+                        acked.countDown();
+                    }
+                });
+                TextMessage join = join("STORM-" + i);
+                joinSent[i] = System.nanoTime();
+                containerPool.execute(() -> handler.handleTextMessage(ws, join));
+            }
+
+            // Relay durante la tormenta, un OFFER por milisegundo
+            long[] relaySent = new long[RELAYS];
+            for (int k = 0; k < RELAYS; k++) {
+                int r = k % ROOMS;
+                WebSocketSession from = senders[r];
+                TextMessage offer = new TextMessage("{\"type\":\"OFFER\",\"sessionId\":\"CS-ROOM-" + r
+                        + "\",\"from\":\"A" + r + "\",\"traceId\":\"T-" + k + "\",\"payload\":{\"sdp\":\"v=0\"}}");
+                relaySent[k] = System.nanoTime();
+                containerPool.execute(() -> handler.handleTextMessage(from, offer));
+                Thread.sleep(1);
+            }
+
+            assertTrue(acked.await(60, TimeUnit.SECONDS), "JOINs sin ACK");
+            assertTrue(relayed.await(60, TimeUnit.SECONDS), "OFFERs sin entregar");
+
+            long[] joinLat = new long[JOINS];
+            for (int i = 0; i < JOINS; i++) {
+                joinLat[i] = joinAck.get(i) - joinSent[i];
+            }
+            long[] relayLat = new long[RELAYS];
+            for (int k = 0; k < RELAYS; k++) {
+                relayLat[k] = relayRecv.get(k) - relaySent[k];
+            }
+            return new Result(percentileMs(joinLat, 0.99), percentileMs(relayLat, 0.50),
+                    percentileMs(relayLat, 0.99));
+        } finally {
+            containerPool.shutdownNow();
+            inbound.shutdown();
+        }
+    }
+
+    private static TextMessage join(String reservationId) {
+        return new TextMessage("{\"type\":\"JOIN\",\"sessionId\":\"CS-" + reservationId
+                + "\",\"reservationId\":\"" + reservationId + "\"}");
+    }
+
+    private static WebSocketSession session(String id, String userId, Consumer<String> onSend) throws Exception {
+        WebSocketSession ws = mock(WebSocketSession.class, withSettings().stubOnly());
+        Map<String, Object> attrs = new ConcurrentHashMap<>();
+        attrs.put("userId", userId);
+        attrs.put("token", "Bearer load");
+        when(ws.getId()).thenReturn(id);
+        when(ws.getAttributes()).thenReturn(attrs);
+        when(ws.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            if (inv.getArgument(0) instanceof TextMessage text) {
+                onSend.accept(text.getPayload());
+            }
+            return null;
+        }).when(ws).sendMessage(any());
+        return ws;
+    }
+
+    private static int traceIndex(String json) {
+        int i = json.indexOf("\"traceId\":\"T-");
+        if (i < 0) {
+            return -1;
+        }
+        int start = i + "\"traceId\":\"T-".length();
+        return Integer.parseInt(json, start, json.indexOf('"', start), 10);
+    }
+
+    private static double percentileMs(long[] nanos, double q) {
+        long[] sorted = nanos.clone();
+        Arrays.sort(sorted);
+        int idx = Math.max(0, Math.min(sorted.length - 1, (int) Math.ceil(q * sorted.length) - 1));
+        return sorted[idx] / 1_000_000.0;
+    }
+
+    record Result(double joinP99Ms, double relayP50Ms, double relayP99Ms) {
+    }
+}
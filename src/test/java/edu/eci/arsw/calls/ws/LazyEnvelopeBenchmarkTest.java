@@ -0,0 +1,66 @@
+package edu.eci.arsw.calls.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark del reenvío de un OFFER con SDP real: deserialización completa
+ * ({@link MessageEnvelope} + re-serialización) frente a {@link LazyEnvelope}.
+ * Reporta ns y bytes asignados por mensaje. Se ejecuta con
+ * {@code mvn -Pperf test}.
+ */
+@Tag("benchmark")
+class LazyEnvelopeBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(LazyEnvelopeBenchmarkTest.class);
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private final ObjectMapper om = new ObjectMapper();
+
+    interface Relay {
+        String apply(String json) throws IOException;
+    }
+
+    @Test
+    void compararDeserializacionCompletaVsPerezosa() throws IOException {
+        String offer = om.writeValueAsString(Map.of(
+                "type", "OFFER", "sessionId", "01JB4Y7W6Q0V2K8T3M5N9P1R4S", "from", "U1",
+                "payload", Map.of("type", "offer", "sdp", SignalingCodecBenchmarkTest.sdp("offer-chrome.sdp"))));
+
+        Result full = run(json -> om.writeValueAsString(om.readValue(json, MessageEnvelope.class)), offer);
+        Result lazy = run(json -> LazyEnvelope.parseJson(json).toJson(), offer);
+
+        log.info("OFFER {} chars | completo: {} ns/msg, {} B/msg | perezoso: {} ns/msg, {} B/msg",
+                offer.length(), full.nsPerMsg(), full.bytesPerMsg(), lazy.nsPerMsg(), lazy.bytesPerMsg());
+        assertTrue(lazy.bytesPerMsg() < full.bytesPerMsg());
+    }
+
+    private static Result run(Relay relay, String json) throws IOException {
+        for (int i = 0; i < WARMUP; i++) {
+            relay.apply(json);
+        }
+        com.sun.management.ThreadMXBean mx = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long tid = Thread.currentThread().getId();
+        long alloc0 = mx.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            relay.apply(json);
+        }
+        long elapsed = System.nanoTime() - start;
+        long allocated = mx.getThreadAllocatedBytes(tid) - alloc0;
+        return new Result(elapsed / ITERATIONS, allocated / ITERATIONS);
+    }
+
+    record Result(long nsPerMsg, long bytesPerMsg) {
+    }
+}
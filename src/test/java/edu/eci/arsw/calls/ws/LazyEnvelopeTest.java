@@ -0,0 +1,112 @@
+package edu.eci.arsw.calls.ws;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LazyEnvelopeTest {
+
+    private static final String OFFER = "{\"type\":\"OFFER\",\"sessionId\":\"S1\",\"from\":\"U1\",\"to\":\"U2\","
+            + "\"traceId\":\"T1\",\"ts\":7,\"payload\":{\"type\":\"offer\",\"sdp\":\"v=0\\r\\na=x\"}}";
+
+    // -------------------------------------------------------------------------
+    // parseJson
+    // -------------------------------------------------------------------------
+
+    @Test
+    void parseJson_deberiaLeerCabecera_casoFeliz1() throws IOException {
+        LazyEnvelope env = LazyEnvelope.parseJson(OFFER);
+
+        assertEquals("OFFER", env.type);
+        assertEquals("S1", env.sessionId);
+        assertEquals("U1", env.from);
+        assertEquals("U2", env.to);
+        assertEquals("T1", env.traceId);
+        assertEquals(7L, env.ts);
+        assertNull(env.reservationId);
+    }
+
+    @Test
+    void parseJson_deberiaConservarPayloadCrudo_casoFeliz2() throws IOException {
+        LazyEnvelope env = LazyEnvelope.parseJson(OFFER);
+
+        assertTrue(env.hasPayload());
+        assertEquals("{\"type\":\"offer\",\"sdp\":\"v=0\\r\\na=x\"}", env.payloadJson());
+    }
+
+    @Test
+    void parseJson_deberiaIgnorarCamposDesconocidos() throws IOException {
+        LazyEnvelope env = LazyEnvelope.parseJson("{\"x\":{\"y\":[1,2]},\"type\":\"HEARTBEAT\"}");
+
+        assertEquals("HEARTBEAT", env.type);
+        assertFalse(env.hasPayload());
+        assertNull(env.payloadJson());
+    }
+
+    @Test
+    void parseJson_deberiaCapturarPayloadEscalar() throws IOException {
+        LazyEnvelope env = LazyEnvelope.parseJson("{\"payload\":\"hola\",\"type\":\"X\"}");
+
+        assertEquals("\"hola\"", env.payloadJson());
+        assertEquals("X", env.type);
+    }
+
+    @Test
+    void parseJson_noDeberiaPasar_cuandoNoEsObjeto() {
+        assertThrows(IOException.class, () -> LazyEnvelope.parseJson("[1,2]"));
+    }
+
+    @Test
+    void parseJson_noDeberiaPasar_cuandoNoEsJson() {
+        assertThrows(IOException.class, () -> LazyEnvelope.parseJson("esto-no-es-json"));
+    }
+
+    // -------------------------------------------------------------------------
+    // payloadField
+    // -------------------------------------------------------------------------
+
+    @Test
+    void payloadField_deberiaLeerCampoDePrimerNivel() throws IOException {
+        LazyEnvelope env = LazyEnvelope.parseJson(
+                "{\"type\":\"ICE_CANDIDATE\",\"payload\":{\"sdpMid\":{\"a\":1},\"candidate\":\"c typ relay\"}}");
+
+        assertEquals("c typ relay", env.payloadField("candidate"));
+        assertNull(env.payloadField("otro"));
+    }
+
+    @Test
+    void payloadField_deberiaRetornarNull_sinPayloadOPayloadNoObjeto() throws IOException {
+        assertNull(LazyEnvelope.parseJson("{\"type\":\"X\"}").payloadField("candidate"));
+        assertNull(LazyEnvelope.parseJson("{\"payload\":[1]}").payloadField("candidate"));
+    }
+
+    // -------------------------------------------------------------------------
+    // toJson
+    // -------------------------------------------------------------------------
+
+    @Test
+    void toJson_deberiaReenviarTextoOriginal_siNoCambiaCabecera() throws IOException {
+        LazyEnvelope env = LazyEnvelope.parseJson(OFFER);
+
+        assertSame(OFFER, env.toJson());
+    }
+
+    @Test
+    void toJson_deberiaReescribirCabeceraYConservarPayload_siCambiaTraceId() throws IOException {
+        LazyEnvelope env = LazyEnvelope.parseJson(
+                "{\"type\":\"OFFER\",\"from\":\"U\\\"1\",\"payload\":{\"sdp\":\"v=0\"}}");
+        env.setTraceId("NEW");
+
+        Map<?, ?> back = new ObjectMapper().readValue(env.toJson(), Map.class);
+
+        assertEquals("OFFER", back.get("type"));
+        assertEquals("U\"1", back.get("from"));
+        assertEquals("NEW", back.get("traceId"));
+        assertEquals(Map.of("sdp", "v=0"), back.get("payload"));
+        assertFalse(back.containsKey("to"));
+    }
+}
@@ -0,0 +1,176 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.domain.CallSession;
+import edu.eci.arsw.calls.pubsub.BridgeBuilder;
+import edu.eci.arsw.calls.pubsub.RedisPubSubBridge;
+import edu.eci.arsw.calls.service.CallSessionService;
+import edu.eci.arsw.calls.service.EligibilityService;
+import edu.eci.arsw.calls.service.EligibilityService.EligibilityResult;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Señalización de una malla de N participantes (N = 2..9: un tutor y hasta
+ * ocho estudiantes): cada par intercambia OFFER, ANSWER e ICE_CANDIDATE con
+ * {@code to}. Compara mensajes por segundo y envíos a sockets por sala
+ * difundiendo a toda la sala frente a entregar solo al destinatario. Se ejecuta
+ * con {@code mvn -Pperf test}.
+ */
+@Tag("benchmark")
+class MeshSignalingBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(MeshSignalingBenchmarkTest.class);
+
+    private static final int MAX_PARTIES = 9;
+    private static final int ICE_PER_PEER = 4;
+    private static final int ROOMS = 200;
+    private static final String SDP = "v=0\\r\\no=- 4611731400430051336 2 IN IP4 127.0.0.1\\r\\ns=-\\r\\nt=0 0\\r\\n"
+            + "a=group:BUNDLE 0 1\\r\\nm=audio 9 UDP/TLS/RTP/SAVPF 111\\r\\nc=IN IP4 0.0.0.0\\r\\n";
+
+    @Test
+    void compararMallaDifusionVsUnicast() throws Exception {
+        // Calentamiento
+        run(false, 4, ROOMS / 4);
+        run(true, 4, ROOMS / 4);
+
+        log.info("Malla de señalización ({} salas por N, {} candidatos ICE por par y sentido)", ROOMS, ICE_PER_PEER);
+        for (int n = 2; n <= MAX_PARTIES; n++) {
+            Result broadcast = run(false, n, ROOMS);
+            Result unicast = run(true, n, ROOMS);
+            log.info("  N={} | {} mensajes por sala | difusión: {} msg/s, {} envíos por sala | "
+                    + "unicast: {} msg/s, {} envíos por sala",
+                    n, unicast.messagesPerRoom(), Math.round(broadcast.messagesPerSecond()),
+                    broadcast.sendsPerRoom(), Math.round(unicast.messagesPerSecond()), unicast.sendsPerRoom());
+
+            assertEquals(unicast.messagesPerRoom(), unicast.sendsPerRoom());
+            assertEquals(broadcast.messagesPerRoom() * (n - 1), broadcast.sendsPerRoom());
+        }
+    }
+
+    private static Result run(boolean unicast, int parties, int rooms) throws Exception {
+        Map<String, CallSession> store = new ConcurrentHashMap<>();
+        CallSessionService callService = mock(CallSessionService.class, withSettings().stubOnly());
+        EligibilityService eligibility = mock(EligibilityService.class, withSettings().stubOnly());
+        when(eligibility.checkReservation(anyString(), anyString(), any())).thenReturn(EligibilityResult.ok());
+        when(callService.findBySessionId(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(store.get(inv.<String>getArgument(0))));
+        when(callService.create(anyString())).thenAnswer(inv -> {
+            String reservationId = inv.getArgument(0);
+            CallSession cs = CallSession.create("CS-" + reservationId, reservationId, Instant.now());
+            store.put(cs.getSessionId(), cs);
+            return cs;
+        });
+
+        SignalingCodecs codecs = new SignalingCodecs();
+        InboundDispatcher inbound = new InboundDispatcher(false);
+        RedisPubSubBridge bridge = BridgeBuilder.node("mesh").build();
+        CallWebSocketHandler handler = HandlerBuilder.of(new SessionRegistry(MAX_PARTIES), callService,
+                new JoinPipeline(callService, eligibility, new SimpleMeterRegistry(), Runnable::run,
+                        2_000, 3_000, 2_000),
+                bridge).codecs(codecs).inbound(inbound)
+                .contexts(new ConnectionContexts(RateLimitPolicy.of(Integer.MAX_VALUE)))
+                .routes(new PeerRoutes(new SimpleMeterRegistry(), unicast)).build();
+
+        LongAdder sends = new LongAdder();
+        List<WebSocketSession[]> mesh = new ArrayList<>(rooms);
+        for (int r = 0; r < rooms; r++) {
+            WebSocketSession[] peers = new WebSocketSession[parties];
+            for (int p = 0; p < parties; p++) {
+                peers[p] = session("R" + r + "-" + p, "U" + p, sends);
+                handler.handleTextMessage(peers[p], join("M" + parties + "-" + r));
+            }
+            mesh.add(peers);
+        }
+
+        // Mensajes de toda la malla ya construidos: solo se mide la entrega
+        List<TextMessage[]> signaling = new ArrayList<>(rooms);
+        List<WebSocketSession[]> senders = new ArrayList<>(rooms);
+        for (int r = 0; r < rooms; r++) {
+            String sessionId = "CS-M" + parties + "-" + r;
+            List<TextMessage> messages = new ArrayList<>();
+            List<WebSocketSession> from = new ArrayList<>();
+            WebSocketSession[] peers = mesh.get(r);
+            for (int a = 0; a < parties; a++) {
+                for (int b = a + 1; b < parties; b++) {
+                    messages.add(signal("OFFER", sessionId, b, "{\"type\":\"offer\",\"sdp\":\"" + SDP + "\"}"));
+                    from.add(peers[a]);
+                    messages.add(signal("ANSWER", sessionId, a, "{\"type\":\"answer\",\"sdp\":\"" + SDP + "\"}"));
+                    from.add(peers[b]);
+                    for (int i = 0; i < ICE_PER_PEER; i++) {
+                        messages.add(signal("ICE_CANDIDATE", sessionId, b, candidate(i)));
+                        from.add(peers[a]);
+                        messages.add(signal("ICE_CANDIDATE", sessionId, a, candidate(i)));
+                        from.add(peers[b]);
+                    }
+                }
+            }
+            signaling.add(messages.toArray(TextMessage[]::new));
+            senders.add(from.toArray(WebSocketSession[]::new));
+        }
+
+        sends.reset();
+        long total = 0;
+        long start = System.nanoTime();
+        for (int r = 0; r < rooms; r++) {
+            TextMessage[] messages = signaling.get(r);
+            WebSocketSession[] from = senders.get(r);
+            for (int k = 0; k < messages.length; k++) {
+                handler.handleTextMessage(from[k], messages[k]);
+            }
+            total += messages.length;
+        }
+        long elapsed = System.nanoTime() - start;
+        inbound.shutdown();
+
+        return new Result(total / rooms, sends.sum() / rooms, total * 1e9 / elapsed);
+    }
+
+    private static TextMessage join(String reservationId) {
+        return new TextMessage("{\"type\":\"JOIN\",\"sessionId\":\"CS-" + reservationId
+                + "\",\"reservationId\":\"" + reservationId + "\"}");
+    }
+
+    private static TextMessage signal(String type, String sessionId, int to, String payload) {
+        return new TextMessage("{\"type\":\"" + type + "\",\"sessionId\":\"" + sessionId + "\",\"to\":\"U" + to
+                + "\",\"payload\":" + payload + "}");
+    }
+
+    private static String candidate(int i) {
+        return "{\"candidate\":\"candidate:" + i + " 1 udp 2122260223 192.168.1." + (10 + i)
+                + " 5" + (1000 + i) + " typ host\",\"sdpMid\":\"0\",\"sdpMLineIndex\":0}";
+    }
+
+    private static WebSocketSession session(String id, String userId, LongAdder sends) throws Exception {
+        WebSocketSession ws = mock(WebSocketSession.class, withSettings().stubOnly());
+        Map<String, Object> attrs = new ConcurrentHashMap<>();
+        attrs.put("userId", userId);
+        attrs.put("token", "Bearer mesh");
+        when(ws.getId()).thenReturn(id);
+        when(ws.getAttributes()).thenReturn(attrs);
+        when(ws.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            sends.increment();
+            return null;
+        }).when(ws).sendMessage(any());
+        return ws;
+    }
+
+    record Result(long messagesPerRoom, long sendsPerRoom, double messagesPerSecond) {
+    }
+}
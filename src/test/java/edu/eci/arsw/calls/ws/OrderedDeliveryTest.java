@@ -0,0 +1,161 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.pubsub.RelayFrame;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderedDeliveryTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final List<String> entregados = new CopyOnWriteArrayList<>();
+    private OrderedDelivery ordering = new OrderedDelivery(meters, true, 4, 50);
+
+    @AfterEach
+    void tearDown() {
+        ordering.shutdown();
+    }
+
+    private static RelayFrame frame(String user, long seq, String trace) {
+        return RelayFrame.of(user, "ICE_CANDIDATE", trace).stamped("n1").sequenced(seq, trace);
+    }
+
+    private void accept(String user, long seq, String trace) {
+        ordering.accept("call:S1", frame(user, seq, trace), f -> entregados.add(f.body()));
+    }
+
+    private double count(String name) {
+        return meters.get(name).counter().count();
+    }
+
+    @Test
+    void accept_deberiaEntregarEnOrdenLoQueLlegaEnOrden_casoFeliz1() {
+        accept("U1", 1, "a");
+        accept("U1", 2, "b");
+        accept("U1", 3, "c");
+
+        assertEquals(List.of("a", "b", "c"), entregados);
+        assertEquals(0.0, count("ws.sequence.reordered"));
+    }
+
+    @Test
+    void accept_deberiaReordenarDentroDeLaVentana_casoFeliz2() {
+        accept("U1", 1, "offer");
+        accept("U1", 3, "ice-2");
+        accept("U1", 2, "ice-1");
+
+        assertEquals(List.of("offer", "ice-1", "ice-2"), entregados);
+        assertEquals(1.0, count("ws.sequence.reordered"));
+        assertEquals(0.0, count("ws.sequence.gaps"));
+    }
+
+    @Test
+    void accept_deberiaSaltarElHuecoAlVencerElPlazo_casoFeliz3() throws Exception {
+        accept("U1", 1, "a");
+        accept("U1", 3, "c");
+        assertEquals(List.of("a"), entregados);
+
+        long deadline = System.currentTimeMillis() + 2_000;
+        while (entregados.size() < 2 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertEquals(List.of("a", "c"), entregados);
+        assertEquals(1.0, count("ws.sequence.gaps"));
+    }
+
+    @Test
+    void accept_deberiaSaltarElHuecoAlLlenarseLaVentana_casoFeliz4() {
+        accept("U1", 1, "a");
+        for (int seq = 3; seq <= 7; seq++) {
+            accept("U1", seq, "m" + seq);
+        }
+
+        assertEquals(List.of("a", "m3", "m4", "m5", "m6", "m7"), entregados);
+        assertEquals(1.0, count("ws.sequence.gaps"));
+    }
+
+    @Test
+    void accept_deberiaDescartarDuplicadosPorSecuenciaYTraceId_casoFeliz5() {
+        accept("U1", 1, "a");
+        accept("U1", 1, "a");
+        // Reenvío del cliente: mismo traceId con otra secuencia; no bloquea lo que sigue
+        accept("U1", 2, "a");
+        accept("U1", 3, "b");
+
+        assertEquals(List.of("a", "b"), entregados);
+        assertEquals(2.0, count("ws.sequence.duplicates"));
+        assertEquals(0.0, count("ws.sequence.gaps"));
+    }
+
+    @Test
+    void accept_deberiaReiniciarCuandoElEmisorReconecta_casoFeliz6() {
+        accept("U1", 1, "a");
+        accept("U1", 2, "b");
+        accept("U1", 1, "nueva-conexion");
+
+        assertEquals(List.of("a", "b", "nueva-conexion"), entregados);
+        assertEquals(1.0, count("ws.sequence.restarts"));
+    }
+
+    @Test
+    void accept_noDeberiaReiniciar_cuandoLlegaUnRezagadoDentroDeLaVentana() {
+        accept("U1", 1, "a");
+        for (int seq = 3; seq <= 7; seq++) {
+            accept("U1", seq, "m" + seq);
+        }
+        accept("U1", 9, "m9");
+
+        // El 2 se dio por perdido al llenarse la ventana; llega tarde con un traceId nuevo
+        accept("U1", 2, "b");
+        accept("U1", 8, "m8");
+
+        assertEquals(List.of("a", "m3", "m4", "m5", "m6", "m7", "b", "m8", "m9"), entregados);
+        assertEquals(0.0, count("ws.sequence.restarts"));
+    }
+
+    @Test
+    void accept_deberiaOrdenarCadaEmisorPorSeparado_casoFeliz7() {
+        accept("U1", 5, "u1-5");
+        accept("U2", 1, "u2-1");
+        accept("U1", 6, "u1-6");
+
+        assertEquals(List.of("u1-5", "u2-1", "u1-6"), entregados);
+        assertEquals(2, ordering.streams("call:S1"));
+    }
+
+    @Test
+    void accept_deberiaEntregarSinOrdenarLoQueNoTraeSecuencia_casoFeliz8() {
+        ordering.accept("call:S1", RelayFrame.of("U1", "PEER_LEFT", "left").stamped("n1"),
+                f -> entregados.add(f.body()));
+
+        assertEquals(List.of("left"), entregados);
+        assertEquals(0, ordering.streams("call:S1"));
+    }
+
+    @Test
+    void noDeberiaOrdenar_cuandoEstaDesactivado() {
+        ordering.shutdown();
+        ordering = new OrderedDelivery(meters, false, 4, 50);
+
+        accept("U1", 2, "b");
+        accept("U1", 1, "a");
+
+        assertEquals(List.of("b", "a"), entregados);
+        assertFalse(ordering.enabled());
+    }
+
+    @Test
+    void forget_deberiaOlvidarElEstadoDelCanal_casoFeliz9() {
+        accept("U1", 1, "a");
+
+        ordering.forget("call:S1");
+
+        assertEquals(0, ordering.streams("call:S1"));
+    }
+}
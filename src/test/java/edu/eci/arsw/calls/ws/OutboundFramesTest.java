@@ -0,0 +1,124 @@
+package edu.eci.arsw.calls.ws;
+
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketExtension;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class OutboundFramesTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    private final OutboundFrames frames = new OutboundFrames(new SignalingCodecs(), meters);
+
+    private static WebSocketSession session(String subprotocol) {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        when(ws.getAcceptedProtocol()).thenReturn(subprotocol);
+        return ws;
+    }
+
+    private static MessageEnvelope peerJoined() {
+        MessageEnvelope env = new MessageEnvelope();
+        env.type = "PEER_JOINED";
+        env.sessionId = "CS-1";
+        env.from = "U1";
+        env.ts = 42L;
+        return env;
+    }
+
+    private double counter(String name, String format) {
+        var c = meters.find(name).tag("format", format).counter();
+        return c == null ? 0 : c.count();
+    }
+
+    @Test
+    void send_deberiaCompartirElMismoFrameDeTexto_casoFeliz1() throws Exception {
+        WebSocketSession a = session(null);
+        WebSocketSession b = session(JsonSignalingCodec.SUBPROTOCOL);
+
+        OutboundFrame frame = frames.encode(peerJoined());
+        frames.send(a, frame);
+        frames.send(b, frame);
+
+        ArgumentCaptor<TextMessage> toA = ArgumentCaptor.forClass(TextMessage.class);
+        ArgumentCaptor<TextMessage> toB = ArgumentCaptor.forClass(TextMessage.class);
+        verify(a).sendMessage(toA.capture());
+        verify(b).sendMessage(toB.capture());
+        assertSame(toA.getValue(), toB.getValue());
+        assertTrue(toA.getValue().getPayload().contains("\"PEER_JOINED\""));
+
+        assertEquals(1, counter("ws.outbound.frames.encoded", JsonSignalingCodec.SUBPROTOCOL));
+        assertEquals(2, meters.get("ws.outbound.frames.written").counter().count());
+    }
+
+    @Test
+    void send_deberiaTranscodificarUnaVezParaVariosPeersCbor_casoFeliz2() throws Exception {
+        WebSocketSession a = session(CborSignalingCodec.SUBPROTOCOL);
+        WebSocketSession b = session(CborSignalingCodec.SUBPROTOCOL);
+
+        OutboundFrame frame = frames.wrap("OFFER", "{\"type\":\"OFFER\",\"payload\":{\"sdp\":\"v=0\"}}");
+        frames.send(a, frame);
+        frames.send(b, frame);
+
+        ArgumentCaptor<BinaryMessage> toA = ArgumentCaptor.forClass(BinaryMessage.class);
+        ArgumentCaptor<BinaryMessage> toB = ArgumentCaptor.forClass(BinaryMessage.class);
+        verify(a).sendMessage(toA.capture());
+        verify(b).sendMessage(toB.capture());
+
+        // Mismo array, pero cada envío con su propio ByteBuffer
+        ByteBuffer bufA = toA.getValue().getPayload();
+        ByteBuffer bufB = toB.getValue().getPayload();
+        assertNotSame(bufA, bufB);
+        assertSame(bufA.array(), bufB.array());
+
+        bufA.position(bufA.limit()); // simula que el contenedor consumió el primero
+        Map<?, ?> offer = new CBORMapper().readValue(bufB.array(), Map.class);
+        assertEquals("OFFER", offer.get("type"));
+
+        assertEquals(1, counter("ws.outbound.frames.encoded", CborSignalingCodec.SUBPROTOCOL));
+        assertEquals(bufB.remaining(), counter("ws.outbound.bytes.allocated", CborSignalingCodec.SUBPROTOCOL));
+    }
+
+    @Test
+    void encode_deberiaReutilizarBuffersDelPool_casoFeliz3() throws Exception {
+        frames.encode(peerJoined());
+        frames.encode(peerJoined());
+
+        double hits = meters.get("ws.outbound.buffer.pool").tag("result", "hit").functionCounter().count();
+        assertTrue(hits >= 1);
+    }
+
+    @Test
+    void noDeberiaContarEnvio_cuandoLaSesionFalla() throws Exception {
+        WebSocketSession ws = session(null);
+        doThrow(new IOException("closed")).when(ws).sendMessage(any());
+
+        OutboundFrame frame = frames.encode(peerJoined());
+
+        assertThrows(IOException.class, () -> frames.send(ws, frame));
+        assertEquals(0, meters.get("ws.outbound.frames.written").counter().count());
+    }
+
+    @Test
+    void send_deberiaMuestrearDeflateEnSesionesComprimidas_casoFeliz4() throws Exception {
+        DeflateSampler sampler = new DeflateSampler(meters, 1, 0);
+        OutboundFrames sampled = new OutboundFrames(new SignalingCodecs(), meters, sampler);
+        WebSocketSession ws = session(null);
+        when(ws.getExtensions()).thenReturn(List.of(new WebSocketExtension("permessage-deflate")));
+
+        sampled.send(ws, sampled.encode(peerJoined()));
+
+        assertEquals(1, meters.get("ws.deflate.cpu").timer().count());
+    }
+}
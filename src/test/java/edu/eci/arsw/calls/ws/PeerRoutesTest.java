@@ -0,0 +1,52 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.pubsub.RelayFrame;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PeerRoutesTest {
+
+    private final PeerRoutes routes = new PeerRoutes(new SimpleMeterRegistry(), true);
+
+    @Test
+    void observe_deberiaAprenderElNodoDelEmisor_casoFeliz1() {
+        routes.observe("call:S1", RelayFrame.of("U1", "PEER_JOINED", "{}").stamped("n1"));
+        routes.observe("call:S1", RelayFrame.of("U2", "OFFER", "{}").stamped("n2").sequenced(1, null));
+
+        assertEquals("n1", routes.owner("call:S1", "U1"));
+        assertEquals("n2", routes.owner("call:S1", "U2"));
+        assertNull(routes.owner("call:S2", "U1"));
+    }
+
+    @Test
+    void observe_deberiaConservarLaRutaNueva_cuandoElPeerLeftEsDelNodoAnterior_casoFeliz2() {
+        routes.observe("call:S1", RelayFrame.of("U1", "PEER_JOINED", "{}").stamped("n1"));
+        // U1 reconecta en n2 antes de que llegue el PEER_LEFT de n1
+        routes.observe("call:S1", RelayFrame.of("U1", "PEER_JOINED", "{}").stamped("n2"));
+        routes.observe("call:S1", RelayFrame.of("U1", "PEER_LEFT", "{}").stamped("n1"));
+
+        assertEquals("n2", routes.owner("call:S1", "U1"));
+
+        routes.observe("call:S1", RelayFrame.of("U1", "PEER_LEFT", "{}").stamped("n2"));
+
+        assertNull(routes.owner("call:S1", "U1"));
+    }
+
+    @Test
+    void forget_deberiaOlvidarLasRutasDelCanal_casoFeliz3() {
+        routes.observe("call:S1", RelayFrame.of("U1", "PEER_JOINED", "{}").stamped("n1"));
+
+        routes.forget("call:S1");
+
+        assertNull(routes.owner("call:S1", "U1"));
+    }
+
+    @Test
+    void observe_noDeberiaPasar_cuandoNoHayCabecera() {
+        routes.observe("call:S1", RelayFrame.decode("{\"type\":\"OFFER\",\"from\":\"U1\"}"));
+
+        assertNull(routes.owner("call:S1", "U1"));
+    }
+}
@@ -0,0 +1,38 @@
+package edu.eci.arsw.calls.ws;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Microbenchmark JMH: {@link SimpleRateLimiter} (synchronized, ventana fija)
+ * frente a {@link TokenBucketRateLimiter} (CAS) con varios hilos golpeando el
+ * mismo limitador. El límite es alto para medir el coste del control y no el
+ * rechazo. Lo lanza {@link RateLimiterBenchmarkTest}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class RateLimiterBenchmark {
+
+    private final SimpleRateLimiter simple = new SimpleRateLimiter(Integer.MAX_VALUE);
+    /** 1 token/ns: el cubo nunca se vacía pero cada adquisición hace su CAS. */
+    private final TokenBucketRateLimiter tokenBucket = new TokenBucketRateLimiter(1_000_000_000,
+            Integer.MAX_VALUE, Map.of("ICE_CANDIDATE", new TokenBucketRateLimiter.TypeLimit(1, Integer.MAX_VALUE)));
+
+    @Benchmark
+    public boolean simple() {
+        return simple.tryAcquire();
+    }
+
+    @Benchmark
+    public boolean tokenBucket() {
+        return tokenBucket.tryAcquire("ICE_CANDIDATE");
+    }
+}
@@ -0,0 +1,45 @@
+package edu.eci.arsw.calls.ws;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.openjdk.jmh.results.RunResult;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.openjdk.jmh.runner.options.TimeValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.Collection;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Lanza {@link RateLimiterBenchmark} con 8 hilos. Se ejecuta con
+ * {@code mvn -Pperf test}. Corre dentro de la JVM de surefire
+ * ({@code forks(0)}): vale para comparar, no para cifras absolutas.
+ */
+@Tag("benchmark")
+class RateLimiterBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(RateLimiterBenchmarkTest.class);
+
+    @Test
+    void compararSimpleVsTokenBucketConContencion() throws Exception {
+        Options opts = new OptionsBuilder()
+                .include(RateLimiterBenchmark.class.getName())
+                .forks(0)
+                .threads(8)
+                .warmupIterations(3)
+                .warmupTime(TimeValue.seconds(1))
+                .measurementIterations(5)
+                .measurementTime(TimeValue.seconds(1))
+                .build();
+
+        Collection<RunResult> results = new Runner(opts).run();
+
+        assertEquals(2, results.size());
+        for (RunResult r : results) {
+            log.info("{}: {} ops/us", r.getParams().getBenchmark(), r.getPrimaryResult().getScore());
+        }
+    }
+}
@@ -0,0 +1,153 @@
+package edu.eci.arsw.calls.ws;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class SendQueuesTest {
+
+    private final SimpleMeterRegistry meters = new SimpleMeterRegistry();
+    /** Executor manual: las tareas solo corren cuando el test lo pide (cliente "atascado"). */
+    private final Queue<Runnable> tasks = new ArrayDeque<>();
+
+    private SendQueues queues(int bufferSizeLimit) {
+        return new SendQueues(meters, tasks::add, 5_000, bufferSizeLimit, Set.of("ICE_CANDIDATE"));
+    }
+
+    private void runPending() {
+        Runnable r;
+        while ((r = tasks.poll()) != null) {
+            r.run();
+        }
+    }
+
+    private static TextMessage msg(int size) {
+        return new TextMessage("x".repeat(size));
+    }
+
+    private double dropped(String type) {
+        var c = meters.find("ws.send.dropped").tag("type", type).counter();
+        return c == null ? 0 : c.count();
+    }
+
+    @Test
+    void enqueue_deberiaEnviarEnOrdenFueraDelHiloQuePublica_casoFeliz1() throws Exception {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        QueuedSession q = queues(1_000).wrap(ws);
+
+        TextMessage a = msg(10);
+        TextMessage b = msg(20);
+        q.enqueue(a, "OFFER");
+        q.enqueue(b, "ICE_CANDIDATE");
+
+        verify(ws, never()).sendMessage(any());
+        assertEquals(2, q.depth());
+        assertEquals(2, meters.get("ws.send.queue.depth").gauge().value());
+
+        runPending();
+
+        var order = inOrder(ws);
+        order.verify(ws).sendMessage(a);
+        order.verify(ws).sendMessage(b);
+        assertEquals(0, meters.get("ws.send.queue.depth").gauge().value());
+        assertEquals(2, meters.get("ws.send.latency").timer().count());
+    }
+
+    @Test
+    void enqueue_deberiaDescartarIceObsoletosAlLlenarse_casoFeliz2() throws Exception {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        QueuedSession q = queues(100).wrap(ws);
+
+        q.enqueue(msg(40), "ICE_CANDIDATE");
+        q.enqueue(msg(40), "ICE_CANDIDATE");
+        TextMessage offer = msg(90);
+        q.enqueue(offer, "OFFER");
+
+        assertEquals(1, q.depth());
+        assertEquals(2, dropped("ICE_CANDIDATE"));
+        verify(ws, never()).close(any());
+
+        runPending();
+        verify(ws).sendMessage(offer);
+    }
+
+    @Test
+    void enqueue_deberiaDescartarIceNuevoSiNoHayHueco_casoFeliz3() throws Exception {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        QueuedSession q = queues(100).wrap(ws);
+
+        q.enqueue(msg(90), "ANSWER");
+        q.enqueue(msg(40), "ICE_CANDIDATE");
+
+        assertEquals(1, q.depth());
+        assertEquals(1, dropped("ICE_CANDIDATE"));
+        verify(ws, never()).close(any());
+    }
+
+    @Test
+    void close_deberiaEnviarLoPendienteAntesDeCerrar_casoFeliz4() throws Exception {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        QueuedSession q = queues(1_000).wrap(ws);
+
+        TextMessage error = msg(10);
+        q.sendMessage(error);
+        q.close(CloseStatus.SERVER_ERROR);
+        runPending();
+
+        var order = inOrder(ws);
+        order.verify(ws).sendMessage(error);
+        order.verify(ws).close(CloseStatus.SERVER_ERROR);
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoHayBacklogDeControl() throws Exception {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        QueuedSession q = queues(100).wrap(ws);
+
+        q.enqueue(msg(60), "OFFER");
+        q.enqueue(msg(60), "ANSWER");
+
+        verify(ws).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertEquals(0, q.depth());
+        assertEquals(1, meters.get("ws.send.overflow.closed").counter().count());
+
+        q.enqueue(msg(1), "OFFER");
+        runPending();
+        verify(ws, never()).sendMessage(any());
+    }
+
+    @Test
+    void noDeberiaPasar_cuandoElEnvioSuperaElLimiteDeTiempo() throws Exception {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(inv -> {
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return null;
+        }).when(ws).sendMessage(any());
+
+        SendQueues slow = new SendQueues(meters, r -> new Thread(r).start(), 20, 1_000, Set.of());
+        QueuedSession q = slow.wrap(ws);
+
+        q.enqueue(msg(10), "OFFER");
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+        Thread.sleep(50);
+        q.enqueue(msg(10), "ANSWER");
+
+        verify(ws).close(CloseStatus.SESSION_NOT_RELIABLE);
+        release.countDown();
+    }
+}
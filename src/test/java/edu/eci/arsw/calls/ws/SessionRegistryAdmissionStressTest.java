@@ -0,0 +1,149 @@
+package edu.eci.arsw.calls.ws;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Prueba de concurrencia al estilo jcstress sobre {@link SessionRegistry#admit}:
+ * en cada ronda varios hilos compiten por la misma sala vacía, arrancando a la
+ * vez con una barrera, y se comprueban los invariantes del resultado.
+ */
+class SessionRegistryAdmissionStressTest {
+    private static final int THREADS = 8;
+    private static final int ROUNDS = 2_000;
+
+    private final WebSocketSession delegate = mock(WebSocketSession.class);
+
+    @Test
+    void admitirConcurrente_deberiaLlenarLaSalaConUnSoloIniciador() throws Exception {
+        SessionRegistry registry = new SessionRegistry();
+        SessionRegistry.Seat[][] seats = race(registry, round -> {
+            String[] users = new String[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                users[t] = "U" + t;
+            }
+            return users;
+        });
+
+        for (int r = 0; r < ROUNDS; r++) {
+            int initiators = 0;
+            int admitted = 0;
+            for (SessionRegistry.Seat seat : seats[r]) {
+                assertFalse(seat.rejoined(), "ronda " + r);
+                if (seat != SessionRegistry.Seat.FULL) {
+                    admitted++;
+                }
+                if (seat.initiator()) {
+                    initiators++;
+                }
+            }
+            assertEquals(SessionRegistry.DEFAULT_SLOTS, admitted, "ronda " + r);
+            assertEquals(1, initiators, "ronda " + r);
+            assertEquals(SessionRegistry.DEFAULT_SLOTS, registry.get("S" + r).size(), "ronda " + r);
+        }
+        assertEquals(ROUNDS * SessionRegistry.DEFAULT_SLOTS, registry.connections());
+    }
+
+    @Test
+    void reconexionesConcurrentes_noDeberianOcuparMasDeUnHueco() throws Exception {
+        SessionRegistry registry = new SessionRegistry();
+        SessionRegistry.Seat[][] seats = race(registry, round -> {
+            // La mitad de los hilos es el mismo usuario reconectando; el resto, otro
+            String[] users = new String[THREADS];
+            for (int t = 0; t < THREADS; t++) {
+                users[t] = (t % 2 == 0) ? "A" : "B";
+            }
+            return users;
+        });
+
+        for (int r = 0; r < ROUNDS; r++) {
+            int fresh = 0;
+            for (SessionRegistry.Seat seat : seats[r]) {
+                assertNotEquals(SessionRegistry.Seat.FULL, seat, "ronda " + r);
+                if (!seat.rejoined()) {
+                    fresh++;
+                }
+            }
+            assertEquals(2, fresh, "ronda " + r);
+            assertEquals(2, registry.get("S" + r).size(), "ronda " + r);
+            assertTrue(registry.get("S" + r).containsKey("A"), "ronda " + r);
+            assertTrue(registry.get("S" + r).containsKey("B"), "ronda " + r);
+        }
+    }
+
+    @Test
+    void entrarYSalirConcurrente_noDeberiaExcederLaCapacidad() throws Exception {
+        SessionRegistry registry = new SessionRegistry();
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                String user = "U" + t;
+                workers.add(pool.submit(() -> {
+                    for (int i = 0; i < ROUNDS * 10; i++) {
+                        WebSocketSession ws = new WebSocketSessionDecorator(delegate);
+                        if (registry.admit("S", user, ws) != SessionRegistry.Seat.FULL) {
+                            assertTrue(registry.get("S").size() <= SessionRegistry.DEFAULT_SLOTS);
+                            assertEquals("S", registry.unregister(ws));
+                        }
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> w : workers) {
+                w.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        assertTrue(registry.all().isEmpty());
+        assertEquals(0, registry.connections());
+    }
+
+    private interface Users {
+        String[] of(int round);
+    }
+
+    /**
+     * Ejecuta {@link #ROUNDS} rondas; en la ronda {@code r} cada hilo admite a su
+     * usuario en la sala {@code "S" + r}.
+     */
+    private SessionRegistry.Seat[][] race(SessionRegistry registry, Users users) throws Exception {
+        SessionRegistry.Seat[][] seats = new SessionRegistry.Seat[ROUNDS][THREADS];
+        CyclicBarrier barrier = new CyclicBarrier(THREADS);
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < THREADS; t++) {
+                int thread = t;
+                workers.add(pool.submit(() -> {
+                    for (int r = 0; r < ROUNDS; r++) {
+                        String user = users.of(r)[thread];
+                        WebSocketSession ws = new WebSocketSessionDecorator(delegate);
+                        barrier.await(10, TimeUnit.SECONDS);
+                        seats[r][thread] = registry.admit("S" + r, user, ws);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<?> w : workers) {
+                w.get(120, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return seats;
+    }
+}
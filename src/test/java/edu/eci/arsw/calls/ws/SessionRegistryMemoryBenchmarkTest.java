@@ -0,0 +1,85 @@
+package edu.eci.arsw.calls.ws;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Memoria de 100k salas vivas con dos participantes: el registro anterior
+ * (un {@code ConcurrentHashMap} por sala) frente a las salas compactas
+ * con índice inverso. Se ejecuta con {@code mvn -Pperf test}.
+ */
+@Tag("benchmark")
+class SessionRegistryMemoryBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(SessionRegistryMemoryBenchmarkTest.class);
+
+    private static final int ROOMS = 100_000;
+
+    @Test
+    void compararMemoriaPorSala() {
+        WebSocketSession delegate = mock(WebSocketSession.class);
+        String[] ids = new String[ROOMS];
+        WebSocketSession[][] connections = new WebSocketSession[ROOMS][2];
+        for (int i = 0; i < ROOMS; i++) {
+            ids[i] = "CS-" + i;
+            connections[i][0] = new WebSocketSessionDecorator(delegate);
+            connections[i][1] = new WebSocketSessionDecorator(delegate);
+        }
+
+        long base = usedHeap();
+        Map<String, Map<String, WebSocketSession>> legacy = new ConcurrentHashMap<>();
+        for (int i = 0; i < ROOMS; i++) {
+            Map<String, WebSocketSession> room = legacy.computeIfAbsent(ids[i], k -> new ConcurrentHashMap<>());
+            room.put("U1", connections[i][0]);
+            room.put("U2", connections[i][1]);
+        }
+        long legacyBytes = usedHeap() - base;
+        assertEquals(ROOMS, legacy.size());
+        legacy = null;
+
+        base = usedHeap();
+        SessionRegistry registry = new SessionRegistry();
+        for (int i = 0; i < ROOMS; i++) {
+            registry.register(ids[i], "U1", connections[i][0]);
+            registry.register(ids[i], "U2", connections[i][1]);
+        }
+        long compactBytes = usedHeap() - base;
+        assertEquals(ROOMS, registry.all().size());
+        assertEquals(2 * ROOMS, registry.connections());
+
+        log.info("{} salas | ConcurrentHashMap por sala: {} B/sala | salas compactas + índice inverso: {} B/sala",
+                ROOMS, legacyBytes / ROOMS, compactBytes / ROOMS);
+
+        for (int i = 0; i < ROOMS; i++) {
+            assertEquals(ids[i], registry.unregister(connections[i][0]));
+            assertEquals(ids[i], registry.unregister(connections[i][1]));
+        }
+        assertTrue(registry.all().isEmpty());
+        assertEquals(0, registry.connections());
+    }
+
+    private static long usedHeap() {
+        Runtime rt = Runtime.getRuntime();
+        long used = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            System.gc();
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+            used = Math.min(used, rt.totalMemory() - rt.freeMemory());
+        }
+        return used;
+    }
+}
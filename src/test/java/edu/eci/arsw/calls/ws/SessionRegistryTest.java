@@ -3,7 +3,14 @@ package edu.eci.arsw.calls.ws;
 import org.junit.jupiter.api.Test;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -84,6 +91,42 @@ class SessionRegistryTest {
         assertEquals(1, registry.get("S1").size());
     }
 
+    @Test
+    void unregister_deberiaEliminarLlamada_cuandoSaleElUltimo_casoFeliz3() {
+        SessionRegistry registry = new SessionRegistry();
+        registry.register("S1", "U1", mock(WebSocketSession.class));
+        registry.register("S1", "U2", mock(WebSocketSession.class));
+
+        registry.unregister("S1", "U1");
+        assertTrue(registry.all().containsKey("S1"));
+
+        registry.unregister("S1", "U2");
+        assertFalse(registry.all().containsKey("S1"));
+    }
+
+    @Test
+    void register_deberiaIndicarSiEsParticipanteNuevo_casoFeliz1() {
+        SessionRegistry registry = new SessionRegistry();
+
+        assertTrue(registry.register("S1", "U1", mock(WebSocketSession.class)));
+        assertFalse(registry.register("S1", "U1", mock(WebSocketSession.class)));
+        assertTrue(registry.unregister("S1", "U1"));
+        assertFalse(registry.unregister("S1", "U1"));
+    }
+
+    @Test
+    void unregister_noDeberiaEliminarConexionQueReemplazoALaAnterior() {
+        SessionRegistry registry = new SessionRegistry();
+        WebSocketSession vieja = mock(WebSocketSession.class);
+        WebSocketSession nueva = mock(WebSocketSession.class);
+        registry.register("S1", "U1", vieja);
+        registry.register("S1", "U1", nueva);
+
+        assertFalse(registry.unregister("S1", "U1", vieja));
+        assertSame(nueva, registry.get("S1").get("U1"));
+        assertTrue(registry.unregister("S1", "U1", nueva));
+    }
+
     @Test
     void unregister_noDeberiaPasar_cuandoSessionIdEsNull() {
         SessionRegistry registry = new SessionRegistry();
@@ -203,4 +246,182 @@ class SessionRegistryTest {
         inner.clear(); 
         assertEquals(0, registry.get("S1").size());
     }
+
+    // -------------------------------------------------------------------------
+    // Salas compactas e índice inverso
+    // -------------------------------------------------------------------------
+
+    @Test
+    void unregister_deberiaEliminarSalaAlSalirElUltimo_casoFeliz3() {
+        SessionRegistry registry = new SessionRegistry();
+        WebSocketSession ws1 = mock(WebSocketSession.class);
+        WebSocketSession ws2 = mock(WebSocketSession.class);
+        registry.register("S1", "U1", ws1);
+        registry.register("S1", "U2", ws2);
+
+        assertTrue(registry.unregister("S1", "U1", ws1));
+        assertEquals(1, registry.all().size());
+        assertTrue(registry.unregister("S1", "U2"));
+
+        assertTrue(registry.all().isEmpty());
+        assertEquals(0, registry.connections());
+    }
+
+    @Test
+    void unregisterPorConexion_deberiaDevolverLaSala_casoFeliz1() {
+        SessionRegistry registry = new SessionRegistry();
+        WebSocketSession ws1 = mock(WebSocketSession.class);
+        WebSocketSession ws2 = mock(WebSocketSession.class);
+        registry.register("S1", "U1", ws1);
+        registry.register("S1", "U2", ws2);
+
+        assertEquals("S1", registry.unregister(ws1));
+
+        assertEquals(Map.of("U2", ws2), Map.copyOf(registry.get("S1")));
+        assertEquals(1, registry.connections());
+    }
+
+    @Test
+    void unregisterPorConexion_noDeberiaPasar_cuandoLaConexionFueReemplazada() {
+        SessionRegistry registry = new SessionRegistry();
+        WebSocketSession old = mock(WebSocketSession.class);
+        WebSocketSession fresh = mock(WebSocketSession.class);
+        registry.register("S1", "U1", old);
+        registry.register("S1", "U1", fresh);
+
+        assertNull(registry.unregister(old));
+
+        assertSame(fresh, registry.get("S1").get("U1"));
+        assertEquals(1, registry.connections());
+    }
+
+    @Test
+    void register_deberiaSacarLaConexionDeSuSalaAnterior_casoFeliz3() {
+        SessionRegistry registry = new SessionRegistry();
+        WebSocketSession ws = mock(WebSocketSession.class);
+        registry.register("S1", "U1", ws);
+
+        assertTrue(registry.register("S2", "U1", ws));
+
+        assertFalse(registry.all().containsKey("S1"));
+        assertEquals("S2", registry.unregister(ws));
+    }
+
+    @Test
+    void register_noDeberiaPasar_cuandoLaSalaEstaLlena() {
+        SessionRegistry registry = new SessionRegistry();
+        registry.register("S1", "U1", mock(WebSocketSession.class));
+        registry.register("S1", "U2", mock(WebSocketSession.class));
+
+        assertThrows(IllegalStateException.class,
+                () -> registry.register("S1", "U3", mock(WebSocketSession.class)));
+        assertFalse(registry.get("S1").containsKey("U3"));
+    }
+
+    @Test
+    void get_deberiaRecorrerYEliminarPorIterador_casoFeliz3() {
+        SessionRegistry registry = new SessionRegistry();
+        WebSocketSession ws1 = mock(WebSocketSession.class);
+        WebSocketSession ws2 = mock(WebSocketSession.class);
+        registry.register("S1", "U1", ws1);
+        registry.register("S1", "U2", ws2);
+
+        Map<String, WebSocketSession> room = registry.get("S1");
+        assertEquals(Map.of("U1", ws1, "U2", ws2), Map.copyOf(room));
+        room.entrySet().removeIf(e -> e.getKey().equals("U1"));
+
+        assertEquals(Map.of("U2", ws2), Map.copyOf(registry.get("S1")));
+        assertNull(registry.unregister(ws1));
+    }
+
+    @Test
+    void registerYUnregisterConcurrentes_noDeberianDejarSalasNiConexiones() throws Exception {
+        SessionRegistry registry = new SessionRegistry();
+        int threads = 8;
+        int rounds = 2_000;
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> workers = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                String user = "U" + t;
+                workers.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < rounds; i++) {
+                        WebSocketSession ws = mock(WebSocketSession.class);
+                        String room = "S" + (i % 4);
+                        try {
+                            registry.register(room, user, ws);
+                        } catch (IllegalStateException full) {
+                            continue;
+                        }
+                        assertEquals(room, registry.unregister(ws));
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> w : workers) {
+                w.get(60, TimeUnit.SECONDS);
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        assertTrue(registry.all().isEmpty());
+        assertEquals(0, registry.connections());
+    }
+
+    // -------------------------------------------------------------------------
+    // admit(String sessionId, String userId, WebSocketSession ws)
+    // -------------------------------------------------------------------------
+
+    @Test
+    void admit_deberiaAsignarIniciadorYRespondedor_casoFeliz1() {
+        SessionRegistry registry = new SessionRegistry();
+
+        assertEquals(SessionRegistry.Seat.INITIATOR, registry.admit("S1", "U1", mock(WebSocketSession.class)));
+        assertEquals(SessionRegistry.Seat.RESPONDER, registry.admit("S1", "U2", mock(WebSocketSession.class)));
+        assertEquals(SessionRegistry.Seat.FULL, registry.admit("S1", "U3", mock(WebSocketSession.class)));
+
+        assertEquals(2, registry.get("S1").size());
+    }
+
+    @Test
+    void admit_deberiaReadmitirSinOcuparOtroHueco_casoFeliz2() {
+        SessionRegistry registry = new SessionRegistry();
+        WebSocketSession fresh = mock(WebSocketSession.class);
+        registry.admit("S1", "U1", mock(WebSocketSession.class));
+        registry.admit("S1", "U2", mock(WebSocketSession.class));
+
+        SessionRegistry.Seat seat = registry.admit("S1", "U1", fresh);
+
+        assertEquals(SessionRegistry.Seat.REJOINED_RESPONDER, seat);
+        assertTrue(seat.rejoined());
+        assertFalse(seat.initiator());
+        assertSame(fresh, registry.get("S1").get("U1"));
+        assertEquals(2, registry.get("S1").size());
+    }
+
+    @Test
+    void admit_deberiaReadmitirComoIniciadorSiEstaSolo_casoFeliz3() {
+        SessionRegistry registry = new SessionRegistry();
+        registry.admit("S1", "U1", mock(WebSocketSession.class));
+
+        assertEquals(SessionRegistry.Seat.REJOINED_INITIATOR,
+                registry.admit("S1", "U1", mock(WebSocketSession.class)));
+    }
+
+    @Test
+    void admit_noDeberiaPasar_cuandoSalaLlenaNoIndexaLaConexion() {
+        SessionRegistry registry = new SessionRegistry();
+        WebSocketSession third = mock(WebSocketSession.class);
+        registry.admit("S1", "U1", mock(WebSocketSession.class));
+        registry.admit("S1", "U2", mock(WebSocketSession.class));
+
+        assertEquals(SessionRegistry.Seat.FULL, registry.admit("S1", "U3", third));
+
+        assertNull(registry.unregister(third));
+        assertEquals(2, registry.connections());
+    }
 }
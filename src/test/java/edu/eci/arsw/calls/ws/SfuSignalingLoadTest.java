@@ -0,0 +1,228 @@
+package edu.eci.arsw.calls.ws;
+
+import edu.eci.arsw.calls.domain.CallSession;
+import edu.eci.arsw.calls.pubsub.BridgeBuilder;
+import edu.eci.arsw.calls.pubsub.RedisPubSubBridge;
+import edu.eci.arsw.calls.service.CallSessionService;
+import edu.eci.arsw.calls.service.EligibilityService;
+import edu.eci.arsw.calls.service.EligibilityService.EligibilityResult;
+import edu.eci.arsw.calls.sfu.LocalSfu;
+import edu.eci.arsw.calls.sfu.SfuSignaling;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+/**
+ * Prueba de carga de una clase grande: los participantes entran de uno en uno
+ * y cada uno monta sus medios, en malla (OFFER/ANSWER/ICE con cada par) o con
+ * el SFU (una subida y una bajada que se renegocia). Mide por participante que
+ * entra el tiempo hasta que toda la sala termina de negociar y los mensajes
+ * que maneja el servidor (recibidos más enviados). Los clientes se emulan en
+ * un solo hilo que responde a lo que reciben. Se ejecuta con
+ * {@code mvn -Pperf test}.
+ */
+@Tag("benchmark")
+class SfuSignalingLoadTest {
+    private static final Logger log = LoggerFactory.getLogger(SfuSignalingLoadTest.class);
+
+    private static final int[] CLASS_SIZES = { 10, 30, 50 };
+    private static final int MAX_PARTIES = 50;
+    private static final int ICE_PER_TRANSPORT = 2;
+    private static final String SDP = "v=0\\r\\no=- 4611731400430051336 2 IN IP4 127.0.0.1\\r\\ns=-\\r\\nt=0 0\\r\\n"
+            + "m=video 9 UDP/TLS/RTP/SAVPF 96\\r\\nc=IN IP4 0.0.0.0\\r\\na=rtpmap:96 VP8/90000\\r\\n";
+
+    @Test
+    void compararMallaVsSfuPorParticipanteQueEntra() throws Exception {
+        // Calentamiento
+        run(false, 10);
+        run(true, 10);
+
+        log.info("Clase grande: mensajes del servidor y tiempo de montaje por participante que entra");
+        for (int n : CLASS_SIZES) {
+            Result mesh = run(false, n);
+            Result sfu = run(true, n);
+            log.info("  {} participantes | malla: {} msg/entrada (último {}), montaje medio {} ms (último {} ms)"
+                    + " | SFU: {} msg/entrada (último {}), montaje medio {} ms (último {} ms)",
+                    n, mesh.meanMessages(), mesh.lastMessages(), String.format("%.3f", mesh.meanSetupMs()),
+                    String.format("%.3f", mesh.lastSetupMs()), sfu.meanMessages(), sfu.lastMessages(),
+                    String.format("%.3f", sfu.meanSetupMs()), String.format("%.3f", sfu.lastSetupMs()));
+
+            assertTrue(sfu.lastMessages() < mesh.lastMessages());
+        }
+    }
+
+    private static Result run(boolean viaSfu, int parties) throws Exception {
+        Map<String, CallSession> store = new ConcurrentHashMap<>();
+        CallSessionService callService = mock(CallSessionService.class, withSettings().stubOnly());
+        EligibilityService eligibility = mock(EligibilityService.class, withSettings().stubOnly());
+        when(eligibility.checkReservation(anyString(), anyString(), any())).thenReturn(EligibilityResult.ok());
+        when(callService.findBySessionId(anyString()))
+                .thenAnswer(inv -> Optional.ofNullable(store.get(inv.<String>getArgument(0))));
+        when(callService.create(anyString())).thenAnswer(inv -> {
+            String reservationId = inv.getArgument(0);
+            CallSession cs = CallSession.create("CS-" + reservationId, reservationId, Instant.now());
+            store.put(cs.getSessionId(), cs);
+            return cs;
+        });
+
+        SignalingCodecs codecs = new SignalingCodecs();
+        InboundDispatcher inbound = new InboundDispatcher(false);
+        RedisPubSubBridge bridge = BridgeBuilder.node("class").build();
+        LocalSfu sfu = viaSfu ? new LocalSfu(new SimpleMeterRegistry(), true) : null;
+        CallWebSocketHandler handler = HandlerBuilder.of(new SessionRegistry(MAX_PARTIES), callService,
+                new JoinPipeline(callService, eligibility, new SimpleMeterRegistry(), Runnable::run,
+                        2_000, 3_000, 2_000),
+                bridge).codecs(codecs).inbound(inbound)
+                .contexts(new ConnectionContexts(RateLimitPolicy.of(Integer.MAX_VALUE)))
+                .routes(new PeerRoutes(new SimpleMeterRegistry(), true)).sfu(sfu).build();
+
+        String reservationId = (viaSfu ? "SFU-" : "MESH-") + parties;
+        String sessionId = "CS-" + reservationId;
+        Deque<Inbound> pending = new ArrayDeque<>();
+        long[] messages = new long[1];
+        List<String> joined = new ArrayList<>();
+        long[] joinMessages = new long[parties];
+        long[] joinNanos = new long[parties];
+
+        try {
+            for (int i = 0; i < parties; i++) {
+                String user = "P" + i;
+                List<String> present = List.copyOf(joined);
+                WebSocketSession[] self = new WebSocketSession[1];
+                boolean[] downstream = new boolean[1];
+                Consumer<TextMessage> send = msg -> pending.add(new Inbound(self[0], msg));
+                self[0] = session("WS-" + i, user, text -> {
+                    messages[0]++;
+                    if (viaSfu) {
+                        reactSfu(text, sessionId, send, downstream);
+                    } else {
+                        reactMesh(text, sessionId, user, present, send);
+                    }
+                });
+
+                long before = messages[0];
+                long start = System.nanoTime();
+                send.accept(new TextMessage("{\"type\":\"JOIN\",\"sessionId\":\"" + sessionId
+                        + "\",\"reservationId\":\"" + reservationId + "\"}"));
+                // Las respuestas de los clientes se encolan para no reentrar en el handler
+                for (Inbound in; (in = pending.poll()) != null;) {
+                    messages[0]++;
+                    handler.handleTextMessage(in.from(), in.message());
+                }
+                joinNanos[i] = System.nanoTime() - start;
+                joinMessages[i] = messages[0] - before;
+                joined.add(user);
+            }
+        } finally {
+            inbound.shutdown();
+        }
+
+        if (viaSfu) {
+            // Una subida por participante y en la bajada las pistas de todos los demás
+            assertEquals(parties, sfu.publishers(sessionId));
+            assertEquals(parties - 1, sfu.streams(sessionId, "P0").size());
+        }
+        long total = 0;
+        long nanos = 0;
+        for (int i = 0; i < parties; i++) {
+            total += joinMessages[i];
+            nanos += joinNanos[i];
+        }
+        return new Result(total / parties, joinMessages[parties - 1], nanos / 1e6 / parties,
+                joinNanos[parties - 1] / 1e6);
+    }
+
+    /** Malla: quien entra ofrece a cada par presente; cada par responde y ambos envían sus candidatos. */
+    private static void reactMesh(String text, String sessionId, String user, List<String> present,
+            Consumer<TextMessage> send) {
+        if (text.contains("\"JOIN_ACK\"")) {
+            for (String peer : present) {
+                send.accept(signal("OFFER", sessionId, user, peer, "{\"type\":\"offer\",\"sdp\":\"" + SDP + "\"}"));
+            }
+        } else if (text.contains("\"type\":\"OFFER\"")) {
+            String peer = field(text, "from");
+            send.accept(signal("ANSWER", sessionId, user, peer, "{\"type\":\"answer\",\"sdp\":\"" + SDP + "\"}"));
+            candidates(sessionId, user, peer, null, send);
+        } else if (text.contains("\"type\":\"ANSWER\"")) {
+            candidates(sessionId, user, field(text, "from"), null, send);
+        }
+    }
+
+    /** SFU: al entrar se publica la subida; cada oferta de bajada se responde. */
+    private static void reactSfu(String text, String sessionId, Consumer<TextMessage> send, boolean[] downstream) {
+        if (text.contains("\"JOIN_ACK\"")) {
+            send.accept(signal("OFFER", sessionId, null, SfuSignaling.PEER,
+                    "{\"type\":\"offer\",\"sdp\":\"" + SDP + "\"}"));
+            candidates(sessionId, null, SfuSignaling.PEER, "send", send);
+        } else if (text.contains("\"type\":\"OFFER\"") && text.contains("\"from\":\"sfu\"")) {
+            send.accept(signal("ANSWER", sessionId, null, SfuSignaling.PEER,
+                    "{\"type\":\"answer\",\"sdp\":\"" + SDP + "\"}"));
+            if (!downstream[0]) {
+                downstream[0] = true;
+                candidates(sessionId, null, SfuSignaling.PEER, "recv", send);
+            }
+        }
+    }
+
+    private static void candidates(String sessionId, String from, String to, String transport,
+            Consumer<TextMessage> send) {
+        for (int i = 0; i < ICE_PER_TRANSPORT; i++) {
+            send.accept(signal("ICE_CANDIDATE", sessionId, from, to, "{\"candidate\":\"candidate:" + i
+                    + " 1 udp 2122260223 192.168.1." + (10 + i) + " 5" + (1000 + i) + " typ host\""
+                    + (transport == null ? "" : ",\"transport\":\"" + transport + "\"") + "}"));
+        }
+    }
+
+    private static TextMessage signal(String type, String sessionId, String from, String to, String payload) {
+        return new TextMessage("{\"type\":\"" + type + "\",\"sessionId\":\"" + sessionId + "\""
+                + (from == null ? "" : ",\"from\":\"" + from + "\"") + ",\"to\":\"" + to + "\",\"payload\":"
+                + payload + "}");
+    }
+
+    private static String field(String json, String name) {
+        String key = "\"" + name + "\":\"";
+        int start = json.indexOf(key) + key.length();
+        return json.substring(start, json.indexOf('"', start));
+    }
+
+    private static WebSocketSession session(String id, String userId, Consumer<String> onSend) throws Exception {
+        WebSocketSession ws = mock(WebSocketSession.class, withSettings().stubOnly());
+        Map<String, Object> attrs = new ConcurrentHashMap<>();
+        attrs.put("userId", userId);
+        attrs.put("token", "Bearer class");
+        when(ws.getId()).thenReturn(id);
+        when(ws.getAttributes()).thenReturn(attrs);
+        when(ws.isOpen()).thenReturn(true);
+        doAnswer(inv -> {
+            if (inv.getArgument(0) instanceof TextMessage text) {
+                onSend.accept(text.getPayload());
+            }
+            return null;
+        }).when(ws).sendMessage(any());
+        return ws;
+    }
+
+    private record Inbound(WebSocketSession from, TextMessage message) {
+    }
+
+    record Result(long meanMessages, long lastMessages, double meanSetupMs, double lastSetupMs) {
+    }
+}
@@ -0,0 +1,82 @@
+package edu.eci.arsw.calls.ws;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Benchmark JSON vs CBOR: bytes por mensaje y ns por mensaje (encode + decode)
+ * sobre un OFFER con SDP real y un ICE_CANDIDATE.
+ * Se ejecuta con {@code mvn -Pperf test}.
+ */
+@Tag("benchmark")
+class SignalingCodecBenchmarkTest {
+    private static final Logger log = LoggerFactory.getLogger(SignalingCodecBenchmarkTest.class);
+
+    private static final int WARMUP = 20_000;
+    private static final int ITERATIONS = 100_000;
+
+    private final SignalingCodecs codecs = new SignalingCodecs();
+
+    static String sdp(String name) throws IOException {
+        try (InputStream in = SignalingCodecBenchmarkTest.class.getResourceAsStream("/sdp/" + name)) {
+            assertNotNull(in, "Falta /sdp/" + name);
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static MessageEnvelope envelope(String type, Object payload) {
+        MessageEnvelope env = new MessageEnvelope();
+        env.type = type;
+        env.sessionId = "01JB4Y7W6Q0V2K8T3M5N9P1R4S";
+        env.from = "6f3c1b2e-8f9a-4d0b-9c3e-2a7d5e1f4b60";
+        env.ts = System.currentTimeMillis();
+        env.traceId = "01JB4Y7W6QAXZ3C4V5B6N7M8K9";
+        env.payload = payload;
+        return env;
+    }
+
+    @Test
+    void compararJsonVsCbor() throws IOException {
+        MessageEnvelope offer = envelope("OFFER", Map.of("type", "offer", "sdp", sdp("offer-chrome.sdp")));
+        MessageEnvelope ice = envelope("ICE_CANDIDATE", Map.of(
+                "candidate", "candidate:842163049 1 udp 1677729535 190.24.56.7 61234 typ srflx raddr 0.0.0.0 rport 0"
+                        + " generation 0 ufrag Xq7P network-cost 999",
+                "sdpMid", "0", "sdpMLineIndex", 0));
+
+        for (MessageEnvelope env : new MessageEnvelope[] { offer, ice }) {
+            Result json = run(codecs.json(), env);
+            Result cbor = run(codecs.forInbound(true), env);
+            log.info("{} json: {} B, {} ns/msg | cbor: {} B, {} ns/msg",
+                    env.type, json.bytes(), json.nsPerMsg(), cbor.bytes(), cbor.nsPerMsg());
+            assertTrue(cbor.bytes() <= json.bytes());
+        }
+    }
+
+    private static Result run(SignalingCodec codec, MessageEnvelope env) throws IOException {
+        WebSocketMessage<?> frame = null;
+        for (int i = 0; i < WARMUP; i++) {
+            frame = codec.encode(env);
+            codec.decode(frame);
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            frame = codec.encode(env);
+            codec.decode(frame);
+        }
+        long elapsed = System.nanoTime() - start;
+        return new Result(frame.getPayloadLength(), elapsed / ITERATIONS);
+    }
+
+    record Result(int bytes, long nsPerMsg) {
+    }
+}
@@ -0,0 +1,126 @@
+package edu.eci.arsw.calls.ws;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+class SignalingCodecsTest {
+
+    private final SignalingCodecs codecs = new SignalingCodecs();
+
+    private static MessageEnvelope offer() {
+        MessageEnvelope env = new MessageEnvelope();
+        env.type = "OFFER";
+        env.sessionId = "SID-1";
+        env.from = "U1";
+        env.to = "U2";
+        env.ts = 42L;
+        env.traceId = "T-1";
+        env.payload = Map.of("type", "offer", "sdp", "v=0\r\no=- 1 2 IN IP4 127.0.0.1\r\n");
+        return env;
+    }
+
+    // -------------------------------------------------------------------------
+    // forSession / forInbound
+    // -------------------------------------------------------------------------
+
+    @Test
+    void forSession_deberiaUsarJsonSinSubprotocolo_casoFeliz1() {
+        WebSocketSession ws = mock(WebSocketSession.class);
+
+        assertSame(codecs.json(), codecs.forSession(ws));
+        assertTrue(codecs.isJson(ws));
+    }
+
+    @Test
+    void forSession_deberiaUsarCborCuandoSeNegocio_casoFeliz2() {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        when(ws.getAcceptedProtocol()).thenReturn(CborSignalingCodec.SUBPROTOCOL);
+
+        assertEquals(CborSignalingCodec.SUBPROTOCOL, codecs.forSession(ws).subprotocol());
+        assertFalse(codecs.isJson(ws));
+    }
+
+    @Test
+    void forSession_deberiaUsarJson_cuandoSubprotocoloDesconocido() {
+        WebSocketSession ws = mock(WebSocketSession.class);
+        when(ws.getAcceptedProtocol()).thenReturn("otro");
+
+        assertTrue(codecs.isJson(ws));
+    }
+
+    @Test
+    void subprotocols_deberiaPreferirCbor() {
+        assertEquals(List.of(CborSignalingCodec.SUBPROTOCOL, JsonSignalingCodec.SUBPROTOCOL),
+                codecs.subprotocols());
+    }
+
+    // -------------------------------------------------------------------------
+    // encode / decode
+    // -------------------------------------------------------------------------
+
+    @Test
+    void json_deberiaHacerRoundTripEnTexto() throws IOException {
+        WebSocketMessage<?> frame = codecs.json().encode(offer());
+
+        assertInstanceOf(TextMessage.class, frame);
+        LazyEnvelope back = codecs.forInbound(false).decode(frame);
+        assertEquals("OFFER", back.type);
+        assertEquals("U2", back.to);
+        assertEquals(42L, back.ts);
+        assertEquals("offer", back.payloadField("type"));
+    }
+
+    @Test
+    void json_deberiaAceptarJsonEnFrameBinario() throws IOException {
+        byte[] bytes = "{\"type\":\"HEARTBEAT\",\"sessionId\":\"S\"}".getBytes();
+
+        LazyEnvelope back = codecs.json().decode(new BinaryMessage(bytes));
+
+        assertEquals("HEARTBEAT", back.type);
+    }
+
+    @Test
+    void cbor_deberiaHacerRoundTripEnBinarioYSerMasCompacto() throws IOException {
+        WebSocketMessage<?> json = codecs.json().encode(offer());
+        WebSocketMessage<?> bin = codecs.forInbound(true).encode(offer());
+
+        assertInstanceOf(BinaryMessage.class, bin);
+        assertTrue(bin.getPayloadLength() < json.getPayloadLength());
+        LazyEnvelope back = codecs.forInbound(true).decode(bin);
+        assertEquals("OFFER", back.type);
+        assertEquals("T-1", back.traceId);
+        assertEquals("offer", back.payloadField("type"));
+    }
+
+    @Test
+    void cbor_deberiaTranscodificarJsonCanonico() throws IOException {
+        SignalingCodec cbor = codecs.forInbound(true);
+        String json = "{\"type\":\"ICE_CANDIDATE\",\"from\":\"U1\","
+                + "\"payload\":{\"candidate\":\"c\",\"sdpMLineIndex\":0}}";
+
+        WebSocketMessage<?> bin = cbor.encodeJson(json);
+
+        LazyEnvelope back = cbor.decode(bin);
+        assertEquals("ICE_CANDIDATE", back.type);
+        assertEquals("U1", back.from);
+        assertEquals("{\"candidate\":\"c\",\"sdpMLineIndex\":0}", back.payloadJson());
+    }
+
+    @Test
+    void cbor_noDeberiaPasar_cuandoFrameEsTexto() {
+        SignalingCodec cbor = codecs.forInbound(true);
+        TextMessage text = new TextMessage("{}");
+
+        assertThrows(IOException.class, () -> cbor.decode(text));
+    }
+}
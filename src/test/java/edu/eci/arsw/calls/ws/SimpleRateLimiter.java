@@ -5,7 +5,8 @@ import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Limitador de tasa simple para controlar la cantidad de solicitudes por
- * segundo.
+ * segundo. Ya no se usa en producción: queda como referencia (ventana fija,
+ * synchronized) de {@link RateLimiterBenchmark}.
  */
 public class SimpleRateLimiter {
     private final int limitPerSecond;
@@ -0,0 +1,144 @@
+package edu.eci.arsw.calls.ws;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TokenBucketRateLimiterTest {
+
+    // -------------------------------------------------------------------------
+    // tryAcquire()
+    // -------------------------------------------------------------------------
+
+    @Test
+    void tryAcquire_deberiaPermitirLaRafaga_casoFeliz1() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(3, 3, Map.of());
+
+        assertTrue(limiter.tryAcquire("HEARTBEAT"));
+        assertTrue(limiter.tryAcquire("HEARTBEAT"));
+        assertTrue(limiter.tryAcquire("HEARTBEAT"));
+        assertFalse(limiter.tryAcquire("HEARTBEAT"));
+    }
+
+    @Test
+    void tryAcquire_deberiaReponerTokens_conElTiempo_casoFeliz2() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(20, 1, Map.of());
+
+        assertTrue(limiter.tryAcquire(null));
+        assertFalse(limiter.tryAcquire(null));
+
+        org.awaitility.Awaitility.await()
+                .atMost(java.time.Duration.ofSeconds(1))
+                .until(() -> limiter.tryAcquire(null));
+    }
+
+    @Test
+    void tryAcquire_deberiaUsarCuboPropio_porTipo_casoFeliz3() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, Map.of(
+                "ICE_CANDIDATE", new TokenBucketRateLimiter.TypeLimit(1, 5)));
+
+        for (int i = 0; i < 5; i++) {
+            assertTrue(limiter.tryAcquire("ICE_CANDIDATE"));
+        }
+        assertFalse(limiter.tryAcquire("ICE_CANDIDATE"));
+        // El cubo por defecto no se ve afectado por los ICE
+        assertTrue(limiter.tryAcquire("HEARTBEAT"));
+        assertFalse(limiter.tryAcquire("HEARTBEAT"));
+    }
+
+    @Test
+    void tryAcquire_deberiaCobrarElCosteDelTipo_casoFeliz4() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, Map.of(
+                "OFFER", new TokenBucketRateLimiter.TypeLimit(2, 4)));
+
+        assertTrue(limiter.tryAcquire("OFFER"));
+        assertTrue(limiter.tryAcquire("OFFER"));
+        assertFalse(limiter.tryAcquire("OFFER"));
+    }
+
+    @Test
+    void acquire_noDeberiaSuperarLaTasaDeLaConexion_conVariosTipos_casoFeliz5() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, Map.of(
+                "OFFER", new TokenBucketRateLimiter.TypeLimit(1, 1),
+                "ANSWER", new TokenBucketRateLimiter.TypeLimit(1, 1)));
+        long maxWait = TimeUnit.SECONDS.toNanos(1);
+
+        // Cada tipo gasta su ráfaga sin afectar a los demás
+        assertEquals(0, limiter.acquire("OFFER", maxWait));
+        assertEquals(0, limiter.acquire("ANSWER", maxWait));
+        assertEquals(0, limiter.acquire(null, maxWait));
+
+        // En régimen los tres tipos comparten los 10 tokens/s de la conexión
+        limiter.acquire("OFFER", maxWait);
+        limiter.acquire("ANSWER", maxWait);
+        long wait = limiter.acquire(null, maxWait);
+
+        assertTrue(wait > TimeUnit.MILLISECONDS.toNanos(250), "wait=" + wait);
+    }
+
+    @Test
+    void tryAcquire_noDeberiaPasar_cuandoLimiteEsCero() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(0, 5, Map.of());
+
+        assertFalse(limiter.tryAcquire("HEARTBEAT"));
+    }
+
+    @Test
+    void tryAcquire_noDeberiaSuperarLaRafaga_cuandoHayContencion() throws Exception {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 100, Map.of());
+        AtomicInteger allowed = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        CountDownLatch start = new CountDownLatch(1);
+        try {
+            for (int t = 0; t < 8; t++) {
+                pool.submit(() -> {
+                    start.await();
+                    for (int i = 0; i < 1_000; i++) {
+                        if (limiter.tryAcquire("ICE_CANDIDATE")) {
+                            allowed.incrementAndGet();
+                        }
+                    }
+                    return null;
+                });
+            }
+            start.countDown();
+        } finally {
+            pool.shutdown();
+            assertTrue(pool.awaitTermination(10, TimeUnit.SECONDS));
+        }
+
+        // 100 de ráfaga y, como mucho, algún token repuesto durante la prueba
+        assertTrue(allowed.get() >= 100 && allowed.get() <= 110, "allowed=" + allowed.get());
+    }
+
+    // -------------------------------------------------------------------------
+    // acquire()
+    // -------------------------------------------------------------------------
+
+    @Test
+    void acquire_deberiaDevolverEspera_cuandoCabeEnElMaximo_casoFeliz1() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(10, 1, Map.of());
+        long maxWait = TimeUnit.MILLISECONDS.toNanos(500);
+
+        assertEquals(0, limiter.acquire("OFFER", maxWait));
+        long wait = limiter.acquire("OFFER", maxWait);
+
+        assertTrue(wait > 0 && wait <= TimeUnit.MILLISECONDS.toNanos(100), "wait=" + wait);
+    }
+
+    @Test
+    void acquire_noDeberiaPasar_cuandoLaEsperaSuperaElMaximo() {
+        TokenBucketRateLimiter limiter = new TokenBucketRateLimiter(1, 1, Map.of());
+
+        assertEquals(0, limiter.acquire("OFFER", TimeUnit.MILLISECONDS.toNanos(10)));
+        assertEquals(TokenBucketRateLimiter.REJECTED,
+                limiter.acquire("OFFER", TimeUnit.MILLISECONDS.toNanos(10)));
+    }
+}